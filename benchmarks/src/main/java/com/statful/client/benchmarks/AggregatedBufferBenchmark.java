@@ -0,0 +1,61 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.buffer.AggregatedBuffer;
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of many threads putting aggregated metrics into a single {@link AggregatedBuffer}, while one
+ * thread drains it in batches of flush size.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar AggregatedBufferBenchmark -tg 1,1 -prof gc</code>,
+ * where <code>-tg</code> sets the number of producer and drainer threads.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregatedBufferBenchmark {
+
+    private static final int MAX_BUFFER_SIZE = 5000;
+    private static final int FLUSH_SIZE = 10;
+    private static final int PRODUCERS = 7;
+
+    private static final String METRIC = "application.timer.execution,unit=ms,app=benchmark 26 1465394947 100";
+
+    private AggregatedBuffer buffer;
+
+    /**
+     * Creates an empty buffer for each iteration.
+     */
+    @Setup(Level.Iteration)
+    public final void setUp() {
+        buffer = new AggregatedBuffer(MAX_BUFFER_SIZE, FLUSH_SIZE);
+    }
+
+    /**
+     * Puts an aggregated metric into the buffer, as recording threads do.
+     *
+     * @return Whether the metric was inserted
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(PRODUCERS)
+    public final boolean put() {
+        return buffer.addToBuffer(METRIC, Aggregation.AVG, AggregationFrequency.FREQ_10);
+    }
+
+    /**
+     * Drains a batch from the buffer, as the flusher does.
+     *
+     * @return The drained batch
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public final String drain() {
+        return buffer.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+    }
+}
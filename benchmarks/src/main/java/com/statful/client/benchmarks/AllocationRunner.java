@@ -0,0 +1,34 @@
+package com.statful.client.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs a benchmark with the {@link GCProfiler} always added, so that its allocation per operation is reported along
+ * with its time, without having to pass <code>-prof gc</code>.
+ */
+final class AllocationRunner {
+
+    private AllocationRunner() {
+    }
+
+    /**
+     * Runs the benchmarks of a class, with the {@link GCProfiler} and any other JMH command line options.
+     *
+     * @param benchmark The class of the benchmarks to run
+     * @param args The JMH command line options, such as <code>-t 4</code>
+     * @throws RunnerException If the benchmarks fail to run
+     * @throws CommandLineOptionException If the command line options are invalid
+     */
+    static void run(final Class<?> benchmark, final String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(benchmark.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
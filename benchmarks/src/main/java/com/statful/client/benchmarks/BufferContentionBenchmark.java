@@ -0,0 +1,77 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.buffer.MessageBuffer;
+import com.statful.client.core.buffer.OffHeapBuffer;
+import com.statful.client.core.buffer.RingBuffer;
+import com.statful.client.core.buffer.ShardedBuffer;
+import com.statful.client.core.buffer.StandardBuffer;
+import com.statful.client.domain.api.BufferType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of many threads putting metrics into a single buffer, while one thread drains it in batches
+ * of flush size, comparing the {@link StandardBuffer} queue against the lock-free {@link RingBuffer} and the
+ * {@link ShardedBuffer}.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar BufferContentionBenchmark -tg 1,1 -prof gc</code>,
+ * where <code>-tg</code> sets the number of producer and drainer threads. Running with 1, 2, 4 and 8 producers gives
+ * the scaling curve of each buffer over producer threads.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BufferContentionBenchmark {
+
+    private static final int MAX_BUFFER_SIZE = 5000;
+    private static final int FLUSH_SIZE = 10;
+    private static final int PRODUCERS = 7;
+
+    private static final String METRIC = "application.timer.execution,unit=ms,app=benchmark 26 1465394947 avg,p90,count,10 100";
+
+    @Param({"BLOCKING_QUEUE", "RING_BUFFER", "SHARDED", "OFF_HEAP"})
+    private BufferType bufferType;
+
+    private MessageBuffer buffer;
+
+    /**
+     * Creates an empty buffer for each iteration.
+     */
+    @Setup(Level.Iteration)
+    public final void setUp() {
+        if (bufferType == BufferType.RING_BUFFER) {
+            buffer = new RingBuffer(MAX_BUFFER_SIZE, FLUSH_SIZE);
+        } else if (bufferType == BufferType.SHARDED) {
+            buffer = new ShardedBuffer(MAX_BUFFER_SIZE, FLUSH_SIZE, 0);
+        } else if (bufferType == BufferType.OFF_HEAP) {
+            buffer = new OffHeapBuffer(MAX_BUFFER_SIZE, FLUSH_SIZE);
+        } else {
+            buffer = new StandardBuffer(MAX_BUFFER_SIZE, FLUSH_SIZE);
+        }
+    }
+
+    /**
+     * Puts a metric into the buffer, as recording threads do.
+     *
+     * @return Whether the metric was inserted
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(PRODUCERS)
+    public final boolean put() {
+        return buffer.addToBuffer(METRIC);
+    }
+
+    /**
+     * Drains a batch from the buffer, as the flusher does.
+     *
+     * @return The drained batch
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public final String drain() {
+        return buffer.readBuffer();
+    }
+}
@@ -0,0 +1,107 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.config.DefaultClientConfiguration;
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.core.sender.BufferedMetricsSender;
+import com.statful.client.core.sender.EncodedSeries;
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.BufferType;
+import com.statful.client.domain.api.Tags;
+import com.statful.client.domain.api.Transport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BufferedMetricsSender#put} end to end, from encoding the metric to flushing it into a
+ * {@link NoOpTransportSender}, so that the transport doesn't hide the cost of the client.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar BufferedMetricsSenderBenchmark -t 4 -prof gc</code>,
+ * where <code>-t</code> sets the number of recording threads. <code>putLongLatency</code> reports the percentiles of
+ * the time of a call, which include the flushes triggered by a full buffer when they run on the recording thread.
+ * Unlike {@code BufferContentionBenchmark}, which only adds to the buffer, every put here also checks whether to
+ * signal a flush, so run it with several threads to compare the buffer types on the whole put path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BufferedMetricsSenderBenchmark {
+
+    private static final String NAMESPACE = "application";
+    private static final String NAME = "timer.execution";
+    private static final long TIMESTAMP = 1465394947L;
+    private static final int SAMPLE_RATE = 100;
+    private static final long VALUE = 26L;
+
+    @Param({"BLOCKING_QUEUE", "RING_BUFFER", "SHARDED"})
+    private BufferType bufferType;
+
+    private BufferedMetricsSender sender;
+    private Tags tags;
+    private Aggregations aggregations;
+    private EncodedSeries series;
+    private String suffix;
+
+    /**
+     * Creates the sender and the metric configuration.
+     */
+    @Setup
+    public final void setUp() {
+        DefaultClientConfiguration configuration = new DefaultClientConfiguration();
+        configuration.setTransport(Transport.UDP);
+        configuration.setBufferType(bufferType);
+
+        sender = new BufferedMetricsSender(new NoOpTransportSender(), configuration, new ScheduledThreadPoolExecutor(1));
+        tags = Tags.from("unit", "ms");
+        tags.putTag("app", "benchmark");
+        aggregations = Aggregations.from(Aggregation.AVG, Aggregation.P90, Aggregation.COUNT);
+        series = sender.encodeSeries(NAME, tags, NAMESPACE);
+        suffix = MessageEncoder.encodeSuffix(aggregations, AggregationFrequency.FREQ_10, SAMPLE_RATE);
+    }
+
+    /**
+     * Shuts the sender down.
+     */
+    @TearDown
+    public final void tearDown() {
+        sender.shutdown();
+    }
+
+    /**
+     * Puts a metric whose value is a string.
+     */
+    @Benchmark
+    public final void putString() {
+        sender.put(NAME, "26", tags, aggregations, AggregationFrequency.FREQ_10, SAMPLE_RATE, NAMESPACE, TIMESTAMP);
+    }
+
+    /**
+     * Puts a metric whose value is a long.
+     */
+    @Benchmark
+    public final void putLong() {
+        sender.put(NAME, VALUE, tags, aggregations, AggregationFrequency.FREQ_10, SAMPLE_RATE, NAMESPACE, TIMESTAMP);
+    }
+
+    /**
+     * Puts a metric whose value is a long, sampling the time of each call, so that the percentiles show the calls that
+     * fill the buffer up to the flush size as well.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public final void putLongLatency() {
+        sender.put(NAME, VALUE, tags, aggregations, AggregationFrequency.FREQ_10, SAMPLE_RATE, NAMESPACE, TIMESTAMP);
+    }
+
+    /**
+     * Puts a metric whose prefix and suffix were encoded beforehand, as handles do.
+     */
+    @Benchmark
+    public final void putEncoded() {
+        sender.putEncoded(series, VALUE, suffix, SAMPLE_RATE, TIMESTAMP);
+    }
+}
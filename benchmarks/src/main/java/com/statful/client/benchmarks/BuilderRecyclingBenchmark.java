@@ -0,0 +1,178 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.api.MetricsSenderAPI;
+import com.statful.client.core.api.MetricsSenderAPIPool;
+import com.statful.client.core.api.MetricsSenderProxy;
+import com.statful.client.domain.api.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the allocations of building and sending a timer through the fluent API, without the buffering and
+ * encoding behind it, comparing:
+ * <ul>
+ * <li>the builder as it used to be created, with its own proxy, facade and copies of the default tags and
+ * aggregations;</li>
+ * <li>a fresh builder that shares the proxy and references the defaults, which the JIT can scalar-replace;</li>
+ * <li>a builder recycled from a {@link MetricsSenderAPIPool}.</li>
+ * </ul>
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar BuilderRecyclingBenchmark -prof gc</code>,
+ * and compare the <code>gc.alloc.rate.norm</code> of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BuilderRecyclingBenchmark {
+
+    private static final String NAMESPACE = "application";
+    private static final String NAME = "timer.execution";
+    private static final long VALUE = 26L;
+    private static final int SAMPLE_RATE = 100;
+
+    @Param({"false", "true"})
+    private boolean withTag;
+
+    private final CountingMetricsSender metricsSender = new CountingMetricsSender();
+    private final MetricsSenderProxy metricsSenderProxy = new MetricsSenderProxy(metricsSender);
+    private final MetricsSenderAPIPool pool = new MetricsSenderAPIPool(metricsSender);
+
+    private final Tags defaultTags = Tags.from("unit", "ms");
+    private final Aggregations defaultAggregations = Aggregations.from(Aggregation.AVG, Aggregation.P90, Aggregation.COUNT);
+
+    /**
+     * Sends a timer through a builder created as it used to be.
+     *
+     * @return The number of metrics sent
+     */
+    @Benchmark
+    public final long legacy() {
+        MetricsSenderAPI builder = MetricsSenderAPI.newInstance(metricsSender, false);
+        SenderFacade facade = new LegacyFacade(build(builder.tags(new Tags().merge(defaultTags))
+                .aggregations(new Aggregations().merge(defaultAggregations))));
+        send(facade);
+        return metricsSender.count;
+    }
+
+    /**
+     * Sends a timer through a fresh builder that references the defaults.
+     *
+     * @return The number of metrics sent
+     */
+    @Benchmark
+    public final long fresh() {
+        MetricsSenderAPI builder = MetricsSenderAPI.newInstance(metricsSenderProxy, false);
+        send(build(builder.tags(defaultTags).aggregations(defaultAggregations)));
+        return metricsSender.count;
+    }
+
+    /**
+     * Sends a timer through a recycled builder.
+     *
+     * @return The number of metrics sent
+     */
+    @Benchmark
+    public final long recycled() {
+        MetricsSenderAPI builder = pool.acquire(false);
+        send(build(builder.tags(defaultTags).aggregations(defaultAggregations)));
+        return metricsSender.count;
+    }
+
+    private static MetricsSenderAPI build(final MetricsSenderAPI builder) {
+        return builder.namespace(NAMESPACE).sampleRate(SAMPLE_RATE).aggregationFrequency(AggregationFrequency.FREQ_10)
+                .name(NAME).value(VALUE);
+    }
+
+    private void send(final SenderFacade facade) {
+        if (withTag) {
+            facade.with().tag("host", "localhost").send();
+        } else {
+            facade.send();
+        }
+    }
+
+    /**
+     * Facade that wraps a builder, as the client used to for every metric.
+     */
+    private static final class LegacyFacade implements SenderFacade {
+
+        private final SenderAPI senderAPI;
+
+        LegacyFacade(final SenderAPI senderAPI) {
+            this.senderAPI = senderAPI;
+        }
+
+        @Override
+        public SenderAPI with() {
+            return senderAPI;
+        }
+
+        @Override
+        public void send() {
+            senderAPI.send();
+        }
+    }
+
+    /**
+     * Metrics sender that only counts metrics, and keeps the last tags as a real sender would read them.
+     */
+    private static final class CountingMetricsSender implements PrimitiveMetricsSender {
+
+        private long count;
+        private Tags lastTags;
+
+        @Override
+        public void put(final String name, final String value, final Tags tags, final Aggregations aggregations,
+                        final AggregationFrequency aggregationFrequency, final Integer sampleRate, final String namespace,
+                        final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void aggregatedPut(final String name, final String value, final Tags tags, final Aggregation aggregation,
+                                  final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                  final String namespace, final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void put(final String name, final long value, final Tags tags, final Aggregations aggregations,
+                        final AggregationFrequency aggregationFrequency, final Integer sampleRate, final String namespace,
+                        final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void put(final String name, final double value, final Tags tags, final Aggregations aggregations,
+                        final AggregationFrequency aggregationFrequency, final Integer sampleRate, final String namespace,
+                        final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void aggregatedPut(final String name, final long value, final Tags tags, final Aggregation aggregation,
+                                  final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                  final String namespace, final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void aggregatedPut(final String name, final double value, final Tags tags, final Aggregation aggregation,
+                                  final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                  final String namespace, final long timestamp) {
+            record(tags);
+        }
+
+        @Override
+        public void forceSyncFlush() { }
+
+        @Override
+        public void shutdown() { }
+
+        private void record(final Tags tags) {
+            count++;
+            lastTags = tags;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.CustomStatfulFactory;
+import com.statful.client.core.transport.TransportSender;
+import com.statful.client.domain.api.ClientConfiguration;
+import com.statful.client.domain.api.CounterHandle;
+import com.statful.client.domain.api.MetricHandle;
+import com.statful.client.domain.api.StatfulClient;
+import com.statful.client.domain.api.Tags;
+import com.statful.client.domain.api.Transport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the fluent {@link com.statful.client.domain.api.SenderAPI} chain of a {@link StatfulClient},
+ * compared to pre-bound handles, with a {@link NoOpTransportSender}.
+ * <p>
+ * Run with, for example: <code>java -cp benchmarks/target/benchmarks.jar com.statful.client.benchmarks.FluentApiBenchmark -t 4</code>,
+ * where <code>-t</code> sets the number of recording threads. The allocation per operation is always reported through the
+ * GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FluentApiBenchmark {
+
+    private static final long VALUE = 26L;
+
+    private StatfulClient client;
+    private MetricHandle timerHandle;
+    private CounterHandle counterHandle;
+
+    /**
+     * Builds a client that sends metrics to a {@link NoOpTransportSender}.
+     */
+    @Setup
+    public final void setUp() {
+        CustomStatfulFactory factory = new CustomStatfulFactory(Transport.UDP) {
+            @Override
+            protected TransportSender buildTransportSender(final ClientConfiguration configuration) {
+                return new NoOpTransportSender();
+            }
+        };
+
+        client = factory.buildClient().with().app("benchmark").build();
+        timerHandle = client.timerHandle("execution", Tags.from("host", "localhost"));
+        counterHandle = client.counterHandle("transactions", Tags.from("host", "localhost"));
+    }
+
+    /**
+     * Shuts the client down.
+     */
+    @TearDown
+    public final void tearDown() {
+        client.shutdown();
+    }
+
+    /**
+     * Sends a timer with the default configuration.
+     */
+    @Benchmark
+    public final void timer() {
+        client.timer("execution", VALUE).send();
+    }
+
+    /**
+     * Sends a timer with a tag added through the fluent chain.
+     */
+    @Benchmark
+    public final void timerWithTag() {
+        client.timer("execution", VALUE).with().tag("host", "localhost").send();
+    }
+
+    /**
+     * Increments a counter with a tag added through the fluent chain.
+     */
+    @Benchmark
+    public final void counterWithTag() {
+        client.counter("transactions").with().tag("host", "localhost").send();
+    }
+
+    /**
+     * Records a timer through a pre-bound handle.
+     */
+    @Benchmark
+    public final void timerHandle() {
+        timerHandle.record(VALUE);
+    }
+
+    /**
+     * Increments a counter through a pre-bound handle.
+     */
+    @Benchmark
+    public final void counterHandle() {
+        counterHandle.inc();
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler.
+     *
+     * @param args The JMH command line options
+     * @throws Exception If the benchmark fails to run
+     */
+    public static void main(final String[] args) throws Exception {
+        AllocationRunner.run(FluentApiBenchmark.class, args);
+    }
+}
@@ -0,0 +1,89 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.message.MessageBuilder;
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.Tags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building a metric line with {@link MessageBuilder} against encoding it with
+ * {@link MessageEncoder}, for a growing number of tags.
+ * <p>
+ * Run with, for example: <code>java -cp benchmarks/target/benchmarks.jar com.statful.client.benchmarks.MessageEncodingBenchmark</code>,
+ * which always reports the allocation per operation through the GC profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageEncodingBenchmark {
+
+    private static final String NAMESPACE = "application";
+    private static final String NAME = "timer.execution";
+    private static final String VALUE = "26";
+    private static final long TIMESTAMP = 1465394947L;
+    private static final int SAMPLE_RATE = 100;
+
+    @Param({"0", "2", "8"})
+    private int tagCount;
+
+    private Tags tags;
+    private Aggregations aggregations;
+
+    /**
+     * Creates the tags and aggregations of the metric.
+     */
+    @Setup
+    public final void setUp() {
+        tags = new Tags();
+        for (int i = 0; i < tagCount; i++) {
+            tags.putTag("tag" + i, "value " + i);
+        }
+
+        aggregations = Aggregations.from(Aggregation.AVG, Aggregation.P90, Aggregation.COUNT);
+    }
+
+    /**
+     * Builds the line with a new {@link MessageBuilder}.
+     *
+     * @return The metric line
+     */
+    @Benchmark
+    public final String messageBuilder() {
+        return MessageBuilder.newBuilder()
+                .withName(NAME)
+                .withValue(VALUE)
+                .withTags(tags)
+                .withAggregations(aggregations)
+                .withAggregationFreq(AggregationFrequency.FREQ_10)
+                .withNamespace(NAMESPACE)
+                .withTimestamp(TIMESTAMP)
+                .withSampleRate(SAMPLE_RATE)
+                .build();
+    }
+
+    /**
+     * Encodes the line with {@link MessageEncoder}.
+     *
+     * @return The metric line
+     */
+    @Benchmark
+    public final String messageEncoder() {
+        return MessageEncoder.encode(NAME, VALUE, tags, aggregations, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP,
+                SAMPLE_RATE);
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler.
+     *
+     * @param args The JMH command line options
+     * @throws Exception If the benchmark fails to run
+     */
+    public static void main(final String[] args) throws Exception {
+        AllocationRunner.run(MessageEncodingBenchmark.class, args);
+    }
+}
@@ -0,0 +1,18 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.transport.TransportSender;
+
+/**
+ * Transport sender that discards every message, so that benchmarks measure the client rather than the network.
+ */
+final class NoOpTransportSender implements TransportSender {
+
+    @Override
+    public void send(final String message) { }
+
+    @Override
+    public void send(final String message, final String uri) { }
+
+    @Override
+    public void shutdown() { }
+}
@@ -0,0 +1,73 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.sampling.ConsistentSampler;
+import com.statful.client.core.sampling.RandomSampler;
+import com.statful.client.core.sampling.Sampler;
+import com.statful.client.domain.api.Tags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of sampling decisions taken by many threads at once, comparing the shared generator behind
+ * {@link Math#random()} and a double division, as the client used to sample, against the {@link RandomSampler} and
+ * the {@link ConsistentSampler}.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar SamplingBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(SamplingBenchmark.THREADS)
+public class SamplingBenchmark {
+
+    static final int THREADS = 32;
+
+    private static final String NAMESPACE = "application";
+    private static final String NAME = "timer.execution";
+    private static final int SAMPLE_RATE = 50;
+    private static final int SAMPLE_RATE_DIVIDER = 100;
+
+    private final Sampler randomSampler = new RandomSampler();
+    private final Sampler consistentSampler = new ConsistentSampler();
+
+    private Tags tags;
+
+    /**
+     * Creates the tags of the sampled series.
+     */
+    @Setup
+    public final void setUp() {
+        tags = Tags.from(new String[] {"unit", "ms", "app", "benchmark"});
+    }
+
+    /**
+     * Samples with {@link Math#random()}, as the client used to.
+     *
+     * @return Whether the metric is kept
+     */
+    @Benchmark
+    public final boolean mathRandom() {
+        return Math.random() <= (double) SAMPLE_RATE / SAMPLE_RATE_DIVIDER;
+    }
+
+    /**
+     * Samples with the {@link RandomSampler}.
+     *
+     * @return Whether the metric is kept
+     */
+    @Benchmark
+    public final boolean randomSampler() {
+        return randomSampler.isSampled(SAMPLE_RATE, NAMESPACE, NAME, tags);
+    }
+
+    /**
+     * Samples with the {@link ConsistentSampler}.
+     *
+     * @return Whether the metric is kept
+     */
+    @Benchmark
+    public final boolean consistentSampler() {
+        return consistentSampler.isSampled(SAMPLE_RATE, NAMESPACE, NAME, tags);
+    }
+}
@@ -0,0 +1,69 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.series.SeriesRegistry;
+import com.statful.client.domain.api.CardinalityPolicy;
+import com.statful.client.domain.api.TagSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of looking up known series by many threads at once, in the {@link SeriesRegistry} and in
+ * a {@link ConcurrentHashMap} keyed by the namespace, name and tags of the series.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar SeriesRegistryBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(SeriesRegistryBenchmark.THREADS)
+public class SeriesRegistryBenchmark {
+
+    static final int THREADS = 8;
+
+    private static final String NAMESPACE = "application";
+    private static final String NAME = "timer.execution";
+    private static final int SERIES = 1000;
+
+    private SeriesRegistry registry;
+    private ConcurrentHashMap<String, Integer> map;
+    private TagSet[] tags;
+
+    /**
+     * Registers the looked up series.
+     */
+    @Setup
+    public final void setUp() {
+        registry = new SeriesRegistry(SERIES, CardinalityPolicy.OVERFLOW);
+        map = new ConcurrentHashMap<String, Integer>();
+        tags = new TagSet[SERIES];
+
+        for (int i = 0; i < SERIES; i++) {
+            tags[i] = TagSet.of("unit", "ms", "host", "host" + i);
+            registry.register(NAMESPACE, NAME, tags[i]);
+            map.put(NAMESPACE + "." + NAME + tags[i].getEncoded(), i);
+        }
+    }
+
+    /**
+     * Looks up a series in the {@link SeriesRegistry}.
+     *
+     * @return The series id
+     */
+    @Benchmark
+    public final int registry() {
+        return registry.register(NAMESPACE, NAME, tags[ThreadLocalRandom.current().nextInt(SERIES)]);
+    }
+
+    /**
+     * Looks up a series in a {@link ConcurrentHashMap}, by a key built from the series.
+     *
+     * @return The series id
+     */
+    @Benchmark
+    public final Integer concurrentHashMap() {
+        return map.get(NAMESPACE + "." + NAME + tags[ThreadLocalRandom.current().nextInt(SERIES)].getEncoded());
+    }
+}
@@ -0,0 +1,151 @@
+package com.statful.client.benchmarks;
+
+import com.statful.client.core.transport.TransportSender;
+import com.statful.client.transport.AsyncHTTPSender;
+import com.statful.client.transport.HTTPSender;
+import com.statful.client.transport.NonBlockingUDPSender;
+import com.statful.client.transport.SSLClientFactory;
+import com.statful.client.transport.UDPSender;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the {@link UDPSender}, {@link NonBlockingUDPSender}, {@link HTTPSender} and
+ * {@link AsyncHTTPSender} transports, sending a flush of metrics to stand-in servers on the loopback interface.
+ * <p>
+ * Run with, for example: <code>java -jar benchmarks/target/benchmarks.jar TransportBenchmark -t 4 -prof gc</code>,
+ * where <code>-t</code> sets the number of flushing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransportBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+    private static final String PATH = "/tel/v2.0/metrics";
+    private static final String METRIC = "application.timer.execution,unit=ms,app=benchmark 26 1465394947 avg,p90,count,10 100";
+    private static final int FLUSH_SIZE = 10;
+    private static final int MAX_DATAGRAM_SIZE = 65536;
+    private static final int HTTP_CREATED = 201;
+    private static final int SERVER_THREADS = 4;
+    private static final int CONNECTION_POOL_SIZE = 10;
+    private static final int TIMEOUT_MS = 1000;
+    private static final int MAX_IN_FLIGHT_REQUESTS = 20;
+
+    @Param({"UDP", "NON_BLOCKING_UDP", "HTTP", "ASYNC_HTTP"})
+    private String transport;
+
+    private String message;
+    private TransportSender sender;
+
+    private DatagramSocket udpServer;
+    private HttpServer httpServer;
+    private ExecutorService serverExecutor;
+
+    /**
+     * Starts the stand-in server and the sender of the transport.
+     *
+     * @throws IOException If the server can't be started
+     */
+    @Setup
+    public final void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FLUSH_SIZE; i++) {
+            sb.append(METRIC).append('\n');
+        }
+        message = sb.toString();
+        serverExecutor = Executors.newFixedThreadPool(SERVER_THREADS);
+
+        if ("UDP".equals(transport) || "NON_BLOCKING_UDP".equals(transport)) {
+            udpServer = new DatagramSocket(0, InetAddress.getByName(HOST));
+            serverExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    receiveDatagrams();
+                }
+            });
+            if ("UDP".equals(transport)) {
+                sender = new UDPSender(HOST, udpServer.getLocalPort());
+            } else {
+                sender = new NonBlockingUDPSender(HOST, udpServer.getLocalPort());
+            }
+        } else {
+            httpServer = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+            httpServer.createContext(PATH, new HttpHandler() {
+                @Override
+                public void handle(final HttpExchange exchange) throws IOException {
+                    discardRequest(exchange);
+                }
+            });
+            httpServer.setExecutor(serverExecutor);
+            httpServer.start();
+            SSLClientFactory clientFactory = new SSLClientFactory(CONNECTION_POOL_SIZE, TIMEOUT_MS, TIMEOUT_MS, "token");
+            if ("HTTP".equals(transport)) {
+                sender = new HTTPSender(false, HOST, httpServer.getAddress().getPort(), PATH, clientFactory);
+            } else {
+                sender = new AsyncHTTPSender(false, HOST, httpServer.getAddress().getPort(), PATH, clientFactory, MAX_IN_FLIGHT_REQUESTS);
+            }
+        }
+    }
+
+    /**
+     * Stops the sender and the stand-in server.
+     */
+    @TearDown
+    public final void tearDown() {
+        sender.shutdown();
+
+        if (udpServer != null) {
+            udpServer.close();
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * Sends a flush of metrics.
+     */
+    @Benchmark
+    public final void send() {
+        sender.send(message);
+    }
+
+    private void receiveDatagrams() {
+        DatagramPacket packet = new DatagramPacket(new byte[MAX_DATAGRAM_SIZE], MAX_DATAGRAM_SIZE);
+        try {
+            while (!udpServer.isClosed()) {
+                udpServer.receive(packet);
+            }
+        } catch (IOException e) {
+            // The socket was closed on tear down
+        }
+    }
+
+    private static void discardRequest(final HttpExchange exchange) throws IOException {
+        InputStream body = exchange.getRequestBody();
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        // Reading the whole body allows the connection to be reused
+        int read = body.read(buffer);
+        while (read != -1) {
+            read = body.read(buffer);
+        }
+        body.close();
+
+        exchange.sendResponseHeaders(HTTP_CREATED, -1);
+        exchange.close();
+    }
+}
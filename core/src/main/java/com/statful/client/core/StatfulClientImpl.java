@@ -1,20 +1,31 @@
 package com.statful.client.core;
 
 import com.statful.client.core.api.MetricsSenderAPI;
-import com.statful.client.core.api.StatfulClientFacade;
+import com.statful.client.core.api.MetricsSenderAPIPool;
+import com.statful.client.core.api.MetricsSenderProxy;
+import com.statful.client.core.sender.BufferedMetricsSender;
+import com.statful.client.core.sender.EncodedMetricsSender;
+import com.statful.client.core.sender.EncodedSeries;
 import com.statful.client.domain.api.*;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
  * This class is the Statful client, which allows to send metrics (timer, counter, gauge or raw metric) to Statful.
  */
-class StatfulClientImpl implements StatfulClient {
+class StatfulClientImpl implements StatfulClient, PrimitiveMetricsSender {
 
     private static final Logger LOGGER = Logger.getLogger(StatfulClientImpl.class.getName());
 
+    private static final long TIMESTAMP_DIVIDER = 1000L;
+
     private final MetricsSender metricsSender;
+    private final PrimitiveMetricsSender primitiveMetricsSender;
     private final ClientConfiguration configuration;
+    private final MetricsSenderProxy metricsSenderProxy;
+    private final MetricsSenderAPIPool builderPool;
 
     private boolean enabled = true;
 
@@ -26,20 +37,23 @@ class StatfulClientImpl implements StatfulClient {
      */
     StatfulClientImpl(final MetricsSender metricsSender, final ClientConfiguration configuration) {
         this.metricsSender = metricsSender;
+        this.primitiveMetricsSender = metricsSender instanceof PrimitiveMetricsSender ? (PrimitiveMetricsSender) metricsSender : null;
         this.configuration = configuration;
+        this.metricsSenderProxy = new MetricsSenderProxy(this);
+        this.builderPool = configuration.isBuilderRecyclingEnabled() ? new MetricsSenderAPIPool(this) : null;
     }
 
     @Override
     public final SenderFacade timer(final String metricName, final long value) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this).with()
+        MetricsSenderAPI metricsSenderAPI = newBuilder(false).with()
                 .configuration(configuration)
                 .aggregations(configuration.getTimerAggregations())
                 .aggregationFrequency(configuration.getTimerAggregationFrequency())
                 .tags(configuration.getTimerTags())
                 .name("timer." + metricName)
-                .value(Long.toString(value));
+                .value(value);
 
-        return new StatfulClientFacade(metricsSenderAPI);
+        return metricsSenderAPI;
     }
 
     @Override
@@ -49,133 +63,133 @@ class StatfulClientImpl implements StatfulClient {
 
     @Override
     public final SenderFacade counter(final String metricName, final int value) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this).with()
+        MetricsSenderAPI metricsSenderAPI = newBuilder(false).with()
                 .configuration(configuration)
                 .aggregations(configuration.getCounterAggregations())
                 .aggregationFrequency(configuration.getCounterAggregationFrequency())
                 .tags(configuration.getCounterTags())
                 .name("counter." + metricName)
-                .value(Integer.toString(value));
+                .value((long) value);
 
-        return new StatfulClientFacade(metricsSenderAPI);
+        return metricsSenderAPI;
     }
 
 
     @Override
     public final SenderFacade gauge(final String metricName, final Long value) {
-        return gauge(metricName, value.toString());
+        return gauge(metricName).value(value.longValue());
     }
 
     @Override
     public final SenderFacade gauge(final String metricName, final Double value) {
-        return gauge(metricName, value.toString());
+        return gauge(metricName).value(value.doubleValue());
     }
 
     @Override
     public final SenderFacade gauge(final String metricName, final Float value) {
-        return gauge(metricName, value.toString());
+        return gauge(metricName).value(value.toString());
     }
 
     @Override
     public final SenderFacade gauge(final String metricName, final Integer value) {
-        return gauge(metricName, value.toString());
+        return gauge(metricName).value(value.longValue());
     }
 
     @Override
     public final SenderFacade put(final String metricName, final Long value) {
-        return put(metricName, Long.toString(value));
+        return put(metricName).value(value.longValue());
     }
 
     @Override
     public final SenderFacade put(final String metricName, final Double value) {
-        return put(metricName, Double.toString(value));
+        return put(metricName).value(value.doubleValue());
     }
 
     @Override
     public final SenderFacade put(final String metricName, final Float value) {
-        return put(metricName, Float.toString(value));
+        return put(metricName).value(Float.toString(value));
     }
 
     @Override
     public final SenderFacade put(final String metricName, final Integer value) {
-        return put(metricName, Integer.toString(value));
+        return put(metricName).value(value.longValue());
     }
 
     @Override
     public final SenderFacade aggregatedTimer(final String metricName, final long value, final Aggregation aggregation,
                                               final AggregationFrequency aggregationFrequency) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this, true).with()
+        MetricsSenderAPI metricsSenderAPI = newBuilder(true).with()
                 .configuration(configuration)
                 .aggregation(aggregation)
                 .aggregationFrequency(aggregationFrequency)
                 .tags(configuration.getTimerTags())
                 .name("timer." + metricName)
-                .value(Long.toString(value));
+                .value(value);
 
-        return new StatfulClientFacade(metricsSenderAPI);
+        return metricsSenderAPI;
     }
 
     @Override
     public final SenderFacade aggregatedCounter(final String metricName, final int value, final Aggregation aggregation,
                                                 final AggregationFrequency aggregationFrequency) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this, true).with()
+        MetricsSenderAPI metricsSenderAPI = newBuilder(true).with()
                 .configuration(configuration)
                 .aggregation(aggregation)
                 .aggregationFrequency(aggregationFrequency)
                 .tags(configuration.getCounterTags())
                 .name("counter." + metricName)
-                .value(Long.toString(value));
+                .value((long) value);
 
-        return new StatfulClientFacade(metricsSenderAPI);
+        return metricsSenderAPI;
     }
 
     @Override
     public final SenderFacade aggregatedGauge(final String metricName, final Long value, final Aggregation aggregation,
                                               final AggregationFrequency aggregationFrequency) {
-        return aggregatedGauge(metricName, value.toString(), aggregation, aggregationFrequency);
+        return aggregatedGauge(metricName, aggregation, aggregationFrequency).value(value.longValue());
     }
 
     @Override
     public final SenderFacade aggregatedGauge(final String metricName, final Double value, final Aggregation aggregation,
                                               final AggregationFrequency aggregationFrequency) {
-        return aggregatedGauge(metricName, value.toString(), aggregation, aggregationFrequency);
+        return aggregatedGauge(metricName, aggregation, aggregationFrequency).value(value.doubleValue());
     }
 
     @Override
     public final SenderFacade aggregatedGauge(final String metricName, final Float value, final Aggregation aggregation,
                                               final AggregationFrequency aggregationFrequency) {
-        return aggregatedGauge(metricName, value.toString(), aggregation, aggregationFrequency);
+        return aggregatedGauge(metricName, aggregation, aggregationFrequency).value(value.toString());
     }
 
     @Override
     public final SenderFacade aggregatedGauge(final String metricName, final Integer value,
                                               final Aggregation aggregation,
                                               final AggregationFrequency aggregationFrequency) {
-        return aggregatedGauge(metricName, value.toString(), aggregation, aggregationFrequency);
+        return aggregatedGauge(metricName, aggregation, aggregationFrequency).value(value.longValue());
     }
 
     @Override
     public SenderFacade aggregatedPut(final String metricName, final Long value, final Aggregation aggregation,
                                       final AggregationFrequency aggregationFrequency) {
-        return aggregatedPut(metricName, Long.toString(value), aggregation, aggregationFrequency);
+        return aggregatedPut(metricName, aggregation, aggregationFrequency).value(value.longValue());
     }
 
     @Override
     public SenderFacade aggregatedPut(final String metricName, final Double value, final Aggregation aggregation,
                                       final AggregationFrequency aggregationFrequency) {
-        return aggregatedPut(metricName, Double.toString(value), aggregation, aggregationFrequency);
+        return aggregatedPut(metricName, aggregation, aggregationFrequency).value(value.doubleValue());
     }
 
     @Override
     public SenderFacade aggregatedPut(final String metricName, final Float value, final Aggregation aggregation,
                                       final AggregationFrequency aggregationFrequency) {
-        return aggregatedPut(metricName, Float.toString(value), aggregation, aggregationFrequency);
+        return aggregatedPut(metricName, aggregation, aggregationFrequency).value(Float.toString(value));
     }
 
     @Override
     public final SenderFacade aggregatedPut(final String metricName, final Integer value, final Aggregation aggregation,
                                             final AggregationFrequency aggregationFrequency) {
-        return aggregatedPut(metricName, Integer.toString(value), aggregation, aggregationFrequency);
+        return aggregatedPut(metricName, aggregation, aggregationFrequency).value(value.longValue());
     }
 
     @Override
@@ -211,6 +225,104 @@ class StatfulClientImpl implements StatfulClient {
         }
     }
 
+    @Override
+    public final void put(final String name, final long value, final Tags tags, final Aggregations aggregations,
+                          final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                          final String namespace, final long timestamp) {
+        if (enabled) {
+            try {
+                sendPut(name, value, tags, aggregations, aggregationFrequency, sampleRate, namespace, timestamp);
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    @Override
+    public final void put(final String name, final double value, final Tags tags, final Aggregations aggregations,
+                          final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                          final String namespace, final long timestamp) {
+        if (enabled) {
+            try {
+                sendPut(name, value, tags, aggregations, aggregationFrequency, sampleRate, namespace, timestamp);
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    @Override
+    public final void aggregatedPut(final String name, final long value, final Tags tags,
+                                    final Aggregation aggregation, final AggregationFrequency aggregationFrequency,
+                                    final Integer sampleRate, final String namespace, final long timestamp) {
+        if (enabled) {
+            try {
+                if (primitiveMetricsSender != null) {
+                    primitiveMetricsSender.aggregatedPut(name, value, tags, aggregation, aggregationFrequency, sampleRate,
+                            namespace, timestamp);
+                } else {
+                    metricsSender.aggregatedPut(name, Long.toString(value), tags, aggregation, aggregationFrequency, sampleRate,
+                            namespace, timestamp);
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    @Override
+    public final void aggregatedPut(final String name, final double value, final Tags tags,
+                                    final Aggregation aggregation, final AggregationFrequency aggregationFrequency,
+                                    final Integer sampleRate, final String namespace, final long timestamp) {
+        if (enabled) {
+            try {
+                if (primitiveMetricsSender != null) {
+                    primitiveMetricsSender.aggregatedPut(name, value, tags, aggregation, aggregationFrequency, sampleRate,
+                            namespace, timestamp);
+                } else {
+                    metricsSender.aggregatedPut(name, Double.toString(value), tags, aggregation, aggregationFrequency, sampleRate,
+                            namespace, timestamp);
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    @Override
+    public final MetricHandle timerHandle(final String metricName, final Tags tags) {
+        return handle("timer." + metricName, configuration.getTimerTags(), tags, configuration.getTimerAggregations(),
+                configuration.getTimerAggregationFrequency());
+    }
+
+    @Override
+    public final CounterHandle counterHandle(final String metricName, final Tags tags) {
+        return handle("counter." + metricName, configuration.getCounterTags(), tags,
+                configuration.getCounterAggregations(), configuration.getCounterAggregationFrequency());
+    }
+
+    @Override
+    public final MetricHandle gaugeHandle(final String metricName, final Tags tags) {
+        return handle("gauge." + metricName, configuration.getGaugeTags(), tags, configuration.getGaugeAggregations(),
+                configuration.getGaugeAggregationFrequency());
+    }
+
+    @Override
+    public final Map<String, Long> getStats() {
+        if (metricsSender instanceof BufferedMetricsSender) {
+            return ((BufferedMetricsSender) metricsSender).getStats().snapshot();
+        }
+        return Collections.emptyMap();
+    }
+
     @Override
     public void enable() {
         enabled = true;
@@ -231,50 +343,150 @@ class StatfulClientImpl implements StatfulClient {
         metricsSender.forceSyncFlush();
     }
 
-    private SenderFacade put(final String metricName, final String value) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this).with()
+    /**
+     * Records an integral value of a handle, using its encoded series and suffix when the sender supports it.
+     *
+     * @param handle The {@link StatfulMetricHandle} to record
+     * @param value The metric value
+     */
+    void record(final StatfulMetricHandle handle, final long value) {
+        if (enabled) {
+            try {
+                long timestamp = getUnixTimestamp();
+                if (handle.getSeries() != null) {
+                    ((EncodedMetricsSender) metricsSender).putEncoded(handle.getSeries(), value, handle.getSuffix(),
+                            handle.getSampleRate(), timestamp);
+                } else {
+                    sendPut(handle.getName(), value, handle.getTags(), handle.getAggregations(),
+                            handle.getAggregationFrequency(), handle.getSampleRate(), handle.getNamespace(), timestamp);
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    /**
+     * Records a decimal value of a handle, using its encoded series and suffix when the sender supports it.
+     *
+     * @param handle The {@link StatfulMetricHandle} to record
+     * @param value The metric value
+     */
+    void record(final StatfulMetricHandle handle, final double value) {
+        if (enabled) {
+            try {
+                long timestamp = getUnixTimestamp();
+                if (handle.getSeries() != null) {
+                    ((EncodedMetricsSender) metricsSender).putEncoded(handle.getSeries(), value, handle.getSuffix(),
+                            handle.getSampleRate(), timestamp);
+                } else {
+                    sendPut(handle.getName(), value, handle.getTags(), handle.getAggregations(),
+                            handle.getAggregationFrequency(), handle.getSampleRate(), handle.getNamespace(), timestamp);
+                }
+            } catch (Exception e) {
+                LOGGER.warning("Unable to send metric: " + e.toString());
+            }
+        } else {
+            LOGGER.fine("Statful client is disabled. The metric was not sent.");
+        }
+    }
+
+    private void sendPut(final String name, final long value, final Tags tags, final Aggregations aggregations,
+                         final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                         final String namespace, final long timestamp) {
+        if (primitiveMetricsSender != null) {
+            primitiveMetricsSender.put(name, value, tags, aggregations, aggregationFrequency, sampleRate, namespace, timestamp);
+        } else {
+            metricsSender.put(name, Long.toString(value), tags, aggregations, aggregationFrequency, sampleRate, namespace,
+                    timestamp);
+        }
+    }
+
+    private void sendPut(final String name, final double value, final Tags tags, final Aggregations aggregations,
+                         final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                         final String namespace, final long timestamp) {
+        if (primitiveMetricsSender != null) {
+            primitiveMetricsSender.put(name, value, tags, aggregations, aggregationFrequency, sampleRate, namespace, timestamp);
+        } else {
+            metricsSender.put(name, Double.toString(value), tags, aggregations, aggregationFrequency, sampleRate, namespace,
+                    timestamp);
+        }
+    }
+
+    private StatfulMetricHandle handle(final String metricName, final Tags defaultTags, final Tags tags,
+                                       final Aggregations aggregations, final AggregationFrequency aggregationFrequency) {
+        Tags handleTags = null;
+        if (defaultTags != null || tags != null) {
+            handleTags = new Tags().merge(defaultTags).merge(tags);
+        }
+
+        Aggregations handleAggregations = aggregations != null ? new Aggregations().merge(aggregations) : null;
+
+        String namespace = configuration.getNamespace();
+        if (namespace != null && namespace.isEmpty()) {
+            namespace = null;
+        }
+
+        EncodedSeries series = null;
+        if (metricsSender instanceof EncodedMetricsSender) {
+            series = ((EncodedMetricsSender) metricsSender).encodeSeries(metricName, handleTags, namespace);
+        }
+
+        return new StatfulMetricHandle(this, metricName, handleTags, handleAggregations, aggregationFrequency,
+                configuration.getSampleRate(), namespace, series);
+    }
+
+    private long getUnixTimestamp() {
+        return System.currentTimeMillis() / TIMESTAMP_DIVIDER;
+    }
+
+    /**
+     * Returns a builder for a metric, taken from the pool of the current thread when builders are recycled.
+     *
+     * @param isAggregated A {@link Boolean} flag stating if the metric is aggregated
+     * @return An empty {@link MetricsSenderAPI}
+     */
+    private MetricsSenderAPI newBuilder(final boolean isAggregated) {
+        if (builderPool != null) {
+            return builderPool.acquire(isAggregated);
+        }
+        return MetricsSenderAPI.newInstance(metricsSenderProxy, isAggregated);
+    }
+
+    private MetricsSenderAPI put(final String metricName) {
+        return newBuilder(false).with()
                 .configuration(configuration)
                 .aggregationFrequency(configuration.getDefaultAggregationFreq())
-                .name(metricName)
-                .value(value);
-
-        return new StatfulClientFacade(metricsSenderAPI);
+                .name(metricName);
     }
 
-    private SenderFacade aggregatedPut(final String metricName, final String value, final Aggregation aggregation,
-                                       final AggregationFrequency aggregationFrequency) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this, true).with()
+    private MetricsSenderAPI aggregatedPut(final String metricName, final Aggregation aggregation,
+                                    final AggregationFrequency aggregationFrequency) {
+        return newBuilder(true).with()
                 .configuration(configuration)
                 .aggregation(aggregation)
                 .aggregationFrequency(aggregationFrequency)
-                .name(metricName)
-                .value(value);
-
-        return new StatfulClientFacade(metricsSenderAPI);
+                .name(metricName);
     }
 
-    private SenderFacade gauge(final String metricName, final String value) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this).with()
+    private MetricsSenderAPI gauge(final String metricName) {
+        return newBuilder(false).with()
                 .configuration(configuration)
                 .aggregations(configuration.getGaugeAggregations())
                 .aggregationFrequency(configuration.getGaugeAggregationFrequency())
                 .tags(configuration.getGaugeTags())
-                .name("gauge." + metricName)
-                .value(value);
-
-        return new StatfulClientFacade(metricsSenderAPI);
+                .name("gauge." + metricName);
     }
 
-    private SenderFacade aggregatedGauge(final String metricName, final String value, final Aggregation aggregation,
-                                         final AggregationFrequency aggregationFrequency) {
-        SenderAPI metricsSenderAPI = MetricsSenderAPI.newInstance(this, true).with()
+    private MetricsSenderAPI aggregatedGauge(final String metricName, final Aggregation aggregation,
+                                      final AggregationFrequency aggregationFrequency) {
+        return newBuilder(true).with()
                 .configuration(configuration)
                 .aggregation(aggregation)
                 .aggregationFrequency(aggregationFrequency)
                 .tags(configuration.getGaugeTags())
-                .name("gauge." + metricName)
-                .value(value);
-
-        return new StatfulClientFacade(metricsSenderAPI);
+                .name("gauge." + metricName);
     }
 }
@@ -0,0 +1,93 @@
+package com.statful.client.core;
+
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.core.sender.EncodedSeries;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.CounterHandle;
+import com.statful.client.domain.api.Tags;
+
+/**
+ * A metric handle of a {@link StatfulClientImpl}, which keeps the resolved metric configuration along with its
+ * encoded series and suffix. It is immutable, and the client is responsible for recording its values.
+ */
+final class StatfulMetricHandle implements CounterHandle {
+
+    private final StatfulClientImpl client;
+
+    private final String name;
+    private final Tags tags;
+    private final Aggregations aggregations;
+    private final AggregationFrequency aggregationFrequency;
+    private final Integer sampleRate;
+    private final String namespace;
+
+    private final EncodedSeries series;
+    private final String suffix;
+
+    StatfulMetricHandle(final StatfulClientImpl client, final String name, final Tags tags,
+                        final Aggregations aggregations, final AggregationFrequency aggregationFrequency,
+                        final Integer sampleRate, final String namespace, final EncodedSeries series) {
+        this.client = client;
+        this.name = name;
+        this.tags = tags;
+        this.aggregations = aggregations;
+        this.aggregationFrequency = aggregationFrequency;
+        this.sampleRate = sampleRate;
+        this.namespace = namespace;
+        this.series = series;
+        this.suffix = MessageEncoder.encodeSuffix(aggregations, aggregationFrequency, sampleRate);
+    }
+
+    @Override
+    public void record(final long value) {
+        client.record(this, value);
+    }
+
+    @Override
+    public void record(final double value) {
+        client.record(this, value);
+    }
+
+    @Override
+    public void inc() {
+        client.record(this, 1L);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Tags getTags() {
+        return tags;
+    }
+
+    Aggregations getAggregations() {
+        return aggregations;
+    }
+
+    AggregationFrequency getAggregationFrequency() {
+        return aggregationFrequency;
+    }
+
+    Integer getSampleRate() {
+        return sampleRate;
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Returns the encoded series of the handle.
+     *
+     * @return The {@link EncodedSeries}, or null if the sender of the client doesn't accept encoded metrics
+     */
+    EncodedSeries getSeries() {
+        return series;
+    }
+
+    String getSuffix() {
+        return suffix;
+    }
+}
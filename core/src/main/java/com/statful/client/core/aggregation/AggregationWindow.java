@@ -0,0 +1,186 @@
+package com.statful.client.core.aggregation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running aggregation of a single series during one window of its aggregation frequency.
+ * <p>
+ * Recording threads update the window with atomic operations only. Before reading the aggregated value, the window
+ * is sealed: new recordings are refused, and sealing waits for the recordings in progress to finish, so no sample is
+ * lost between reading the value and discarding the window.
+ */
+final class AggregationWindow {
+
+    private static final int SEALED = Integer.MIN_VALUE;
+
+    private final SeriesKey key;
+    private final long start;
+    private final long end;
+
+    private final AtomicInteger writers = new AtomicInteger();
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong bits;
+
+    AggregationWindow(final SeriesKey key, final long start, final long end) {
+        this.key = key;
+        this.start = start;
+        this.end = end;
+        this.bits = new AtomicLong(Double.doubleToRawLongBits(initialValue()));
+    }
+
+    SeriesKey getKey() {
+        return key;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Records a value into this window.
+     *
+     * @param value The value to record
+     * @return False if the window was already sealed, and the value must be recorded into a new window
+     */
+    boolean record(final double value) {
+        if (!enter()) {
+            return false;
+        }
+
+        try {
+            apply(value);
+        } finally {
+            writers.decrementAndGet();
+        }
+
+        return true;
+    }
+
+    /**
+     * Seals the window and waits for the recordings in progress.
+     *
+     * @return False if the window was already sealed
+     */
+    boolean seal() {
+        while (true) {
+            int current = writers.get();
+            if (current < 0) {
+                return false;
+            }
+            if (writers.compareAndSet(current, current + SEALED)) {
+                break;
+            }
+        }
+
+        while (writers.get() != SEALED) {
+            Thread.yield();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the aggregated value. Should only be called after sealing the window.
+     *
+     * @return The aggregated value
+     */
+    double getValue() {
+        switch (key.getAggregation()) {
+            case COUNT:
+                return count.get();
+            case AVG:
+                return Double.longBitsToDouble(bits.get()) / count.get();
+            default:
+                return Double.longBitsToDouble(bits.get());
+        }
+    }
+
+    private boolean enter() {
+        while (true) {
+            int current = writers.get();
+            if (current < 0) {
+                return false;
+            }
+            if (writers.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void apply(final double value) {
+        switch (key.getAggregation()) {
+            case COUNT:
+                count.incrementAndGet();
+                break;
+            case FIRST:
+                if (count.getAndIncrement() == 0) {
+                    bits.set(Double.doubleToRawLongBits(value));
+                }
+                break;
+            case LAST:
+                count.incrementAndGet();
+                bits.set(Double.doubleToRawLongBits(value));
+                break;
+            case MIN:
+                count.incrementAndGet();
+                updateMin(value);
+                break;
+            case MAX:
+                count.incrementAndGet();
+                updateMax(value);
+                break;
+            default:
+                count.incrementAndGet();
+                add(value);
+                break;
+        }
+    }
+
+    private void add(final double value) {
+        while (true) {
+            long current = bits.get();
+            long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+            if (bits.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    private void updateMin(final double value) {
+        while (true) {
+            long current = bits.get();
+            if (Double.longBitsToDouble(current) <= value || bits.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    private void updateMax(final double value) {
+        while (true) {
+            long current = bits.get();
+            if (Double.longBitsToDouble(current) >= value || bits.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    private double initialValue() {
+        switch (key.getAggregation()) {
+            case MIN:
+                return Double.POSITIVE_INFINITY;
+            case MAX:
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.statful.client.core.aggregation;
+
+import com.statful.client.core.buffer.AggregatedBuffer;
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Tags;
+
+import java.math.BigDecimal;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process aggregation engine for aggregated metrics.
+ * <p>
+ * Instead of buffering one line per sample, it keeps a running aggregation per series, keyed by namespace, name, tags,
+ * {@link Aggregation}, {@link AggregationFrequency} and sample rate, for the current window of its frequency. Windows
+ * are aligned to the frequency, so a sample with timestamp <code>t</code> and frequency <code>f</code> belongs to the
+ * window starting at <code>t - t % f</code>. Once a window ends, a single line per series is collected into an
+ * {@link AggregatedBuffer}, with the start of the window as timestamp.
+ * <p>
+ * Only {@link Aggregation#AVG}, {@link Aggregation#COUNT}, {@link Aggregation#SUM}, {@link Aggregation#MIN},
+ * {@link Aggregation#MAX}, {@link Aggregation#FIRST} and {@link Aggregation#LAST} can be computed incrementally.
+ * Percentiles, as well as non-numeric values, are refused and should be buffered as raw samples.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public class PreAggregator {
+
+    private static final double MAX_INTEGRAL_VALUE = 1e15;
+
+    private final ConcurrentMap<SeriesKey, AggregationWindow> windows;
+    private final Queue<AggregationWindow> closedWindows = new ConcurrentLinkedQueue<AggregationWindow>();
+    private final AtomicLong nextWindowEnd = new AtomicLong(Long.MAX_VALUE);
+    private final ReentrantLock collectLock = new ReentrantLock();
+
+    /**
+     * Default constructor.
+     */
+    public PreAggregator() {
+        this(new ConcurrentHashMap<SeriesKey, AggregationWindow>());
+    }
+
+    PreAggregator(final ConcurrentMap<SeriesKey, AggregationWindow> windows) {
+        this.windows = windows;
+    }
+
+    /**
+     * Returns if an aggregation can be computed incrementally by this engine.
+     *
+     * @param aggregation The {@link Aggregation} to check
+     * @return True if the aggregation is supported
+     */
+    public static boolean isSupported(final Aggregation aggregation) {
+        return aggregation != null && aggregation != Aggregation.P90 && aggregation != Aggregation.P95;
+    }
+
+    /**
+     * Records a sample whose value is a string.
+     *
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The metric tags, which can be null
+     * @param aggregation The {@link Aggregation} of the metric
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric
+     * @param sampleRate The sample rate of the metric
+     * @param namespace The namespace of the metric
+     * @param timestamp The unix timestamp of the metric
+     * @return False if the sample can't be pre-aggregated, because either the aggregation or the value isn't supported
+     */
+    public final boolean record(final String name, final String value, final Tags tags, final Aggregation aggregation,
+                                final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                final String namespace, final long timestamp) {
+        if (value == null || !isSupported(aggregation)) {
+            return false;
+        }
+
+        double parsedValue;
+        try {
+            parsedValue = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return record(name, parsedValue, tags, aggregation, aggregationFrequency, sampleRate, namespace, timestamp);
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The metric tags, which can be null
+     * @param aggregation The {@link Aggregation} of the metric
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric
+     * @param sampleRate The sample rate of the metric
+     * @param namespace The namespace of the metric
+     * @param timestamp The unix timestamp of the metric
+     * @return False if the sample can't be pre-aggregated, because either the aggregation or the value isn't supported
+     */
+    public final boolean record(final String name, final double value, final Tags tags, final Aggregation aggregation,
+                                final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                final String namespace, final long timestamp) {
+        if (name == null || aggregationFrequency == null || !isSupported(aggregation)
+                || Double.isNaN(value) || Double.isInfinite(value)) {
+            return false;
+        }
+
+        SeriesKey key = new SeriesKey(namespace, name, tags, aggregation, aggregationFrequency, sampleRate);
+        long frequency = aggregationFrequency.getValue();
+        long start = timestamp - (timestamp % frequency + frequency) % frequency;
+
+        while (true) {
+            AggregationWindow window = windows.get(key);
+
+            if (window == null) {
+                AggregationWindow created = new AggregationWindow(key, start, start + frequency);
+                window = windows.putIfAbsent(created.getKey(), created);
+                if (window == null) {
+                    updateNextWindowEnd(created.getEnd());
+                    window = created;
+                }
+            } else if (window.getStart() < start) {
+                AggregationWindow created = new AggregationWindow(window.getKey(), start, start + frequency);
+                if (!windows.replace(window.getKey(), window, created)) {
+                    continue;
+                }
+                closedWindows.offer(window);
+                updateNextWindowEnd(window.getEnd());
+                updateNextWindowEnd(created.getEnd());
+                window = created;
+            }
+
+            if (window.record(value)) {
+                return true;
+            }
+            // The window was sealed by a concurrent collect, retry with a new one
+        }
+    }
+
+    /**
+     * Returns if there are windows that ended and can be collected.
+     *
+     * @param timestamp The current unix timestamp
+     * @return True if {@link #collect(long, AggregatedBuffer)} would collect any window
+     */
+    public final boolean isTimeToCollect(final long timestamp) {
+        return timestamp >= nextWindowEnd.get();
+    }
+
+    /**
+     * Collects a line per series for every window that ended into the given buffer.
+     *
+     * @param timestamp The current unix timestamp
+     * @param buffer The {@link AggregatedBuffer} to add the lines to
+     * @return The number of lines that didn't fit in the buffer
+     */
+    public final int collect(final long timestamp, final AggregatedBuffer buffer) {
+        return collect(timestamp, false, buffer);
+    }
+
+    /**
+     * Collects a line per series for every window, including the ones that didn't end yet, into the given buffer.
+     *
+     * @param buffer The {@link AggregatedBuffer} to add the lines to
+     * @return The number of lines that didn't fit in the buffer
+     */
+    public final int collectAll(final AggregatedBuffer buffer) {
+        return collect(Long.MAX_VALUE, true, buffer);
+    }
+
+    /**
+     * Returns the number of series with an open window.
+     *
+     * @return The number of series
+     */
+    public final int getSeriesCount() {
+        return windows.size();
+    }
+
+    private int collect(final long timestamp, final boolean force, final AggregatedBuffer buffer) {
+        if (!force && !isTimeToCollect(timestamp)) {
+            return 0;
+        }
+
+        if (force) {
+            collectLock.lock();
+        } else if (!collectLock.tryLock()) {
+            return 0;
+        }
+
+        try {
+            int rejected = 0;
+
+            // Window ends are published after their windows are inserted or queued, so resetting before looking at
+            // them keeps the end of a window this collect doesn't see
+            nextWindowEnd.set(Long.MAX_VALUE);
+            long next = Long.MAX_VALUE;
+
+            AggregationWindow closedWindow = closedWindows.poll();
+            while (closedWindow != null) {
+                rejected += emit(closedWindow, buffer);
+                closedWindow = closedWindows.poll();
+            }
+
+            for (AggregationWindow window : windows.values()) {
+                if (force || window.getEnd() <= timestamp) {
+                    windows.remove(window.getKey(), window);
+                    rejected += emit(window, buffer);
+                } else {
+                    next = Math.min(next, window.getEnd());
+                }
+            }
+
+            updateNextWindowEnd(next);
+
+            return rejected;
+        } finally {
+            collectLock.unlock();
+        }
+    }
+
+    private void updateNextWindowEnd(final long end) {
+        while (true) {
+            long current = nextWindowEnd.get();
+            if (current <= end || nextWindowEnd.compareAndSet(current, end)) {
+                return;
+            }
+        }
+    }
+
+    private static int emit(final AggregationWindow window, final AggregatedBuffer buffer) {
+        if (!window.seal() || window.getCount() == 0) {
+            return 0;
+        }
+
+        SeriesKey key = window.getKey();
+        String line = MessageEncoder.encode(key.getName(), formatValue(window.getValue()), key.getTags(), null, null,
+                key.getNamespace(), window.getStart(), key.getSampleRate());
+
+        return buffer.addToBuffer(line, key.getAggregation(), key.getAggregationFrequency()) ? 0 : 1;
+    }
+
+    /**
+     * Formats a value without exponent, and without decimal places when it is integral.
+     *
+     * @param value The value to format
+     * @return The formatted value
+     */
+    static String formatValue(final double value) {
+        if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL_VALUE) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.statful.client.core.aggregation;
+
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.TagSet;
+import com.statful.client.domain.api.Tags;
+
+/**
+ * Identifies a pre-aggregated series by namespace, name, tags, aggregation, aggregation frequency and sample rate.
+ * <p>
+ * Keys hold the immutable {@link TagSet} of the caller's {@link Tags}, so later changes to the caller's tags don't
+ * affect stored series, and keys used for lookups can be stored as they are.
+ */
+final class SeriesKey {
+
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final String namespace;
+    private final String name;
+    private final TagSet tags;
+    private final Aggregation aggregation;
+    private final AggregationFrequency aggregationFrequency;
+    private final Integer sampleRate;
+    private final int hash;
+
+    SeriesKey(final String namespace, final String name, final Tags tags, final Aggregation aggregation,
+              final AggregationFrequency aggregationFrequency, final Integer sampleRate) {
+        this.namespace = namespace;
+        this.name = name;
+        this.tags = tags == null ? TagSet.EMPTY : tags.toTagSet();
+        this.aggregation = aggregation;
+        this.aggregationFrequency = aggregationFrequency;
+        this.sampleRate = sampleRate;
+        this.hash = computeHash();
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Tags getTags() {
+        return tags.isEmpty() ? null : Tags.from(tags);
+    }
+
+    Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    AggregationFrequency getAggregationFrequency() {
+        return aggregationFrequency;
+    }
+
+    Integer getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SeriesKey)) {
+            return false;
+        }
+
+        SeriesKey other = (SeriesKey) o;
+        return hash == other.hash
+                && aggregation == other.aggregation
+                && aggregationFrequency == other.aggregationFrequency
+                && name.equals(other.name)
+                && equalsNullable(namespace, other.namespace)
+                && equalsNullable(sampleRate, other.sampleRate)
+                && tags.equals(other.tags);
+    }
+
+    private int computeHash() {
+        int result = name.hashCode();
+        result = HASH_MULTIPLIER * result + (namespace == null ? 0 : namespace.hashCode());
+        result = HASH_MULTIPLIER * result + tags.hashCode();
+        result = HASH_MULTIPLIER * result + aggregation.hashCode();
+        result = HASH_MULTIPLIER * result + aggregationFrequency.hashCode();
+        result = HASH_MULTIPLIER * result + (sampleRate == null ? 0 : sampleRate.hashCode());
+        return result;
+    }
+
+    private static boolean equalsNullable(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
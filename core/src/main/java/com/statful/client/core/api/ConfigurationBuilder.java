@@ -1,7 +1,11 @@
 package com.statful.client.core.api;
 
 import com.statful.client.core.config.DefaultClientConfiguration;
+import com.statful.client.domain.api.BufferType;
+import com.statful.client.domain.api.CardinalityPolicy;
 import com.statful.client.domain.api.ClientConfiguration;
+import com.statful.client.domain.api.OverflowPolicy;
+import com.statful.client.domain.api.SamplingStrategy;
 import com.statful.client.domain.api.Tags;
 import com.statful.client.domain.api.Transport;
 
@@ -256,6 +260,398 @@ public final class ConfigurationBuilder<T> {
         return this;
     }
 
+    /**
+     * Sets the type of buffer used to store metrics before flushing them.
+     * <p>
+     * Example: <code>bufferType(BufferType.RING_BUFFER)</code> avoids lock contention when many threads send metrics.
+     *
+     * @param bufferType The {@link BufferType} to use
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> bufferType(final BufferType bufferType) {
+        if (bufferType != null) {
+            this.result.setBufferType(bufferType);
+        }
+        return this;
+    }
+
+    /**
+     * Sets if aggregated metrics are pre-aggregated in the client.
+     * <p>
+     * When enabled, samples sent with an aggregation other than a percentile are aggregated per series and window of
+     * the aggregation frequency, and a single line per series is sent when the window ends.
+     *
+     * @param preAggregation Boolean to enable pre-aggregation
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> preAggregation(final boolean preAggregation) {
+        this.result.setPreAggregation(preAggregation);
+        return this;
+    }
+
+    /**
+     * Sets if the UDP transport sends metrics through a non-blocking channel.
+     * <p>
+     * When enabled, metrics that don't fit in the socket send buffer are dropped and counted instead of blocking the
+     * worker that flushes them. Only applies to the UDP client.
+     *
+     * @param nonBlockingUdp Boolean to enable the non-blocking UDP transport
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> nonBlockingUdp(final boolean nonBlockingUdp) {
+        this.result.setNonBlockingUdp(nonBlockingUdp);
+        return this;
+    }
+
+    /**
+     * Sets the maximum payload size in bytes of the datagrams sent by the UDP transport.
+     * <p>
+     * Flushes are split on metric boundaries, and metrics are coalesced, into datagrams up to this size. The default
+     * fits a 1500 bytes MTU, and can be raised, for example to 8932, on networks with jumbo frames. Only applies to the
+     * UDP client.
+     *
+     * @param udpMaxPayloadSize The maximum payload size of a datagram in bytes
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> udpMaxPayloadSize(final int udpMaxPayloadSize) {
+        this.result.setUdpMaxPayloadSize(udpMaxPayloadSize);
+        return this;
+    }
+
+    /**
+     * Sets if the HTTP transport sends metrics through an asynchronous client.
+     * <p>
+     * When enabled, workers submit requests without waiting for the responses, and many requests are kept in flight
+     * on a few I/O threads, up to the maximum number of requests in flight. Only applies to the HTTP client.
+     *
+     * @param asyncHttp Boolean to enable the asynchronous HTTP transport
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> asyncHttp(final boolean asyncHttp) {
+        this.result.setAsyncHttp(asyncHttp);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight of the asynchronous HTTP transport.
+     * <p>
+     * When this number of requests is waiting for a response, workers wait for one to complete before sending.
+     *
+     * @param maxInFlightRequests The maximum number of requests in flight
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> maxInFlightRequests(final int maxInFlightRequests) {
+        this.result.setMaxInFlightRequests(maxInFlightRequests);
+        return this;
+    }
+
+    /**
+     * Sets if the HTTP transport compresses request bodies with gzip.
+     * <p>
+     * Metric lines repeat the same namespace, names and tags, so batches compress well, trading some CPU for egress
+     * bandwidth. Only applies to the HTTP client.
+     *
+     * @param compression Boolean to enable request body compression
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> compression(final boolean compression) {
+        this.result.setCompression(compression);
+        return this;
+    }
+
+    /**
+     * Sets the gzip compression level of request bodies, from 0 to 9.
+     *
+     * @param compressionLevel The compression level
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> compressionLevel(final int compressionLevel) {
+        this.result.setCompressionLevel(compressionLevel);
+        return this;
+    }
+
+    /**
+     * Sets the minimum size in bytes of the request bodies to compress. Smaller bodies are sent uncompressed.
+     *
+     * @param compressionMinSize The minimum size in bytes
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> compressionMinSize(final int compressionMinSize) {
+        this.result.setCompressionMinSize(compressionMinSize);
+        return this;
+    }
+
+    /**
+     * Sets the directory of the spool, which enables it.
+     * <p>
+     * Batches that the transport fails to deliver, or that don't fit in the worker tasks queue, are kept in
+     * memory-mapped files in this directory, and sent again in order once sending succeeds.
+     *
+     * @param spoolDirectory The spool directory path
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> spoolDirectory(final String spoolDirectory) {
+        this.result.setSpoolDirectory(spoolDirectory);
+        return this;
+    }
+
+    /**
+     * Sets the disk quota of the spool. The oldest batches are dropped to make room for new ones.
+     *
+     * @param spoolMaxBytes The disk quota in bytes
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> spoolMaxBytes(final long spoolMaxBytes) {
+        this.result.setSpoolMaxBytes(spoolMaxBytes);
+        return this;
+    }
+
+    /**
+     * Sets the max age of the spooled batches. Older batches are dropped instead of being sent.
+     *
+     * @param spoolMaxAgeMillis The max age in milliseconds
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> spoolMaxAge(final long spoolMaxAgeMillis) {
+        this.result.setSpoolMaxAgeMillis(spoolMaxAgeMillis);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of retries of a batch that failed to be delivered, with a server error, a too many
+     * requests status or an I/O error. Only applies to transports that report delivery, like the HTTP client.
+     *
+     * @param maxRetries The maximum number of retries
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> maxRetries(final int maxRetries) {
+        this.result.setMaxRetries(maxRetries);
+        return this;
+    }
+
+    /**
+     * Sets the backoff before the first retry. It doubles for every retry, and each wait is a random time up to it.
+     *
+     * @param retryBackoffMillis The backoff in milliseconds
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> retryBackoff(final long retryBackoffMillis) {
+        this.result.setRetryBackoffMillis(retryBackoffMillis);
+        return this;
+    }
+
+    /**
+     * Sets the number of consecutive failed batches, after their retries, that opens the circuit breaker.
+     * <p>
+     * While open, batches fail without being sent, so that an unhealthy endpoint doesn't hold the workers. Zero
+     * disables the breaker.
+     *
+     * @param circuitBreakerThreshold The number of consecutive failed batches
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> circuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.result.setCircuitBreakerThreshold(circuitBreakerThreshold);
+        return this;
+    }
+
+    /**
+     * Sets the time the circuit breaker stays open before letting a batch through to check the endpoint.
+     *
+     * @param circuitBreakerOpenMillis The open time in milliseconds
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> circuitBreakerOpenTime(final long circuitBreakerOpenMillis) {
+        this.result.setCircuitBreakerOpenMillis(circuitBreakerOpenMillis);
+        return this;
+    }
+
+    /**
+     * Sets the policy to handle metrics that don't fit in a full buffer.
+     * <p>
+     * Example: <code>overflowPolicy(OverflowPolicy.SAMPLE_DOWN)</code> keeps a representative share of every metric
+     * under pressure, instead of losing whichever metrics arrive last.
+     *
+     * @param overflowPolicy The {@link OverflowPolicy} to use
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> overflowPolicy(final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy != null) {
+            this.result.setOverflowPolicy(overflowPolicy);
+        }
+        return this;
+    }
+
+    /**
+     * Sets how long a thread waits for room in a full buffer, with the {@link OverflowPolicy#BLOCK} policy.
+     *
+     * @param overflowBlockTimeoutMillis The timeout in milliseconds
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> overflowBlockTimeout(final long overflowBlockTimeoutMillis) {
+        this.result.setOverflowBlockTimeoutMillis(overflowBlockTimeoutMillis);
+        return this;
+    }
+
+    /**
+     * Sets if the client sends its own stats, like the depth of the buffers or the metrics dropped, as
+     * <code>statful.client.*</code> metrics on every flush interval.
+     *
+     * @param selfMetrics Boolean to send the client stats as metrics
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> selfMetrics(final boolean selfMetrics) {
+        this.result.setSelfMetricsEnabled(selfMetrics);
+        return this;
+    }
+
+    /**
+     * Sets if the client stats are published as an MBean, named after the application.
+     *
+     * @param jmx Boolean to publish the client stats through JMX
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> jmx(final boolean jmx) {
+        this.result.setJmxEnabled(jmx);
+        return this;
+    }
+
+    /**
+     * Sets the number of shards of the {@link BufferType#SHARDED} buffer type, which is rounded up to a power of two.
+     * Zero uses one shard per processor.
+     *
+     * @param bufferShards The number of shards
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> bufferShards(final int bufferShards) {
+        this.result.setBufferShards(bufferShards);
+        return this;
+    }
+
+    /**
+     * Sets the strategy to decide which metrics are kept when sampling.
+     * <p>
+     * Example: <code>samplingStrategy(SamplingStrategy.CONSISTENT)</code> keeps or drops every point of a series
+     * alike, so that kept series have no gaps.
+     *
+     * @param samplingStrategy The {@link SamplingStrategy} to use
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> samplingStrategy(final SamplingStrategy samplingStrategy) {
+        if (samplingStrategy != null) {
+            this.result.setSamplingStrategy(samplingStrategy);
+        }
+        return this;
+    }
+
+    /**
+     * Sets if metric builders are reused by each thread once sent. Builders returned by the client, such as
+     * <code>timer("execution", 26)</code>, must then not be used after <code>send()</code>, nor shared between threads.
+     *
+     * @param builderRecyclingEnabled Whether builders are recycled
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> recycleBuilders(final boolean builderRecyclingEnabled) {
+        this.result.setBuilderRecyclingEnabled(builderRecyclingEnabled);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of series, by namespace, name and tags, sent by the client. Metrics of new series past
+     * the maximum are sent as the overflow series of their metric, tagged with <code>overflow=true</code>.
+     * Zero sets no maximum.
+     *
+     * @param maxSeries The maximum number of series
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> maxSeries(final int maxSeries) {
+        this.result.setMaxSeries(maxSeries);
+        return this;
+    }
+
+    /**
+     * Sets the policy to keep the number of series under the maximum.
+     * <p>
+     * Example: <code>cardinalityPolicy(CardinalityPolicy.EVICT_IDLE)</code> forgets series without metrics for a
+     * flush interval, to make room for new ones.
+     *
+     * @param cardinalityPolicy The {@link CardinalityPolicy} to use
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> cardinalityPolicy(final CardinalityPolicy cardinalityPolicy) {
+        if (cardinalityPolicy != null) {
+            this.result.setCardinalityPolicy(cardinalityPolicy);
+        }
+        return this;
+    }
+
+    /**
+     * Sets if the flush size and the flush interval adapt to the rate of metrics and the latency of the transport.
+     * Batches grow up to the max flush size when the workers can't keep up with the rate of metrics, and the flush
+     * interval grows up to the max flush interval when metrics are few, so that idle clients don't send tiny batches.
+     * Requires a flush interval.
+     *
+     * @param adaptiveBatchingEnabled Whether batching is adaptive
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> adaptiveBatching(final boolean adaptiveBatchingEnabled) {
+        this.result.setAdaptiveBatchingEnabled(adaptiveBatchingEnabled);
+        return this;
+    }
+
+    /**
+     * Sets the largest flush size reached by adaptive batching. Zero sets ten times the flush size.
+     *
+     * @param maxFlushSize The max flush size
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> maxFlushSize(final int maxFlushSize) {
+        this.result.setMaxFlushSize(maxFlushSize);
+        return this;
+    }
+
+    /**
+     * Sets the longest flush interval, in milliseconds, reached by adaptive batching. Zero sets ten times the flush
+     * interval.
+     *
+     * @param maxFlushInterval The max flush interval in milliseconds
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> maxFlushInterval(final long maxFlushInterval) {
+        this.result.setMaxFlushIntervalMillis(maxFlushInterval);
+        return this;
+    }
+
+    /**
+     * Sets the number of metrics that fit in the standard buffer, and in each queue of the aggregated buffer, one per
+     * aggregation and aggregation frequency in use. Metrics that don't fit are handled by the overflow policy.
+     *
+     * @param bufferCapacity The buffer capacity
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> bufferCapacity(final int bufferCapacity) {
+        this.result.setBufferCapacity(bufferCapacity);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of heap bytes held by all the buffers, including the slots of the buffers. Metrics that
+     * don't fit in the budget are handled by the overflow policy, as if their buffer was full. Zero sets no maximum.
+     * <p>
+     * Unless the buffer type is off-heap, the budget must be larger than the slots of the standard buffer, that is
+     * 16 bytes per metric of the buffer capacity, or building the client throws an {@link IllegalArgumentException}.
+     * The budget only covers buffered metrics, not the pre-aggregated windows, the batches being flushed, the interned
+     * tag sets nor the series registry, so it isn't a ceiling for the heap of the whole client.
+     * <p>
+     * Example: <code>memoryBudget(16 * 1024 * 1024)</code> keeps the buffers under 16 MB.
+     *
+     * @param memoryBudgetBytes The memory budget in bytes
+     * @return A reference to this configuration builder
+     */
+    public ConfigurationBuilder<T> memoryBudget(final long memoryBudgetBytes) {
+        this.result.setMemoryBudgetBytes(memoryBudgetBytes);
+        return this;
+    }
+
     /**
      * Sets the timer method default tags.
      * <p>
@@ -7,18 +7,32 @@ import java.util.logging.Logger;
 /**
  * This class is an implementation of the {@link SenderAPI},
  * which uses {@link MetricsSender} to send metrics.
+ * <p>
+ * It's also its own {@link SenderFacade}, so a metric is recorded through a single builder. Default tags and
+ * aggregations are referenced rather than copied, until the metric adds tags or aggregations of its own, so a builder
+ * that's sent right away holds no collections, and the JIT can replace it with its fields when the call is inlined.
+ * Added tags are derived from the interned {@link TagSet} of the default tags, which remembers the result, so adding
+ * the same tags on every call doesn't build them again.
+ * <p>
+ * Builders acquired from a {@link MetricsSenderAPIPool} are reset and returned to the pool of the sending thread by
+ * {@link #send()}, and must not be used after it.
  */
-public final class MetricsSenderAPI implements SenderAPI {
+public final class MetricsSenderAPI implements SenderAPI, SenderFacade {
 
     private static final Logger LOGGER = Logger.getLogger(MetricsSenderAPI.class.getName());
 
     private static final long TIMESTAMP_DIVIDER = 1000L;
 
-    private MetricsSenderProxy metricsSenderProxy;
+    private final MetricsSenderProxy metricsSenderProxy;
+    private final MetricsSenderAPIPool pool;
     private boolean aggregated;
+    private boolean pooled;
 
     private String name;
+    private ValueType valueType = ValueType.NONE;
     private String value;
+    private long longValue;
+    private double doubleValue;
     private String namespace;
     private Tags tags;
     private Integer sampleRate;
@@ -26,19 +40,27 @@ public final class MetricsSenderAPI implements SenderAPI {
     private Aggregations aggregations;
     private AggregationFrequency aggregationFrequency;
 
+    private TagSet tagSet;
+    private Aggregations ownedAggregations;
+
     /**
      * Default constructor.
      *
      * @param metricsSender The {@link MetricsSender} to send metrics
      */
     MetricsSenderAPI(final MetricsSender metricsSender) {
-        this.metricsSenderProxy = new MetricsSenderProxy(metricsSender);
-        this.aggregated = false;
+        this(new MetricsSenderProxy(metricsSender), false, null);
     }
 
     MetricsSenderAPI(final MetricsSender metricsSender, final boolean isAggregated) {
-        this.metricsSenderProxy = new MetricsSenderProxy(metricsSender);
+        this(new MetricsSenderProxy(metricsSender), isAggregated, null);
+    }
+
+    MetricsSenderAPI(final MetricsSenderProxy metricsSenderProxy, final boolean isAggregated,
+                     final MetricsSenderAPIPool pool) {
+        this.metricsSenderProxy = metricsSenderProxy;
         this.aggregated = isAggregated;
+        this.pool = pool;
     }
 
     /**
@@ -62,6 +84,18 @@ public final class MetricsSenderAPI implements SenderAPI {
         return new MetricsSenderAPI(metricsSender, isAggregated);
     }
 
+    /**
+     * Builds a new instance of {@link SenderAPI} that shares a proxy of the metrics sender, so that only the builder is
+     * allocated.
+     *
+     * @param metricsSenderProxy The {@link MetricsSenderProxy} to send metrics
+     * @param isAggregated A {@link Boolean} flag stating if the metric is aggregated
+     * @return An instance of {@link SenderAPI}
+     */
+    public static MetricsSenderAPI newInstance(final MetricsSenderProxy metricsSenderProxy, final boolean isAggregated) {
+        return new MetricsSenderAPI(metricsSenderProxy, isAggregated, null);
+    }
+
     /**
      * A getter for the aggregation flag.
      *
@@ -81,12 +115,19 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     /**
-     * A getter for the metric value.
+     * A getter for the metric value. Numeric values are converted to a string.
      *
      * @return The metric value
      */
     public String getValue() {
-        return value;
+        switch (valueType) {
+            case LONG:
+                return Long.toString(longValue);
+            case DOUBLE:
+                return Double.toString(doubleValue);
+            default:
+                return value;
+        }
     }
 
     /**
@@ -99,12 +140,16 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     /**
-     * A getter for the metric tags.
+     * A getter for the metric tags, which returns a copy, so that changing it doesn't change the default tags the
+     * builder may reference.
      *
-     * @return The metric tags
+     * @return A copy of the metric tags
      */
     public Tags getTags() {
-        return tags;
+        if (tagSet != null) {
+            return Tags.from(tagSet);
+        }
+        return tags != null ? new Tags().merge(tags) : null;
     }
 
     /**
@@ -117,12 +162,13 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     /**
-     * A getter for the aggregations.
+     * A getter for the aggregations, which returns a copy, so that changing it doesn't change the default aggregations
+     * the builder may reference.
      *
-     * @return The aggregations
+     * @return A copy of the aggregations
      */
     public Aggregations getAggregations() {
-        return aggregations;
+        return aggregations != null ? new Aggregations().merge(aggregations) : null;
     }
 
     /**
@@ -135,7 +181,7 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI name(final String name) {
+    public MetricsSenderAPI name(final String name) {
         if (isStringSafe(name)) {
             this.name = name;
         }
@@ -143,15 +189,42 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI value(final String value) {
+    public MetricsSenderAPI value(final String value) {
         if (isStringSafe(value)) {
             this.value = value;
+            this.valueType = ValueType.TEXT;
         }
         return this;
     }
 
+    /**
+     * Sets an integral metric value, which is kept as a number until the metric is encoded.
+     *
+     * @param value The value as long
+     * @return A reference to this builder
+     */
+    public MetricsSenderAPI value(final long value) {
+        this.longValue = value;
+        this.value = null;
+        this.valueType = ValueType.LONG;
+        return this;
+    }
+
+    /**
+     * Sets a decimal metric value, which is kept as a number until the metric is encoded.
+     *
+     * @param value The value as double
+     * @return A reference to this builder
+     */
+    public MetricsSenderAPI value(final double value) {
+        this.doubleValue = value;
+        this.value = null;
+        this.valueType = ValueType.DOUBLE;
+        return this;
+    }
+
     @Override
-    public SenderAPI configuration(final ClientConfiguration configuration) {
+    public MetricsSenderAPI configuration(final ClientConfiguration configuration) {
         if (configuration != null) {
             withNamespace(configuration.getNamespace()).sampleRate(configuration.getSampleRate());
         }
@@ -159,7 +232,7 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI sampleRate(final Integer sampleRate) {
+    public MetricsSenderAPI sampleRate(final Integer sampleRate) {
         if (sampleRate != null) {
             this.sampleRate = sampleRate;
         }
@@ -167,41 +240,47 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI tag(final String type, final String value) {
+    public MetricsSenderAPI tag(final String type, final String value) {
         if (!Tags.isEmptyOrNull(type, value)) {
-            getSafeTags().putTag(type, value);
+            tagSet = getTagSet().with(type, value);
+            tags = null;
         }
         return this;
     }
 
     @Override
-    public SenderAPI tags(final Tags tags) {
+    public MetricsSenderAPI tags(final Tags tags) {
         if (tags != null) {
-            getSafeTags().merge(tags);
+            if (this.tags == null && tagSet == null) {
+                this.tags = tags;
+            } else {
+                tagSet = getTagSet().merge(tags.toTagSet());
+                this.tags = null;
+            }
         }
         return this;
     }
 
     @Override
-    public SenderAPI namespace(final String namespace) {
+    public MetricsSenderAPI namespace(final String namespace) {
         withNamespace(namespace);
         return this;
     }
 
     @Override
-    public SenderAPI timestamp(final Long timestamp) {
+    public MetricsSenderAPI timestamp(final Long timestamp) {
         withTimestamp(timestamp);
         return this;
     }
 
     @Override
-    public SenderAPI aggregation(final Aggregation aggregation) {
+    public MetricsSenderAPI aggregation(final Aggregation aggregation) {
         withAggregation(aggregation);
         return this;
     }
 
     @Override
-    public SenderAPI aggregations(final Aggregation... aggregations) {
+    public MetricsSenderAPI aggregations(final Aggregation... aggregations) {
         if (aggregations != null) {
             for (Aggregation aggregation : aggregations) {
                 withAggregation(aggregation);
@@ -211,15 +290,19 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI aggregations(final Aggregations aggregations) {
+    public MetricsSenderAPI aggregations(final Aggregations aggregations) {
         if (aggregations != null) {
-            getSafeAggregations().merge(aggregations);
+            if (this.aggregations == null) {
+                this.aggregations = aggregations;
+            } else {
+                getSafeAggregations().merge(aggregations);
+            }
         }
         return this;
     }
 
     @Override
-    public SenderAPI aggregationFrequency(final AggregationFrequency aggregationFrequency) {
+    public MetricsSenderAPI aggregationFrequency(final AggregationFrequency aggregationFrequency) {
         if (aggregationFrequency != null) {
             this.aggregationFrequency = aggregationFrequency;
         }
@@ -227,7 +310,7 @@ public final class MetricsSenderAPI implements SenderAPI {
     }
 
     @Override
-    public SenderAPI with() {
+    public MetricsSenderAPI with() {
         return this;
     }
 
@@ -237,34 +320,82 @@ public final class MetricsSenderAPI implements SenderAPI {
             if (isValid()) {
                 long unixTimestamp = timestamp != null ? timestamp : getUnixTimestamp();
 
-                metricsSenderProxy.put(name, value, tags, aggregations, aggregationFrequency, sampleRate, namespace,
-                        unixTimestamp, aggregated);
+                switch (valueType) {
+                    case LONG:
+                        metricsSenderProxy.put(name, longValue, currentTags(), aggregations, aggregationFrequency, sampleRate,
+                                namespace, unixTimestamp, aggregated);
+                        break;
+                    case DOUBLE:
+                        metricsSenderProxy.put(name, doubleValue, currentTags(), aggregations, aggregationFrequency, sampleRate,
+                                namespace, unixTimestamp, aggregated);
+                        break;
+                    default:
+                        metricsSenderProxy.put(name, value, currentTags(), aggregations, aggregationFrequency, sampleRate,
+                                namespace, unixTimestamp, aggregated);
+                        break;
+                }
             } else {
                 LOGGER.warning("Unable to send metric because it's not valid. Please see the client documentation.");
             }
         } catch (Exception e) {
             LOGGER.severe("An exception has occurred while sending the metric to Statful: " + e.toString());
+        } finally {
+            if (pool != null && !pooled) {
+                reset();
+                pool.release(this);
+            }
         }
     }
 
-    private SenderAPI withNamespace(final String namespace) {
+    /**
+     * Prepares a pooled builder for a new metric.
+     *
+     * @param isAggregated A {@link Boolean} flag stating if the metric is aggregated
+     */
+    void acquire(final boolean isAggregated) {
+        this.aggregated = isAggregated;
+        this.pooled = false;
+    }
+
+    /**
+     * Clears the metric of a builder returned to the pool. Aggregations of its own that were handed to the sender are
+     * left to the sender, which may keep them, so the next metric changing its aggregations gets new ones.
+     */
+    private void reset() {
+        pooled = true;
+        if (aggregations == ownedAggregations) {
+            ownedAggregations = null;
+        }
+        name = null;
+        valueType = ValueType.NONE;
+        value = null;
+        namespace = null;
+        tags = null;
+        tagSet = null;
+        sampleRate = null;
+        timestamp = null;
+        aggregations = null;
+        aggregationFrequency = null;
+    }
+
+    private MetricsSenderAPI withNamespace(final String namespace) {
         if (isStringSafe(namespace)) {
             this.namespace = namespace;
         }
         return this;
     }
 
-    private SenderAPI withTimestamp(final Long timestamp) {
+    private MetricsSenderAPI withTimestamp(final Long timestamp) {
         this.timestamp = timestamp;
         return this;
     }
 
     private boolean isValid() {
         if (aggregated) {
-            return isStringSafe(name) && isStringSafe(value) && isAggregatedMetricValid();
+            return isStringSafe(name) && valueType != ValueType.NONE && isAggregatedMetricValid();
         }
 
-        return isStringSafe(name) && isStringSafe(value);
+        return isStringSafe(name) && valueType != ValueType.NONE;
     }
 
     private boolean isAggregatedMetricValid() {
@@ -275,9 +406,26 @@ public final class MetricsSenderAPI implements SenderAPI {
         return System.currentTimeMillis() / TIMESTAMP_DIVIDER;
     }
 
-    private Tags getSafeTags() {
-        if (tags == null) {
-            tags = new Tags();
+    /**
+     * Returns the tags of this builder as an immutable {@link TagSet}, which tags added to the metric are derived from.
+     *
+     * @return The {@link TagSet} of this builder
+     */
+    private TagSet getTagSet() {
+        if (tagSet != null) {
+            return tagSet;
+        }
+        return tags != null ? tags.toTagSet() : TagSet.EMPTY;
+    }
+
+    /**
+     * Returns the tags to send the metric with, derived from the {@link TagSet} of this builder when tags were added.
+     *
+     * @return The tags of the metric, which may be the referenced default tags
+     */
+    private Tags currentTags() {
+        if (tags == null && tagSet != null) {
+            tags = Tags.from(tagSet);
         }
         return tags;
     }
@@ -286,17 +434,38 @@ public final class MetricsSenderAPI implements SenderAPI {
         return string != null && !string.isEmpty();
     }
 
-    private SenderAPI withAggregation(final Aggregation aggregation) {
+    private MetricsSenderAPI withAggregation(final Aggregation aggregation) {
         if (aggregation != null) {
             getSafeAggregations().put(aggregation);
         }
         return this;
     }
 
+    /**
+     * Returns aggregations owned by this builder, copying the referenced default aggregations into them on the first
+     * change.
+     *
+     * @return The {@link Aggregations} of this builder
+     */
     private Aggregations getSafeAggregations() {
-        if (aggregations == null) {
-            aggregations = new Aggregations();
+        if (aggregations == null || aggregations != ownedAggregations) {
+            if (ownedAggregations == null) {
+                ownedAggregations = new Aggregations();
+            } else {
+                ownedAggregations.getAggregations().clear();
+            }
+            aggregations = ownedAggregations.merge(aggregations);
         }
         return aggregations;
     }
+
+    /**
+     * The type of the metric value, which is kept as a number when possible.
+     */
+    private enum ValueType {
+        NONE,
+        TEXT,
+        LONG,
+        DOUBLE
+    }
 }
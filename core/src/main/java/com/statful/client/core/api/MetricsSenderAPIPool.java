@@ -0,0 +1,81 @@
+package com.statful.client.core.api;
+
+import com.statful.client.domain.api.MetricsSender;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of {@link MetricsSenderAPI} builders, so that recording a metric doesn't allocate a builder, its tags and its
+ * aggregations every time.
+ * <p>
+ * Each thread keeps its own few builders, so acquiring and releasing them takes no locks. A builder is returned to the
+ * pool of the thread that sends it, when {@link MetricsSenderAPI#send()} is called, and must not be used after that.
+ * Builders that are never sent are simply left to the garbage collector.
+ * <p>
+ * Instances of this class are thread-safe, while the builders they hand out are confined to a thread until sent.
+ */
+public final class MetricsSenderAPIPool {
+
+    /**
+     * Default number of builders kept by each thread, which allows a few metrics to be built at once.
+     */
+    public static final int DEFAULT_BUILDERS_PER_THREAD = 4;
+
+    private final MetricsSenderProxy metricsSenderProxy;
+    private final int buildersPerThread;
+
+    private final ThreadLocal<ArrayDeque<MetricsSenderAPI>> builders = new ThreadLocal<ArrayDeque<MetricsSenderAPI>>() {
+        @Override
+        protected ArrayDeque<MetricsSenderAPI> initialValue() {
+            return new ArrayDeque<MetricsSenderAPI>(buildersPerThread);
+        }
+    };
+
+    /**
+     * Default constructor.
+     *
+     * @param metricsSender The {@link MetricsSender} to send metrics
+     */
+    public MetricsSenderAPIPool(final MetricsSender metricsSender) {
+        this(metricsSender, DEFAULT_BUILDERS_PER_THREAD);
+    }
+
+    /**
+     * Constructor with the number of builders kept by each thread.
+     *
+     * @param metricsSender The {@link MetricsSender} to send metrics
+     * @param buildersPerThread The maximum number of idle builders kept by each thread
+     */
+    public MetricsSenderAPIPool(final MetricsSender metricsSender, final int buildersPerThread) {
+        this.metricsSenderProxy = new MetricsSenderProxy(metricsSender);
+        this.buildersPerThread = buildersPerThread;
+    }
+
+    /**
+     * Takes a builder from the pool of the current thread, or creates one if the pool is empty.
+     *
+     * @param isAggregated A {@link Boolean} flag stating if the metric is aggregated
+     * @return An empty {@link MetricsSenderAPI}
+     */
+    public MetricsSenderAPI acquire(final boolean isAggregated) {
+        MetricsSenderAPI builder = builders.get().pollLast();
+        if (builder == null) {
+            return new MetricsSenderAPI(metricsSenderProxy, isAggregated, this);
+        }
+
+        builder.acquire(isAggregated);
+        return builder;
+    }
+
+    /**
+     * Returns a sent builder to the pool of the current thread, unless the pool is full.
+     *
+     * @param builder The {@link MetricsSenderAPI} to return
+     */
+    void release(final MetricsSenderAPI builder) {
+        ArrayDeque<MetricsSenderAPI> pool = builders.get();
+        if (pool.size() < buildersPerThread) {
+            pool.addLast(builder);
+        }
+    }
+}
@@ -1,21 +1,44 @@
 package com.statful.client.core.buffer;
 
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
 import com.statful.client.domain.api.Aggregation;
 import com.statful.client.domain.api.AggregationFrequency;
 import com.statful.client.domain.api.MetricsBuffer;
 
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Buffer to store aggregated metrics.
+ * <p>
+ * Metrics are kept in a queue per {@link Aggregation} and {@link AggregationFrequency}, indexed by their ordinals in a
+ * fixed array. Queues are created on first use. Alongside each queue, a counter of its metrics tracks when the queue
+ * reaches the flush size, so that {@link #isTimeToFlush()} only reads the number of queues that are ready.
+ * <p>
+ * With a {@link MemoryBudget}, the slots of a queue are reserved from the budget when the queue is created, and metrics
+ * are rejected while there's no room for them, or for the queue they belong to.
  */
-public class AggregatedBuffer implements MetricsBuffer {
+public class AggregatedBuffer implements MetricsBuffer, Instrumented {
 
-    private Map<String, Map<String, ArrayBlockingQueue<String>>> buffer;
-    private int maxBufferSize;
-    private int flushSize;
+    private static final Aggregation[] AGGREGATIONS = Aggregation.values();
+    private static final AggregationFrequency[] AGGREGATION_FREQUENCIES = AggregationFrequency.values();
+
+    private final AtomicReferenceArray<ArrayBlockingQueue<String>> queues;
+    private final AtomicIntegerArray sizes;
+    private final AtomicInteger readyQueues = new AtomicInteger();
+    private final int maxBufferSize;
+    private final int flushSize;
+    private final int flushThreshold;
+    private final MemoryBudget budget;
+
+    private final StripedCounter accepted = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
 
     /**
      * Constructor.
@@ -23,16 +46,47 @@ public class AggregatedBuffer implements MetricsBuffer {
      * @param flushSize A {@link Integer} representing the flush size
      */
     public AggregatedBuffer(final int maxBufferSize, final int flushSize) {
-        this.buffer = new ConcurrentHashMap<String, Map<String, ArrayBlockingQueue<String>>>();
+        this(maxBufferSize, flushSize, null);
+    }
+
+    /**
+     * Constructor of a buffer that holds its metrics within a {@link MemoryBudget}.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size of each queue
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public AggregatedBuffer(final int maxBufferSize, final int flushSize, final MemoryBudget budget) {
+        this.queues = new AtomicReferenceArray<ArrayBlockingQueue<String>>(AGGREGATIONS.length * AGGREGATION_FREQUENCIES.length);
+        this.sizes = new AtomicIntegerArray(queues.length());
         this.maxBufferSize = maxBufferSize;
         this.flushSize = flushSize;
+        this.flushThreshold = Math.max(flushSize, 1);
+        this.budget = budget;
     }
 
     /**
-     * Get the current buffer.
+     * Get a view of the current buffer, keyed by aggregation and aggregation frequency names. The view holds the
+     * queues of the buffer, but adding or removing queues from it doesn't change the buffer.
      * @return The {@link Map} current buffer.
      */
     public final Map<String, Map<String, ArrayBlockingQueue<String>>> getBuffer() {
+        Map<String, Map<String, ArrayBlockingQueue<String>>> buffer = new HashMap<String, Map<String, ArrayBlockingQueue<String>>>();
+
+        for (Aggregation aggregation : AGGREGATIONS) {
+            for (AggregationFrequency aggregationFrequency : AGGREGATION_FREQUENCIES) {
+                ArrayBlockingQueue<String> queue = queues.get(index(aggregation, aggregationFrequency));
+
+                if (queue != null) {
+                    Map<String, ArrayBlockingQueue<String>> aggregationBuffer = buffer.get(aggregation.toString());
+                    if (aggregationBuffer == null) {
+                        aggregationBuffer = new HashMap<String, ArrayBlockingQueue<String>>();
+                        buffer.put(aggregation.toString(), aggregationBuffer);
+                    }
+                    aggregationBuffer.put(aggregationFrequency.toString(), queue);
+                }
+            }
+        }
+
         return buffer;
     }
 
@@ -44,26 +98,26 @@ public class AggregatedBuffer implements MetricsBuffer {
      * @return A {@link Boolean} with the success of the operation
      */
     public final boolean addToBuffer(final String metric, final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
-        Map<String, ArrayBlockingQueue<String>> aggregatedBuffer = buffer.get(aggregation.toString());
-
-        ArrayBlockingQueue<String> aggregatedFreqBuffer;
-
-        if (aggregatedBuffer == null) {
-            aggregatedBuffer = new ConcurrentHashMap<String, ArrayBlockingQueue<String>>();
-
-            aggregatedFreqBuffer = new ArrayBlockingQueue<String>(this.maxBufferSize);
-        } else {
-            aggregatedFreqBuffer = aggregatedBuffer.get(aggregationFrequency.toString());
+        int index = index(aggregation, aggregationFrequency);
+        ArrayBlockingQueue<String> queue = getOrCreateQueue(index);
+        long bytes = budget == null ? 0 : MemoryBudget.sizeOf(metric);
 
-            if (aggregatedFreqBuffer == null) {
-                aggregatedFreqBuffer = new ArrayBlockingQueue<String>(this.maxBufferSize);
-            }
+        if (queue == null || budget != null && !budget.tryAcquire(bytes)) {
+            rejected.increment();
+            return false;
+        }
+        if (!queue.offer(metric)) {
+            release(bytes);
+            rejected.increment();
+            return false;
         }
+        accepted.increment();
 
-        aggregatedBuffer.put(aggregationFrequency.toString(), aggregatedFreqBuffer);
-        buffer.put(aggregation.toString(), aggregatedBuffer);
+        if (sizes.incrementAndGet(index) == flushThreshold) {
+            readyQueues.incrementAndGet();
+        }
 
-        return aggregatedFreqBuffer.offer(metric);
+        return true;
     }
 
     /**
@@ -73,26 +127,67 @@ public class AggregatedBuffer implements MetricsBuffer {
      * @return A {@link String} with all the metrics for a particular aggregation
      */
     public final String readBuffer(final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
-        Map<String, ArrayBlockingQueue<String>> aggregatedBuffer = buffer.get(aggregation.toString());
-        ArrayBlockingQueue<String> aggregatedFreqBuffer;
+        return readBuffer(aggregation, aggregationFrequency, flushSize);
+    }
 
-        if (aggregatedBuffer != null) {
-            aggregatedFreqBuffer = aggregatedBuffer.get(aggregationFrequency.toString());
+    /**
+     * Reads up to a number of metrics of the buffer for a particular aggregation.
+     * @param aggregation The {@link Aggregation} aggregation to inspect the buffer
+     * @param aggregationFrequency The {@link AggregationFrequency} aggregation frequency to inspect the buffer
+     * @param maxMetrics The maximum number of metrics to read
+     * @return A {@link String} with the metrics for a particular aggregation
+     */
+    public final String readBuffer(final Aggregation aggregation, final AggregationFrequency aggregationFrequency,
+                                   final int maxMetrics) {
+        int index = index(aggregation, aggregationFrequency);
+        ArrayBlockingQueue<String> queue = queues.get(index);
 
-            if (aggregatedFreqBuffer != null) {
-                Collection<String> messages = new ArrayList<String>();
-                aggregatedFreqBuffer.drainTo(messages, flushSize);
+        if (queue == null) {
+            return "";
+        }
 
-                StringBuilder sb = new StringBuilder();
-                for (String metric : messages) {
-                    sb.append(metric).append("\n");
-                }
+        Collection<String> messages = new ArrayList<String>();
+        int drained = queue.drainTo(messages, maxMetrics);
+        long bytes = 0;
 
-                return sb.toString();
+        if (drained > 0) {
+            int size = sizes.addAndGet(index, -drained);
+            if (size < flushThreshold && size + drained >= flushThreshold) {
+                readyQueues.decrementAndGet();
             }
         }
 
-        return "";
+        StringBuilder sb = new StringBuilder();
+        for (String metric : messages) {
+            sb.append(metric).append("\n");
+            bytes += budget == null ? 0 : MemoryBudget.sizeOf(metric);
+        }
+        release(bytes);
+
+        return sb.toString();
+    }
+
+    /**
+     * Removes the oldest metric for a particular aggregation, to make room for a new one.
+     * @param aggregation The {@link Aggregation} aggregation of the metric
+     * @param aggregationFrequency The {@link AggregationFrequency} aggregation frequency of the metric
+     * @return True if a metric was removed, false if the buffer was empty
+     */
+    public final boolean evictOldest(final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        int index = index(aggregation, aggregationFrequency);
+        ArrayBlockingQueue<String> queue = queues.get(index);
+        String metric = queue == null ? null : queue.poll();
+
+        if (metric == null) {
+            return false;
+        }
+        release(budget == null ? 0 : MemoryBudget.sizeOf(metric));
+
+        if (sizes.decrementAndGet(index) == flushThreshold - 1) {
+            readyQueues.decrementAndGet();
+        }
+
+        return true;
     }
 
     /**
@@ -100,11 +195,15 @@ public class AggregatedBuffer implements MetricsBuffer {
      * @return A {@link Set} set with the current aggregations buffers
      */
     public final Set<Aggregation> getAggregations() {
-        Set<String> aggregationNames = buffer.keySet();
-        Set<Aggregation> aggregations = new HashSet<Aggregation>();
+        Set<Aggregation> aggregations = EnumSet.noneOf(Aggregation.class);
 
-        for (String aggregation : aggregationNames) {
-            aggregations.add(Aggregation.valueOf(aggregation));
+        for (Aggregation aggregation : AGGREGATIONS) {
+            for (AggregationFrequency aggregationFrequency : AGGREGATION_FREQUENCIES) {
+                if (queues.get(index(aggregation, aggregationFrequency)) != null) {
+                    aggregations.add(aggregation);
+                    break;
+                }
+            }
         }
 
         return aggregations;
@@ -116,13 +215,11 @@ public class AggregatedBuffer implements MetricsBuffer {
      * @return A {@link Set} set with the current aggregations frequencies buffers
      */
     public final Set<AggregationFrequency> getAggregationFrequencies(final Aggregation aggregation) {
-        Map<String, ArrayBlockingQueue<String>> aggregationFreqBuffer = buffer.get(aggregation.toString());
-
-        Set<AggregationFrequency> aggregationFrequencies = new HashSet<AggregationFrequency>();
+        Set<AggregationFrequency> aggregationFrequencies = EnumSet.noneOf(AggregationFrequency.class);
 
-        if (aggregationFreqBuffer != null) {
-            for (String aggregationFreq : aggregationFreqBuffer.keySet()) {
-                aggregationFrequencies.add(AggregationFrequency.valueOf(aggregationFreq));
+        for (AggregationFrequency aggregationFrequency : AGGREGATION_FREQUENCIES) {
+            if (queues.get(index(aggregation, aggregationFrequency)) != null) {
+                aggregationFrequencies.add(aggregationFrequency);
             }
         }
 
@@ -131,42 +228,62 @@ public class AggregatedBuffer implements MetricsBuffer {
 
     @Override
     public final boolean isTimeToFlush() {
-        Set<Aggregation> aggregations = getAggregations();
-
-        for (Aggregation aggregation : aggregations) {
-            Set<AggregationFrequency> aggregationFrequencies = getAggregationFrequencies(aggregation);
+        return readyQueues.get() > 0;
+    }
 
-            for (AggregationFrequency aggregationFrequency : aggregationFrequencies) {
-                if (isTimeToFlushAggregation(aggregation.toString(), aggregationFrequency.toString())) {
-                    return true;
-                }
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("buffer.aggregated.accepted", accepted);
+        stats.register("buffer.aggregated.rejected", rejected);
+        stats.register("buffer.aggregated.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return size();
             }
-        }
+        });
+    }
 
-        return false;
+    /**
+     * Returns the number of metrics currently in all the queues of the buffer.
+     * @return The number of metrics in the buffer
+     */
+    public final int size() {
+        int size = 0;
+        for (int i = 0; i < sizes.length(); i++) {
+            size += sizes.get(i);
+        }
+        return size;
     }
 
     /**
-     * Validates if the buffer for a particular aggregation is considered ready to be flushed.
-     * @param aggregation An {@link Aggregation} aggregation
-     * @param aggregationFreq An {@link AggregationFrequency} aggregation frequency
-     * @return A {@link Boolean} stating if a particular aggregation buffer should be flushed
+     * Returns the queue at an index, creating it if needed.
+     *
+     * @return The queue, or null if there's no room for its slots in the memory budget
      */
-    private boolean isTimeToFlushAggregation(final String aggregation, final String aggregationFreq) {
-        Map<String, ArrayBlockingQueue<String>> aggregatedBuffer = buffer.get(aggregation);
+    private ArrayBlockingQueue<String> getOrCreateQueue(final int index) {
+        ArrayBlockingQueue<String> queue = queues.get(index);
 
-        if (aggregatedBuffer != null) {
-            ArrayBlockingQueue<String> aggregatedFreqBuffer = aggregatedBuffer.get(aggregationFreq);
+        if (queue == null) {
+            long slotBytes = MemoryBudget.SLOT_BYTES * maxBufferSize;
+            if (budget != null && !budget.tryReserve(slotBytes)) {
+                return null;
+            }
+            if (!queues.compareAndSet(index, null, new ArrayBlockingQueue<String>(maxBufferSize)) && budget != null) {
+                budget.cancelReservation(slotBytes);
+            }
+            queue = queues.get(index);
+        }
 
-            if (aggregatedFreqBuffer != null) {
-                int bufferSize = aggregatedFreqBuffer.size();
+        return queue;
+    }
 
-                if (bufferSize > 0 && flushSize <= bufferSize) {
-                    return true;
-                }
-            }
+    private void release(final long bytes) {
+        if (budget != null) {
+            budget.release(bytes);
         }
+    }
 
-        return false;
+    private static int index(final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        return aggregation.ordinal() * AGGREGATION_FREQUENCIES.length + aggregationFrequency.ordinal();
     }
 }
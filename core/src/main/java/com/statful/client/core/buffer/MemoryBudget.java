@@ -0,0 +1,177 @@
+package com.statful.client.core.buffer;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A budget of heap bytes shared by all the buffers of a client, so that the memory held by buffered metrics has a hard
+ * ceiling. Memory held by the client outside of its buffers isn't counted.
+ * <p>
+ * Buffers acquire the estimated size of a metric before adding it, and release it once the metric is read or evicted.
+ * Acquiring is a single atomic add, undone when it goes over the budget, so it never loops nor locks. Threads racing
+ * near the ceiling may both be refused, but the bytes acquired never exceed the budget. The slots of the buffers are
+ * reserved from the same budget, once, when each buffer is created.
+ * <p>
+ * Sizes are estimated from the layout of a {@link String} in a 64-bit JVM: {@value #METRIC_OVERHEAD_BYTES} bytes of
+ * headers and fields, plus two bytes per character.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class MemoryBudget implements Instrumented {
+
+    /**
+     * The estimated size of a buffer slot: a reference, and the sequence number of a ring buffer slot.
+     */
+    public static final long SLOT_BYTES = 16;
+
+    private static final long METRIC_OVERHEAD_BYTES = 56;
+    private static final long BYTES_PER_CHAR = 2;
+    private static final int PRESSURE_SHIFT = 1;
+
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final StripedCounter rejected = new StripedCounter();
+
+    /**
+     * Default constructor.
+     *
+     * @param maxBytes The maximum number of bytes held by the buffers
+     */
+    public MemoryBudget(final long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget should be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Estimates the heap size of a buffered metric.
+     *
+     * @param metric The metric line
+     * @return The estimated size in bytes
+     */
+    public static long sizeOf(final String metric) {
+        return METRIC_OVERHEAD_BYTES + BYTES_PER_CHAR * metric.length();
+    }
+
+    /**
+     * Acquires bytes for a metric, unless they don't fit in the budget.
+     *
+     * @param bytes The number of bytes to acquire
+     * @return False if the budget was exhausted, in which case nothing was acquired
+     */
+    public boolean tryAcquire(final long bytes) {
+        if (usedBytes.addAndGet(bytes) > maxBytes) {
+            usedBytes.addAndGet(-bytes);
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases bytes acquired for metrics that left the buffers.
+     *
+     * @param bytes The number of bytes to release
+     */
+    public void release(final long bytes) {
+        if (bytes != 0) {
+            usedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * Reserves bytes for the slots of a buffer, for as long as the client lives, even if they exceed the budget. Callers
+     * check beforehand that the budget can hold them.
+     *
+     * @param bytes The number of bytes to reserve
+     */
+    public void reserve(final long bytes) {
+        usedBytes.addAndGet(bytes);
+        reservedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Reserves bytes for the slots of a buffer created on demand, unless they don't fit in the budget.
+     *
+     * @param bytes The number of bytes to reserve
+     * @return False if the budget was exhausted, in which case nothing was reserved
+     */
+    public boolean tryReserve(final long bytes) {
+        if (!tryAcquire(bytes)) {
+            return false;
+        }
+        reservedBytes.addAndGet(bytes);
+        return true;
+    }
+
+    /**
+     * Gives back bytes reserved for slots that weren't used after all.
+     *
+     * @param bytes The number of bytes to give back
+     */
+    void cancelReservation(final long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        usedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Checks if the metrics held by the buffers take more than half of the budget left after the reserved slots, in
+     * which case the buffers should be flushed before they reach the flush size.
+     *
+     * @return True if more than half of the budget for metrics is used
+     */
+    public boolean isUnderPressure() {
+        long reserved = reservedBytes.get();
+        return usedBytes.get() - reserved > (maxBytes - reserved) >> PRESSURE_SHIFT;
+    }
+
+    @Override
+    public void registerStats(final ClientStats stats) {
+        stats.register("memory.used_bytes", new Gauge() {
+            @Override
+            public long getValue() {
+                return getUsedBytes();
+            }
+        });
+        stats.register("memory.max_bytes", new Gauge() {
+            @Override
+            public long getValue() {
+                return maxBytes;
+            }
+        });
+        stats.register("memory.rejected", rejected);
+    }
+
+    /**
+     * Returns the number of bytes held by the buffers, including their reserved slots.
+     *
+     * @return The used bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes reserved for the slots of the buffers.
+     *
+     * @return The reserved bytes
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * Returns the number of times bytes were refused because the budget was exhausted.
+     *
+     * @return The number of rejections
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,63 @@
+package com.statful.client.core.buffer;
+
+import com.statful.client.domain.api.MetricsBuffer;
+
+import java.util.List;
+
+/**
+ * Interface that represents a buffer of metric lines which are flushed together, in batches of flush size.
+ */
+public interface MessageBuffer extends MetricsBuffer {
+
+    /**
+     * Adds a metric to the buffer.
+     * @param metric The {@link String} metric line
+     * @return A {@link Boolean} with the success of the operation
+     */
+    boolean addToBuffer(String metric);
+
+    /**
+     * Reads, and removes, up to flush size metrics from the buffer.
+     * @return A {@link String} with the metrics, separated by new lines
+     */
+    String readBuffer();
+
+    /**
+     * Reads, and removes, up to a number of metrics from the buffer.
+     * @param maxMetrics The maximum number of metrics to read
+     * @return A {@link String} with the metrics, separated by new lines
+     */
+    String readBuffer(int maxMetrics);
+
+    /**
+     * Removes the oldest metric from the buffer, to make room for a new one.
+     * @return True if a metric was removed, false if the buffer was empty
+     */
+    boolean evictOldest();
+
+    /**
+     * Returns the number of metrics currently in the buffer.
+     * @return The number of metrics in the buffer
+     */
+    int size();
+
+    /**
+     * Validates if the buffer holds a batch of the given size, cheaply enough to be called after every metric added.
+     * <p>
+     * A buffer split by thread may only answer true once the part of the calling thread holds its share of the batch,
+     * so that threads adding metrics don't read each other's part on every add. Use {@link #size()} for an exact count.
+     *
+     * @param batchSize The number of metrics of a batch
+     * @return A {@link Boolean} stating if the buffer should be flushed
+     */
+    boolean isTimeToFlush(int batchSize);
+
+    /**
+     * Returns a copy of the metrics currently in the buffer, in insertion order.
+     * <p>
+     * This method returns a new copy of the buffer every time it's called. Caution is advised.
+     *
+     * @return A {@link List} containing the metrics of the buffer
+     */
+    List<String> snapshot();
+}
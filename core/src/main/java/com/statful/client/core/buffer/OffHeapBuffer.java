@@ -0,0 +1,407 @@
+package com.statful.client.core.buffer;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer to store metrics off the heap, as UTF-8 lines in direct {@link ByteBuffer} segments.
+ * <p>
+ * Metrics are encoded into the segment being written as they are added, each one followed by a new line, so the
+ * buffer holds no object per metric, and the metrics it holds neither grow the heap nor add to the work of the garbage
+ * collector. ASCII metrics are written a byte per character, without allocating. Segments are allocated on demand, up
+ * to enough for the max buffer size at 128 bytes per metric, and reused once read. With a
+ * {@link MemoryBudget}, each segment is reserved from the budget when it's allocated.
+ * <p>
+ * Only the retention of buffered metrics is off the heap. A batch is read by finding where it ends in the segments,
+ * copying just those bytes with a bulk copy into a reused heap array, and decoding them into a single {@link String},
+ * instead of appending a string per metric to a builder. The transport then encodes that string again, as it does the
+ * batches of any other buffer.
+ * <p>
+ * Writers and readers take a single lock, as with {@link StandardBuffer}, so threads putting metrics concurrently
+ * contend on it as much as they do there. Metrics are measured before taking it.
+ */
+public class OffHeapBuffer implements MessageBuffer, Instrumented {
+
+    /**
+     * The default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 65536;
+
+    private static final int ESTIMATED_LINE_BYTES = 128;
+    private static final int MIN_SEGMENTS = 2;
+    private static final int ONE_BYTE_LIMIT = 0x80;
+    private static final int TWO_BYTES_LIMIT = 0x800;
+    private static final int TWO_BYTES = 2;
+    private static final int THREE_BYTES = 3;
+    private static final int FOUR_BYTES = 4;
+    private static final byte NEW_LINE = '\n';
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int maxBufferSize;
+    private final int flushSize;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final MemoryBudget budget;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+    private final ArrayDeque<Segment> freeSegments = new ArrayDeque<Segment>();
+    private int allocatedSegments;
+    private byte[] scratch = new byte[0];
+    private volatile int size;
+
+    private final StripedCounter accepted = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
+
+    /**
+     * Constructor.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     */
+    public OffHeapBuffer(final int maxBufferSize, final int flushSize) {
+        this(maxBufferSize, flushSize, DEFAULT_SEGMENT_BYTES, null);
+    }
+
+    /**
+     * Constructor of a buffer that allocates its segments within a {@link MemoryBudget}.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public OffHeapBuffer(final int maxBufferSize, final int flushSize, final MemoryBudget budget) {
+        this(maxBufferSize, flushSize, DEFAULT_SEGMENT_BYTES, budget);
+    }
+
+    /**
+     * Constructor of a buffer with segments of a given size.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param segmentBytes The size of a segment in bytes, which is also the size of the longest metric
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public OffHeapBuffer(final int maxBufferSize, final int flushSize, final int segmentBytes, final MemoryBudget budget) {
+        if (maxBufferSize <= 0) {
+            throw new IllegalArgumentException("The max buffer size should be positive");
+        }
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("The segment size should be positive");
+        }
+
+        this.maxBufferSize = maxBufferSize;
+        this.flushSize = flushSize;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(MIN_SEGMENTS, ((long) maxBufferSize * ESTIMATED_LINE_BYTES + segmentBytes - 1) / segmentBytes);
+        this.budget = budget;
+    }
+
+    @Override
+    public final boolean addToBuffer(final String metric) {
+        if (metric == null) {
+            throw new NullPointerException("Metric should not be null");
+        }
+
+        int length = utf8Length(metric);
+        lock.lock();
+        try {
+            Segment segment = size < maxBufferSize ? writableSegment(length + 1) : null;
+            if (segment == null) {
+                rejected.increment();
+                return false;
+            }
+
+            segment.write(metric, length);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+
+        accepted.increment();
+        return true;
+    }
+
+    @Override
+    public final String readBuffer() {
+        return readBuffer(flushSize);
+    }
+
+    @Override
+    public final String readBuffer(final int maxMetrics) {
+        lock.lock();
+        try {
+            int length = 0;
+            int remaining = Math.min(maxMetrics, size);
+
+            while (remaining > 0) {
+                Segment segment = segments.peekFirst();
+                int taken = Math.min(remaining, segment.metrics);
+                length = segment.read(taken, length);
+                remaining -= taken;
+                size -= taken;
+                recycleIfEmpty(segment);
+            }
+
+            return length == 0 ? "" : new String(scratch, 0, length, UTF_8);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public final boolean evictOldest() {
+        lock.lock();
+        try {
+            Segment segment = segments.peekFirst();
+            if (segment == null || segment.metrics == 0) {
+                return false;
+            }
+
+            segment.skip();
+            size--;
+            recycleIfEmpty(segment);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    @Override
+    public final List<String> snapshot() {
+        List<String> metrics = new ArrayList<String>();
+
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                byte[] bytes = segment.copy();
+                int start = 0;
+                for (int i = 0; i < bytes.length; i++) {
+                    if (bytes[i] == NEW_LINE) {
+                        metrics.add(new String(bytes, start, i - start, UTF_8));
+                        start = i + 1;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return metrics;
+    }
+
+    @Override
+    public final boolean isTimeToFlush() {
+        return isTimeToFlush(flushSize);
+    }
+
+    @Override
+    public final boolean isTimeToFlush(final int batchSize) {
+        int bufferSize = size();
+        return bufferSize > 0 && batchSize <= bufferSize;
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("buffer.standard.accepted", accepted);
+        stats.register("buffer.standard.rejected", rejected);
+        stats.register("buffer.standard.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return size();
+            }
+        });
+        stats.register("buffer.standard.segments", new Gauge() {
+            @Override
+            public long getValue() {
+                return getAllocatedSegments();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of segments allocated by the buffer.
+     *
+     * @return The number of segments
+     */
+    public final int getAllocatedSegments() {
+        lock.lock();
+        try {
+            return allocatedSegments;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the segment to write a metric to, starting a new one when the metric doesn't fit in the last one. Must be
+     * called while holding the lock.
+     *
+     * @return The {@link Segment}, or null if there's no room for the metric
+     */
+    private Segment writableSegment(final int bytes) {
+        Segment last = segments.peekLast();
+        if (last != null && last.remaining() >= bytes) {
+            return last;
+        }
+        if (bytes > segmentBytes) {
+            return null;
+        }
+
+        Segment segment = freeSegments.pollFirst();
+        if (segment == null) {
+            if (allocatedSegments >= maxSegments || budget != null && !budget.tryReserve(segmentBytes)) {
+                return null;
+            }
+            segment = new Segment(segmentBytes);
+            allocatedSegments++;
+        }
+
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * Moves a segment without metrics to the free segments. Must be called while holding the lock.
+     */
+    private void recycleIfEmpty(final Segment segment) {
+        if (segment.metrics == 0) {
+            segments.remove(segment);
+            segment.clear();
+            freeSegments.addFirst(segment);
+        }
+    }
+
+    /**
+     * Returns the scratch array, grown to hold at least a number of bytes, keeping the bytes already copied to it. Must
+     * be called while holding the lock.
+     *
+     * @return The scratch array
+     */
+    private byte[] scratch(final int bytes) {
+        if (scratch.length < bytes) {
+            scratch = Arrays.copyOf(scratch, Math.max(bytes, scratch.length * TWO_BYTES));
+        }
+        return scratch;
+    }
+
+    private static int utf8Length(final String metric) {
+        int length = metric.length();
+        for (int i = 0; i < metric.length(); i++) {
+            char c = metric.charAt(i);
+            if (c >= ONE_BYTE_LIMIT) {
+                if (c < TWO_BYTES_LIMIT) {
+                    length += TWO_BYTES - 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < metric.length() && Character.isLowSurrogate(metric.charAt(i + 1))) {
+                    length += FOUR_BYTES - TWO_BYTES;
+                    i++;
+                } else {
+                    length += THREE_BYTES - 1;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A direct buffer of new line separated metrics, read from its start and written at its end.
+     */
+    private final class Segment {
+        private final ByteBuffer data;
+        private final ByteBuffer reader;
+        private int readPosition;
+        private int metrics;
+
+        Segment(final int bytes) {
+            this.data = ByteBuffer.allocateDirect(bytes);
+            this.reader = data.duplicate();
+        }
+
+        int remaining() {
+            return data.remaining();
+        }
+
+        void write(final String metric, final int length) {
+            if (length == metric.length()) {
+                for (int i = 0; i < length; i++) {
+                    data.put((byte) metric.charAt(i));
+                }
+            } else {
+                data.put(metric.getBytes(UTF_8));
+            }
+            data.put(NEW_LINE);
+            metrics++;
+        }
+
+        /**
+         * Copies the oldest metrics of the segment to the scratch array, copying only the bytes of those metrics.
+         *
+         * @return The length of the scratch array taken
+         */
+        int read(final int count, final int offset) {
+            int end = count < metrics ? endOf(count) : data.position();
+            int length = end - readPosition;
+            byte[] bytes = scratch(offset + length);
+            view(readPosition, end).get(bytes, offset, length);
+
+            readPosition = end;
+            metrics -= count;
+            return offset + length;
+        }
+
+        /**
+         * Finds where a number of the oldest metrics of the segment end, reading the segment in place.
+         *
+         * @return The position after the new line of the last of those metrics
+         */
+        private int endOf(final int count) {
+            int position = readPosition;
+            int found = 0;
+            while (found < count) {
+                if (data.get(position++) == NEW_LINE) {
+                    found++;
+                }
+            }
+            return position;
+        }
+
+        void skip() {
+            while (data.get(readPosition) != NEW_LINE) {
+                readPosition++;
+            }
+            readPosition++;
+            metrics--;
+        }
+
+        byte[] copy() {
+            byte[] bytes = new byte[data.position() - readPosition];
+            view(readPosition, data.position()).get(bytes);
+            return bytes;
+        }
+
+        void clear() {
+            ((Buffer) data).clear();
+            readPosition = 0;
+            metrics = 0;
+        }
+
+        private ByteBuffer view(final int start, final int end) {
+            ((Buffer) reader).limit(end);
+            ((Buffer) reader).position(start);
+            return reader;
+        }
+    }
+}
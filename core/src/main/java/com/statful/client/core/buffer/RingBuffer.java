@@ -0,0 +1,261 @@
+package com.statful.client.core.buffer;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer to store metrics, backed by a bounded lock-free multi-producer/single-consumer ring buffer.
+ * <p>
+ * Producers claim a slot with a single compare-and-set on the tail sequence and never block each other, so
+ * recording threads don't contend on a lock as with {@link StandardBuffer}. Every slot carries its own sequence
+ * number, which tells whether it is free to be written in the current lap or already holds a published metric.
+ * <p>
+ * Reads are serialized by a lock that only readers take, since the flush can be triggered concurrently by recording
+ * threads and by the periodic flusher.
+ */
+public class RingBuffer implements MessageBuffer, Instrumented {
+
+    private final int maxBufferSize;
+    private final int flushSize;
+    private final MemoryBudget budget;
+
+    private final int mask;
+    private final AtomicReferenceArray<String> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final ReentrantLock readLock = new ReentrantLock();
+    private volatile long head;
+
+    private final StripedCounter accepted = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
+
+    /**
+     * Constructor.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     */
+    public RingBuffer(final int maxBufferSize, final int flushSize) {
+        this(maxBufferSize, flushSize, null);
+    }
+
+    /**
+     * Constructor of a buffer that holds its metrics within a {@link MemoryBudget}.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public RingBuffer(final int maxBufferSize, final int flushSize, final MemoryBudget budget) {
+        if (maxBufferSize <= 0) {
+            throw new IllegalArgumentException("The max buffer size should be positive");
+        }
+
+        this.maxBufferSize = maxBufferSize;
+        this.flushSize = flushSize;
+        this.budget = budget;
+
+        int capacity = nextPowerOfTwo(maxBufferSize);
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<String>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public final boolean addToBuffer(final String metric) {
+        if (metric == null) {
+            throw new NullPointerException("Metric should not be null");
+        }
+
+        long bytes = budget == null ? 0 : MemoryBudget.sizeOf(metric);
+        if (budget != null && !budget.tryAcquire(bytes)) {
+            rejected.increment();
+            return false;
+        }
+
+        while (true) {
+            long position = tail.get();
+
+            if (position - head >= maxBufferSize) {
+                return reject(bytes);
+            }
+
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, metric);
+                    sequences.lazySet(index, position + 1);
+                    accepted.increment();
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The slot from the previous lap wasn't read yet
+                return reject(bytes);
+            }
+        }
+    }
+
+    @Override
+    public final String readBuffer() {
+        return readBuffer(flushSize);
+    }
+
+    @Override
+    public final String readBuffer(final int maxMetrics) {
+        StringBuilder sb = new StringBuilder();
+        drainTo(sb, maxMetrics);
+        return sb.toString();
+    }
+
+    /**
+     * Reads, and removes, up to a number of metrics from the buffer.
+     *
+     * @param sb The {@link StringBuilder} to append the metrics to, separated by new lines
+     * @param maxMetrics The maximum number of metrics to read
+     * @return The number of metrics read
+     */
+    final int drainTo(final StringBuilder sb, final int maxMetrics) {
+        int drained = 0;
+        long bytes = 0;
+
+        readLock.lock();
+        try {
+            while (drained < maxMetrics) {
+                String metric = poll();
+                if (metric == null) {
+                    break;
+                }
+                sb.append(metric).append('\n');
+                bytes += budget == null ? 0 : MemoryBudget.sizeOf(metric);
+                drained++;
+            }
+        } finally {
+            readLock.unlock();
+        }
+        release(bytes);
+
+        return drained;
+    }
+
+    @Override
+    public final boolean evictOldest() {
+        String metric;
+        readLock.lock();
+        try {
+            metric = poll();
+        } finally {
+            readLock.unlock();
+        }
+
+        if (metric == null) {
+            return false;
+        }
+        release(budget == null ? 0 : MemoryBudget.sizeOf(metric));
+        return true;
+    }
+
+    @Override
+    public final int size() {
+        long size = tail.get() - head;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, maxBufferSize);
+    }
+
+    @Override
+    public final List<String> snapshot() {
+        List<String> metrics = new ArrayList<String>();
+
+        readLock.lock();
+        try {
+            long position = head;
+            int index = (int) position & mask;
+
+            while (sequences.get(index) == position + 1) {
+                metrics.add(elements.get(index));
+                position++;
+                index = (int) position & mask;
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        return metrics;
+    }
+
+    @Override
+    public final boolean isTimeToFlush() {
+        return isTimeToFlush(flushSize);
+    }
+
+    @Override
+    public final boolean isTimeToFlush(final int batchSize) {
+        int bufferSize = size();
+        return bufferSize > 0 && batchSize <= bufferSize;
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("buffer.standard.accepted", accepted);
+        stats.register("buffer.standard.rejected", rejected);
+        stats.register("buffer.standard.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return size();
+            }
+        });
+    }
+
+    private boolean reject(final long bytes) {
+        release(bytes);
+        rejected.increment();
+        return false;
+    }
+
+    private void release(final long bytes) {
+        if (budget != null) {
+            budget.release(bytes);
+        }
+    }
+
+    /**
+     * Removes the oldest published metric. Must be called while holding the read lock.
+     *
+     * @return The oldest metric, or null if there is none published
+     */
+    private String poll() {
+        long position = head;
+        int index = (int) position & mask;
+
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+
+        String metric = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+
+        return metric;
+    }
+
+    private static int nextPowerOfTwo(final int value) {
+        int highestOneBit = Integer.highestOneBit(value);
+        return highestOneBit == value ? value : highestOneBit << 1;
+    }
+}
@@ -0,0 +1,196 @@
+package com.statful.client.core.buffer;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer to store metrics, split into shards picked by the thread that adds the metric.
+ * <p>
+ * Even a lock-free buffer makes every producer thread update the same tail sequence, so producers on different cores
+ * keep taking the same cache line from each other. Here each thread adds to the shard picked by a hash of its id, a
+ * {@link RingBuffer} of its own, so threads on different shards never write to the same memory. The max buffer size is
+ * split evenly between the shards. A thread whose shard is full adds to the next shard that has room, so that fewer
+ * threads than shards can still fill the whole buffer, at the cost of writing to the shards of other threads.
+ * <p>
+ * For the same reason, {@link #isTimeToFlush(int)} first checks whether the shard of the calling thread holds its share
+ * of the batch, and only then sums the sizes of every shard. The sum is only read by threads whose shard is filling
+ * up, rather than on every add.
+ * <p>
+ * Reads drain the shards round-robin into a single batch of flush size: each shard gives its share of the batch first,
+ * and the rest of the batch is filled from the shards that have more, starting from a different shard on every read so
+ * that none is favoured. Metrics keep their order within a shard, but not across shards.
+ */
+public class ShardedBuffer implements MessageBuffer, Instrumented {
+
+    private static final int LONG_BITS = 64;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int MAX_SHARDS = 64;
+
+    private final int flushSize;
+    private final RingBuffer[] shards;
+    private final int hashShift;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    private final StripedCounter accepted = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
+
+    /**
+     * Constructor.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param shards The number of shards, rounded up to a power of two, or zero to use the number of processors
+     */
+    public ShardedBuffer(final int maxBufferSize, final int flushSize, final int shards) {
+        this(maxBufferSize, flushSize, shards, null);
+    }
+
+    /**
+     * Constructor of a buffer that holds its metrics within a {@link MemoryBudget}.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param shards The number of shards, rounded up to a power of two, or zero to use the number of processors
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public ShardedBuffer(final int maxBufferSize, final int flushSize, final int shards, final MemoryBudget budget) {
+        if (maxBufferSize <= 0) {
+            throw new IllegalArgumentException("The max buffer size should be positive");
+        }
+
+        int shardCount = nextPowerOfTwo(shards > 0 ? shards : Runtime.getRuntime().availableProcessors());
+        shardCount = Math.min(Math.min(shardCount, MAX_SHARDS), Integer.highestOneBit(maxBufferSize));
+
+        this.flushSize = flushSize;
+        this.shards = new RingBuffer[shardCount];
+        this.hashShift = LONG_BITS - Integer.numberOfTrailingZeros(shardCount);
+
+        int shardSize = (maxBufferSize + shardCount - 1) / shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new RingBuffer(shardSize, flushSize, budget);
+        }
+    }
+
+    @Override
+    public final boolean addToBuffer(final String metric) {
+        int index = currentIndex();
+        for (int i = 0; i < shards.length; i++) {
+            if (shard(index + i).addToBuffer(metric)) {
+                accepted.increment();
+                return true;
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    @Override
+    public final String readBuffer() {
+        return readBuffer(flushSize);
+    }
+
+    @Override
+    public final String readBuffer(final int maxMetrics) {
+        StringBuilder sb = new StringBuilder();
+        int start = nextShard.getAndIncrement();
+        int share = Math.max(1, (maxMetrics + shards.length - 1) / shards.length);
+        int remaining = maxMetrics;
+
+        for (int i = 0; i < shards.length && remaining > 0; i++) {
+            remaining -= shard(start + i).drainTo(sb, Math.min(share, remaining));
+        }
+        for (int i = 0; i < shards.length && remaining > 0; i++) {
+            remaining -= shard(start + i).drainTo(sb, remaining);
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public final boolean evictOldest() {
+        if (shards[currentIndex()].evictOldest()) {
+            return true;
+        }
+        for (RingBuffer shard : shards) {
+            if (shard.evictOldest()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public final int size() {
+        int size = 0;
+        for (RingBuffer shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public final List<String> snapshot() {
+        List<String> metrics = new ArrayList<String>();
+        for (RingBuffer shard : shards) {
+            metrics.addAll(shard.snapshot());
+        }
+        return metrics;
+    }
+
+    @Override
+    public final boolean isTimeToFlush() {
+        int bufferSize = size();
+        return bufferSize > 0 && flushSize <= bufferSize;
+    }
+
+    @Override
+    public final boolean isTimeToFlush(final int batchSize) {
+        int share = (batchSize + shards.length - 1) / shards.length;
+        int shardSize = shards[currentIndex()].size();
+        if (shardSize == 0 || shardSize < share) {
+            return false;
+        }
+        return shards.length == 1 || batchSize <= size();
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("buffer.standard.accepted", accepted);
+        stats.register("buffer.standard.rejected", rejected);
+        stats.register("buffer.standard.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return size();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards
+     */
+    public final int getShards() {
+        return shards.length;
+    }
+
+    private int currentIndex() {
+        if (shards.length == 1) {
+            return 0;
+        }
+        return (int) ((Thread.currentThread().getId() * HASH_MULTIPLIER) >>> hashShift);
+    }
+
+    private RingBuffer shard(final int index) {
+        return shards[index & (shards.length - 1)];
+    }
+
+    private static int nextPowerOfTwo(final int value) {
+        int highestOneBit = Integer.highestOneBit(value);
+        return highestOneBit == value ? value : highestOneBit << 1;
+    }
+}
@@ -1,19 +1,29 @@
 package com.statful.client.core.buffer;
 
-import com.statful.client.domain.api.MetricsBuffer;
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 
+import static java.util.Arrays.asList;
+
 /**
- * Buffer to store metrics.
+ * Buffer to store metrics, backed by an {@link ArrayBlockingQueue}.
  */
-public class StandardBuffer implements MetricsBuffer {
+public class StandardBuffer implements MessageBuffer, Instrumented {
 
     private ArrayBlockingQueue<String> buffer;
     private int maxBufferSize;
     private int flushSize;
+    private final MemoryBudget budget;
+
+    private final StripedCounter accepted = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
 
     /**
      * Constructor.
@@ -21,8 +31,19 @@ public class StandardBuffer implements MetricsBuffer {
      * @param flushSize A {@link Integer} representing the flush size
      */
     public StandardBuffer(final int maxBufferSize, final int flushSize) {
+        this(maxBufferSize, flushSize, null);
+    }
+
+    /**
+     * Constructor of a buffer that holds its metrics within a {@link MemoryBudget}.
+     * @param maxBufferSize A {@link Integer} representing the max buffer size
+     * @param flushSize A {@link Integer} representing the flush size
+     * @param budget The {@link MemoryBudget} shared by the buffers, or null for no budget
+     */
+    public StandardBuffer(final int maxBufferSize, final int flushSize, final MemoryBudget budget) {
         this.maxBufferSize = maxBufferSize;
         this.flushSize = flushSize;
+        this.budget = budget;
         this.buffer = new ArrayBlockingQueue<String>(this.maxBufferSize);
     }
 
@@ -39,28 +60,93 @@ public class StandardBuffer implements MetricsBuffer {
      * @param metric The {@link String} metric name
      * @return A {@link Boolean} with the success of the operation
      */
+    @Override
     public final boolean addToBuffer(final String metric) {
-        return buffer.offer(metric);
+        long bytes = budget == null ? 0 : MemoryBudget.sizeOf(metric);
+        if (budget != null && !budget.tryAcquire(bytes)) {
+            rejected.increment();
+            return false;
+        }
+
+        if (buffer.offer(metric)) {
+            accepted.increment();
+            return true;
+        }
+        release(bytes);
+        rejected.increment();
+        return false;
     }
 
     /**
      * Reads the buffer contents.
      * @return A {@link String} with all the metrics
      */
+    @Override
     public final String readBuffer() {
+        return readBuffer(flushSize);
+    }
+
+    @Override
+    public final String readBuffer(final int maxMetrics) {
         Collection<String> messages = new ArrayList<String>();
-        buffer.drainTo(messages, flushSize);
+        buffer.drainTo(messages, maxMetrics);
 
+        long bytes = 0;
         StringBuilder sb = new StringBuilder();
         for (String metric : messages) {
             sb.append(metric).append("\n");
+            bytes += budget == null ? 0 : MemoryBudget.sizeOf(metric);
         }
+        release(bytes);
         return sb.toString();
     }
 
+    @Override
+    public final boolean evictOldest() {
+        String metric = buffer.poll();
+        if (metric == null) {
+            return false;
+        }
+        release(budget == null ? 0 : MemoryBudget.sizeOf(metric));
+        return true;
+    }
+
+    @Override
+    public final int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public final List<String> snapshot() {
+        return asList(buffer.toArray(new String[buffer.size()]));
+    }
+
     @Override
     public final boolean isTimeToFlush() {
+        return isTimeToFlush(flushSize);
+    }
+
+    @Override
+    public final boolean isTimeToFlush(final int batchSize) {
         int bufferSize = buffer.size();
-        return bufferSize > 0 && flushSize <= bufferSize;
+        return bufferSize > 0 && batchSize <= bufferSize;
+    }
+
+    private void release(final long bytes) {
+        if (budget != null) {
+            budget.release(bytes);
+        }
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("buffer.standard.accepted", accepted);
+        stats.register("buffer.standard.rejected", rejected);
+        stats.register("buffer.standard.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return size();
+            }
+        });
     }
 }
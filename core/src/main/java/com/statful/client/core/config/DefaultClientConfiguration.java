@@ -24,6 +24,19 @@ public class DefaultClientConfiguration implements ClientConfiguration {
     private static final int DEFAULT_FLUSH_SIZE = 10;
     private static final int DEFAULT_FLUSH_INTERVAL_MS = 5000;
     private static final AggregationFrequency DEFAULT_AGGREGATION_FREQ = AggregationFrequency.FREQ_10;
+    private static final BufferType DEFAULT_BUFFER_TYPE = BufferType.BLOCKING_QUEUE;
+    private static final int DEFAULT_UDP_MAX_PAYLOAD_SIZE = 1432;
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 20;
+    private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    private static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+    private static final long DEFAULT_SPOOL_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_SPOOL_MAX_AGE_MS = 3600000;
+    private static final int DEFAULT_MAX_RETRIES = 2;
+    private static final long DEFAULT_RETRY_BACKOFF_MS = 100;
+    private static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MS = 30000;
+    private static final long DEFAULT_OVERFLOW_BLOCK_TIMEOUT_MS = 10;
+    private static final int DEFAULT_BUFFER_CAPACITY = 5000;
 
     private static final Tags DEFAULT_APP_TAGS = Tags.from("statful_client", "java");
     private static final Tags DEFAULT_TIMER_TAGS = Tags.from("unit", "ms");
@@ -41,6 +54,35 @@ public class DefaultClientConfiguration implements ClientConfiguration {
     private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MS;
 
     private boolean isDryRun;
+    private boolean preAggregation;
+    private boolean nonBlockingUdp;
+    private int udpMaxPayloadSize = DEFAULT_UDP_MAX_PAYLOAD_SIZE;
+    private boolean asyncHttp;
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+    private boolean compression;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+    private String spoolDirectory;
+    private long spoolMaxBytes = DEFAULT_SPOOL_MAX_BYTES;
+    private long spoolMaxAgeMillis = DEFAULT_SPOOL_MAX_AGE_MS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MS;
+    private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_MS;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private long overflowBlockTimeoutMillis = DEFAULT_OVERFLOW_BLOCK_TIMEOUT_MS;
+    private boolean selfMetricsEnabled;
+    private boolean jmxEnabled;
+    private int bufferShards;
+    private SamplingStrategy samplingStrategy = SamplingStrategy.RANDOM;
+    private boolean builderRecyclingEnabled;
+    private int maxSeries;
+    private CardinalityPolicy cardinalityPolicy = CardinalityPolicy.OVERFLOW;
+    private boolean adaptiveBatchingEnabled;
+    private int maxFlushSize;
+    private long maxFlushIntervalMillis;
+    private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+    private long memoryBudgetBytes;
     private boolean secure = DEFAULT_SECURE;
     private Transport transport;
     private String token;
@@ -49,6 +91,7 @@ public class DefaultClientConfiguration implements ClientConfiguration {
     private int connectionPoolSize = CONNECTION_POOL_SIZE;
     private int connectTimeoutMillis = CONNECT_TIMEOUT_MS;
     private int socketTimeoutMillis = SOCKET_TIMEOUT_MS;
+    private BufferType bufferType = DEFAULT_BUFFER_TYPE;
 
     private Tags applicationTags = Tags.from(DEFAULT_APP_TAGS);
     private Tags timerTags = Tags.from(DEFAULT_TIMER_TAGS);
@@ -98,6 +141,151 @@ public class DefaultClientConfiguration implements ClientConfiguration {
         return isDryRun;
     }
 
+    @Override
+    public final boolean isPreAggregationEnabled() {
+        return preAggregation;
+    }
+
+    @Override
+    public final boolean isNonBlockingUdp() {
+        return nonBlockingUdp;
+    }
+
+    @Override
+    public final int getUdpMaxPayloadSize() {
+        return udpMaxPayloadSize;
+    }
+
+    @Override
+    public final boolean isAsyncHttp() {
+        return asyncHttp;
+    }
+
+    @Override
+    public final int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    @Override
+    public final boolean isCompressionEnabled() {
+        return compression;
+    }
+
+    @Override
+    public final int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    @Override
+    public final int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    @Override
+    public final String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    @Override
+    public final long getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    @Override
+    public final long getSpoolMaxAgeMillis() {
+        return spoolMaxAgeMillis;
+    }
+
+    @Override
+    public final int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public final long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    @Override
+    public final int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    @Override
+    public final long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    @Override
+    public final OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public final long getOverflowBlockTimeoutMillis() {
+        return overflowBlockTimeoutMillis;
+    }
+
+    @Override
+    public final boolean isSelfMetricsEnabled() {
+        return selfMetricsEnabled;
+    }
+
+    @Override
+    public final boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    @Override
+    public final int getBufferShards() {
+        return bufferShards;
+    }
+
+    @Override
+    public final SamplingStrategy getSamplingStrategy() {
+        return samplingStrategy;
+    }
+
+    @Override
+    public final boolean isBuilderRecyclingEnabled() {
+        return builderRecyclingEnabled;
+    }
+
+    @Override
+    public final int getMaxSeries() {
+        return maxSeries;
+    }
+
+    @Override
+    public final CardinalityPolicy getCardinalityPolicy() {
+        return cardinalityPolicy;
+    }
+
+    @Override
+    public final boolean isAdaptiveBatchingEnabled() {
+        return adaptiveBatchingEnabled;
+    }
+
+    @Override
+    public final int getMaxFlushSize() {
+        return maxFlushSize;
+    }
+
+    @Override
+    public final long getMaxFlushIntervalMillis() {
+        return maxFlushIntervalMillis;
+    }
+
+    @Override
+    public final int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    @Override
+    public final long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
     @Override
     public final boolean isSecure() {
         return secure;
@@ -159,10 +347,16 @@ public class DefaultClientConfiguration implements ClientConfiguration {
     }
 
     @Override
+    @Deprecated
     public final long getWorkerTaskKillerInterval() {
         return TASK_KILLER_INTERVAL;
     }
 
+    @Override
+    public final BufferType getBufferType() {
+        return bufferType;
+    }
+
     @Override
     public final Tags getTimerTags() {
         return timerTags;
@@ -286,6 +480,268 @@ public class DefaultClientConfiguration implements ClientConfiguration {
         this.isDryRun = isDryRun;
     }
 
+    /**
+     * Setter for pre-aggregation of aggregated metrics.
+     *
+     * @param preAggregation Boolean value for pre-aggregation
+     */
+    public final void setPreAggregation(final boolean preAggregation) {
+        this.preAggregation = preAggregation;
+    }
+
+    /**
+     * Setter for the non-blocking UDP transport.
+     *
+     * @param nonBlockingUdp Boolean value for the non-blocking UDP transport
+     */
+    public final void setNonBlockingUdp(final boolean nonBlockingUdp) {
+        this.nonBlockingUdp = nonBlockingUdp;
+    }
+
+    /**
+     * Setter for the maximum UDP payload size.
+     *
+     * @param udpMaxPayloadSize The maximum payload size of a datagram in bytes
+     */
+    public final void setUdpMaxPayloadSize(final int udpMaxPayloadSize) {
+        this.udpMaxPayloadSize = udpMaxPayloadSize;
+    }
+
+    /**
+     * Setter for the asynchronous HTTP transport.
+     *
+     * @param asyncHttp Boolean value for the asynchronous HTTP transport
+     */
+    public final void setAsyncHttp(final boolean asyncHttp) {
+        this.asyncHttp = asyncHttp;
+    }
+
+    /**
+     * Setter for the maximum number of requests in flight.
+     *
+     * @param maxInFlightRequests The maximum number of requests in flight
+     */
+    public final void setMaxInFlightRequests(final int maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    /**
+     * Setter for request body compression.
+     *
+     * @param compression Boolean value for request body compression
+     */
+    public final void setCompression(final boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Setter for the compression level.
+     *
+     * @param compressionLevel The gzip compression level
+     */
+    public final void setCompressionLevel(final int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Setter for the minimum size of compressed bodies.
+     *
+     * @param compressionMinSize The minimum size in bytes of the bodies to compress
+     */
+    public final void setCompressionMinSize(final int compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+    }
+
+    /**
+     * Setter for the spool directory.
+     *
+     * @param spoolDirectory The spool directory path
+     */
+    public final void setSpoolDirectory(final String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * Setter for the spool quota.
+     *
+     * @param spoolMaxBytes The disk quota of the spool in bytes
+     */
+    public final void setSpoolMaxBytes(final long spoolMaxBytes) {
+        this.spoolMaxBytes = spoolMaxBytes;
+    }
+
+    /**
+     * Setter for the spool max age.
+     *
+     * @param spoolMaxAgeMillis The max age of the spooled batches in milliseconds
+     */
+    public final void setSpoolMaxAgeMillis(final long spoolMaxAgeMillis) {
+        this.spoolMaxAgeMillis = spoolMaxAgeMillis;
+    }
+
+    /**
+     * Setter for the maximum retries.
+     *
+     * @param maxRetries The maximum number of retries of a failed batch
+     */
+    public final void setMaxRetries(final int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Setter for the retry backoff.
+     *
+     * @param retryBackoffMillis The backoff before the first retry in milliseconds
+     */
+    public final void setRetryBackoffMillis(final long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    /**
+     * Setter for the circuit breaker threshold.
+     *
+     * @param circuitBreakerThreshold The number of consecutive failed batches that opens the breaker
+     */
+    public final void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    /**
+     * Setter for the circuit breaker open time.
+     *
+     * @param circuitBreakerOpenMillis The time the breaker stays open in milliseconds
+     */
+    public final void setCircuitBreakerOpenMillis(final long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Setter for the overflow policy.
+     *
+     * @param overflowPolicy The {@link OverflowPolicy} of the buffers
+     */
+    public final void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Setter for the overflow block timeout.
+     *
+     * @param overflowBlockTimeoutMillis How long a thread waits for room in a full buffer in milliseconds
+     */
+    public final void setOverflowBlockTimeoutMillis(final long overflowBlockTimeoutMillis) {
+        this.overflowBlockTimeoutMillis = overflowBlockTimeoutMillis;
+    }
+
+    /**
+     * Setter for the self metrics.
+     *
+     * @param selfMetricsEnabled Boolean to send the client stats as metrics
+     */
+    public final void setSelfMetricsEnabled(final boolean selfMetricsEnabled) {
+        this.selfMetricsEnabled = selfMetricsEnabled;
+    }
+
+    /**
+     * Setter for JMX.
+     *
+     * @param jmxEnabled Boolean to publish the client stats as an MBean
+     */
+    public final void setJmxEnabled(final boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * Setter for the buffer shards.
+     *
+     * @param bufferShards The number of shards of the sharded buffer, or zero to use one per processor
+     */
+    public final void setBufferShards(final int bufferShards) {
+        this.bufferShards = bufferShards;
+    }
+
+    /**
+     * Setter for the sampling strategy.
+     *
+     * @param samplingStrategy The {@link SamplingStrategy} to decide which metrics are kept
+     */
+    public final void setSamplingStrategy(final SamplingStrategy samplingStrategy) {
+        this.samplingStrategy = samplingStrategy;
+    }
+
+    /**
+     * Setter for builder recycling.
+     *
+     * @param builderRecyclingEnabled Whether metric builders are reused by each thread once sent
+     */
+    public final void setBuilderRecyclingEnabled(final boolean builderRecyclingEnabled) {
+        this.builderRecyclingEnabled = builderRecyclingEnabled;
+    }
+
+    /**
+     * Setter for the max series.
+     *
+     * @param maxSeries The maximum number of series, or zero for no maximum
+     */
+    public final void setMaxSeries(final int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    /**
+     * Setter for the cardinality policy.
+     *
+     * @param cardinalityPolicy The {@link CardinalityPolicy} to keep the number of series under the maximum
+     */
+    public final void setCardinalityPolicy(final CardinalityPolicy cardinalityPolicy) {
+        this.cardinalityPolicy = cardinalityPolicy;
+    }
+
+    /**
+     * Setter for adaptive batching.
+     *
+     * @param adaptiveBatchingEnabled Whether the flush size and interval adapt to the rate of metrics and the transport
+     */
+    public final void setAdaptiveBatchingEnabled(final boolean adaptiveBatchingEnabled) {
+        this.adaptiveBatchingEnabled = adaptiveBatchingEnabled;
+    }
+
+    /**
+     * Setter for the max flush size.
+     *
+     * @param maxFlushSize The largest flush size reached by adaptive batching, or zero for ten times the flush size
+     */
+    public final void setMaxFlushSize(final int maxFlushSize) {
+        this.maxFlushSize = maxFlushSize;
+    }
+
+    /**
+     * Setter for the max flush interval in milliseconds.
+     *
+     * @param maxFlushIntervalMillis The longest flush interval reached by adaptive batching, or zero for ten times the
+     *                               flush interval
+     */
+    public final void setMaxFlushIntervalMillis(final long maxFlushIntervalMillis) {
+        this.maxFlushIntervalMillis = maxFlushIntervalMillis;
+    }
+
+    /**
+     * Setter for the buffer capacity.
+     *
+     * @param bufferCapacity The number of metrics that fit in the standard buffer, and in each aggregated queue
+     */
+    public final void setBufferCapacity(final int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * Setter for the memory budget in bytes.
+     *
+     * @param memoryBudgetBytes The maximum number of heap bytes held by all the buffers, or zero for no maximum
+     */
+    public final void setMemoryBudgetBytes(final long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
     /**
      * Setter for flush interval in milliseconds.
      *
@@ -361,6 +817,15 @@ public class DefaultClientConfiguration implements ClientConfiguration {
         this.socketTimeoutMillis = socketTimeoutMillis;
     }
 
+    /**
+     * Setter for the buffer type.
+     *
+     * @param bufferType The {@link BufferType} to use
+     */
+    public final void setBufferType(final BufferType bufferType) {
+        this.bufferType = bufferType;
+    }
+
     /**
      * Setter for aggregation frequency for timer.
      *
@@ -0,0 +1,353 @@
+package com.statful.client.core.message;
+
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.Tags;
+
+import java.util.Collection;
+
+/**
+ * Statful message encoder. This is an internal class to encode metric lines on the hot path.
+ * <p>
+ * It produces the same lines as {@link MessageBuilder#build()}, but writes them straight into a reusable
+ * thread-local {@link StringBuilder} instead of copying the tags and aggregations of every metric, and escapes the
+ * measurement by hand instead of using regular expressions. Tags are written from the escaped form cached by their
+ * {@link com.statful.client.domain.api.TagSet}, sorted by type, while the builder writes them in the order of its own
+ * copy of the tags.
+ */
+public final class MessageEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 16384;
+
+    private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(INITIAL_CAPACITY);
+        }
+    };
+
+    private MessageEncoder() { }
+
+    /**
+     * Encodes a metric as a line, using a thread-local {@link StringBuilder}.
+     *
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param aggregations The {@link Aggregations} of the metric, which can be null
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric, which defaults to
+     *                             {@link AggregationFrequency#FREQ_10} when null
+     * @param namespace The namespace of the metric, which can be null
+     * @param timestamp The unix timestamp of the metric
+     * @param sampleRate The sample rate of the metric, which can be null
+     * @return A string representing the metric
+     */
+    public static String encode(final String name, final String value, final Tags tags, final Aggregations aggregations,
+                                final AggregationFrequency aggregationFrequency, final String namespace,
+                                final long timestamp, final Integer sampleRate) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            return encodeTo(sb, name, value, tags, aggregations, aggregationFrequency, namespace, timestamp, sampleRate)
+                    .toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes a metric with an integral value as a line, using a thread-local {@link StringBuilder}. The value is
+     * written as {@link Long#toString(long)} would, without creating an intermediate string.
+     *
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param aggregations The {@link Aggregations} of the metric, which can be null
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric, which defaults to
+     *                             {@link AggregationFrequency#FREQ_10} when null
+     * @param namespace The namespace of the metric, which can be null
+     * @param timestamp The unix timestamp of the metric
+     * @param sampleRate The sample rate of the metric, which can be null
+     * @return A string representing the metric
+     */
+    public static String encode(final String name, final long value, final Tags tags, final Aggregations aggregations,
+                                final AggregationFrequency aggregationFrequency, final String namespace,
+                                final long timestamp, final Integer sampleRate) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            appendHead(sb, name, tags, namespace);
+            sb.append(' ').append(value);
+            appendTail(sb, aggregations, aggregationFrequency, timestamp, sampleRate);
+            return sb.toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes a metric with a decimal value as a line, using a thread-local {@link StringBuilder}. The value is
+     * written as {@link Double#toString(double)} would.
+     *
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param aggregations The {@link Aggregations} of the metric, which can be null
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric, which defaults to
+     *                             {@link AggregationFrequency#FREQ_10} when null
+     * @param namespace The namespace of the metric, which can be null
+     * @param timestamp The unix timestamp of the metric
+     * @param sampleRate The sample rate of the metric, which can be null
+     * @return A string representing the metric
+     */
+    public static String encode(final String name, final double value, final Tags tags, final Aggregations aggregations,
+                                final AggregationFrequency aggregationFrequency, final String namespace,
+                                final long timestamp, final Integer sampleRate) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            appendHead(sb, name, tags, namespace);
+            sb.append(' ').append(value);
+            appendTail(sb, aggregations, aggregationFrequency, timestamp, sampleRate);
+            return sb.toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes the part of a metric line that comes before its value, that is the escaped namespace, name and tags.
+     *
+     * @param name The metric name
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param namespace The namespace of the metric, which can be null
+     * @return The encoded prefix
+     */
+    public static String encodePrefix(final String name, final Tags tags, final String namespace) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            appendHead(sb, name, tags, namespace);
+            return sb.toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes the part of a metric line that comes after its timestamp, that is the aggregations, the aggregation
+     * frequency and the sample rate.
+     *
+     * @param aggregations The {@link Aggregations} of the metric, which can be null
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric, which defaults to
+     *                             {@link AggregationFrequency#FREQ_10} when null
+     * @param sampleRate The sample rate of the metric, which can be null
+     * @return The encoded suffix, which can be empty
+     */
+    public static String encodeSuffix(final Aggregations aggregations, final AggregationFrequency aggregationFrequency,
+                                      final Integer sampleRate) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            appendSuffix(sb, aggregations, aggregationFrequency, sampleRate);
+            return sb.toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Replaces the sample rate of a suffix encoded beforehand with
+     * {@link #encodeSuffix(Aggregations, AggregationFrequency, Integer)}, for a metric sent with a lower sample rate than
+     * its suffix was encoded with.
+     *
+     * @param suffix The encoded suffix of the metric, which ends with its sample rate
+     * @param sampleRate The sample rate to send the metric with
+     * @return The suffix with the new sample rate
+     */
+    public static String replaceSampleRate(final String suffix, final int sampleRate) {
+        int rateStart = suffix.lastIndexOf(' ') + 1;
+        StringBuilder sb = BUILDERS.get();
+        try {
+            return sb.append(suffix, 0, rateStart).append(sampleRate).toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes a metric with an integral value as a line, from a prefix and a suffix encoded beforehand with
+     * {@link #encodePrefix(String, Tags, String)} and {@link #encodeSuffix(Aggregations, AggregationFrequency, Integer)}.
+     *
+     * @param prefix The encoded prefix of the metric
+     * @param value The metric value
+     * @param timestamp The unix timestamp of the metric
+     * @param suffix The encoded suffix of the metric
+     * @return A string representing the metric
+     */
+    public static String encode(final String prefix, final long value, final long timestamp, final String suffix) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            return sb.append(prefix).append(' ').append(value).append(' ').append(timestamp).append(suffix).toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Encodes a metric with a decimal value as a line, from a prefix and a suffix encoded beforehand with
+     * {@link #encodePrefix(String, Tags, String)} and {@link #encodeSuffix(Aggregations, AggregationFrequency, Integer)}.
+     *
+     * @param prefix The encoded prefix of the metric
+     * @param value The metric value
+     * @param timestamp The unix timestamp of the metric
+     * @param suffix The encoded suffix of the metric
+     * @return A string representing the metric
+     */
+    public static String encode(final String prefix, final double value, final long timestamp, final String suffix) {
+        StringBuilder sb = BUILDERS.get();
+        try {
+            return sb.append(prefix).append(' ').append(value).append(' ').append(timestamp).append(suffix).toString();
+        } finally {
+            release(sb);
+        }
+    }
+
+    /**
+     * Appends a metric line to the given {@link StringBuilder}.
+     *
+     * @param sb The {@link StringBuilder} to append to
+     * @param name The metric name
+     * @param value The metric value
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param aggregations The {@link Aggregations} of the metric, which can be null
+     * @param aggregationFrequency The {@link AggregationFrequency} of the metric, which defaults to
+     *                             {@link AggregationFrequency#FREQ_10} when null
+     * @param namespace The namespace of the metric, which can be null
+     * @param timestamp The unix timestamp of the metric
+     * @param sampleRate The sample rate of the metric, which can be null
+     * @return The passed {@link StringBuilder}
+     */
+    public static StringBuilder encodeTo(final StringBuilder sb, final String name, final String value, final Tags tags,
+                                         final Aggregations aggregations, final AggregationFrequency aggregationFrequency,
+                                         final String namespace, final long timestamp, final Integer sampleRate) {
+        if (value == null) {
+            throw new IllegalStateException("Value should not be null");
+        }
+
+        appendHead(sb, name, tags, namespace);
+        sb.append(' ').append(value);
+        appendTail(sb, aggregations, aggregationFrequency, timestamp, sampleRate);
+
+        return sb;
+    }
+
+    /**
+     * Appends a measurement, adding an escape character (<code>\</code>) before any of the following characters:
+     * <code>\s</code> and <code>,</code>.
+     *
+     * @param sb The {@link StringBuilder} to append to
+     * @param measurement The measurement to escape
+     */
+    static void appendMeasurement(final StringBuilder sb, final String measurement) {
+        int length = measurement.length();
+        int firstEscaped = firstEscapedIndex(measurement);
+
+        if (firstEscaped == length) {
+            sb.append(measurement);
+            return;
+        }
+
+        sb.append(measurement, 0, firstEscaped);
+        for (int i = firstEscaped; i < length; i++) {
+            char c = measurement.charAt(i);
+            if (shouldEscape(c)) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+    }
+
+    private static void appendHead(final StringBuilder sb, final String name, final Tags tags, final String namespace) {
+        if (name == null) {
+            throw new IllegalStateException("Name should not be null");
+        }
+
+        if (namespace != null) {
+            appendMeasurement(sb, namespace);
+            sb.append('.');
+        }
+
+        appendMeasurement(sb, name);
+
+        if (tags != null) {
+            sb.append(tags.toTagSet().getEncoded());
+        }
+    }
+
+    private static void appendTail(final StringBuilder sb, final Aggregations aggregations,
+                                   final AggregationFrequency aggregationFrequency, final long timestamp,
+                                   final Integer sampleRate) {
+        sb.append(' ').append(timestamp);
+        appendSuffix(sb, aggregations, aggregationFrequency, sampleRate);
+    }
+
+    private static void appendSuffix(final StringBuilder sb, final Aggregations aggregations,
+                                     final AggregationFrequency aggregationFrequency, final Integer sampleRate) {
+        if (aggregations != null) {
+            appendAggregations(sb, aggregations.getAggregations(), aggregationFrequency);
+        }
+
+        if (sampleRate != null) {
+            sb.append(' ').append(sampleRate.intValue());
+        }
+    }
+
+    private static void appendAggregations(final StringBuilder sb, final Collection<Aggregation> aggregations,
+                                           final AggregationFrequency aggregationFrequency) {
+        if (aggregations.isEmpty()) {
+            return;
+        }
+
+        sb.append(' ');
+        for (Aggregation aggregation : aggregations) {
+            sb.append(aggregation.getName()).append(',');
+        }
+
+        AggregationFrequency frequency = aggregationFrequency != null ? aggregationFrequency : AggregationFrequency.FREQ_10;
+        sb.append(frequency.getValue());
+    }
+
+    private static int firstEscapedIndex(final String string) {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            if (shouldEscape(string.charAt(i))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Matches the same characters as the <code>[\s,]</code> regular expression.
+     */
+    private static boolean shouldEscape(final char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case ',':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void release(final StringBuilder sb) {
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUILDERS.remove();
+        } else {
+            sb.setLength(0);
+        }
+    }
+}
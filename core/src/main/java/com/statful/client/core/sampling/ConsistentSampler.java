@@ -0,0 +1,50 @@
+package com.statful.client.core.sampling;
+
+import com.statful.client.domain.api.Tags;
+
+/**
+ * A {@link Sampler} that keeps or drops every metric of a series alike, by hashing its namespace, name and tags.
+ * <p>
+ * The hash is spread over the 32 bit range and compared against the threshold of the sample rate, so the share of
+ * series kept follows the sample rate, and a series kept at a sample rate is also kept at any higher one.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class ConsistentSampler implements Sampler {
+
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int MIX_MULTIPLIER_1 = 0x85ebca6b;
+    private static final int MIX_MULTIPLIER_2 = 0xc2b2ae35;
+    private static final int MIX_SHIFT_1 = 16;
+    private static final int MIX_SHIFT_2 = 13;
+
+    @Override
+    public boolean isSampled(final int sampleRate, final String namespace, final String name, final Tags tags) {
+        return SampleThresholds.isBelow(hash(namespace, name, tags), sampleRate);
+    }
+
+    /**
+     * Hashes a series, mixing the bits so that series with similar names land far apart.
+     *
+     * @param namespace The namespace of the series, which can be null
+     * @param name The name of the series
+     * @param tags The tags of the series, which can be null
+     * @return The hash of the series
+     */
+    static int hash(final String namespace, final String name, final Tags tags) {
+        int hash = name.hashCode();
+        hash = HASH_MULTIPLIER * hash + (namespace == null ? 0 : namespace.hashCode());
+        hash = HASH_MULTIPLIER * hash + (tags == null ? 0 : tags.toTagSet().hashCode());
+        return mix(hash);
+    }
+
+    private static int mix(final int hash) {
+        int h = hash;
+        h ^= h >>> MIX_SHIFT_1;
+        h *= MIX_MULTIPLIER_1;
+        h ^= h >>> MIX_SHIFT_2;
+        h *= MIX_MULTIPLIER_2;
+        h ^= h >>> MIX_SHIFT_1;
+        return h;
+    }
+}
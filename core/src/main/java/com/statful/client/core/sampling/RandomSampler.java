@@ -0,0 +1,21 @@
+package com.statful.client.core.sampling;
+
+import com.statful.client.domain.api.Tags;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@link Sampler} that keeps each metric at random, with a probability given by its sample rate.
+ * <p>
+ * Unlike {@link Math#random()}, which shares a single generator whose seed is updated with a compare-and-set by every
+ * thread, each thread draws from its own {@link ThreadLocalRandom}, so sampling doesn't contend across threads.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class RandomSampler implements Sampler {
+
+    @Override
+    public boolean isSampled(final int sampleRate, final String namespace, final String name, final Tags tags) {
+        return SampleThresholds.isBelow(ThreadLocalRandom.current().nextInt(), sampleRate);
+    }
+}
@@ -0,0 +1,37 @@
+package com.statful.client.core.sampling;
+
+/**
+ * Maps sample rates to thresholds over the unsigned 32 bit range, so that sampling compares a random or hashed integer
+ * against a precomputed threshold, instead of dividing the sample rate on every metric.
+ */
+final class SampleThresholds {
+
+    private static final int MAX_SAMPLE_RATE = 100;
+    private static final long UNSIGNED_INT_RANGE = 1L << Integer.SIZE;
+    private static final long UNSIGNED_INT_MASK = 0xffffffffL;
+
+    private static final long[] THRESHOLDS = new long[MAX_SAMPLE_RATE + 1];
+
+    static {
+        for (int sampleRate = 0; sampleRate <= MAX_SAMPLE_RATE; sampleRate++) {
+            THRESHOLDS[sampleRate] = UNSIGNED_INT_RANGE * sampleRate / MAX_SAMPLE_RATE;
+        }
+    }
+
+    private SampleThresholds() {
+    }
+
+    /**
+     * Checks if an integer, uniformly distributed over the 32 bit range, falls below the threshold of a sample rate.
+     *
+     * @param value The integer to check
+     * @param sampleRate The sample rate, from 0 to 100
+     * @return True if the metric is kept
+     */
+    static boolean isBelow(final int value, final int sampleRate) {
+        if (sampleRate >= MAX_SAMPLE_RATE) {
+            return true;
+        }
+        return sampleRate > 0 && (value & UNSIGNED_INT_MASK) < THRESHOLDS[sampleRate];
+    }
+}
@@ -0,0 +1,20 @@
+package com.statful.client.core.sampling;
+
+import com.statful.client.domain.api.Tags;
+
+/**
+ * Decides whether a metric is kept, given its sample rate.
+ */
+public interface Sampler {
+
+    /**
+     * Checks if a metric is kept.
+     *
+     * @param sampleRate The sample rate of the metric, from 1 to 100
+     * @param namespace The namespace of the metric, which can be null
+     * @param name The name of the metric
+     * @param tags The tags of the metric, which can be null
+     * @return True if the metric is kept
+     */
+    boolean isSampled(int sampleRate, String namespace, String name, Tags tags);
+}
@@ -0,0 +1,219 @@
+package com.statful.client.core.sender;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adapts the flush size and the flush interval to the rate of metrics and to the transport, between configured bounds.
+ * <p>
+ * The batches read from the buffers and the latency of their sends are recorded as they happen, and both values are
+ * adjusted once per flush interval, from the rate the buffers filled since the previous adjustment:
+ * <ul>
+ * <li>The flush size is the smallest that lets the batches in flight drain the buffers at twice the rate they fill,
+ * given the average send latency. It's at least doubled while the buffers are more than half full, and capped so that
+ * a batch stays under a maximum number of bytes, given the average bytes per metric. It grows at once and shrinks by
+ * half the difference per adjustment, so that a burst is absorbed right away and a lull doesn't make it oscillate.</li>
+ * <li>The flush interval is the time the buffers take to fill the minimum flush size, so that a quiet client sends
+ * fewer and fuller batches, but never longer than they take to fill a quarter of their capacity.</li>
+ * </ul>
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+final class AdaptiveBatchController implements Instrumented {
+
+    /**
+     * Source of time for the adjustments, which tests can replace.
+     */
+    interface Clock {
+        /**
+         * Returns the current value of a monotonic clock.
+         *
+         * @return The current time in nanoseconds
+         */
+        long nanoTime();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final double DRAIN_FACTOR = 2;
+    private static final int PRESSURE_SHIFT = 1;
+    private static final int INTERVAL_CAPACITY_SHIFT = 2;
+    private static final double SMOOTHING = 0.5;
+
+    private final int minFlushSize;
+    private final int maxFlushSize;
+    private final long minFlushIntervalMillis;
+    private final long maxFlushIntervalMillis;
+    private final int bufferCapacity;
+    private final int maxInFlight;
+    private final long maxBatchBytes;
+    private final Clock clock;
+
+    private final AtomicLong batchedMetrics = new AtomicLong();
+    private final AtomicLong batchedBytes = new AtomicLong();
+    private final AtomicLong sends = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+
+    private long lastAdjustmentNanos;
+    private int lastBufferedMetrics;
+    private double latencyNanos;
+    private double bytesPerMetric;
+
+    private volatile int flushSize;
+    private volatile long flushIntervalMillis;
+
+    /**
+     * Default constructor.
+     *
+     * @param minFlushSize The smallest flush size, which is also the initial one
+     * @param maxFlushSize The largest flush size
+     * @param minFlushIntervalMillis The shortest flush interval in milliseconds, which is also the initial one
+     * @param maxFlushIntervalMillis The longest flush interval in milliseconds
+     * @param bufferCapacity The number of metrics that fit in a buffer
+     * @param maxInFlight The maximum number of batches in flight
+     * @param maxBatchBytes The maximum size of a batch in bytes
+     * @param clock The {@link Clock} to measure the rate of metrics with
+     */
+    AdaptiveBatchController(final int minFlushSize, final int maxFlushSize, final long minFlushIntervalMillis,
+                            final long maxFlushIntervalMillis, final int bufferCapacity, final int maxInFlight,
+                            final long maxBatchBytes, final Clock clock) {
+        this.minFlushSize = Math.max(1, minFlushSize);
+        this.maxFlushSize = Math.max(this.minFlushSize, maxFlushSize);
+        this.minFlushIntervalMillis = minFlushIntervalMillis;
+        this.maxFlushIntervalMillis = Math.max(minFlushIntervalMillis, maxFlushIntervalMillis);
+        this.bufferCapacity = bufferCapacity;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxBatchBytes = maxBatchBytes;
+        this.clock = clock;
+
+        this.flushSize = this.minFlushSize;
+        this.flushIntervalMillis = minFlushIntervalMillis;
+        this.lastAdjustmentNanos = clock.nanoTime();
+    }
+
+    /**
+     * Records a batch read from the buffers.
+     *
+     * @param metrics The number of metrics of the batch
+     * @param bytes The size of the batch in bytes
+     */
+    void recordBatch(final int metrics, final int bytes) {
+        batchedMetrics.addAndGet(metrics);
+        batchedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records the time the transport took to send a batch.
+     *
+     * @param nanos The send latency in nanoseconds
+     */
+    void recordLatency(final long nanos) {
+        sendNanos.addAndGet(nanos);
+        sends.incrementAndGet();
+    }
+
+    /**
+     * Adjusts the flush size and the flush interval to what was recorded since the previous adjustment.
+     *
+     * @param bufferedMetrics The number of metrics currently in the buffers
+     */
+    synchronized void adjust(final int bufferedMetrics) {
+        long now = clock.nanoTime();
+        long elapsed = now - lastAdjustmentNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastAdjustmentNanos = now;
+
+        long metrics = batchedMetrics.getAndSet(0);
+        long bytes = batchedBytes.getAndSet(0);
+        long sendCount = sends.getAndSet(0);
+        long sendTime = sendNanos.getAndSet(0);
+
+        if (sendCount > 0) {
+            latencyNanos = smooth(latencyNanos, (double) sendTime / sendCount);
+        }
+        if (metrics > 0) {
+            bytesPerMetric = smooth(bytesPerMetric, (double) bytes / metrics);
+        }
+
+        long arrivals = Math.max(0, metrics + bufferedMetrics - lastBufferedMetrics);
+        lastBufferedMetrics = bufferedMetrics;
+        double fillRate = (double) arrivals / elapsed;
+
+        flushSize = nextFlushSize(fillRate, bufferedMetrics);
+        flushIntervalMillis = nextFlushInterval(fillRate);
+    }
+
+    /**
+     * Returns the number of metrics to read from a buffer per batch.
+     *
+     * @return The current flush size
+     */
+    int getFlushSize() {
+        return flushSize;
+    }
+
+    /**
+     * Returns the time until the next periodic flush.
+     *
+     * @return The current flush interval in milliseconds
+     */
+    long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    @Override
+    public void registerStats(final ClientStats stats) {
+        stats.register("batching.flush_size", new Gauge() {
+            @Override
+            public long getValue() {
+                return getFlushSize();
+            }
+        });
+        stats.register("batching.flush_interval_millis", new Gauge() {
+            @Override
+            public long getValue() {
+                return getFlushIntervalMillis();
+            }
+        });
+    }
+
+    private int nextFlushSize(final double fillRate, final int bufferedMetrics) {
+        int current = flushSize;
+
+        double target = DRAIN_FACTOR * fillRate * latencyNanos / maxInFlight;
+        if (bufferedMetrics > bufferCapacity >> PRESSURE_SHIFT) {
+            target = Math.max(target, 2.0 * current);
+        }
+        if (bytesPerMetric > 0) {
+            target = Math.min(target, maxBatchBytes / bytesPerMetric);
+        }
+
+        int bounded = (int) Math.max(minFlushSize, Math.min(maxFlushSize, Math.ceil(target)));
+        return bounded >= current ? bounded : current - (current - bounded + 1) / 2;
+    }
+
+    private long nextFlushInterval(final double fillRate) {
+        if (fillRate <= 0) {
+            return maxFlushIntervalMillis;
+        }
+
+        double fillNanos = Math.min(minFlushSize, bufferCapacity >> INTERVAL_CAPACITY_SHIFT) / fillRate;
+        long interval = (long) (fillNanos / NANOS_PER_MILLI);
+        return Math.max(minFlushIntervalMillis, Math.min(maxFlushIntervalMillis, interval));
+    }
+
+    private static double smooth(final double average, final double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -1,14 +1,36 @@
 package com.statful.client.core.sender;
 
+import com.statful.client.core.aggregation.PreAggregator;
 import com.statful.client.core.buffer.AggregatedBuffer;
+import com.statful.client.core.buffer.MemoryBudget;
+import com.statful.client.core.buffer.MessageBuffer;
+import com.statful.client.core.buffer.OffHeapBuffer;
+import com.statful.client.core.buffer.RingBuffer;
+import com.statful.client.core.buffer.ShardedBuffer;
 import com.statful.client.core.buffer.StandardBuffer;
-import com.statful.client.core.message.MessageBuilder;
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.core.sampling.ConsistentSampler;
+import com.statful.client.core.sampling.RandomSampler;
+import com.statful.client.core.sampling.Sampler;
+import com.statful.client.core.series.SeriesRegistry;
+import com.statful.client.core.spool.MetricsSpool;
+import com.statful.client.core.spool.SpooledBatch;
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.StripedCounter;
 import com.statful.client.core.transport.ApiUriFactory;
+import com.statful.client.core.transport.DeliveryStatus;
+import com.statful.client.core.transport.ReportingTransportSender;
 import com.statful.client.core.transport.TransportSender;
 import com.statful.client.domain.api.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 import static java.util.Arrays.asList;
@@ -24,29 +46,106 @@ import static java.util.Arrays.asList;
  * handled by a {@link java.util.concurrent.ScheduledExecutorService} passed in the constructor.
  * <p>
  * The flushes are execute asynchronously by the passed {@link java.util.concurrent.ScheduledExecutorService}, which
- * can be handled by a single thread in the majority of the cases.
+ * can be handled by a single thread in the majority of the cases. A {@link FlushPipeline} keeps at most
+ * {@link ClientConfiguration#getMaxWorkerTasksQueueSize()} batches in flight.
+ * <p>
+ * A buffer that reaches the flush size is flushed by a {@link FlushDrainer} thread, which the thread that put the
+ * metric only signals, so recording a metric never includes reading the buffer nor assembling the batch. Threads
+ * filling the buffer at once raise a single signal, and so a single flush.
+ * <p>
+ * With adaptive batching, an {@link AdaptiveBatchController} grows the flush size when the workers can't keep up with
+ * the rate of metrics, and the flush interval when metrics are few, between the configured values and their maximums.
+ * The flush interval is then rescheduled after every periodic flush. Aggregated buffers still signal the drainer once a
+ * queue reaches the configured flush size, but are read up to the adapted one.
+ * <p>
+ * When a spool directory is configured, batches that the transport fails to deliver, or that don't fit in the flush
+ * pipeline, are appended to a {@link MetricsSpool} instead of being dropped, and sent again in order after the next
+ * successful send. Batches rejected by the transport are never spooled, since they would be rejected again.
+ * <p>
+ * With a memory budget, the buffers share a {@link MemoryBudget} of heap bytes, which a metric that doesn't fit in
+ * handles as a full buffer. The drainer is signalled as soon as the metrics take half of the budget, so that a budget
+ * smaller than the flush size doesn't keep metrics waiting for the flush interval. An off-heap standard buffer holds no metric on
+ * the heap, and only reserves its segments from the budget as it allocates them. Any other standard buffer reserves its
+ * slots when it's created, so a budget that can't hold more than them is refused with an
+ * {@link IllegalArgumentException} rather than dropping every metric. The budget only covers buffered metrics: the
+ * pre-aggregated windows, the batches being flushed, the interned tag sets and the series registry are outside of it.
+ * <p>
+ * Metrics that don't fit in a full buffer are handled by the configured {@link OverflowPolicy}. Dropped metrics are
+ * counted and logged in aggregate, at most once every {@value #DROP_REPORT_INTERVAL_MS} ms, rather than once per
+ * metric, since logging every drop of an overloaded buffer would only add to the overload. Without a spool, the
+ * metrics of batches that don't fit in the flush pipeline are dropped and counted alike.
+ * <p>
+ * Metrics are sampled by a {@link Sampler} given by the configured {@link SamplingStrategy}, either at random or
+ * consistently per series.
+ * <p>
+ * When a maximum number of series is configured, the series of the metrics kept are registered in a
+ * {@link SeriesRegistry}, and metrics of series that don't fit are sent as the overflow series of their metric, with
+ * the application tags and <code>overflow=true</code> instead of their own tags. The series of a handle is registered
+ * when the handle is created, and again on every metric, which then takes the encoded prefix of its overflow series if
+ * the series doesn't fit.
+ * <p>
+ * Stats about the buffers, the flushes and the transport are kept in a {@link ClientStats}, which can be published
+ * through JMX and sent as <code>statful.client.*</code> metrics on every flush interval.
  * <p>
  * Instances of this class are thread-safe.
  */
-public class BufferedMetricsSender implements MetricsSender {
+public class BufferedMetricsSender implements PrimitiveMetricsSender, EncodedMetricsSender {
 
     private static final Logger LOGGER = Logger.getLogger(BufferedMetricsSender.class.getName());
 
-    private static final int MAX_BUFFER_SIZE = 5000;
+    private static final int DEFAULT_BUFFER_CAPACITY = 5000;
     private static final int MIN_SAMPLE_RATE = 1;
     private static final int MAX_SAMPLE_RATE = 100;
-    private static final int SAMPLE_RATE_DIVIDER = 100;
     private static final int MIN_FLUSH_INTERVAL = 50;
 
-    private static final int FUTURE_QUEUE_MAX_SIZE = 5000;
+    private static final long TIMESTAMP_DIVIDER = 1000L;
+
+    private static final int MAX_REPLAYED_BATCHES = 100;
+
+    private static final long DROP_REPORT_INTERVAL_MS = 10000;
+    private static final int MAX_SAMPLE_DOWN_LEVEL = 6;
+    private static final long BLOCK_PARK_NANOS = 1000000;
+    private static final int MAX_FLUSHES_PER_DRAIN = 100;
+    private static final String DRAINER_THREAD_NAME = "statful-flush-drainer";
+    private static final int ADAPTIVE_BOUND_FACTOR = 10;
+    private static final long MAX_BATCH_BYTES = 1048576;
+
+    private static final String SELF_METRICS_NAMESPACE = "statful";
+    private static final String SELF_METRICS_PREFIX = "client.";
+    private static final String DEFAULT_JMX_NAME = "statful-client";
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private static final String OVERFLOW_TAG = "overflow";
+    private static final String OVERFLOW_TAG_VALUE = "true";
 
     private final ClientConfiguration configuration;
+    private final Sampler sampler;
+    private final SeriesRegistry seriesRegistry;
+    private final TagSet overflowTags;
     private final TransportSender transportSender;
-    private final ScheduledThreadPoolExecutor executorService;
     private final boolean dryRun;
-    private final StandardBuffer standardBuffer;
+    private final MemoryBudget memoryBudget;
+    private final MessageBuffer standardBuffer;
     private final AggregatedBuffer aggregatedBuffer;
-    private final ArrayBlockingQueue<Future<?>> futuresQueue;
+    private final PreAggregator preAggregator;
+    private final FlushPipeline flushPipeline;
+    private final FlushDrainer flushDrainer;
+    private final AdaptiveBatchController batchController;
+    private final int standardFlushSize;
+    private final MetricsSpool spool;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowBlockTimeoutNanos;
+    private final DroppedMetricsReporter droppedMetricsReporter = new DroppedMetricsReporter(LOGGER, DROP_REPORT_INTERVAL_MS);
+    private final AtomicInteger sampleDownLevel = new AtomicInteger();
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    private final ClientStats stats = new ClientStats();
+    private final StripedCounter sampledOutMetrics = new StripedCounter();
+    private final StripedCounter invalidMetrics = new StripedCounter();
+    private final StripedCounter flushes = new StripedCounter();
+    private final StripedCounter flushLatencyMicros = new StripedCounter();
+    private volatile long lastFlushLatencyMicros;
 
     private final ScheduledExecutorService helperExecutorService = Executors.newSingleThreadScheduledExecutor();
 
@@ -64,16 +163,36 @@ public class BufferedMetricsSender implements MetricsSender {
     ) {
         this.configuration = configuration;
         this.transportSender = transportSender;
-        this.executorService = executorService;
         this.dryRun = configuration.isDryRun();
-        this.standardBuffer = new StandardBuffer(MAX_BUFFER_SIZE, configuration.getFlushSize());
-        this.aggregatedBuffer = new AggregatedBuffer(MAX_BUFFER_SIZE, configuration.getFlushSize());
+        this.sampler = buildSampler(configuration);
+        this.seriesRegistry = buildSeriesRegistry(configuration);
+        this.overflowTags = buildOverflowTags(configuration);
+        int bufferCapacity = configuration.getBufferCapacity() > 0 ? configuration.getBufferCapacity() : DEFAULT_BUFFER_CAPACITY;
+        this.memoryBudget = configuration.getMemoryBudgetBytes() > 0 ? new MemoryBudget(configuration.getMemoryBudgetBytes()) : null;
+        this.standardBuffer = buildStandardBuffer(configuration, bufferCapacity, memoryBudget);
+        this.standardFlushSize = configuration.getFlushSize();
+        this.aggregatedBuffer = new AggregatedBuffer(bufferCapacity, configuration.getFlushSize(), memoryBudget);
+        this.preAggregator = configuration.isPreAggregationEnabled() ? new PreAggregator() : null;
+        this.spool = dryRun ? null : openSpool(configuration);
+        this.overflowPolicy = configuration.getOverflowPolicy() == null ? OverflowPolicy.DROP_NEWEST : configuration.getOverflowPolicy();
+        this.overflowBlockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getOverflowBlockTimeoutMillis());
 
-        this.futuresQueue = new ArrayBlockingQueue<Future<?>>(FUTURE_QUEUE_MAX_SIZE);
+        this.flushPipeline = new FlushPipeline(LOGGER, executorService, configuration.getMaxWorkerTasksQueueSize());
+        this.batchController = buildBatchController(configuration, bufferCapacity);
+        this.flushDrainer = new FlushDrainer(LOGGER, DRAINER_THREAD_NAME, new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+
+        registerStats();
+        if (configuration.isJmxEnabled()) {
+            stats.registerMBean(configuration.getApp() == null ? DEFAULT_JMX_NAME : configuration.getApp());
+        }
 
-        executorService.setRemoveOnCancelPolicy(true);
+        flushDrainer.start();
         startFlushInterval(configuration.getFlushIntervalMillis());
-        startKillerInterval();
     }
 
     @Override
@@ -82,27 +201,59 @@ public class BufferedMetricsSender implements MetricsSender {
             final AggregationFrequency aggregationFrequency, final Integer sampleRate, final String namespace,
             final long timestamp
     ) {
-        if (!this.isValidSampleRate(sampleRate)) {
-            LOGGER.warning("Invalid sample rate supplied. Discarding metric.");
-            return;
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            bufferMessage(MessageEncoder.encode(name, value, guardCardinality(namespace, name, tags), aggregations,
+                    aggregationFrequency, namespace, timestamp, effectiveSampleRate));
         }
-        if (shouldPutMetric(sampleRate)) {
-            String rawMessage = MessageBuilder.newBuilder()
-                    .withName(name)
-                    .withValue(value)
-                    .withTags(tags)
-                    .withAggregations(aggregations)
-                    .withAggregationFreq(aggregationFrequency)
-                    .withNamespace(namespace)
-                    .withTimestamp(timestamp)
-                    .withSampleRate(sampleRate)
-                    .build();
-
-            if (!dryRun) {
-                this.putRaw(rawMessage);
-            } else {
-                LOGGER.fine("Dry metric: " + rawMessage);
-            }
+    }
+
+    @Override
+    public final void put(final String name, final long value, final Tags tags, final Aggregations aggregations,
+                          final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                          final String namespace, final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            bufferMessage(MessageEncoder.encode(name, value, guardCardinality(namespace, name, tags), aggregations,
+                    aggregationFrequency, namespace, timestamp, effectiveSampleRate));
+        }
+    }
+
+    @Override
+    public final void put(final String name, final double value, final Tags tags, final Aggregations aggregations,
+                          final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                          final String namespace, final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            bufferMessage(MessageEncoder.encode(name, value, guardCardinality(namespace, name, tags), aggregations,
+                    aggregationFrequency, namespace, timestamp, effectiveSampleRate));
+        }
+    }
+
+    @Override
+    public final EncodedSeries encodeSeries(final String name, final Tags tags, final String namespace) {
+        EncodedSeries series = new EncodedSeries(name, tags, namespace);
+        guardCardinality(series);
+        return series;
+    }
+
+    @Override
+    public final void putEncoded(final EncodedSeries series, final long value, final String suffix, final Integer sampleRate,
+                                 final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, series.getNamespace(), series.getName(), series.getTags());
+        if (effectiveSampleRate != null) {
+            bufferMessage(MessageEncoder.encode(guardCardinality(series), value, timestamp,
+                    encodedSuffix(suffix, sampleRate, effectiveSampleRate)));
+        }
+    }
+
+    @Override
+    public final void putEncoded(final EncodedSeries series, final double value, final String suffix, final Integer sampleRate,
+                                 final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, series.getNamespace(), series.getName(), series.getTags());
+        if (effectiveSampleRate != null) {
+            bufferMessage(MessageEncoder.encode(guardCardinality(series), value, timestamp,
+                    encodedSuffix(suffix, sampleRate, effectiveSampleRate)));
         }
     }
 
@@ -110,37 +261,72 @@ public class BufferedMetricsSender implements MetricsSender {
     public final void aggregatedPut(final String name, final String value, final Tags tags, final Aggregation aggregation,
                                     final AggregationFrequency aggregationFrequency, final Integer sampleRate,
                                     final String namespace, final long timestamp) {
-        if (!this.isValidSampleRate(sampleRate)) {
-            LOGGER.warning("Invalid sample rate supplied. Discarding metric.");
-            return;
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            Tags seriesTags = guardCardinality(namespace, name, tags);
+            if (!dryRun && preAggregator != null && preAggregator.record(name, value, seriesTags, aggregation,
+                    aggregationFrequency, effectiveSampleRate, namespace, timestamp)) {
+                collectPreAggregationsIfNeeded();
+                return;
+            }
+
+            bufferAggregatedMessage(MessageEncoder.encode(name, value, seriesTags, null, null, namespace, timestamp,
+                    effectiveSampleRate), aggregation, aggregationFrequency);
         }
-        if (shouldPutMetric(sampleRate)) {
-            String rawMessage = MessageBuilder.newBuilder()
-                    .withName(name)
-                    .withValue(value)
-                    .withTags(tags)
-                    .withNamespace(namespace)
-                    .withTimestamp(timestamp)
-                    .withSampleRate(sampleRate)
-                    .build();
-
-            if (!dryRun) {
-                this.putAggregatedRaw(rawMessage, aggregation, aggregationFrequency);
-            } else {
-                LOGGER.fine("Dry metric: " + rawMessage
-                        + " Aggregation: " + aggregation
-                        + " Frequency: " + aggregationFrequency);
+    }
+
+    @Override
+    public final void aggregatedPut(final String name, final long value, final Tags tags, final Aggregation aggregation,
+                                    final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                    final String namespace, final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            Tags seriesTags = guardCardinality(namespace, name, tags);
+            if (!dryRun && preAggregator != null && preAggregator.record(name, value, seriesTags, aggregation,
+                    aggregationFrequency, effectiveSampleRate, namespace, timestamp)) {
+                collectPreAggregationsIfNeeded();
+                return;
             }
+
+            bufferAggregatedMessage(MessageEncoder.encode(name, value, seriesTags, null, null, namespace, timestamp,
+                    effectiveSampleRate), aggregation, aggregationFrequency);
+        }
+    }
+
+    @Override
+    public final void aggregatedPut(final String name, final double value, final Tags tags, final Aggregation aggregation,
+                                    final AggregationFrequency aggregationFrequency, final Integer sampleRate,
+                                    final String namespace, final long timestamp) {
+        Integer effectiveSampleRate = sample(sampleRate, namespace, name, tags);
+        if (effectiveSampleRate != null) {
+            Tags seriesTags = guardCardinality(namespace, name, tags);
+            if (!dryRun && preAggregator != null && preAggregator.record(name, value, seriesTags, aggregation,
+                    aggregationFrequency, effectiveSampleRate, namespace, timestamp)) {
+                collectPreAggregationsIfNeeded();
+                return;
+            }
+
+            bufferAggregatedMessage(MessageEncoder.encode(name, value, seriesTags, null, null, namespace, timestamp,
+                    effectiveSampleRate), aggregation, aggregationFrequency);
         }
     }
 
     @Override
     public final void shutdown() {
+        flushDrainer.shutdown();
+        stats.unregisterMBean();
+        if (spool != null) {
+            spool.flush();
+        }
         transportSender.shutdown();
     }
 
     @Override
     public final void forceSyncFlush() {
+        if (preAggregator != null) {
+            logRejectedAggregations(preAggregator.collectAll(aggregatedBuffer));
+        }
+
         String message = standardBuffer.readBuffer();
         if (!message.isEmpty()) {
             sendMetricSynchronously(message);
@@ -159,60 +345,384 @@ public class BufferedMetricsSender implements MetricsSender {
         }
     }
 
+    private static MessageBuffer buildStandardBuffer(final ClientConfiguration configuration, final int capacity,
+                                                     final MemoryBudget budget) {
+        if (configuration.getBufferType() == BufferType.OFF_HEAP) {
+            return new OffHeapBuffer(capacity, configuration.getFlushSize(), budget);
+        }
+        if (budget != null) {
+            long slotBytes = MemoryBudget.SLOT_BYTES * capacity;
+            if (configuration.getMemoryBudgetBytes() <= slotBytes) {
+                throw new IllegalArgumentException("The memory budget of " + configuration.getMemoryBudgetBytes()
+                        + " bytes leaves no room for metrics after the " + slotBytes + " bytes of the slots of a buffer of "
+                        + capacity + " metrics");
+            }
+            budget.reserve(slotBytes);
+        }
+
+        if (configuration.getBufferType() == BufferType.RING_BUFFER) {
+            return new RingBuffer(capacity, configuration.getFlushSize(), budget);
+        }
+        if (configuration.getBufferType() == BufferType.SHARDED) {
+            return new ShardedBuffer(capacity, configuration.getFlushSize(), configuration.getBufferShards(), budget);
+        }
+        return new StandardBuffer(capacity, configuration.getFlushSize(), budget);
+    }
+
+    private static Sampler buildSampler(final ClientConfiguration configuration) {
+        if (configuration.getSamplingStrategy() == SamplingStrategy.CONSISTENT) {
+            return new ConsistentSampler();
+        }
+        return new RandomSampler();
+    }
+
+    private static SeriesRegistry buildSeriesRegistry(final ClientConfiguration configuration) {
+        if (configuration.getMaxSeries() <= 0) {
+            return null;
+        }
+        CardinalityPolicy policy = configuration.getCardinalityPolicy() == null ? CardinalityPolicy.OVERFLOW
+                : configuration.getCardinalityPolicy();
+        return new SeriesRegistry(configuration.getMaxSeries(), policy);
+    }
+
+    private static AdaptiveBatchController buildBatchController(final ClientConfiguration configuration, final int bufferCapacity) {
+        long flushInterval = configuration.getFlushIntervalMillis();
+        if (!configuration.isAdaptiveBatchingEnabled() || flushInterval < MIN_FLUSH_INTERVAL) {
+            return null;
+        }
+
+        int minFlushSize = Math.max(1, configuration.getFlushSize());
+        int maxFlushSize = configuration.getMaxFlushSize() > 0 ? configuration.getMaxFlushSize() : minFlushSize * ADAPTIVE_BOUND_FACTOR;
+        long maxFlushInterval = configuration.getMaxFlushIntervalMillis() > 0 ? configuration.getMaxFlushIntervalMillis()
+                : flushInterval * ADAPTIVE_BOUND_FACTOR;
+
+        return new AdaptiveBatchController(minFlushSize, Math.min(maxFlushSize, bufferCapacity), flushInterval,
+                maxFlushInterval, bufferCapacity, configuration.getMaxWorkerTasksQueueSize(), MAX_BATCH_BYTES,
+                AdaptiveBatchController.SYSTEM_CLOCK);
+    }
+
+    private static TagSet buildOverflowTags(final ClientConfiguration configuration) {
+        Tags applicationTags = configuration.getApplicationTags();
+        TagSet tags = applicationTags == null ? TagSet.EMPTY : applicationTags.toTagSet();
+        return tags.with(OVERFLOW_TAG, OVERFLOW_TAG_VALUE);
+    }
+
+    private static MetricsSpool openSpool(final ClientConfiguration configuration) {
+        if (configuration.getSpoolDirectory() == null) {
+            return null;
+        }
+
+        try {
+            return new MetricsSpool(new File(configuration.getSpoolDirectory()), configuration.getSpoolMaxBytes(),
+                    configuration.getSpoolMaxAgeMillis());
+        } catch (IOException e) {
+            LOGGER.warning("Unable to open the spool, metrics won't be spooled: " + e.toString());
+            return null;
+        }
+    }
+
     private void startFlushInterval(final long flushInterval) {
-        if (flushInterval >= MIN_FLUSH_INTERVAL) {
+        if (batchController != null) {
+            scheduleAdaptiveFlush();
+        } else if (flushInterval >= MIN_FLUSH_INTERVAL) {
             helperExecutorService.scheduleAtFixedRate(flusher(), flushInterval, flushInterval, TimeUnit.MILLISECONDS);
         }
     }
 
-    private void startKillerInterval() {
-        long killerInterval = configuration.getWorkerTaskKillerInterval();
-        helperExecutorService.scheduleAtFixedRate(tasksKiller(), killerInterval, killerInterval, TimeUnit.MILLISECONDS);
+    /**
+     * Schedules the next periodic flush after the adapted flush interval, adjusting the batching before flushing.
+     */
+    private void scheduleAdaptiveFlush() {
+        final Runnable flusher = flusher();
+        helperExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    batchController.adjust(standardBuffer.size() + aggregatedBuffer.size());
+                    flusher.run();
+                } finally {
+                    scheduleAdaptiveFlush();
+                }
+            }
+        }, batchController.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
     }
 
     private Runnable flusher() {
         return new Runnable() {
             @Override
             public void run() {
+                if (configuration.isSelfMetricsEnabled()) {
+                    putSelfMetrics();
+                }
                 flush();
+                relievePressure();
+                if (seriesRegistry != null) {
+                    seriesRegistry.sweep();
+                }
+                droppedMetricsReporter.report(System.currentTimeMillis());
             }
         };
     }
 
-    private boolean shouldPutMetric(final int sampleRate) {
-        return Math.random() <= (double) sampleRate / SAMPLE_RATE_DIVIDER;
-    }
-
     private boolean isValidSampleRate(final Integer sampleRate) {
         return sampleRate != null && sampleRate >= MIN_SAMPLE_RATE && sampleRate <= MAX_SAMPLE_RATE;
     }
 
     private void putRaw(final String metric) {
-        boolean inserted = standardBuffer.addToBuffer(metric);
-        if (!inserted) {
-            // We should discard older metrics instead
-            LOGGER.warning("The buffer is full, metric ignored!.");
+        if (!standardBuffer.addToBuffer(metric)) {
+            handleOverflow(metric, null, null);
         }
 
-        if (standardBuffer.isTimeToFlush()) {
-            flush();
+        if (isTimeToFlushAfterPut() || isMemoryUnderPressure()) {
+            flushDrainer.signal();
+        }
+    }
+
+    private boolean isMemoryUnderPressure() {
+        return memoryBudget != null && memoryBudget.isUnderPressure();
+    }
+
+    private boolean isTimeToFlushStandardBuffer() {
+        if (batchController == null) {
+            return standardBuffer.isTimeToFlush();
+        }
+        return standardBuffer.size() >= batchController.getFlushSize();
+    }
+
+    /**
+     * Validates if the standard buffer holds a batch after a put, through {@link MessageBuffer#isTimeToFlush(int)}, so
+     * that a buffer split by thread isn't read whole on every put.
+     *
+     * @return True if the drainer should be signalled
+     */
+    private boolean isTimeToFlushAfterPut() {
+        return standardBuffer.isTimeToFlush(batchController == null ? standardFlushSize : batchController.getFlushSize());
+    }
+
+    /**
+     * Samples a metric, halving its sample rate for every level the buffers were sampled down to, so that the sample
+     * rate sent with the metric stays true to the share of metrics kept.
+     *
+     * @param sampleRate The sample rate of the metric
+     * @param namespace The namespace of the metric, which can be null
+     * @param name The name of the metric, or the encoded prefix of a pre-encoded metric
+     * @param tags The tags of the metric, which can be null
+     * @return The sample rate to send the metric with, or null if the metric isn't sampled
+     */
+    private Integer sample(final Integer sampleRate, final String namespace, final String name, final Tags tags) {
+        if (!this.isValidSampleRate(sampleRate)) {
+            invalidMetrics.increment();
+            LOGGER.warning("Invalid sample rate supplied. Discarding metric.");
+            return null;
+        }
+
+        int level = sampleDownLevel.get();
+        int effectiveSampleRate = level == 0 ? sampleRate : Math.max(MIN_SAMPLE_RATE, sampleRate >> level);
+
+        if (!sampler.isSampled(effectiveSampleRate, namespace, name, tags)) {
+            sampledOutMetrics.increment();
+            return null;
+        }
+        return effectiveSampleRate;
+    }
+
+    /**
+     * Returns the suffix of a pre-encoded metric, with the sample rate it's sent with when it was sampled down.
+     *
+     * @return The encoded suffix to send the metric with
+     */
+    private static String encodedSuffix(final String suffix, final Integer sampleRate, final int effectiveSampleRate) {
+        if (effectiveSampleRate == sampleRate) {
+            return suffix;
+        }
+        return MessageEncoder.replaceSampleRate(suffix, effectiveSampleRate);
+    }
+
+    /**
+     * Registers the series of a metric, when the number of series has a maximum.
+     *
+     * @return The tags of the metric, or the tags of the overflow series if its series doesn't fit in the registry
+     */
+    private Tags guardCardinality(final String namespace, final String name, final Tags tags) {
+        if (seriesRegistry == null
+                || seriesRegistry.register(namespace, name, tags == null ? TagSet.EMPTY : tags.toTagSet()) != SeriesRegistry.OVERFLOW_ID) {
+            return tags;
+        }
+        return Tags.from(overflowTags);
+    }
+
+    /**
+     * Registers an encoded series, when the number of series has a maximum.
+     *
+     * @return The encoded prefix of the series, or of its overflow series if it doesn't fit in the registry
+     */
+    private String guardCardinality(final EncodedSeries series) {
+        if (seriesRegistry == null
+                || seriesRegistry.register(series.getNamespace(), series.getName(), series.getTagSet()) != SeriesRegistry.OVERFLOW_ID) {
+            return series.getPrefix();
+        }
+        return series.getOverflowPrefix(overflowTags);
+    }
+
+    private void handleOverflow(final String metric, final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        int dropped;
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                dropped = evictOldest(aggregation, aggregationFrequency) ? 1 : 0;
+                if (!addToBuffer(metric, aggregation, aggregationFrequency)) {
+                    dropped++;
+                }
+                break;
+            case BLOCK:
+                dropped = awaitRoom(metric, aggregation, aggregationFrequency) ? 0 : 1;
+                break;
+            case SAMPLE_DOWN:
+                sampleDown();
+                dropped = 1;
+                break;
+            default:
+                dropped = 1;
+                break;
+        }
+
+        if (dropped > 0) {
+            droppedMetricsReporter.record(dropped);
+        }
+    }
+
+    private boolean addToBuffer(final String metric, final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        if (aggregation == null) {
+            return standardBuffer.addToBuffer(metric);
+        }
+        return aggregatedBuffer.addToBuffer(metric, aggregation, aggregationFrequency);
+    }
+
+    private boolean evictOldest(final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        if (aggregation == null) {
+            return standardBuffer.evictOldest();
+        }
+        return aggregatedBuffer.evictOldest(aggregation, aggregationFrequency);
+    }
+
+    /**
+     * Waits for room in a full buffer, signalling the drainer whenever the workers can take more batches. The drainer
+     * is only signalled when the buffer was still full after it went idle, so that it doesn't flush the metric again
+     * right after it's added.
+     *
+     * @return True if the metric was added before the timeout
+     */
+    private boolean awaitRoom(final String metric, final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
+        long deadline = System.nanoTime() + overflowBlockTimeoutNanos;
+
+        do {
+            boolean drainerIdle = flushDrainer.isIdle();
+            if (addToBuffer(metric, aggregation, aggregationFrequency)) {
+                return true;
+            }
+            if (drainerIdle && flushPipeline.hasRoom()) {
+                flushDrainer.signal();
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        } while (System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted());
+
+        return false;
+    }
+
+    /**
+     * Halves the sample rate of the following metrics, at most once per flush interval.
+     */
+    private void sampleDown() {
+        if (!overflowed.compareAndSet(false, true)) {
+            return;
+        }
+
+        int level = sampleDownLevel.get();
+        if (level < MAX_SAMPLE_DOWN_LEVEL && sampleDownLevel.compareAndSet(level, level + 1)) {
+            LOGGER.info("The buffer is full, sampling metrics down to 1/" + (1 << (level + 1)) + " of their sample rate.");
         }
     }
 
+    /**
+     * Doubles the sample rate back, up to the original, after a flush interval without overflows.
+     */
+    private void relievePressure() {
+        if (overflowed.getAndSet(false)) {
+            return;
+        }
+
+        int level = sampleDownLevel.get();
+        if (level > 0 && sampleDownLevel.compareAndSet(level, level - 1)) {
+            LOGGER.info("The buffer pressure went down, sampling metrics at 1/" + (1 << (level - 1)) + " of their sample rate.");
+        }
+    }
+
+    private void bufferMessage(final String rawMessage) {
+        if (!dryRun) {
+            this.putRaw(rawMessage);
+        } else {
+            LOGGER.fine("Dry metric: " + rawMessage);
+        }
+    }
+
+    private void bufferAggregatedMessage(final String rawMessage, final Aggregation aggregation,
+                                         final AggregationFrequency aggregationFrequency) {
+        if (!dryRun) {
+            this.putAggregatedRaw(rawMessage, aggregation, aggregationFrequency);
+        } else {
+            LOGGER.fine("Dry metric: " + rawMessage
+                    + " Aggregation: " + aggregation
+                    + " Frequency: " + aggregationFrequency);
+        }
+    }
+
+    private void collectPreAggregationsIfNeeded() {
+        if (preAggregator.isTimeToCollect(getUnixTimestamp())) {
+            flushDrainer.signal();
+        }
+    }
+
+    private void collectPreAggregations() {
+        if (preAggregator != null) {
+            logRejectedAggregations(preAggregator.collect(getUnixTimestamp(), aggregatedBuffer));
+        }
+    }
+
+    private void logRejectedAggregations(final int rejected) {
+        if (rejected > 0) {
+            droppedMetricsReporter.record(rejected);
+        }
+    }
+
+    private long getUnixTimestamp() {
+        return System.currentTimeMillis() / TIMESTAMP_DIVIDER;
+    }
+
     private void putAggregatedRaw(final String metric, final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
-        boolean inserted = aggregatedBuffer.addToBuffer(metric, aggregation, aggregationFrequency);
-        if (!inserted) {
-            // We should discard older metrics instead
-            LOGGER.warning("The buffer is full, metric ignored!.");
+        if (!aggregatedBuffer.addToBuffer(metric, aggregation, aggregationFrequency)) {
+            handleOverflow(metric, aggregation, aggregationFrequency);
         }
 
-        if (aggregatedBuffer.isTimeToFlush()) {
-            flush();
+        if (aggregatedBuffer.isTimeToFlush() || isMemoryUnderPressure()) {
+            flushDrainer.signal();
         }
     }
 
+    /**
+     * Flushes the buffers for as long as they hold a full batch, on the drainer thread.
+     */
+    private void drain() {
+        int flushCount = 0;
+        do {
+            flush();
+        } while (++flushCount < MAX_FLUSHES_PER_DRAIN && (isTimeToFlushStandardBuffer() || aggregatedBuffer.isTimeToFlush()));
+    }
+
     private void flush() {
-        String standardMessages = standardBuffer.readBuffer();
+        collectPreAggregations();
+
+        String standardMessages = batchController == null ? standardBuffer.readBuffer()
+                : standardBuffer.readBuffer(batchController.getFlushSize());
         if (!standardMessages.isEmpty()) {
             sendMetric(standardMessages);
         }
@@ -222,7 +732,8 @@ public class BufferedMetricsSender implements MetricsSender {
         for (Aggregation aggregation : aggregations) {
             Set<AggregationFrequency> aggregationFrequencies = aggregatedBuffer.getAggregationFrequencies(aggregation);
             for (AggregationFrequency aggregationFrequency : aggregationFrequencies) {
-                String aggregatedMessages = aggregatedBuffer.readBuffer(aggregation, aggregationFrequency);
+                String aggregatedMessages = batchController == null ? aggregatedBuffer.readBuffer(aggregation, aggregationFrequency)
+                        : aggregatedBuffer.readBuffer(aggregation, aggregationFrequency, batchController.getFlushSize());
 
                 if (!aggregatedMessages.isEmpty()) {
                     sendAggregatedMetric(aggregatedMessages, aggregation, aggregationFrequency);
@@ -232,33 +743,89 @@ public class BufferedMetricsSender implements MetricsSender {
     }
 
     private void sendMetric(final String metric) {
-        scheduleTask(new Runnable() {
-            @Override
-            public void run() {
-                transportSender.send(metric);
-            }
-        });
+        submitBatch(metric, null);
     }
 
     private void sendAggregatedMetric(final String metric,
                                       final Aggregation aggregation,
                                       final AggregationFrequency aggregationFrequency) {
-        scheduleTask(new Runnable() {
-            @Override
-            public void run() {
-                transportSender.send(metric, buildAggregatedUri(aggregation, aggregationFrequency));
-            }
-        });
+        submitBatch(metric, buildAggregatedUri(aggregation, aggregationFrequency));
     }
 
     private void sendMetricSynchronously(final String metric) {
-        transportSender.send(metric);
+        deliver(metric, null);
     }
 
     private void sendAggregatedMetricSynchronously(final String metric,
                                                    final Aggregation aggregation,
                                                    final AggregationFrequency aggregationFrequency) {
-        transportSender.send(metric, buildAggregatedUri(aggregation, aggregationFrequency));
+        deliver(metric, buildAggregatedUri(aggregation, aggregationFrequency));
+    }
+
+    /**
+     * Sends a batch, spooling it if it fails and there is a spool. A transport that reports its deliveries is asked
+     * whether the batch was delivered, with or without a spool, so that failed batches are counted as such.
+     *
+     * @return True if the batch was delivered
+     */
+    private boolean deliver(final String metric, final String uri) {
+        long start = System.nanoTime();
+        try {
+            DeliveryStatus status = trySend(metric, uri);
+            if (spool != null) {
+                if (status == DeliveryStatus.DELIVERED) {
+                    replaySpool();
+                } else if (status == DeliveryStatus.FAILED) {
+                    spool.append(metric, uri);
+                }
+            }
+            return status == DeliveryStatus.DELIVERED;
+        } finally {
+            long latencyNanos = System.nanoTime() - start;
+            long latencyMicros = latencyNanos / NANOS_PER_MICRO;
+            if (batchController != null) {
+                batchController.recordLatency(latencyNanos);
+            }
+            flushes.increment();
+            flushLatencyMicros.add(latencyMicros);
+            lastFlushLatencyMicros = latencyMicros;
+        }
+    }
+
+    private void send(final String metric, final String uri) {
+        if (uri == null) {
+            transportSender.send(metric);
+        } else {
+            transportSender.send(metric, uri);
+        }
+    }
+
+    private DeliveryStatus trySend(final String metric, final String uri) {
+        if (transportSender instanceof ReportingTransportSender) {
+            ReportingTransportSender reportingSender = (ReportingTransportSender) transportSender;
+            return uri == null ? reportingSender.trySend(metric) : reportingSender.trySend(metric, uri);
+        }
+
+        send(metric, uri);
+        return DeliveryStatus.DELIVERED;
+    }
+
+    private void replaySpool() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < MAX_REPLAYED_BATCHES; i++) {
+                SpooledBatch batch = spool.peek();
+                if (batch == null || trySend(batch.getMessage(), batch.getUri()) == DeliveryStatus.FAILED) {
+                    return;
+                }
+                spool.remove(batch);
+            }
+        } finally {
+            replaying.set(false);
+        }
     }
 
     private String buildAggregatedUri(final Aggregation aggregation, final AggregationFrequency aggregationFrequency) {
@@ -278,8 +845,7 @@ public class BufferedMetricsSender implements MetricsSender {
      * @return A {@link java.util.List} containing the messages of the buffer
      */
     final List<String> getStandardBuffer() {
-        ArrayBlockingQueue<String> buffer = standardBuffer.getBuffer();
-        return asList(buffer.toArray(new String[buffer.size()]));
+        return standardBuffer.snapshot();
     }
 
     /**
@@ -324,37 +890,168 @@ public class BufferedMetricsSender implements MetricsSender {
         return buffersAsList;
     }
 
-    private void scheduleTask(final Runnable runnable) {
-        boolean wasScheduled = false;
-        if (executorService.getQueue().size() < configuration.getMaxWorkerTasksQueueSize()) {
-            Future<?> futureTask = executorService.schedule(runnable, 0, TimeUnit.MILLISECONDS);
-
-            wasScheduled = futuresQueue.offer(futureTask);
+    private void submitBatch(final String metric, final String uri) {
+        if (batchController != null) {
+            batchController.recordBatch(countLines(metric), metric.length());
         }
 
-        if (!wasScheduled) {
-            LOGGER.warning("Unable to send metric! The tasks queue is full. Please lower your timeouts or increase the worker thread pool.");
-            cancelAllWaitingTasks();
+        boolean submitted = flushPipeline.submit(new FlushPipeline.Batch() {
+            @Override
+            public boolean send() {
+                return deliver(metric, uri);
+            }
+        });
+
+        if (submitted) {
+            return;
+        }
+        if (spool != null) {
+            LOGGER.warning("The flush pipeline is full, metrics spooled. Please lower your timeouts or increase the worker thread pool.");
+            spool.append(metric, uri);
+        } else {
+            droppedMetricsReporter.record(countLines(metric));
         }
     }
 
-    private void cancelAllWaitingTasks() {
-        helperExecutorService.schedule(tasksKiller(), 0, TimeUnit.MILLISECONDS);
+    private static int countLines(final String metric) {
+        int lines = 0;
+        for (int i = metric.indexOf('\n'); i >= 0; i = metric.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        return lines;
     }
 
-    private Runnable tasksKiller() {
-        return new Runnable() {
+    private void registerStats() {
+        stats.register("metrics.sampled_out", sampledOutMetrics);
+        stats.register("metrics.invalid", invalidMetrics);
+        stats.register("metrics.dropped", new Gauge() {
             @Override
-            public void run() {
-                Collection<Future<?>> tasks = new LinkedList<Future<?>>();
-                futuresQueue.drainTo(tasks);
+            public long getValue() {
+                return droppedMetricsReporter.getDroppedMetrics();
+            }
+        });
+        stats.register("metrics.sample_down_level", new Gauge() {
+            @Override
+            public long getValue() {
+                return sampleDownLevel.get();
+            }
+        });
+        stats.register("flush.count", flushes);
+        stats.register("flush.drains", new Gauge() {
+            @Override
+            public long getValue() {
+                return flushDrainer.getDrains();
+            }
+        });
+        stats.register("flush.latency_micros.total", flushLatencyMicros);
+        stats.register("flush.latency_micros.last", new Gauge() {
+            @Override
+            public long getValue() {
+                return lastFlushLatencyMicros;
+            }
+        });
 
-                for (Future<?> task : tasks) {
-                    task.cancel(false);
+        if (spool != null) {
+            stats.register("spool.pending", new Gauge() {
+                @Override
+                public long getValue() {
+                    return spool.getPendingBatches();
+                }
+            });
+            stats.register("spool.bytes", new Gauge() {
+                @Override
+                public long getValue() {
+                    return spool.getSpooledBytes();
+                }
+            });
+            stats.register("spool.dropped", new Gauge() {
+                @Override
+                public long getValue() {
+                    return spool.getDroppedBatches() + spool.getExpiredBatches();
                 }
+            });
+        }
 
-                executorService.purge();
-            }
-        };
+        stats.registerAll(flushPipeline);
+        stats.registerAll(batchController);
+        stats.registerAll(memoryBudget);
+        stats.registerAll(seriesRegistry);
+        stats.registerAll(standardBuffer);
+        stats.registerAll(aggregatedBuffer);
+        stats.registerAll(transportSender);
+    }
+
+    /**
+     * Puts the client stats in the standard buffer, as <code>statful.client.*</code> metrics.
+     */
+    private void putSelfMetrics() {
+        long timestamp = getUnixTimestamp();
+        for (Map.Entry<String, Long> stat : stats.snapshot().entrySet()) {
+            bufferMessage(MessageEncoder.encode(SELF_METRICS_PREFIX + stat.getKey(), stat.getValue(),
+                    configuration.getApplicationTags(), null, null, SELF_METRICS_NAMESPACE, timestamp, null));
+        }
+    }
+
+    /**
+     * Returns the stats of the client internals, including the stats of the buffers and the transport.
+     *
+     * @return The {@link ClientStats} of this sender
+     */
+    public final ClientStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of metrics dropped because a buffer was full.
+     *
+     * @return The number of dropped metrics
+     */
+    final long getDroppedMetrics() {
+        return droppedMetricsReporter.getDroppedMetrics();
+    }
+
+    /**
+     * Returns how many times the sample rate of metrics is currently halved, with the SAMPLE_DOWN overflow policy.
+     *
+     * @return The sample down level, zero when metrics are sampled at their own rate
+     */
+    final int getSampleDownLevel() {
+        return sampleDownLevel.get();
+    }
+
+    /**
+     * Checks if the drainer thread has no flush to run.
+     *
+     * @return True if no flush is wanted nor in progress
+     */
+    final boolean isDrainerIdle() {
+        return flushDrainer.isIdle();
+    }
+
+    /**
+     * Returns the memory budget shared by the buffers.
+     *
+     * @return The {@link MemoryBudget}, or null when the buffers have no budget
+     */
+    final MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns the registry of the series sent.
+     *
+     * @return The {@link SeriesRegistry}, or null when the number of series has no maximum
+     */
+    final SeriesRegistry getSeriesRegistry() {
+        return seriesRegistry;
+    }
+
+    /**
+     * Returns the spool of the batches that couldn't be sent.
+     *
+     * @return The {@link MetricsSpool}, or null when the spool is disabled
+     */
+    final MetricsSpool getSpool() {
+        return spool;
     }
 }
@@ -0,0 +1,70 @@
+package com.statful.client.core.sender;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Counts metrics dropped because a buffer was full, and logs them in aggregate.
+ * <p>
+ * Logging every dropped metric turns an overloaded buffer into an overloaded logger, so drops are only counted on the
+ * recording path, and the count since the last report is logged at most once per interval.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+final class DroppedMetricsReporter {
+
+    private final Logger logger;
+    private final long intervalMillis;
+
+    private final AtomicLong unreported = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastReport = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param logger The {@link Logger} to report to
+     * @param intervalMillis The minimum time between reports in milliseconds
+     */
+    DroppedMetricsReporter(final Logger logger, final long intervalMillis) {
+        this.logger = logger;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Counts dropped metrics, reporting them if the interval has passed since the last report.
+     *
+     * @param count The number of dropped metrics
+     */
+    void record(final int count) {
+        unreported.addAndGet(count);
+        dropped.addAndGet(count);
+        report(System.currentTimeMillis());
+    }
+
+    /**
+     * Logs the metrics dropped since the last report, if any and if the interval has passed.
+     *
+     * @param now The current time in milliseconds
+     */
+    void report(final long now) {
+        long last = lastReport.get();
+        if (unreported.get() == 0 || now - last < intervalMillis || !lastReport.compareAndSet(last, now)) {
+            return;
+        }
+
+        long count = unreported.getAndSet(0);
+        if (count > 0) {
+            logger.warning("The buffer is full, " + count + " metrics dropped since the last report.");
+        }
+    }
+
+    /**
+     * Returns the number of dropped metrics.
+     *
+     * @return The number of metrics dropped since the reporter was created
+     */
+    long getDroppedMetrics() {
+        return dropped.get();
+    }
+}
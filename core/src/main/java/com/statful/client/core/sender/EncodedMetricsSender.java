@@ -0,0 +1,44 @@
+package com.statful.client.core.sender;
+
+import com.statful.client.domain.api.Tags;
+
+/**
+ * Metrics sender that accepts metrics of an {@link EncodedSeries}, whose prefix was encoded beforehand, and a suffix
+ * encoded with {@link com.statful.client.core.message.MessageEncoder#encodeSuffix}, so that only the value and the
+ * timestamp are encoded for every metric.
+ */
+public interface EncodedMetricsSender {
+
+    /**
+     * Returns the series of a metric to send with {@link #putEncoded}, registering it when the sender has a maximum
+     * number of series.
+     *
+     * @param name The metric name
+     * @param tags The {@link Tags} of the metric, which can be null and must not be changed afterwards
+     * @param namespace The namespace of the metric, which can be null
+     * @return The {@link EncodedSeries}
+     */
+    EncodedSeries encodeSeries(String name, Tags tags, String namespace);
+
+    /**
+     * Sends a metric with an integral value, given its series and its encoded suffix.
+     *
+     * @param series The {@link EncodedSeries} of the metric
+     * @param value The metric value
+     * @param suffix The encoded suffix of the metric
+     * @param sampleRate The sample rate of the metric, which must match the one in the suffix
+     * @param timestamp The unix timestamp of the metric
+     */
+    void putEncoded(EncodedSeries series, long value, String suffix, Integer sampleRate, long timestamp);
+
+    /**
+     * Sends a metric with a decimal value, given its series and its encoded suffix.
+     *
+     * @param series The {@link EncodedSeries} of the metric
+     * @param value The metric value
+     * @param suffix The encoded suffix of the metric
+     * @param sampleRate The sample rate of the metric, which must match the one in the suffix
+     * @param timestamp The unix timestamp of the metric
+     */
+    void putEncoded(EncodedSeries series, double value, String suffix, Integer sampleRate, long timestamp);
+}
@@ -0,0 +1,99 @@
+package com.statful.client.core.sender;
+
+import com.statful.client.core.message.MessageEncoder;
+import com.statful.client.domain.api.TagSet;
+import com.statful.client.domain.api.Tags;
+
+/**
+ * A series whose metrics are sent with an encoded prefix, through {@link EncodedMetricsSender#putEncoded}.
+ * <p>
+ * Along with the encoded prefix, it keeps the namespace, name and tags of the series, so that a sender with a maximum
+ * number of series still registers it on every metric, and the encoded prefix of its overflow series, once it's needed.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class EncodedSeries {
+
+    private final String name;
+    private final Tags tags;
+    private final TagSet tagSet;
+    private final String namespace;
+    private final String prefix;
+
+    private volatile String overflowPrefix;
+
+    /**
+     * Default constructor. The tags must not be changed afterwards.
+     *
+     * @param name The metric name
+     * @param tags The {@link Tags} of the metric, which can be null
+     * @param namespace The namespace of the metric, which can be null
+     */
+    public EncodedSeries(final String name, final Tags tags, final String namespace) {
+        this.name = name;
+        this.tags = tags;
+        this.tagSet = tags == null ? TagSet.EMPTY : tags.toTagSet();
+        this.namespace = namespace;
+        this.prefix = MessageEncoder.encodePrefix(name, tags, namespace);
+    }
+
+    /**
+     * Returns the metric name.
+     *
+     * @return The metric name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the tags of the metric.
+     *
+     * @return The {@link Tags}, or null
+     */
+    public Tags getTags() {
+        return tags;
+    }
+
+    /**
+     * Returns the tags of the metric as a {@link TagSet}.
+     *
+     * @return The {@link TagSet}, which is empty without tags
+     */
+    public TagSet getTagSet() {
+        return tagSet;
+    }
+
+    /**
+     * Returns the namespace of the metric.
+     *
+     * @return The namespace, or null
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Returns the encoded prefix of the metric.
+     *
+     * @return The encoded prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the encoded prefix of the overflow series of the metric, encoding it the first time.
+     *
+     * @param overflowTags The {@link TagSet} of the overflow series
+     * @return The encoded prefix of the overflow series
+     */
+    String getOverflowPrefix(final TagSet overflowTags) {
+        String result = overflowPrefix;
+        if (result == null) {
+            result = MessageEncoder.encodePrefix(name, Tags.from(overflowTags), namespace);
+            overflowPrefix = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package com.statful.client.core.sender;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A dedicated thread that flushes the buffers when signalled.
+ * <p>
+ * Threads that fill a buffer up to the flush size only raise a flag and, if it wasn't raised yet, unpark the drainer,
+ * so reading the buffer and assembling the batch never happen on the thread that recorded the metric. Signals raised
+ * while the drainer is flushing are coalesced into a single flush once it's done.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+final class FlushDrainer implements Runnable {
+
+    private final Logger logger;
+    private final Runnable flush;
+    private final Thread thread;
+
+    private final AtomicBoolean flushWanted = new AtomicBoolean();
+    private final AtomicLong drains = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean flushing;
+
+    /**
+     * Default constructor.
+     *
+     * @param logger The {@link Logger} to report failed flushes to
+     * @param name The name of the drainer thread
+     * @param flush The flush to run when signalled
+     */
+    FlushDrainer(final Logger logger, final String name, final Runnable flush) {
+        this.logger = logger;
+        this.flush = flush;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the drainer thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Asks the drainer to flush. It only writes to shared memory when no flush was wanted yet.
+     */
+    void signal() {
+        if (!flushWanted.get() && flushWanted.compareAndSet(false, true)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the drainer thread once the flush in progress, if any, is done.
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            flushing = true;
+            if (!flushWanted.getAndSet(false)) {
+                flushing = false;
+                LockSupport.park(this);
+                continue;
+            }
+
+            drains.incrementAndGet();
+            try {
+                flush.run();
+            } catch (RuntimeException e) {
+                logger.warning("Unable to flush metrics: " + e.toString());
+            } finally {
+                flushing = false;
+            }
+        }
+    }
+
+    /**
+     * Checks if the drainer has no flush to run.
+     *
+     * @return True if no flush is wanted nor in progress
+     */
+    boolean isIdle() {
+        return !flushWanted.get() && !flushing;
+    }
+
+    /**
+     * Returns the number of flushes run by the drainer.
+     *
+     * @return The number of drains
+     */
+    long getDrains() {
+        return drains.get();
+    }
+}
@@ -0,0 +1,205 @@
+package com.statful.client.core.sender;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Hands the flushed batches to the workers, with at most a fixed number of batches in flight.
+ * <p>
+ * A batch is queued until a worker picks it, sending until the transport returns, and then either done or failed. A
+ * batch that finds the maximum number of batches in flight isn't handed to the workers, and is given back to the caller
+ * to spool or drop it, so a batch handed to the workers is never cancelled. Taking a place in flight is a single atomic
+ * update, so the pipeline doesn't need to inspect the queue of the workers, nor to track their futures.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+final class FlushPipeline implements Instrumented {
+
+    /**
+     * A batch of metrics to send.
+     */
+    interface Batch {
+        /**
+         * Sends the batch.
+         *
+         * @return True if the batch was delivered
+         */
+        boolean send();
+    }
+
+    private final Logger logger;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param logger The {@link Logger} to report failed batches to
+     * @param executor The {@link Executor} of the workers
+     * @param maxInFlight The maximum number of batches queued for or being sent by the workers
+     */
+    FlushPipeline(final Logger logger, final Executor executor, final int maxInFlight) {
+        this.logger = logger;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Hands a batch to the workers, unless the maximum number of batches are in flight.
+     *
+     * @param batch The {@link Batch} to send
+     * @return False if the batch wasn't handed to the workers
+     */
+    boolean submit(final Batch batch) {
+        if (!reserve()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        queued.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(batch);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a batch would be handed to the workers.
+     *
+     * @return True if there are fewer batches in flight than the maximum
+     */
+    boolean hasRoom() {
+        return inFlight.get() < maxInFlight;
+    }
+
+    @Override
+    public void registerStats(final ClientStats stats) {
+        stats.register("batches.queued", new Gauge() {
+            @Override
+            public long getValue() {
+                return getQueued();
+            }
+        });
+        stats.register("batches.sending", new Gauge() {
+            @Override
+            public long getValue() {
+                return getSending();
+            }
+        });
+        stats.register("batches.done", new Gauge() {
+            @Override
+            public long getValue() {
+                return getDone();
+            }
+        });
+        stats.register("batches.failed", new Gauge() {
+            @Override
+            public long getValue() {
+                return getFailed();
+            }
+        });
+        stats.register("batches.rejected", new Gauge() {
+            @Override
+            public long getValue() {
+                return getRejected();
+            }
+        });
+    }
+
+    private boolean reserve() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void send(final Batch batch) {
+        queued.decrementAndGet();
+        boolean delivered = false;
+        try {
+            delivered = batch.send();
+        } catch (RuntimeException e) {
+            logger.warning("Unable to send metrics: " + e.toString());
+        } finally {
+            inFlight.decrementAndGet();
+            if (delivered) {
+                done.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of batches waiting for a worker.
+     *
+     * @return The number of queued batches
+     */
+    int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of batches being sent by the workers.
+     *
+     * @return The number of batches being sent
+     */
+    int getSending() {
+        return Math.max(0, inFlight.get() - queued.get());
+    }
+
+    /**
+     * Returns the number of batches delivered.
+     *
+     * @return The number of done batches
+     */
+    long getDone() {
+        return done.get();
+    }
+
+    /**
+     * Returns the number of batches the transport failed to deliver, or rejected.
+     *
+     * @return The number of failed batches
+     */
+    long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of batches not handed to the workers, because the maximum number of batches were in flight.
+     *
+     * @return The number of rejected batches
+     */
+    long getRejected() {
+        return rejected.get();
+    }
+}
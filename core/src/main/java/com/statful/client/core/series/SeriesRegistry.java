@@ -0,0 +1,360 @@
+package com.statful.client.core.series;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+import com.statful.client.domain.api.CardinalityPolicy;
+import com.statful.client.domain.api.TagSet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A registry of the series sent by the client, which interns each namespace, name and {@link TagSet} into an integer
+ * series id, up to a maximum number of series.
+ * <p>
+ * Series are kept in an open-addressing hash table with linear probing, sized to at most half full, so looking up a
+ * known series is a hash and a couple of array reads, without locking or allocating. Registering a new series takes a
+ * lock. Past the maximum, new series get the {@link #OVERFLOW_ID}, so that a tag with unbounded values, such as a user
+ * id, can't grow the memory of the client, nor the number of series sent, without bounds.
+ * <p>
+ * With the {@link CardinalityPolicy#EVICT_IDLE} policy, every {@link #sweep()} forgets the series that weren't
+ * registered again since the previous sweep, and frees their ids for new series. Forgotten series leave tombstones in
+ * the table, which is rebuilt once they take a quarter of it.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class SeriesRegistry implements Instrumented {
+
+    /**
+     * The id of the series that don't fit in the registry.
+     */
+    public static final int OVERFLOW_ID = 0;
+
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE);
+    private static final int LOAD_SHIFT = 1;
+    private static final int TOMBSTONE_SHIFT = 2;
+    private static final int SPREAD_SHIFT_1 = 16;
+    private static final int SPREAD_SHIFT_2 = 13;
+    private static final int SPREAD_MULTIPLIER = 0x85ebca6b;
+
+    private static final Series TOMBSTONE = new Series(OVERFLOW_ID, 0, null, "", TagSet.EMPTY);
+
+    private final int maxSeries;
+    private final boolean evictIdle;
+    private final AtomicReferenceArray<Series> seriesById;
+    private final int[] freeIds;
+
+    private volatile AtomicReferenceArray<Series> table;
+    private volatile int size;
+    private volatile int epoch;
+    private int tombstones;
+    private int freeIdCount;
+    private int nextId = OVERFLOW_ID + 1;
+
+    private final StripedCounter overflowedMetrics = new StripedCounter();
+    private final AtomicLong evictedSeries = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param maxSeries The maximum number of series
+     * @param policy The {@link CardinalityPolicy} to keep the number of series under the maximum
+     */
+    public SeriesRegistry(final int maxSeries, final CardinalityPolicy policy) {
+        if (maxSeries <= 0 || maxSeries > MAX_CAPACITY >> LOAD_SHIFT) {
+            throw new IllegalArgumentException("The maximum number of series must be between 1 and " + (MAX_CAPACITY >> LOAD_SHIFT));
+        }
+
+        this.maxSeries = maxSeries;
+        this.evictIdle = policy == CardinalityPolicy.EVICT_IDLE;
+        this.seriesById = new AtomicReferenceArray<Series>(maxSeries + 1);
+        this.freeIds = new int[maxSeries];
+        this.table = new AtomicReferenceArray<Series>(capacityFor(maxSeries));
+    }
+
+    /**
+     * Returns the id of a series, registering it if it's new.
+     *
+     * @param namespace The namespace of the series, which can be null
+     * @param name The name of the series
+     * @param tags The {@link TagSet} of the series
+     * @return The id of the series, or {@link #OVERFLOW_ID} if it's new and the registry is full
+     */
+    public int register(final String namespace, final String name, final TagSet tags) {
+        int hash = hash(namespace, name, tags);
+
+        Series series = find(table, hash, namespace, name, tags);
+        if (series != null && touch(series)) {
+            return series.id;
+        }
+        if (size >= maxSeries) {
+            overflowedMetrics.increment();
+            return OVERFLOW_ID;
+        }
+
+        return insert(hash, namespace, name, tags);
+    }
+
+    /**
+     * Returns a registered series.
+     *
+     * @param id The id of the series
+     * @return The {@link Series}, or null if no series has that id
+     */
+    public Series getSeries(final int id) {
+        return id > OVERFLOW_ID && id <= maxSeries ? seriesById.get(id) : null;
+    }
+
+    /**
+     * Forgets the series that weren't registered since the previous sweep, with the
+     * {@link CardinalityPolicy#EVICT_IDLE} policy. It is meant to be called once per flush interval.
+     */
+    public synchronized void sweep() {
+        if (!evictIdle) {
+            return;
+        }
+
+        int current = epoch;
+        AtomicReferenceArray<Series> currentTable = table;
+        for (int i = 0; i < currentTable.length(); i++) {
+            Series series = currentTable.get(i);
+            if (series != null && series != TOMBSTONE && series.lastEpoch != current) {
+                series.evicted = true;
+                currentTable.set(i, TOMBSTONE);
+                seriesById.set(series.id, null);
+                freeIds[freeIdCount++] = series.id;
+                tombstones++;
+                size--;
+                evictedSeries.incrementAndGet();
+            }
+        }
+        epoch = current + 1;
+
+        if (tombstones > currentTable.length() >> TOMBSTONE_SHIFT) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public void registerStats(final ClientStats stats) {
+        stats.register("series.count", new Gauge() {
+            @Override
+            public long getValue() {
+                return getSeriesCount();
+            }
+        });
+        stats.register("series.overflowed", overflowedMetrics);
+        stats.register("series.evicted", new Gauge() {
+            @Override
+            public long getValue() {
+                return getEvictedSeries();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of registered series.
+     *
+     * @return The number of series
+     */
+    public int getSeriesCount() {
+        return size;
+    }
+
+    /**
+     * Returns the number of metrics that got the overflow id, because their series didn't fit in the registry.
+     *
+     * @return The number of overflowed metrics
+     */
+    public long getOverflowedMetrics() {
+        return overflowedMetrics.sum();
+    }
+
+    /**
+     * Returns the number of series forgotten for being idle.
+     *
+     * @return The number of evicted series
+     */
+    public long getEvictedSeries() {
+        return evictedSeries.get();
+    }
+
+    private synchronized int insert(final int hash, final String namespace, final String name, final TagSet tags) {
+        AtomicReferenceArray<Series> currentTable = table;
+        Series existing = find(currentTable, hash, namespace, name, tags);
+        if (existing != null) {
+            touch(existing);
+            return existing.id;
+        }
+        if (size >= maxSeries) {
+            overflowedMetrics.increment();
+            return OVERFLOW_ID;
+        }
+
+        int id = freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+        Series series = new Series(id, hash, namespace, name, tags);
+        series.lastEpoch = epoch;
+
+        int mask = currentTable.length() - 1;
+        int index = spread(hash) & mask;
+        while (currentTable.get(index) != null && currentTable.get(index) != TOMBSTONE) {
+            index = (index + 1) & mask;
+        }
+        if (currentTable.get(index) == TOMBSTONE) {
+            tombstones--;
+        }
+
+        seriesById.set(id, series);
+        currentTable.set(index, series);
+        size++;
+        return id;
+    }
+
+    /**
+     * Copies the registered series to a new table without tombstones. Lookups still reading the old table find the
+     * same series, and new series are only added to the new one.
+     */
+    private void rebuild() {
+        AtomicReferenceArray<Series> oldTable = table;
+        AtomicReferenceArray<Series> newTable = new AtomicReferenceArray<Series>(oldTable.length());
+        int mask = newTable.length() - 1;
+
+        for (int i = 0; i < oldTable.length(); i++) {
+            Series series = oldTable.get(i);
+            if (series != null && series != TOMBSTONE) {
+                int index = spread(series.hash) & mask;
+                while (newTable.get(index) != null) {
+                    index = (index + 1) & mask;
+                }
+                newTable.set(index, series);
+            }
+        }
+
+        tombstones = 0;
+        table = newTable;
+    }
+
+    /**
+     * Marks a series as seen in the current epoch, writing only when the epoch changed, so that threads recording the
+     * same series don't write to its memory on every metric.
+     *
+     * @return False if the series was evicted, in which case it must be registered again
+     */
+    private boolean touch(final Series series) {
+        int current = epoch;
+        if (series.lastEpoch != current) {
+            series.lastEpoch = current;
+        }
+        return !series.evicted;
+    }
+
+    private static Series find(final AtomicReferenceArray<Series> table, final int hash, final String namespace,
+                               final String name, final TagSet tags) {
+        int mask = table.length() - 1;
+        int index = spread(hash) & mask;
+
+        while (true) {
+            Series series = table.get(index);
+            if (series == null) {
+                return null;
+            }
+            if (series != TOMBSTONE && series.matches(hash, namespace, name, tags)) {
+                return series;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private static int hash(final String namespace, final String name, final TagSet tags) {
+        int hash = name.hashCode();
+        hash = HASH_MULTIPLIER * hash + (namespace == null ? 0 : namespace.hashCode());
+        return HASH_MULTIPLIER * hash + tags.hashCode();
+    }
+
+    /**
+     * Spreads the bits of a hash, so that hashes differing only in their high bits don't probe the same slots.
+     */
+    private static int spread(final int hash) {
+        int h = hash;
+        h ^= h >>> SPREAD_SHIFT_1;
+        h *= SPREAD_MULTIPLIER;
+        h ^= h >>> SPREAD_SHIFT_2;
+        return h;
+    }
+
+    private static int capacityFor(final int maxSeries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity >> LOAD_SHIFT < maxSeries) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * A series registered in a {@link SeriesRegistry}.
+     */
+    public static final class Series {
+        private final int id;
+        private final int hash;
+        private final String namespace;
+        private final String name;
+        private final TagSet tags;
+
+        private volatile int lastEpoch;
+        private volatile boolean evicted;
+
+        Series(final int id, final int hash, final String namespace, final String name, final TagSet tags) {
+            this.id = id;
+            this.hash = hash;
+            this.namespace = namespace;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        /**
+         * Returns the id of the series.
+         *
+         * @return The series id
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the namespace of the series.
+         *
+         * @return The namespace, which can be null
+         */
+        public String getNamespace() {
+            return namespace;
+        }
+
+        /**
+         * Returns the name of the series.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the tags of the series.
+         *
+         * @return The {@link TagSet} of the series
+         */
+        public TagSet getTags() {
+            return tags;
+        }
+
+        boolean matches(final int otherHash, final String otherNamespace, final String otherName, final TagSet otherTags) {
+            return hash == otherHash && name.equals(otherName)
+                    && (namespace == null ? otherNamespace == null : namespace.equals(otherNamespace))
+                    && tags.equals(otherTags);
+        }
+    }
+}
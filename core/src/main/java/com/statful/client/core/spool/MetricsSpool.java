@@ -0,0 +1,323 @@
+package com.statful.client.core.spool;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A disk-backed spool of metric batches that couldn't be sent.
+ * <p>
+ * Batches are appended to memory-mapped segment files in a directory, and read back in the order they were spooled.
+ * Appending copies a batch into the mapped memory of the current segment, leaving the write to disk to the operating
+ * system, so spooling costs about the same as buffering. Segments left by a previous run are recovered when the spool
+ * is opened.
+ * <p>
+ * The spool is bounded by a disk quota, which drops the oldest segments to make room for new batches, and by a max
+ * age, past which batches are dropped instead of being sent. Fully replayed segments are deleted.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public class MetricsSpool {
+
+    /**
+     * Source of time for the timestamps and the max age of the batches, which tests can replace.
+     */
+    interface Clock {
+        /**
+         * Returns the current time.
+         *
+         * @return The current time in milliseconds
+         */
+        long currentTimeMillis();
+    }
+
+    /**
+     * Default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsSpool.class.getName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String SEQUENCE_FORMAT = "%019d";
+
+    private final File directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final int segmentSize;
+    private final Clock clock;
+
+    private final LinkedList<SpoolSegment> segments = new LinkedList<SpoolSegment>();
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final AtomicLong expiredBatches = new AtomicLong();
+
+    private long nextSequence;
+    private long mappedBytes;
+
+    /**
+     * Default constructor.
+     *
+     * @param directory The directory of the segment files, which is created if it doesn't exist
+     * @param maxBytes The disk quota of the spool in bytes
+     * @param maxAgeMillis The max age of the spooled batches in milliseconds
+     * @throws IOException If the directory or its segments can't be opened
+     */
+    public MetricsSpool(final File directory, final long maxBytes, final long maxAgeMillis) throws IOException {
+        this(directory, maxBytes, maxAgeMillis, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor with the size of the segment files.
+     *
+     * @param directory The directory of the segment files, which is created if it doesn't exist
+     * @param maxBytes The disk quota of the spool in bytes
+     * @param maxAgeMillis The max age of the spooled batches in milliseconds
+     * @param segmentSize The size of a segment file in bytes, which grows to fit batches bigger than it
+     * @throws IOException If the directory or its segments can't be opened
+     */
+    public MetricsSpool(final File directory, final long maxBytes, final long maxAgeMillis, final int segmentSize)
+            throws IOException {
+        this(directory, maxBytes, maxAgeMillis, segmentSize, SYSTEM_CLOCK);
+    }
+
+    MetricsSpool(final File directory, final long maxBytes, final long maxAgeMillis, final int segmentSize,
+                 final Clock clock) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.segmentSize = segmentSize;
+        this.clock = clock;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create spool directory " + directory);
+        }
+        recoverSegments();
+    }
+
+    private void recoverSegments() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IOException("Unable to list spool directory " + directory);
+        }
+        Arrays.sort(files);
+
+        for (File file : files) {
+            long sequence;
+            try {
+                sequence = parseSequence(file.getName());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Ignoring unknown spool file " + file.getName());
+                continue;
+            }
+
+            SpoolSegment segment = SpoolSegment.open(file, sequence);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+
+            if (segment.isConsumed()) {
+                segment.delete();
+            } else {
+                segments.add(segment);
+                mappedBytes += segment.getCapacity();
+            }
+        }
+    }
+
+    /**
+     * Appends a batch to the spool, dropping the oldest batches if the disk quota is exceeded.
+     *
+     * @param message The metrics of the batch
+     * @param uri The URI to send the batch to, or null for the default URI
+     * @return True if the batch was spooled
+     */
+    public final synchronized boolean append(final String message, final String uri) {
+        byte[] uriBytes = uri == null ? null : uri.getBytes(UTF_8);
+        byte[] messageBytes = message.getBytes(UTF_8);
+        int recordSize = SpoolSegment.recordSize(uriBytes, messageBytes);
+
+        try {
+            SpoolSegment segment = segments.peekLast();
+            if (segment == null || !segment.hasRoomFor(recordSize)) {
+                segment = addSegment(Math.max(segmentSize, recordSize));
+            }
+
+            if (segment == null) {
+                droppedBatches.incrementAndGet();
+                LOGGER.warning("The spool quota is smaller than the batch, batch dropped.");
+                return false;
+            }
+
+            segment.append(clock.currentTimeMillis(), uriBytes, messageBytes);
+            return true;
+        } catch (IOException e) {
+            droppedBatches.incrementAndGet();
+            LOGGER.warning("Unable to spool batch: " + e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the oldest spooled batch, without removing it. Batches older than the max age are dropped.
+     *
+     * @return The oldest {@link SpooledBatch}, or null if the spool is empty
+     */
+    public final synchronized SpooledBatch peek() {
+        long oldestTimestamp = clock.currentTimeMillis() - maxAgeMillis;
+
+        while (!segments.isEmpty()) {
+            SpoolSegment segment = segments.peekFirst();
+            SpooledBatch batch = segment.peek();
+
+            if (batch == null) {
+                if (segments.size() == 1) {
+                    return null;
+                }
+                removeOldestSegment();
+            } else if (batch.getTimestamp() < oldestTimestamp) {
+                expiredBatches.incrementAndGet();
+                consume(segment);
+            } else {
+                return batch;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes a batch returned by {@link #peek()} after it was sent. It does nothing if the batch was already removed
+     * or dropped.
+     *
+     * @param batch The {@link SpooledBatch} to remove
+     */
+    public final synchronized void remove(final SpooledBatch batch) {
+        SpoolSegment segment = segments.peekFirst();
+
+        if (segment != null && !segment.isConsumed() && batch.isAt(segment.getSequence(), segment.getReadPosition())) {
+            consume(segment);
+        }
+    }
+
+    /**
+     * Checks if the spool has no batches left to send.
+     *
+     * @return True if the spool is empty
+     */
+    public final synchronized boolean isEmpty() {
+        return getPendingBatches() == 0;
+    }
+
+    /**
+     * Returns the number of batches left to send.
+     *
+     * @return The number of spooled batches
+     */
+    public final synchronized int getPendingBatches() {
+        int pending = 0;
+        for (SpoolSegment segment : segments) {
+            pending += segment.getPendingRecords();
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the disk space taken by the segment files.
+     *
+     * @return The size of the segments in bytes
+     */
+    public final synchronized long getSpooledBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Returns the number of batches dropped to respect the disk quota, or because they couldn't be written.
+     *
+     * @return The number of dropped batches
+     */
+    public final long getDroppedBatches() {
+        return droppedBatches.get();
+    }
+
+    /**
+     * Returns the number of batches dropped because they were older than the max age.
+     *
+     * @return The number of expired batches
+     */
+    public final long getExpiredBatches() {
+        return expiredBatches.get();
+    }
+
+    /**
+     * Writes the pending changes of the segments to disk.
+     */
+    public final synchronized void flush() {
+        for (SpoolSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    private SpoolSegment addSegment(final int capacity) throws IOException {
+        if (capacity > maxBytes) {
+            return null;
+        }
+
+        Iterator<SpoolSegment> iterator = segments.iterator();
+        while (mappedBytes + capacity > maxBytes && iterator.hasNext()) {
+            SpoolSegment oldest = iterator.next();
+            droppedBatches.addAndGet(oldest.getPendingRecords());
+            LOGGER.warning("The spool quota is exceeded, " + oldest.getPendingRecords() + " batches dropped.");
+            iterator.remove();
+            deleteSegment(oldest);
+        }
+
+        long sequence = nextSequence++;
+        File file = new File(directory, SEGMENT_PREFIX + String.format(SEQUENCE_FORMAT, sequence) + SEGMENT_SUFFIX);
+        SpoolSegment segment = SpoolSegment.create(file, sequence, capacity);
+
+        segments.add(segment);
+        mappedBytes += capacity;
+        return segment;
+    }
+
+    private void consume(final SpoolSegment segment) {
+        segment.consume();
+
+        if (segment.isConsumed() && segments.size() > 1) {
+            removeOldestSegment();
+        }
+    }
+
+    private void removeOldestSegment() {
+        deleteSegment(segments.removeFirst());
+    }
+
+    private void deleteSegment(final SpoolSegment segment) {
+        mappedBytes -= segment.getCapacity();
+        if (!segment.delete()) {
+            LOGGER.warning("Unable to delete spool segment " + segment.getSequence());
+        }
+    }
+
+    private static long parseSequence(final String name) {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
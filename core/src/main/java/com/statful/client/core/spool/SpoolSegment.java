@@ -0,0 +1,211 @@
+package com.statful.client.core.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A memory-mapped segment file of the {@link MetricsSpool}.
+ * <p>
+ * Records are appended one after the other, each starting with its length, followed by its timestamp, the length and
+ * bytes of its URI, and the bytes of its message. The length is written last, so a record interrupted by a crash is
+ * never read, since the rest of the file is zero-filled. Once replayed, a record is marked as consumed by negating its
+ * length, so it isn't replayed again after a restart.
+ * <p>
+ * Instances of this class aren't thread-safe, they are guarded by the spool.
+ */
+final class SpoolSegment {
+
+    static final int HEADER_SIZE = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NO_URI = -1;
+    private static final int TIMESTAMP_OFFSET = 4;
+    private static final int URI_LENGTH_OFFSET = 12;
+
+    private final File file;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+
+    private int writePosition;
+    private int readPosition;
+    private int pendingRecords;
+
+    private SpoolSegment(final File file, final long sequence, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.sequence = sequence;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new segment file.
+     *
+     * @param file The segment file, which must not exist
+     * @param sequence The sequence of the segment in the spool
+     * @param capacity The size of the segment in bytes
+     * @return The new segment
+     * @throws IOException If the file can't be created or mapped
+     */
+    static SpoolSegment create(final File file, final long sequence, final int capacity) throws IOException {
+        return new SpoolSegment(file, sequence, map(file, capacity));
+    }
+
+    /**
+     * Opens an existing segment file, recovering the records that weren't consumed yet.
+     *
+     * @param file The segment file
+     * @param sequence The sequence of the segment in the spool
+     * @return The recovered segment
+     * @throws IOException If the file can't be mapped
+     */
+    static SpoolSegment open(final File file, final long sequence) throws IOException {
+        SpoolSegment segment = new SpoolSegment(file, sequence, map(file, (int) file.length()));
+        segment.recover();
+        return segment;
+    }
+
+    private static MappedByteBuffer map(final File file, final int capacity) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(capacity);
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void recover() {
+        int position = 0;
+        readPosition = -1;
+
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            int recordSize = Math.abs(length);
+
+            if (length == 0 || recordSize < HEADER_SIZE || position + recordSize > buffer.capacity()) {
+                break;
+            }
+
+            if (length > 0) {
+                pendingRecords++;
+                if (readPosition < 0) {
+                    readPosition = position;
+                }
+            }
+            position += recordSize;
+        }
+
+        writePosition = position;
+        if (readPosition < 0) {
+            readPosition = writePosition;
+        }
+    }
+
+    /**
+     * Returns the size of a record.
+     *
+     * @param uri The encoded URI of the record, which can be null
+     * @param message The encoded message of the record
+     * @return The size of the record in bytes
+     */
+    static int recordSize(final byte[] uri, final byte[] message) {
+        return HEADER_SIZE + (uri == null ? 0 : uri.length) + message.length;
+    }
+
+    boolean hasRoomFor(final int recordSize) {
+        return writePosition + recordSize <= buffer.capacity();
+    }
+
+    void append(final long timestamp, final byte[] uri, final byte[] message) {
+        int recordSize = recordSize(uri, message);
+
+        buffer.putLong(writePosition + TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(writePosition + URI_LENGTH_OFFSET, uri == null ? NO_URI : uri.length);
+        buffer.position(writePosition + HEADER_SIZE);
+        if (uri != null) {
+            buffer.put(uri);
+        }
+        buffer.put(message);
+        buffer.putInt(writePosition, recordSize);
+
+        writePosition += recordSize;
+        pendingRecords++;
+    }
+
+    /**
+     * Reads the oldest record that wasn't consumed yet.
+     *
+     * @return The {@link SpooledBatch} of the record, or null when all records were consumed
+     */
+    SpooledBatch peek() {
+        if (readPosition >= writePosition) {
+            return null;
+        }
+
+        int recordSize = buffer.getInt(readPosition);
+        long timestamp = buffer.getLong(readPosition + TIMESTAMP_OFFSET);
+        int uriLength = buffer.getInt(readPosition + URI_LENGTH_OFFSET);
+
+        String uri = null;
+        int messageOffset = readPosition + HEADER_SIZE;
+        if (uriLength != NO_URI) {
+            uri = read(messageOffset, uriLength);
+            messageOffset += uriLength;
+        }
+        String message = read(messageOffset, readPosition + recordSize - messageOffset);
+
+        return new SpooledBatch(message, uri, timestamp, sequence, readPosition);
+    }
+
+    /**
+     * Marks the oldest record that wasn't consumed yet as consumed.
+     */
+    void consume() {
+        int recordSize = buffer.getInt(readPosition);
+        buffer.putInt(readPosition, -recordSize);
+        readPosition += recordSize;
+        pendingRecords--;
+
+        while (readPosition < writePosition && buffer.getInt(readPosition) < 0) {
+            readPosition -= buffer.getInt(readPosition);
+        }
+    }
+
+    boolean isConsumed() {
+        return pendingRecords == 0;
+    }
+
+    int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    int getReadPosition() {
+        return readPosition;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    boolean delete() {
+        return file.delete();
+    }
+
+    private String read(final int offset, final int length) {
+        byte[] bytes = new byte[length];
+        buffer.position(offset);
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
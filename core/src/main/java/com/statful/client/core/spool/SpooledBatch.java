@@ -0,0 +1,52 @@
+package com.statful.client.core.spool;
+
+/**
+ * A batch of metrics read from the {@link MetricsSpool}, to be sent again.
+ */
+public final class SpooledBatch {
+
+    private final String message;
+    private final String uri;
+    private final long timestamp;
+    private final long segment;
+    private final int position;
+
+    SpooledBatch(final String message, final String uri, final long timestamp, final long segment, final int position) {
+        this.message = message;
+        this.uri = uri;
+        this.timestamp = timestamp;
+        this.segment = segment;
+        this.position = position;
+    }
+
+    /**
+     * Returns the metrics of the batch.
+     *
+     * @return The message to send
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the URI to send the batch to.
+     *
+     * @return The URI of aggregated metrics, or null for metrics sent to the default URI
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Returns when the batch was spooled.
+     *
+     * @return The timestamp in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    boolean isAt(final long segmentSequence, final int segmentPosition) {
+        return segment == segmentSequence && position == segmentPosition;
+    }
+}
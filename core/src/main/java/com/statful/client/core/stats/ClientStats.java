@@ -0,0 +1,131 @@
+package com.statful.client.core.stats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * A registry of stats about the client internals, like the depth of the buffers, the metrics dropped or the requests
+ * sent by the transport.
+ * <p>
+ * Components register {@link Gauge}s, usually {@link StripedCounter}s they update as they work, and the stats are only
+ * read when collected, so keeping them costs a striped increment on the hot paths. The stats can be read through
+ * {@link #snapshot()} and published as an MBean with {@link #registerMBean(String)}.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class ClientStats {
+
+    /**
+     * Domain of the object names of the stats MBeans.
+     */
+    public static final String JMX_DOMAIN = "com.statful.client";
+
+    private static final Logger LOGGER = Logger.getLogger(ClientStats.class.getName());
+
+    private final ConcurrentMap<String, Gauge> stats = new ConcurrentHashMap<String, Gauge>();
+
+    private ObjectName objectName;
+
+    /**
+     * Registers a stat, replacing any stat with the same name.
+     *
+     * @param name The name of the stat, like <code>buffer.standard.depth</code>
+     * @param gauge The {@link Gauge} that reads the stat
+     */
+    public void register(final String name, final Gauge gauge) {
+        stats.put(name, gauge);
+    }
+
+    /**
+     * Registers the stats of a component, if it's {@link Instrumented}.
+     *
+     * @param component The component to register the stats of
+     */
+    public void registerAll(final Object component) {
+        if (component instanceof Instrumented) {
+            ((Instrumented) component).registerStats(this);
+        }
+    }
+
+    /**
+     * Reads a stat.
+     *
+     * @param name The name of the stat
+     * @return The value of the stat, or null if there is no stat with that name
+     */
+    public Long get(final String name) {
+        Gauge gauge = stats.get(name);
+        return gauge == null ? null : gauge.getValue();
+    }
+
+    /**
+     * Reads all the stats.
+     *
+     * @return A {@link Map} of the values of the stats, sorted by name
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<String, Long>();
+        for (Map.Entry<String, Gauge> stat : stats.entrySet()) {
+            snapshot.put(stat.getKey(), stat.getValue().getValue());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Publishes the stats as an MBean of the platform MBean server, with an attribute per stat.
+     *
+     * @param name The name of the MBean, unique per client, like the application name
+     * @return True if the MBean was registered
+     */
+    public synchronized boolean registerMBean(final String name) {
+        if (objectName != null) {
+            return true;
+        }
+
+        try {
+            ObjectName mbeanName = new ObjectName(JMX_DOMAIN + ":type=ClientStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new ClientStatsMBean(this), mbeanName);
+            objectName = mbeanName;
+            return true;
+        } catch (JMException e) {
+            LOGGER.warning("Unable to register the client stats MBean: " + e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Removes the stats MBean from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warning("Unable to unregister the client stats MBean: " + e.toString());
+        } finally {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Returns the name of the stats MBean.
+     *
+     * @return The {@link ObjectName} of the MBean, or null if it isn't registered
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+}
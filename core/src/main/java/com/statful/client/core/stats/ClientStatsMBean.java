@@ -0,0 +1,71 @@
+package com.statful.client.core.stats;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only MBean with an attribute per stat of the {@link ClientStats}. The attributes follow the registered
+ * stats, so stats registered after the MBean are published too.
+ */
+final class ClientStatsMBean implements DynamicMBean {
+
+    private final ClientStats stats;
+
+    ClientStatsMBean(final ClientStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        Long value = stats.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("Unknown stat: " + attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Stats are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Long value = stats.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String name : stats.snapshot().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, long.class.getName(), "Statful client stat " + name, true, false, false));
+        }
+
+        return new MBeanInfo(ClientStats.class.getName(), "Stats of the Statful client internals",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+}
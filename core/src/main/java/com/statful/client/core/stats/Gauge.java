@@ -0,0 +1,14 @@
+package com.statful.client.core.stats;
+
+/**
+ * A value of the client internals, read when the {@link ClientStats} are collected.
+ */
+public interface Gauge {
+
+    /**
+     * Returns the current value.
+     *
+     * @return The value as a long
+     */
+    long getValue();
+}
@@ -0,0 +1,14 @@
+package com.statful.client.core.stats;
+
+/**
+ * Interface of the client components that publish stats about themselves to the {@link ClientStats}.
+ */
+public interface Instrumented {
+
+    /**
+     * Registers the stats of this component.
+     *
+     * @param stats The {@link ClientStats} to register the stats in
+     */
+    void registerStats(ClientStats stats);
+}
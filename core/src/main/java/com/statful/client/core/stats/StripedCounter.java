@@ -0,0 +1,72 @@
+package com.statful.client.core.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over a stripe of cells, so that threads counting concurrently don't contend on the same memory.
+ * <p>
+ * Each thread adds to the cell picked by a hash of its id, and the cells are a cache line apart, so a counter
+ * incremented on every metric by many threads doesn't bounce a single cache line between cores as an
+ * {@link java.util.concurrent.atomic.AtomicLong} would. Reading the counter sums the cells, so it is cheap to update and
+ * comparatively expensive to read, which suits stats that are read every few seconds.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class StripedCounter implements Gauge {
+
+    private static final int CELL_PADDING = 8;
+    private static final int MAX_STRIPES = 64;
+    private static final int LONG_BITS = 64;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+    private static final int HASH_SHIFT = LONG_BITS - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_PADDING);
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Adds a value to the counter.
+     *
+     * @param value The value to add
+     */
+    public void add(final long value) {
+        cells.getAndAdd(cell(), value);
+    }
+
+    /**
+     * Returns the sum of the counter. Concurrent updates may or may not be included.
+     *
+     * @return The sum of the values added
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += CELL_PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public long getValue() {
+        return sum();
+    }
+
+    private static int cell() {
+        return (int) ((Thread.currentThread().getId() * HASH_MULTIPLIER) >>> HASH_SHIFT) * CELL_PADDING;
+    }
+
+    private static int stripes(final int processors) {
+        int stripes = 2;
+        while (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,21 @@
+package com.statful.client.core.transport;
+
+/**
+ * Outcome of sending a message through a {@link ReportingTransportSender}.
+ */
+public enum DeliveryStatus {
+    /**
+     * The message was delivered.
+     */
+    DELIVERED,
+
+    /**
+     * The message wasn't delivered, but could be if sent again, for example after an I/O error or a server error.
+     */
+    FAILED,
+
+    /**
+     * The message was rejected, and would be rejected again if sent again.
+     */
+    REJECTED
+}
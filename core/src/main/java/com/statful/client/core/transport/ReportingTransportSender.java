@@ -0,0 +1,25 @@
+package com.statful.client.core.transport;
+
+/**
+ * A {@link TransportSender} that reports if messages were delivered, so that undelivered messages can be kept and sent
+ * again later.
+ */
+public interface ReportingTransportSender extends TransportSender {
+
+    /**
+     * Send messages using the underlying transport protocol, reporting if they were delivered.
+     *
+     * @param message The message to send
+     * @return The {@link DeliveryStatus} of the message
+     */
+    DeliveryStatus trySend(String message);
+
+    /**
+     * Send messages to a particular uri using the underlying transport protocol, reporting if they were delivered.
+     *
+     * @param message The message to send
+     * @param uri The uri to send messages to
+     * @return The {@link DeliveryStatus} of the message
+     */
+    DeliveryStatus trySend(String message, String uri);
+}
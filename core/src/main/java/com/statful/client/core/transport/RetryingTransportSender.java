@@ -0,0 +1,335 @@
+package com.statful.client.core.transport;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ReportingTransportSender} that retries failed messages and stops sending while the endpoint is unhealthy.
+ * <p>
+ * Messages that {@link DeliveryStatus#FAILED} are sent again up to a maximum number of retries, waiting a random time
+ * between zero and an exponentially growing backoff before each retry, so that clients don't retry in lockstep.
+ * <p>
+ * Consecutive failed messages, after their retries, open a circuit breaker. While open, messages fail immediately
+ * without reaching the endpoint, so that an unhealthy endpoint doesn't hold the workers for a timeout on every flush.
+ * Once the open time has passed, the breaker is half-open and lets a single message through: if it's delivered the
+ * breaker closes, otherwise it opens again.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public class RetryingTransportSender implements ReportingTransportSender, Instrumented {
+
+    /**
+     * States of the circuit breaker.
+     */
+    public enum CircuitState {
+        /**
+         * Messages are sent to the endpoint.
+         */
+        CLOSED,
+
+        /**
+         * Messages fail without being sent to the endpoint.
+         */
+        OPEN,
+
+        /**
+         * A single message is sent to the endpoint to check if it recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Source of time for the breaker and the backoff, which tests can replace.
+     */
+    interface Clock {
+        /**
+         * Returns the current time.
+         *
+         * @return The current time in milliseconds
+         */
+        long currentTimeMillis();
+
+        /**
+         * Waits before a retry.
+         *
+         * @param millis The time to wait in milliseconds
+         * @return False if the thread was interrupted
+         */
+        boolean sleep(long millis);
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public boolean sleep(final long millis) {
+            try {
+                Thread.sleep(millis);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    };
+
+    private static final Logger LOGGER = Logger.getLogger(RetryingTransportSender.class.getName());
+
+    private static final long MAX_BACKOFF_MS = 10000;
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ReportingTransportSender transportSender;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private final AtomicReference<CircuitState> state = new AtomicReference<CircuitState>(CircuitState.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong shortCircuitedMessages = new AtomicLong();
+    private final AtomicLong circuitOpenings = new AtomicLong();
+    private final AtomicLong circuitHalfOpenings = new AtomicLong();
+    private final AtomicLong circuitClosings = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param transportSender The {@link ReportingTransportSender} to decorate
+     * @param maxRetries The maximum number of retries of a failed message
+     * @param backoffMillis The backoff before the first retry in milliseconds, which doubles for every retry
+     * @param failureThreshold The number of consecutive failed messages that opens the breaker, or zero to never open it
+     * @param openMillis The time the breaker stays open in milliseconds
+     */
+    public RetryingTransportSender(final ReportingTransportSender transportSender, final int maxRetries,
+                                   final long backoffMillis, final int failureThreshold, final long openMillis) {
+        this(transportSender, maxRetries, backoffMillis, failureThreshold, openMillis, SYSTEM_CLOCK);
+    }
+
+    RetryingTransportSender(final ReportingTransportSender transportSender, final int maxRetries, final long backoffMillis,
+                            final int failureThreshold, final long openMillis, final Clock clock) {
+        this.transportSender = transportSender;
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public final void send(final String message) {
+        deliver(message, null);
+    }
+
+    @Override
+    public final void send(final String message, final String uri) {
+        deliver(message, uri);
+    }
+
+    @Override
+    public final DeliveryStatus trySend(final String message) {
+        return deliver(message, null);
+    }
+
+    @Override
+    public final DeliveryStatus trySend(final String message, final String uri) {
+        return deliver(message, uri);
+    }
+
+    @Override
+    public final void shutdown() {
+        transportSender.shutdown();
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("transport.retries", new Gauge() {
+            @Override
+            public long getValue() {
+                return getRetries();
+            }
+        });
+        stats.register("transport.short_circuited", new Gauge() {
+            @Override
+            public long getValue() {
+                return getShortCircuitedMessages();
+            }
+        });
+        stats.register("transport.circuit.openings", new Gauge() {
+            @Override
+            public long getValue() {
+                return getCircuitOpenings();
+            }
+        });
+        stats.register("transport.circuit.half_openings", new Gauge() {
+            @Override
+            public long getValue() {
+                return getCircuitHalfOpenings();
+            }
+        });
+        stats.register("transport.circuit.closings", new Gauge() {
+            @Override
+            public long getValue() {
+                return getCircuitClosings();
+            }
+        });
+        stats.register("transport.circuit.state", new Gauge() {
+            @Override
+            public long getValue() {
+                return getCircuitState().ordinal();
+            }
+        });
+        stats.registerAll(transportSender);
+    }
+
+    private DeliveryStatus deliver(final String message, final String uri) {
+        CircuitState requestState = acquire();
+        if (requestState == CircuitState.OPEN) {
+            shortCircuitedMessages.incrementAndGet();
+            return DeliveryStatus.FAILED;
+        }
+
+        DeliveryStatus status = attempt(message, uri);
+
+        if (requestState == CircuitState.CLOSED) {
+            for (int retry = 0; status == DeliveryStatus.FAILED && retry < maxRetries; retry++) {
+                if (!clock.sleep(backoff(retry))) {
+                    break;
+                }
+                retries.incrementAndGet();
+                status = attempt(message, uri);
+            }
+        }
+
+        release(requestState, status);
+        return status;
+    }
+
+    private DeliveryStatus attempt(final String message, final String uri) {
+        try {
+            return uri == null ? transportSender.trySend(message) : transportSender.trySend(message, uri);
+        } catch (RuntimeException e) {
+            LOGGER.warning("Unable to send metric: " + e.toString());
+            return DeliveryStatus.FAILED;
+        }
+    }
+
+    /**
+     * Checks if a message can be sent, moving an open breaker to half-open once the open time has passed.
+     *
+     * @return {@link CircuitState#OPEN} if the message must not be sent, or the state it's sent in
+     */
+    private CircuitState acquire() {
+        CircuitState current = state.get();
+
+        if (current == CircuitState.CLOSED) {
+            return CircuitState.CLOSED;
+        }
+
+        if (current == CircuitState.OPEN && clock.currentTimeMillis() - openedAt >= openMillis
+                && state.compareAndSet(CircuitState.OPEN, CircuitState.HALF_OPEN)) {
+            circuitHalfOpenings.incrementAndGet();
+            LOGGER.info("Circuit breaker half-open, checking if the endpoint recovered.");
+            return CircuitState.HALF_OPEN;
+        }
+
+        return CircuitState.OPEN;
+    }
+
+    private void release(final CircuitState requestState, final DeliveryStatus status) {
+        if (status != DeliveryStatus.FAILED) {
+            consecutiveFailures.set(0);
+            if (requestState == CircuitState.HALF_OPEN && state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.CLOSED)) {
+                circuitClosings.incrementAndGet();
+                LOGGER.info("Circuit breaker closed, the endpoint recovered.");
+            }
+        } else if (requestState == CircuitState.HALF_OPEN) {
+            open(CircuitState.HALF_OPEN);
+        } else if (failureThreshold > 0 && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(CircuitState.CLOSED);
+        }
+    }
+
+    private void open(final CircuitState from) {
+        if (state.get() == from) {
+            openedAt = clock.currentTimeMillis();
+        }
+        if (state.compareAndSet(from, CircuitState.OPEN)) {
+            consecutiveFailures.set(0);
+            circuitOpenings.incrementAndGet();
+            LOGGER.warning("Circuit breaker open, metrics won't be sent for " + openMillis + " ms.");
+        }
+    }
+
+    private long backoff(final int retry) {
+        long maxBackoff = Math.min(MAX_BACKOFF_MS, backoffMillis << Math.min(retry, MAX_BACKOFF_SHIFT));
+        return maxBackoff > 0 ? ThreadLocalRandom.current().nextLong(maxBackoff + 1) : 0;
+    }
+
+    /**
+     * Returns the state of the circuit breaker.
+     *
+     * @return The {@link CircuitState} of the breaker
+     */
+    public final CircuitState getCircuitState() {
+        return state.get();
+    }
+
+    /**
+     * Returns the number of retries of failed messages.
+     *
+     * @return The number of retries
+     */
+    public final long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Returns the number of messages that failed without being sent, because the breaker was open.
+     *
+     * @return The number of short-circuited messages
+     */
+    public final long getShortCircuitedMessages() {
+        return shortCircuitedMessages.get();
+    }
+
+    /**
+     * Returns the number of times the breaker opened.
+     *
+     * @return The number of openings
+     */
+    public final long getCircuitOpenings() {
+        return circuitOpenings.get();
+    }
+
+    /**
+     * Returns the number of times the breaker moved from open to half-open.
+     *
+     * @return The number of half-openings
+     */
+    public final long getCircuitHalfOpenings() {
+        return circuitHalfOpenings.get();
+    }
+
+    /**
+     * Returns the number of times the breaker closed after being half-open.
+     *
+     * @return The number of closings
+     */
+    public final long getCircuitClosings() {
+        return circuitClosings.get();
+    }
+}
@@ -1,17 +1,22 @@
 package com.statful.client.core;
 
+import com.statful.client.core.sender.EncodedMetricsSender;
+import com.statful.client.core.sender.EncodedSeries;
 import com.statful.client.domain.api.*;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.Collection;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
@@ -26,7 +31,7 @@ public class StatfulClientImplTest {
     private ClientConfiguration configuration;
 
     @Mock
-    private MetricsSender metricsSender;
+    private PrimitiveMetricsSender metricsSender;
 
     private StatfulClientImpl subject;
 
@@ -48,6 +53,27 @@ public class StatfulClientImplTest {
         subject = new StatfulClientImpl(metricsSender, configuration);
     }
 
+    @Test
+    public void shouldRecycleBuildersWhenEnabled() {
+        // Given
+        when(configuration.isBuilderRecyclingEnabled()).thenReturn(true);
+        StatfulClientImpl subject = new StatfulClientImpl(metricsSender, configuration);
+
+        // When
+        SenderFacade first = subject.timer("response_time", 1000);
+        first.with().tag("host", "localhost").send();
+        SenderFacade second = subject.counter("transactions");
+        second.send();
+
+        // Then
+        assertSame("Should reuse the builder once sent", first, second);
+        ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), tagsArg.capture(), any(Aggregations.class),
+                eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        assertNull("Should not keep the tags of the previous metric", tagsArg.getValue());
+        assertEquals("Should not change the default timer tags", 1, configuration.getTimerTags().getTags().size());
+    }
+
     @Test
     public void shouldSendTimerMetric() {
         // When
@@ -57,7 +83,7 @@ public class StatfulClientImplTest {
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         shouldContainDefaultTimerTags(tagsArg.getValue());
@@ -74,7 +100,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).aggregatedPut(eq("timer.response_time"), eq("1000"), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_300), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("timer.response_time"), eq(1000L), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_300), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         shouldContainDefaultTimerTags(tagsArg.getValue());
@@ -88,7 +114,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         Tags tags = tagsArg.getValue();
@@ -107,7 +133,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         assertNotNull("Aggregations should not be null", aggrArg.getValue());
@@ -128,7 +154,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<AggregationFrequency> aggrFreqArg = ArgumentCaptor.forClass(AggregationFrequency.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
 
         assertNotNull("Aggregation frequency should not be null", aggrFreqArg.getValue());
         Assert.assertEquals("Aggregation frequency should be 5", AggregationFrequency.FREQ_120, aggrFreqArg.getValue());
@@ -142,7 +168,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<String> namespaceArg = ArgumentCaptor.forClass(String.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
 
         assertEquals("Namespace should be 'client'", "client", namespaceArg.getValue());
     }
@@ -155,7 +181,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("counter.transactions"), eq("1"), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         shouldContainDefaultCounterAggregations(aggrArg.getValue());
@@ -169,7 +195,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).put(eq("counter.transactions"), eq("1"), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         Tags tags = tagsArg.getValue();
@@ -186,7 +212,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("counter.transactions"), eq("1"), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         assertNotNull("Aggregations should not be null", aggrArg.getValue());
@@ -206,7 +232,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<AggregationFrequency> aggrFreqArg = ArgumentCaptor.forClass(AggregationFrequency.class);
 
-        verify(metricsSender).put(eq("counter.transactions"), eq("1"), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
 
         assertNotNull("Aggregation frequency should not be null", aggrFreqArg.getValue());
         Assert.assertEquals("Aggregation frequency should be 5", AggregationFrequency.FREQ_120, aggrFreqArg.getValue());
@@ -220,7 +246,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<String> namespaceArg = ArgumentCaptor.forClass(String.class);
 
-        verify(metricsSender).put(eq("counter.transactions"), eq("1"), isNull(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(1L), isNull(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
 
         assertEquals("Namespace should be 'client'", "client", namespaceArg.getValue());
     }
@@ -231,7 +257,7 @@ public class StatfulClientImplTest {
         subject.counter("transactions", 2).send();
 
         // Then
-        verify(metricsSender).put(eq("counter.transactions"), eq("2"), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("counter.transactions"), eq(2L), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -240,7 +266,7 @@ public class StatfulClientImplTest {
         subject.aggregatedCounter("transactions", 2, Aggregation.SUM, AggregationFrequency.FREQ_120).send();
 
         // Then
-        verify(metricsSender).aggregatedPut(eq("counter.transactions"), eq("2"), any(Tags.class), eq(Aggregation.SUM), eq(AggregationFrequency.FREQ_120), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("counter.transactions"), eq(2L), any(Tags.class), eq(Aggregation.SUM), eq(AggregationFrequency.FREQ_120), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -251,7 +277,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         shouldContainDefaultGaugeAggregations(aggrArg.getValue());
@@ -263,7 +289,7 @@ public class StatfulClientImplTest {
         subject.aggregatedGauge("current_sessions", 2, Aggregation.FIRST, AggregationFrequency.FREQ_10).send();
 
         // Then
-        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq(2L), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -274,7 +300,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         shouldContainDefaultGaugeAggregations(aggrArg.getValue());
@@ -286,7 +312,7 @@ public class StatfulClientImplTest {
         subject.aggregatedGauge("current_sessions", 2L, Aggregation.FIRST, AggregationFrequency.FREQ_10).send();
 
         // Then
-        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq(2L), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -297,7 +323,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2.2"), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2.2), isNull(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         shouldContainDefaultGaugeAggregations(aggrArg.getValue());
@@ -309,7 +335,7 @@ public class StatfulClientImplTest {
         subject.aggregatedGauge("current_sessions", 2.2, Aggregation.FIRST, AggregationFrequency.FREQ_10).send();
 
         // Then
-        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq("2.2"), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("gauge.current_sessions"), eq(2.2), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -343,7 +369,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         Tags tags = tagsArg.getValue();
@@ -360,7 +386,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         assertNotNull("Aggregations should not be null", aggrArg.getValue());
@@ -380,7 +406,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<AggregationFrequency> aggrFreqArg = ArgumentCaptor.forClass(AggregationFrequency.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
 
         assertNotNull("Aggregation frequency should not be null", aggrFreqArg.getValue());
         Assert.assertEquals("Aggregation frequency should be 5", AggregationFrequency.FREQ_120, aggrFreqArg.getValue());
@@ -394,7 +420,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<String> namespaceArg = ArgumentCaptor.forClass(String.class);
 
-        verify(metricsSender).put(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
+        verify(metricsSender).put(eq("gauge.current_sessions"), eq(2L), isNull(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
 
         assertEquals("Namespace should be 'client'", "client", namespaceArg.getValue());
     }
@@ -407,7 +433,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).aggregatedPut(eq("response_time"), eq("1000"), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("response_time"), eq(1000L), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -418,7 +444,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).aggregatedPut(eq("response_time"), eq("1000"), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("response_time"), eq(1000L), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -440,7 +466,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).aggregatedPut(eq("response_time"), eq("1000.0"), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).aggregatedPut(eq("response_time"), eq(1000D), tagsArg.capture(), eq(Aggregation.AVG), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -452,7 +478,7 @@ public class StatfulClientImplTest {
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -464,7 +490,7 @@ public class StatfulClientImplTest {
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -488,7 +514,7 @@ public class StatfulClientImplTest {
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000.0"), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000D), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
     }
 
     @Test
@@ -499,7 +525,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         Tags tags = tagsArg.getValue();
@@ -517,7 +543,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), any(Tags.class), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have aggregations
         assertNotNull("Aggregations should not be null", aggrArg.getValue());
@@ -535,7 +561,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<AggregationFrequency> aggrFreqArg = ArgumentCaptor.forClass(AggregationFrequency.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), any(Tags.class), any(Aggregations.class), aggrFreqArg.capture(), eq(10), eq("application"), anyLong());
 
         assertNotNull("Aggregation frequency should not be null", aggrFreqArg.getValue());
         Assert.assertEquals("Aggregation frequency should be 5", AggregationFrequency.FREQ_120, aggrFreqArg.getValue());
@@ -549,7 +575,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<String> namespaceArg = ArgumentCaptor.forClass(String.class);
 
-        verify(metricsSender).put(eq("response_time"), eq("1000"), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
+        verify(metricsSender).put(eq("response_time"), eq(1000L), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), namespaceArg.capture(), anyLong());
 
         assertEquals("Namespace should be 'client'", "client", namespaceArg.getValue());
     }
@@ -586,7 +612,7 @@ public class StatfulClientImplTest {
     @Test
     public void shouldNeverThrowExceptionWhenRegisteringCounter() {
         // Given
-        doThrow(new NullPointerException()).when(metricsSender).put(anyString(), anyString(), any(Tags.class), any(Aggregations.class), any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+        doThrow(new NullPointerException()).when(metricsSender).put(anyString(), anyLong(), any(Tags.class), any(Aggregations.class), any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
 
         // When
         subject.counter("transactions").send();
@@ -614,7 +640,7 @@ public class StatfulClientImplTest {
         // Then
         ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
 
-        verify(metricsSender).put(eq("timer.response_time"), eq("1000"), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(1000L), tagsArg.capture(), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
 
         // Then it should have tags
         Tags tags = tagsArg.getValue();
@@ -666,6 +692,112 @@ public class StatfulClientImplTest {
         shouldContainDefaultTimerTags(tagsArg.getValue());
     }
 
+    @Test
+    public void shouldSendNumericValuesAsStringsToPlainMetricsSender() {
+        // Given
+        MetricsSender plainMetricsSender = mock(MetricsSender.class);
+        StatfulClientImpl subject = new StatfulClientImpl(plainMetricsSender, configuration);
+
+        // When
+        subject.gauge("current_sessions", 2L).send();
+        subject.aggregatedGauge("current_sessions", 2.2, Aggregation.FIRST, AggregationFrequency.FREQ_10).send();
+        subject.timerHandle("response_time", null).record(200);
+
+        // Then
+        verify(plainMetricsSender).put(eq("gauge.current_sessions"), eq("2"), isNull(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(plainMetricsSender).aggregatedPut(eq("gauge.current_sessions"), eq("2.2"), isNull(Tags.class), eq(Aggregation.FIRST), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(plainMetricsSender).put(eq("timer.response_time"), eq("200"), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+    }
+
+    @Test
+    public void shouldRecordTimerHandle() {
+        // Given
+        MetricHandle handle = subject.timerHandle("response_time", Tags.from("cluster", "prod"));
+
+        // When
+        handle.record(200);
+        handle.record(0.5);
+
+        // Then
+        ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
+        ArgumentCaptor<Aggregations> aggrArg = ArgumentCaptor.forClass(Aggregations.class);
+
+        verify(metricsSender).put(eq("timer.response_time"), eq(200L), tagsArg.capture(), aggrArg.capture(), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+        verify(metricsSender).put(eq("timer.response_time"), eq(0.5), any(Tags.class), any(Aggregations.class), eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+
+        // Then it should have tags
+        Tags tags = tagsArg.getValue();
+        assertEquals("Should contain 2 tags", 2, tags.getTags().size());
+        assertEquals("Should contain unit tag", "ms", tags.getTagValue("unit"));
+        assertEquals("Should contain cluster tag", "prod", tags.getTagValue("cluster"));
+
+        // Then it should have aggregations
+        shouldContainDefaultTimerAggregations(aggrArg.getValue());
+    }
+
+    @Test
+    public void shouldRecordHandlesWithEncodedPrefix() {
+        // Given
+        PrimitiveMetricsSender encodedMetricsSender = mock(PrimitiveMetricsSender.class, withSettings().extraInterfaces(EncodedMetricsSender.class));
+        EncodedMetricsSender sender = (EncodedMetricsSender) encodedMetricsSender;
+        when(sender.encodeSeries(anyString(), any(Tags.class), anyString())).thenAnswer(new Answer<EncodedSeries>() {
+            @Override
+            public EncodedSeries answer(final InvocationOnMock invocation) {
+                Object[] arguments = invocation.getArguments();
+                return new EncodedSeries((String) arguments[0], (Tags) arguments[1], (String) arguments[2]);
+            }
+        });
+        StatfulClientImpl subject = new StatfulClientImpl(encodedMetricsSender, configuration);
+
+        Tags tags = Tags.from("host", "localhost");
+        MetricHandle gauge = subject.gaugeHandle("current_sessions", tags);
+        CounterHandle counter = subject.counterHandle("transactions", null);
+
+        // When
+        tags.putTag("host", "changed");
+        gauge.record(2);
+        gauge.record(2.5);
+        counter.inc();
+
+        // Then
+        ArgumentCaptor<EncodedSeries> gaugeSeries = ArgumentCaptor.forClass(EncodedSeries.class);
+        ArgumentCaptor<EncodedSeries> counterSeries = ArgumentCaptor.forClass(EncodedSeries.class);
+        verify(sender).putEncoded(gaugeSeries.capture(), eq(2L), eq(" last,10 10"), eq(10), anyLong());
+        verify(sender).putEncoded(same(gaugeSeries.getValue()), eq(2.5), eq(" last,10 10"), eq(10), anyLong());
+        verify(sender).putEncoded(counterSeries.capture(), eq(1L), anyString(), eq(10), anyLong());
+        assertEquals("application.gauge.current_sessions,host=localhost", gaugeSeries.getValue().getPrefix());
+        assertEquals("application.counter.transactions", counterSeries.getValue().getPrefix());
+        verify(encodedMetricsSender, never()).put(anyString(), anyLong(), any(Tags.class), any(Aggregations.class),
+                any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+    }
+
+    @Test
+    public void shouldNotRecordHandlesWhenDisabled() {
+        // Given
+        CounterHandle handle = subject.counterHandle("transactions", null);
+
+        // When
+        subject.disable();
+        handle.inc();
+        subject.enable();
+        handle.inc();
+
+        // Then
+        verify(metricsSender, times(1)).put(eq("counter.transactions"), eq(1L), isNull(Tags.class), any(Aggregations.class),
+                eq(AggregationFrequency.FREQ_10), eq(10), eq("application"), anyLong());
+    }
+
+    @Test
+    public void shouldNeverThrowExceptionWhenRecordingHandles() {
+        // Given
+        doThrow(new NullPointerException()).when(metricsSender).put(anyString(), anyLong(), any(Tags.class), any(Aggregations.class), any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+        doThrow(new NullPointerException()).when(metricsSender).put(anyString(), anyDouble(), any(Tags.class), any(Aggregations.class), any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+
+        // When
+        subject.timerHandle("response_time", null).record(1000);
+        subject.timerHandle("response_time", null).record(0.5);
+    }
+
     @Test
     public void shouldShutdownClient() {
         // Given
@@ -688,7 +820,7 @@ public class StatfulClientImplTest {
         subject.timer("response_time", 1000).send();
 
         // Then
-        verify(metricsSender, times(2)).put(anyString(), anyString(), any(Tags.class), any(Aggregations.class),
+        verify(metricsSender, times(2)).put(anyString(), anyLong(), any(Tags.class), any(Aggregations.class),
                 any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
     }
 
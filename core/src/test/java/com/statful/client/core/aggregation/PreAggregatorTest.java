@@ -0,0 +1,243 @@
+package com.statful.client.core.aggregation;
+
+import com.statful.client.core.buffer.AggregatedBuffer;
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Tags;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.statful.client.domain.api.Aggregation.*;
+import static com.statful.client.domain.api.AggregationFrequency.FREQ_10;
+import static com.statful.client.domain.api.AggregationFrequency.FREQ_60;
+import static org.junit.Assert.*;
+
+public class PreAggregatorTest {
+
+    private static final String NAMESPACE = "application";
+    private static final long TIMESTAMP = 1000;
+
+    private PreAggregator subject;
+    private AggregatedBuffer buffer;
+
+    @Before
+    public void before() {
+        subject = new PreAggregator();
+        buffer = new AggregatedBuffer(100, 100);
+    }
+
+    @Test
+    public void shouldAggregateSamplesOfAWindow() {
+        assertEquals("Should average", "application.metric 2 1000 100", aggregate(AVG, "1", "2", "3"));
+        assertEquals("Should count", "application.metric 3 1000 100", aggregate(COUNT, "1", "2", "3"));
+        assertEquals("Should sum", "application.metric 6.5 1000 100", aggregate(SUM, "1", "2.5", "3"));
+        assertEquals("Should keep the minimum", "application.metric -1 1000 100", aggregate(MIN, "1", "-1", "3"));
+        assertEquals("Should keep the maximum", "application.metric 3 1000 100", aggregate(MAX, "1", "-1", "3"));
+        assertEquals("Should keep the first", "application.metric 1 1000 100", aggregate(FIRST, "1", "-1", "3"));
+        assertEquals("Should keep the last", "application.metric 3 1000 100", aggregate(LAST, "1", "-1", "3"));
+    }
+
+    @Test
+    public void shouldNotSupportPercentiles() {
+        // When
+        boolean recorded = subject.record("metric", "1", null, P90, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+
+        // Then
+        assertFalse("Should not record percentiles", recorded);
+        assertFalse("Should not support p90", PreAggregator.isSupported(P90));
+        assertFalse("Should not support p95", PreAggregator.isSupported(P95));
+        assertEquals("Should not have series", 0, subject.getSeriesCount());
+    }
+
+    @Test
+    public void shouldNotRecordNonNumericValues() {
+        assertFalse("Should not record text", subject.record("metric", "text", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP));
+        assertFalse("Should not record null", subject.record("metric", (String) null, null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP));
+        assertFalse("Should not record NaN", subject.record("metric", Double.NaN, null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP));
+        assertEquals("Should not have series", 0, subject.getSeriesCount());
+    }
+
+    @Test
+    public void shouldKeepSeriesApartByTagsAndAggregation() {
+        // Given
+        subject.record("metric", "1", Tags.from("host", "a"), SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+        subject.record("metric", "2", Tags.from("host", "a"), SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+        subject.record("metric", "5", Tags.from("host", "b"), SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+        subject.record("metric", "5", Tags.from("host", "a"), COUNT, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+
+        // When
+        subject.collectAll(buffer);
+
+        // Then
+        assertEquals("Should drop the collected series", 0, subject.getSeriesCount());
+        String sums = buffer.readBuffer(SUM, FREQ_10);
+        assertTrue("Should sum host a", sums.contains("application.metric,host=a 3 1000 100\n"));
+        assertTrue("Should sum host b", sums.contains("application.metric,host=b 5 1000 100\n"));
+        assertEquals("Should count host a", "application.metric,host=a 1 1000 100\n", buffer.readBuffer(COUNT, FREQ_10));
+    }
+
+    @Test
+    public void shouldNotShareTagsWithCaller() {
+        // Given
+        Tags tags = Tags.from("host", "a");
+        subject.record("metric", "1", tags, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+
+        // When
+        tags.putTag("host", "b");
+        subject.collectAll(buffer);
+
+        // Then
+        assertEquals("Should keep the original tags", "application.metric,host=a 1 1000 100\n", buffer.readBuffer(SUM, FREQ_10));
+    }
+
+    @Test
+    public void shouldAlignWindowsToFrequency() {
+        // Given
+        subject.record("metric", "1", null, SUM, FREQ_60, 100, NAMESPACE, 1020);
+        subject.record("metric", "2", null, SUM, FREQ_60, 100, NAMESPACE, 1079);
+
+        // When
+        subject.collect(1080, buffer);
+
+        // Then
+        assertEquals("Should emit the window starting at 1020", "application.metric 3 1020 100\n", buffer.readBuffer(SUM, FREQ_60));
+    }
+
+    @Test
+    public void shouldNotCollectWindowsBeforeTheyEnd() {
+        // Given
+        subject.record("metric", "1", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+
+        // When
+        assertFalse("Should not be time to collect", subject.isTimeToCollect(TIMESTAMP + 9));
+        subject.collect(TIMESTAMP + 9, buffer);
+
+        // Then
+        assertEquals("Should not emit an open window", "", buffer.readBuffer(SUM, FREQ_10));
+        assertEquals("Should keep the series", 1, subject.getSeriesCount());
+
+        // And then
+        assertTrue("Should be time to collect", subject.isTimeToCollect(TIMESTAMP + 10));
+        subject.collect(TIMESTAMP + 10, buffer);
+        assertEquals("Should emit the ended window", "application.metric 1 1000 100\n", buffer.readBuffer(SUM, FREQ_10));
+        assertEquals("Should drop the series", 0, subject.getSeriesCount());
+    }
+
+    @Test
+    public void shouldCloseWindowWhenSamplesOfNextWindowArrive() {
+        // Given
+        subject.record("metric", "1", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+        subject.record("metric", "2", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP + 10);
+
+        // When
+        subject.collect(TIMESTAMP + 10, buffer);
+
+        // Then
+        assertEquals("Should emit only the previous window", "application.metric 1 1000 100\n", buffer.readBuffer(SUM, FREQ_10));
+        assertEquals("Should keep the new window", 1, subject.getSeriesCount());
+    }
+
+    @Test
+    public void shouldReportLinesThatDoNotFitInTheBuffer() {
+        // Given
+        AggregatedBuffer smallBuffer = new AggregatedBuffer(1, 1);
+        subject.record("metric0", "1", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+        subject.record("metric1", "1", null, SUM, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+
+        // When
+        int rejected = subject.collectAll(smallBuffer);
+
+        // Then
+        assertEquals("Should reject one line", 1, rejected);
+    }
+
+    @Test
+    public void shouldNotLoseSamplesWhenCollectingConcurrently() throws Exception {
+        // Given
+        final int threads = 8;
+        final int samples = 20000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < samples; j++) {
+                        subject.record("metric", 1, null, COUNT, FREQ_10, 100, NAMESPACE, TIMESTAMP);
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+
+        // When
+        long total = 0;
+        AggregatedBuffer bigBuffer = new AggregatedBuffer(100000, 100000);
+        while (latch.getCount() > 0) {
+            subject.collectAll(bigBuffer);
+        }
+        subject.collectAll(bigBuffer);
+        executor.shutdown();
+        assertTrue("Should finish", executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (String line : bigBuffer.readBuffer(COUNT, FREQ_10).split("\n")) {
+            total += Long.parseLong(line.split(" ")[1]);
+        }
+
+        // Then
+        assertEquals("Should count every sample", threads * samples, total);
+    }
+
+    @Test
+    public void shouldCollectWindowOpenedWhileCollecting() {
+        // Given a collect that runs between a window being created and being inserted
+        ConcurrentMap<SeriesKey, AggregationWindow> windows = new ConcurrentHashMap<SeriesKey, AggregationWindow>() {
+            @Override
+            public AggregationWindow putIfAbsent(final SeriesKey key, final AggregationWindow value) {
+                if ("late".equals(key.getName())) {
+                    subject.collect(10, buffer);
+                }
+                return super.putIfAbsent(key, value);
+            }
+        };
+        subject = new PreAggregator(windows);
+        subject.record("early", 1, null, COUNT, FREQ_10, 100, NAMESPACE, 5);
+
+        // When
+        subject.record("late", 1, null, COUNT, FREQ_10, 100, NAMESPACE, 15);
+
+        // Then
+        assertEquals("Should collect the window that ended", "application.early 1 0 100\n", buffer.readBuffer(COUNT, FREQ_10));
+        assertTrue("Should keep the end of the window inserted while collecting", subject.isTimeToCollect(20));
+        subject.collect(20, buffer);
+        assertEquals("Should collect the window inserted while collecting", "application.late 1 10 100\n",
+                buffer.readBuffer(COUNT, FREQ_10));
+    }
+
+    @Test
+    public void shouldFormatValues() {
+        assertEquals("Should format integral values", "3", PreAggregator.formatValue(3.0));
+        assertEquals("Should format decimal values", "0.25", PreAggregator.formatValue(0.25));
+        assertEquals("Should not use exponents", "10000000000000000", PreAggregator.formatValue(1e16));
+    }
+
+    private String aggregate(final Aggregation aggregation, final String... values) {
+        PreAggregator preAggregator = new PreAggregator();
+        AggregatedBuffer aggregatedBuffer = new AggregatedBuffer(100, 100);
+
+        for (String value : values) {
+            assertTrue("Should record", preAggregator.record("metric", value, null, aggregation, FREQ_10, 100, NAMESPACE, TIMESTAMP));
+        }
+
+        preAggregator.collectAll(aggregatedBuffer);
+        return aggregatedBuffer.readBuffer(aggregation, FREQ_10).trim();
+    }
+}
@@ -1,7 +1,11 @@
 package com.statful.client.core.api;
 
 import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.BufferType;
+import com.statful.client.domain.api.CardinalityPolicy;
 import com.statful.client.domain.api.ClientConfiguration;
+import com.statful.client.domain.api.OverflowPolicy;
+import com.statful.client.domain.api.SamplingStrategy;
 import com.statful.client.domain.api.Tags;
 import org.junit.Test;
 
@@ -12,6 +16,7 @@ import static com.statful.client.core.api.MetricBuilder.*;
 import static com.statful.client.domain.api.Aggregation.*;
 import static com.statful.client.domain.api.AggregationFrequency.FREQ_10;
 import static com.statful.client.domain.api.AggregationFrequency.FREQ_120;
+import static com.statful.client.domain.api.Transport.HTTP;
 import static com.statful.client.domain.api.Transport.UDP;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -164,6 +169,282 @@ public class ConfigurationBuilderTest {
         assertEquals("Should configure socket timeout", 200, config.getSocketTimeoutMillis());
     }
 
+    @Test
+    public void shouldUseBlockingQueueBufferByDefault() {
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .bufferType(null)
+                .buildConfiguration();
+
+        assertEquals("Should use blocking queue buffer", BufferType.BLOCKING_QUEUE, config.getBufferType());
+    }
+
+    @Test
+    public void shouldConfigureBufferType() {
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .bufferType(BufferType.RING_BUFFER)
+                .buildConfiguration();
+
+        assertEquals("Should configure buffer type", BufferType.RING_BUFFER, config.getBufferType());
+    }
+
+    @Test
+    public void shouldConfigurePreAggregation() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .preAggregation(true)
+                .buildConfiguration();
+
+        assertFalse("Should not pre-aggregate by default", defaultConfig.isPreAggregationEnabled());
+        assertTrue("Should configure pre-aggregation", config.isPreAggregationEnabled());
+    }
+
+    @Test
+    public void shouldConfigureNonBlockingUdp() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .nonBlockingUdp(true)
+                .buildConfiguration();
+
+        assertFalse("Should block by default", defaultConfig.isNonBlockingUdp());
+        assertTrue("Should configure non-blocking UDP", config.isNonBlockingUdp());
+    }
+
+    @Test
+    public void shouldConfigureUdpMaxPayloadSize() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .udpMaxPayloadSize(8932)
+                .buildConfiguration();
+
+        assertEquals("Should fit the Ethernet MTU by default", 1432, defaultConfig.getUdpMaxPayloadSize());
+        assertEquals("Should configure the UDP max payload size", 8932, config.getUdpMaxPayloadSize());
+    }
+
+    @Test
+    public void shouldConfigureAsyncHttp() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(HTTP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(HTTP)
+                .asyncHttp(true)
+                .maxInFlightRequests(50)
+                .buildConfiguration();
+
+        assertFalse("Should block by default", defaultConfig.isAsyncHttp());
+        assertEquals("Should keep 20 requests in flight by default", 20, defaultConfig.getMaxInFlightRequests());
+        assertTrue("Should configure async HTTP", config.isAsyncHttp());
+        assertEquals("Should configure the max requests in flight", 50, config.getMaxInFlightRequests());
+    }
+
+    @Test
+    public void shouldConfigureCompression() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(HTTP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(HTTP)
+                .compression(true)
+                .compressionLevel(1)
+                .compressionMinSize(512)
+                .buildConfiguration();
+
+        assertFalse("Should not compress by default", defaultConfig.isCompressionEnabled());
+        assertEquals("Should use level 6 by default", 6, defaultConfig.getCompressionLevel());
+        assertEquals("Should compress from 1024 bytes by default", 1024, defaultConfig.getCompressionMinSize());
+        assertTrue("Should configure compression", config.isCompressionEnabled());
+        assertEquals("Should configure the compression level", 1, config.getCompressionLevel());
+        assertEquals("Should configure the compression min size", 512, config.getCompressionMinSize());
+    }
+
+    @Test
+    public void shouldConfigureSpool() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(HTTP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(HTTP)
+                .spoolDirectory("/var/spool/statful")
+                .spoolMaxBytes(1024)
+                .spoolMaxAge(60000)
+                .buildConfiguration();
+
+        assertNull("Should not spool by default", defaultConfig.getSpoolDirectory());
+        assertEquals("Should have a 64 MB quota by default", 64L * 1024 * 1024, defaultConfig.getSpoolMaxBytes());
+        assertEquals("Should keep batches for an hour by default", 3600000, defaultConfig.getSpoolMaxAgeMillis());
+        assertEquals("Should configure the spool directory", "/var/spool/statful", config.getSpoolDirectory());
+        assertEquals("Should configure the spool quota", 1024, config.getSpoolMaxBytes());
+        assertEquals("Should configure the spool max age", 60000, config.getSpoolMaxAgeMillis());
+    }
+
+    @Test
+    public void shouldConfigureRetriesAndCircuitBreaker() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(HTTP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(HTTP)
+                .maxRetries(3)
+                .retryBackoff(50)
+                .circuitBreakerThreshold(10)
+                .circuitBreakerOpenTime(5000)
+                .buildConfiguration();
+
+        assertEquals("Should retry twice by default", 2, defaultConfig.getMaxRetries());
+        assertEquals("Should back off 100 ms by default", 100, defaultConfig.getRetryBackoffMillis());
+        assertEquals("Should open after 5 failures by default", 5, defaultConfig.getCircuitBreakerThreshold());
+        assertEquals("Should stay open 30 s by default", 30000, defaultConfig.getCircuitBreakerOpenMillis());
+        assertEquals("Should configure the max retries", 3, config.getMaxRetries());
+        assertEquals("Should configure the retry backoff", 50, config.getRetryBackoffMillis());
+        assertEquals("Should configure the breaker threshold", 10, config.getCircuitBreakerThreshold());
+        assertEquals("Should configure the breaker open time", 5000, config.getCircuitBreakerOpenMillis());
+    }
+
+    @Test
+    public void shouldConfigureOverflowPolicy() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .overflowPolicy(null)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .overflowPolicy(OverflowPolicy.BLOCK)
+                .overflowBlockTimeout(50)
+                .buildConfiguration();
+
+        assertEquals("Should drop newest metrics by default", OverflowPolicy.DROP_NEWEST, defaultConfig.getOverflowPolicy());
+        assertEquals("Should block 10 ms by default", 10, defaultConfig.getOverflowBlockTimeoutMillis());
+        assertEquals("Should configure the overflow policy", OverflowPolicy.BLOCK, config.getOverflowPolicy());
+        assertEquals("Should configure the block timeout", 50, config.getOverflowBlockTimeoutMillis());
+    }
+
+    @Test
+    public void shouldConfigureSelfMetricsAndJmx() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .selfMetrics(true)
+                .jmx(true)
+                .buildConfiguration();
+
+        assertFalse("Should not send self metrics by default", defaultConfig.isSelfMetricsEnabled());
+        assertFalse("Should not publish stats through JMX by default", defaultConfig.isJmxEnabled());
+        assertTrue("Should configure self metrics", config.isSelfMetricsEnabled());
+        assertTrue("Should configure JMX", config.isJmxEnabled());
+    }
+
+    @Test
+    public void shouldConfigureShardedBuffer() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .bufferType(BufferType.SHARDED)
+                .bufferShards(4)
+                .buildConfiguration();
+
+        assertEquals("Should use a shard per processor by default", 0, defaultConfig.getBufferShards());
+        assertEquals("Should configure sharded buffer", BufferType.SHARDED, config.getBufferType());
+        assertEquals("Should configure the buffer shards", 4, config.getBufferShards());
+    }
+
+    @Test
+    public void shouldConfigureSamplingStrategy() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .samplingStrategy(null)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .samplingStrategy(SamplingStrategy.CONSISTENT)
+                .buildConfiguration();
+
+        assertEquals("Should sample at random by default", SamplingStrategy.RANDOM, defaultConfig.getSamplingStrategy());
+        assertEquals("Should configure the sampling strategy", SamplingStrategy.CONSISTENT, config.getSamplingStrategy());
+    }
+
+    @Test
+    public void shouldConfigureBuilderRecycling() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .recycleBuilders(true)
+                .buildConfiguration();
+
+        assertFalse("Should not recycle builders by default", defaultConfig.isBuilderRecyclingEnabled());
+        assertTrue("Should configure builder recycling", config.isBuilderRecyclingEnabled());
+    }
+
+    @Test
+    public void shouldConfigureMaxSeries() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .maxSeries(1000)
+                .cardinalityPolicy(CardinalityPolicy.EVICT_IDLE)
+                .buildConfiguration();
+
+        assertEquals("Should not limit the series by default", 0, defaultConfig.getMaxSeries());
+        assertEquals("Should overflow by default", CardinalityPolicy.OVERFLOW, defaultConfig.getCardinalityPolicy());
+        assertEquals("Should configure the max series", 1000, config.getMaxSeries());
+        assertEquals("Should configure the cardinality policy", CardinalityPolicy.EVICT_IDLE, config.getCardinalityPolicy());
+    }
+
+    @Test
+    public void shouldConfigureAdaptiveBatching() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .adaptiveBatching(true)
+                .maxFlushSize(2000)
+                .maxFlushInterval(30000)
+                .buildConfiguration();
+
+        assertFalse("Should not adapt batching by default", defaultConfig.isAdaptiveBatchingEnabled());
+        assertEquals("Should derive the max flush size by default", 0, defaultConfig.getMaxFlushSize());
+        assertEquals("Should derive the max flush interval by default", 0, defaultConfig.getMaxFlushIntervalMillis());
+        assertTrue("Should configure adaptive batching", config.isAdaptiveBatchingEnabled());
+        assertEquals("Should configure the max flush size", 2000, config.getMaxFlushSize());
+        assertEquals("Should configure the max flush interval", 30000, config.getMaxFlushIntervalMillis());
+    }
+
+    @Test
+    public void shouldConfigureBufferCapacityAndMemoryBudget() {
+        ClientConfiguration defaultConfig = newBuilder()
+                .transport(UDP)
+                .buildConfiguration();
+        ClientConfiguration config = newBuilder()
+                .transport(UDP)
+                .bufferCapacity(20000)
+                .memoryBudget(16 * 1024 * 1024)
+                .buildConfiguration();
+
+        assertEquals("Should fit 5000 metrics by default", 5000, defaultConfig.getBufferCapacity());
+        assertEquals("Should not limit the memory by default", 0, defaultConfig.getMemoryBudgetBytes());
+        assertEquals("Should configure the buffer capacity", 20000, config.getBufferCapacity());
+        assertEquals("Should configure the memory budget", 16 * 1024 * 1024, config.getMemoryBudgetBytes());
+    }
+
     @Test
     public void shouldConfigureSecureTransport() {
         ClientConfiguration config = newBuilder()
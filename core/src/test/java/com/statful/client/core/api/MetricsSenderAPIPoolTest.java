@@ -0,0 +1,141 @@
+package com.statful.client.core.api;
+
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.PrimitiveMetricsSender;
+import com.statful.client.domain.api.Tags;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.verify;
+
+public class MetricsSenderAPIPoolTest {
+
+    @Mock
+    private PrimitiveMetricsSender metricsSender;
+
+    private MetricsSenderAPIPool subject;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        subject = new MetricsSenderAPIPool(metricsSender);
+    }
+
+    @Test
+    public void shouldReuseBuilderOnceSent() {
+        // Given
+        MetricsSenderAPI builder = subject.acquire(false);
+        builder.name("response_time").value(26L).namespace("application").tag("host", "localhost")
+                .aggregation(Aggregation.AVG).aggregationFrequency(AggregationFrequency.FREQ_10).sampleRate(100);
+
+        // When
+        builder.send();
+        MetricsSenderAPI reused = subject.acquire(true);
+
+        // Then
+        verify(metricsSender).put(eq("response_time"), eq(26L), any(Tags.class), any(Aggregations.class),
+                eq(AggregationFrequency.FREQ_10), eq(100), eq("application"), anyLong());
+        assertSame("Should reuse the sent builder", builder, reused);
+        assertTrue("Should reset the aggregation flag", reused.isAggregated());
+        assertNull("Should reset the name", reused.getName());
+        assertNull("Should reset the value", reused.getValue());
+        assertNull("Should reset the namespace", reused.getNamespace());
+        assertNull("Should reset the tags", reused.getTags());
+        assertNull("Should reset the aggregations", reused.getAggregations());
+        assertNull("Should reset the aggregation frequency", reused.getAggregationFrequency());
+        assertNull("Should reset the sample rate", reused.getSampleRate());
+    }
+
+    @Test
+    public void shouldNotShareBuildersNotYetSent() {
+        // When
+        MetricsSenderAPI first = subject.acquire(false);
+        MetricsSenderAPI second = subject.acquire(false);
+
+        // Then
+        assertNotSame("Should create a builder for each metric being built", first, second);
+    }
+
+    @Test
+    public void shouldReleaseBuilderOnlyOnce() {
+        // Given
+        MetricsSenderAPI builder = subject.acquire(false);
+        builder.name("response_time").value(26L);
+
+        // When
+        builder.send();
+        builder.send();
+
+        // Then
+        MetricsSenderAPI first = subject.acquire(false);
+        MetricsSenderAPI second = subject.acquire(false);
+        assertNotSame("Should not hand out a builder sent twice to two callers", first, second);
+    }
+
+    @Test
+    public void shouldKeepBuildersPerThread() throws Exception {
+        // Given
+        final MetricsSenderAPI builder = subject.acquire(false);
+        builder.name("response_time").value(26L).send();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        Future<MetricsSenderAPI> other = executor.submit(new Callable<MetricsSenderAPI>() {
+            @Override
+            public MetricsSenderAPI call() {
+                return subject.acquire(false);
+            }
+        });
+
+        // Then
+        assertNotSame("Should not hand out a builder released by another thread", builder, other.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldNotChangeAggregationsHandedToSender() {
+        // Given
+        MetricsSenderAPI builder = subject.acquire(false);
+        builder.name("response_time").value(26L).aggregation(Aggregation.AVG).send();
+        ArgumentCaptor<Aggregations> aggregationsArg = ArgumentCaptor.forClass(Aggregations.class);
+        verify(metricsSender).put(eq("response_time"), eq(26L), any(Tags.class), aggregationsArg.capture(),
+                any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+
+        // When
+        subject.acquire(false).name("execution_time").value(10L).aggregation(Aggregation.P90).send();
+
+        // Then
+        assertEquals("Should keep the aggregations of the first metric", 1,
+                aggregationsArg.getValue().getAggregations().size());
+        assertTrue("Should keep the aggregation of the first metric",
+                aggregationsArg.getValue().getAggregations().contains(Aggregation.AVG));
+    }
+
+    @Test
+    public void shouldNotChangeReferencedTagsWhenAddingTags() {
+        // Given
+        Tags defaultTags = Tags.from("unit", "ms");
+        MetricsSenderAPI builder = subject.acquire(false);
+
+        // When
+        builder.name("response_time").value(26L).tags(defaultTags).tag("host", "localhost").send();
+
+        // Then
+        ArgumentCaptor<Tags> tagsArg = ArgumentCaptor.forClass(Tags.class);
+        verify(metricsSender).put(eq("response_time"), eq(26L), tagsArg.capture(), any(Aggregations.class),
+                any(AggregationFrequency.class), anyInt(), anyString(), anyLong());
+        assertEquals("Should not add tags to the referenced tags", 1, defaultTags.getTags().size());
+    }
+}
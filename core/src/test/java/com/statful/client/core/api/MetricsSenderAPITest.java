@@ -19,13 +19,30 @@ import static org.mockito.Mockito.verify;
 public class MetricsSenderAPITest {
 
     @Mock
-    private com.statful.client.domain.api.MetricsSender metricsSender;
+    private com.statful.client.domain.api.PrimitiveMetricsSender metricsSender;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
     }
 
+    @Test
+    public void shouldNotChangeDefaultsThroughGetters() {
+        // Given
+        Tags defaultTags = Tags.from("unit", "ms");
+        Aggregations defaultAggregations = Aggregations.from(Aggregation.AVG);
+        MetricsSenderAPI builder = new MetricsSenderAPI(metricsSender);
+        builder.tags(defaultTags).aggregations(defaultAggregations);
+
+        // When
+        builder.getTags().putTag("host", "localhost");
+        builder.getAggregations().put(Aggregation.P90);
+
+        // Then
+        assertEquals("Should keep the default tags", 1, defaultTags.getTags().size());
+        assertEquals("Should keep the default aggregations", 1, defaultAggregations.getAggregations().size());
+    }
+
     @Test
     public void shouldNotSendWhenNameIsInvalid() {
         MetricsSenderAPI builder = new MetricsSenderAPI(metricsSender);
@@ -163,4 +180,32 @@ public class MetricsSenderAPITest {
                 eq("namespace"),
                 anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldSendLongValues() {
+        MetricsSenderAPI builder = new MetricsSenderAPI(metricsSender);
+        builder.name("test").value(1000L).timestamp(100L);
+
+        builder.send();
+
+        assertEquals("Should convert the value", "1000", builder.getValue());
+        verify(metricsSender, times(1)).put(eq("test"), eq(1000L), any(Tags.class), any(Aggregations.class),
+                any(AggregationFrequency.class), anyInt(), anyString(), eq(100L));
+    }
+
+    @Test
+    public void shouldSendAggregatedDoubleValues() {
+        MetricsSenderAPI builder = new MetricsSenderAPI(metricsSender, true);
+        builder.name("test")
+                .value(2.5)
+                .aggregations(Aggregation.AVG)
+                .aggregationFrequency(AggregationFrequency.FREQ_60)
+                .timestamp(100L);
+
+        builder.send();
+
+        assertEquals("Should convert the value", "2.5", builder.getValue());
+        verify(metricsSender, times(1)).aggregatedPut(eq("test"), eq(2.5), any(Tags.class), eq(Aggregation.AVG),
+                eq(AggregationFrequency.FREQ_60), anyInt(), anyString(), eq(100L));
+    }
+}
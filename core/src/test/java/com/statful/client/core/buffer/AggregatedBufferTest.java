@@ -6,6 +6,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -40,6 +43,23 @@ public class AggregatedBufferTest {
                 .get(Aggregation.AVG.toString()).get(AggregationFrequency.FREQ_10.toString()).size());
     }
 
+    @Test
+    public void shouldReserveQueueSlotsFromMemoryBudget() {
+        // Given
+        MemoryBudget budget = new MemoryBudget(MemoryBudget.SLOT_BYTES * 5 + MemoryBudget.sizeOf("foo"));
+        AggregatedBuffer subject = new AggregatedBuffer(5, 2, budget);
+
+        // When
+        boolean first = subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+        boolean otherQueue = subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_30);
+        subject.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+
+        // Then
+        assertTrue("Should add the metric to a new queue", first);
+        assertFalse("Should not create a queue over the budget", otherQueue);
+        assertEquals("Should keep the slots of the queue reserved", MemoryBudget.SLOT_BYTES * 5, budget.getUsedBytes());
+    }
+
     @Test
     public void shouldReadBuffer() {
         // Given
@@ -143,4 +163,89 @@ public class AggregatedBufferTest {
         // Then
         assertTrue("Aggregations frequencies set should be empty", aggregationFrequencies.isEmpty());
     }
+
+    @Test
+    public void shouldNotBeTimeToFlushAfterReadingTheBuffer() {
+        // Given
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+
+        // When
+        subject.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+
+        // Then
+        assertFalse("Should not set as time to flush with one metric left", subject.isTimeToFlush());
+
+        // And then
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+        assertTrue("Should set as time to flush again", subject.isTimeToFlush());
+    }
+
+    @Test
+    public void shouldNotSumMetricsOfDifferentBuffersToFlush() {
+        // Given
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+        subject.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_30);
+        subject.addToBuffer("foo", Aggregation.COUNT, AggregationFrequency.FREQ_10);
+
+        // When
+        boolean isTimeToFlush = subject.isTimeToFlush();
+
+        // Then
+        assertFalse("Should not set as time to flush", isTimeToFlush);
+    }
+
+    @Test
+    public void shouldKeepBuffersOfEveryAggregationApart() {
+        // Given
+        for (Aggregation aggregation : Aggregation.values()) {
+            for (AggregationFrequency aggregationFrequency : AggregationFrequency.values()) {
+                subject.addToBuffer(aggregation + "-" + aggregationFrequency, aggregation, aggregationFrequency);
+            }
+        }
+
+        // Then
+        for (Aggregation aggregation : Aggregation.values()) {
+            for (AggregationFrequency aggregationFrequency : AggregationFrequency.values()) {
+                assertEquals("Should read its own metric", aggregation + "-" + aggregationFrequency + "\n",
+                        subject.readBuffer(aggregation, aggregationFrequency));
+            }
+        }
+    }
+
+    @Test
+    public void shouldTrackTimeToFlushWhenAddingConcurrently() throws Exception {
+        // Given
+        final AggregatedBuffer buffer = new AggregatedBuffer(100000, 10);
+        final int threads = 8;
+        final int metrics = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        for (int i = 0; i < threads; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < metrics; j++) {
+                        buffer.addToBuffer("foo", Aggregation.AVG, AggregationFrequency.FREQ_10);
+                        buffer.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue("Should finish", executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        int remaining = buffer.getBuffer().get(Aggregation.AVG.toString()).get(AggregationFrequency.FREQ_10.toString()).size();
+        assertEquals("Should set as time to flush only with a full batch", remaining >= 10, buffer.isTimeToFlush());
+
+        // And then
+        String batch = buffer.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+        while (!batch.isEmpty()) {
+            batch = buffer.readBuffer(Aggregation.AVG, AggregationFrequency.FREQ_10);
+        }
+        assertFalse("Should not set as time to flush once drained", buffer.isTimeToFlush());
+    }
 }
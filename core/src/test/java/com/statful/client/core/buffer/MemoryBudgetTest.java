@@ -0,0 +1,74 @@
+package com.statful.client.core.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MemoryBudgetTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateBudgetWithoutBytes() {
+        new MemoryBudget(0);
+    }
+
+    @Test
+    public void shouldAcquireBytesWithinTheBudget() {
+        // Given
+        MemoryBudget subject = new MemoryBudget(100);
+
+        // When
+        boolean first = subject.tryAcquire(60);
+        boolean second = subject.tryAcquire(40);
+
+        // Then
+        assertTrue("Should acquire the first bytes", first);
+        assertTrue("Should acquire up to the budget", second);
+        assertEquals("Should count the used bytes", 100, subject.getUsedBytes());
+    }
+
+    @Test
+    public void shouldRefuseBytesOverTheBudget() {
+        // Given
+        MemoryBudget subject = new MemoryBudget(100);
+        subject.tryAcquire(60);
+
+        // When
+        boolean acquired = subject.tryAcquire(50);
+
+        // Then
+        assertFalse("Should refuse bytes over the budget", acquired);
+        assertEquals("Should not keep the refused bytes", 60, subject.getUsedBytes());
+        assertEquals("Should count the rejection", 1, subject.getRejected());
+    }
+
+    @Test
+    public void shouldAcquireReleasedBytesAgain() {
+        // Given
+        MemoryBudget subject = new MemoryBudget(100);
+        subject.tryAcquire(60);
+
+        // When
+        subject.release(60);
+
+        // Then
+        assertTrue("Should acquire the released bytes", subject.tryAcquire(100));
+    }
+
+    @Test
+    public void shouldMeasurePressureOnTheBytesLeftForMetrics() {
+        // Given
+        MemoryBudget subject = new MemoryBudget(100);
+        subject.reserve(40);
+
+        // When
+        subject.tryAcquire(30);
+        boolean halfUsed = subject.isUnderPressure();
+        subject.tryAcquire(1);
+        boolean overHalfUsed = subject.isUnderPressure();
+
+        // Then
+        assertFalse("Should not be under pressure with half of the bytes left for metrics used", halfUsed);
+        assertTrue("Should be under pressure with more than half of the bytes left for metrics used", overHalfUsed);
+        assertEquals("Should count the reserved bytes", 40, subject.getReservedBytes());
+    }
+}
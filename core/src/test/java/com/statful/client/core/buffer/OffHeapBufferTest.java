@@ -0,0 +1,190 @@
+package com.statful.client.core.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class OffHeapBufferTest {
+
+    private OffHeapBuffer subject;
+
+    @Before
+    public void before() {
+        subject = new OffHeapBuffer(5, 2, 16, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateBufferWithoutCapacity() {
+        new OffHeapBuffer(0, 2);
+    }
+
+    @Test
+    public void shouldDiscardIfBufferIsFull() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            assertTrue("Should add to buffer", subject.addToBuffer("foo" + i));
+        }
+
+        // When
+        boolean inserted = subject.addToBuffer("bar");
+
+        // Then
+        assertFalse("Should not add to a full buffer", inserted);
+        assertEquals("Buffer should have 5 metrics", 5, subject.size());
+    }
+
+    @Test
+    public void shouldDiscardMetricLargerThanSegment() {
+        // When
+        boolean inserted = subject.addToBuffer("application.timer.response_time");
+
+        // Then
+        assertFalse("Should not add a metric that doesn't fit in a segment", inserted);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldReadBuffer() {
+        // Given
+        subject.addToBuffer("foo");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("foo\n", bufferString);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldReadUpToFlushSizeAcrossSegments() {
+        // Given
+        subject.addToBuffer("foo.bar.baz");
+        subject.addToBuffer("qux.quux");
+        subject.addToBuffer("corge");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("foo.bar.baz\nqux.quux\n", bufferString);
+        assertEquals("Should keep remaining metrics", asList("corge"), subject.snapshot());
+    }
+
+    @Test
+    public void shouldReadUpToMaxMetricsWithinSegment() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+        subject.addToBuffer("baz");
+
+        // When
+        String bufferString = subject.readBuffer(1);
+
+        // Then
+        assertEquals("foo\n", bufferString);
+        assertEquals("Should keep remaining metrics", asList("bar", "baz"), subject.snapshot());
+    }
+
+    @Test
+    public void shouldReadConsecutiveBatchesWithinSegment() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+        subject.addToBuffer("baz");
+        subject.addToBuffer("qux");
+        subject.addToBuffer("quux");
+
+        // When
+        String first = subject.readBuffer(2);
+        String second = subject.readBuffer(3);
+
+        // Then
+        assertEquals("Should read the first metrics of the segment", "foo\nbar\n", first);
+        assertEquals("Should read on from where the previous batch ended", "baz\nqux\nquux\n", second);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldReturnEmptyStringWhenBufferIsEmpty() {
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertTrue("Buffer string should be empty", bufferString.isEmpty());
+    }
+
+    @Test
+    public void shouldRoundTripNonAsciiMetrics() {
+        // Given
+        subject.addToBuffer("café");
+        subject.addToBuffer("€😀");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("café\n€😀\n", bufferString);
+    }
+
+    @Test
+    public void shouldEvictOldestMetric() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+
+        // When
+        boolean evicted = subject.evictOldest();
+
+        // Then
+        assertTrue("Should evict a metric", evicted);
+        assertEquals("Should keep the newest metric", asList("bar"), subject.snapshot());
+        assertFalse("Should not evict from an empty buffer", new OffHeapBuffer(5, 2).evictOldest());
+    }
+
+    @Test
+    public void shouldReuseSegmentsOnceRead() {
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertTrue("Should add to buffer", subject.addToBuffer("foo.bar" + i));
+            assertEquals("foo.bar" + i + "\n", subject.readBuffer());
+        }
+
+        // Then
+        assertEquals("Should reuse a single segment", 1, subject.getAllocatedSegments());
+        assertTrue("Buffer should be empty", subject.snapshot().isEmpty());
+    }
+
+    @Test
+    public void shouldReserveSegmentsFromMemoryBudget() {
+        // Given
+        MemoryBudget budget = new MemoryBudget(16);
+        OffHeapBuffer subject = new OffHeapBuffer(5, 2, 16, budget);
+        subject.addToBuffer("foo.bar.baz");
+
+        // When
+        boolean overBudget = subject.addToBuffer("qux.quux");
+        subject.readBuffer();
+        boolean afterRead = subject.addToBuffer("qux.quux");
+
+        // Then
+        assertFalse("Should reject the metric that needs a segment over the budget", overBudget);
+        assertTrue("Should add the metric to the segment once it was read", afterRead);
+        assertEquals("Should reserve the bytes of a single segment", 16, budget.getReservedBytes());
+    }
+
+    @Test
+    public void shouldReturnTrueIfIsTimeToFlush() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("foo");
+
+        // When
+        boolean isTimeToFlush = subject.isTimeToFlush();
+
+        // Then
+        assertTrue("Should set as time to flush", isTimeToFlush);
+    }
+}
@@ -0,0 +1,198 @@
+package com.statful.client.core.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+
+    private RingBuffer subject;
+
+    @Before
+    public void before() {
+        subject = new RingBuffer(5, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateBufferWithoutCapacity() {
+        new RingBuffer(0, 2);
+    }
+
+    @Test
+    public void shouldDiscardIfBufferIsFull() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            assertTrue("Should add to buffer", subject.addToBuffer("foo" + i));
+        }
+
+        // When
+        boolean inserted = subject.addToBuffer("bar");
+
+        // Then
+        assertFalse("Should not add to a full buffer", inserted);
+        assertEquals("Buffer should have 5 metrics", 5, subject.size());
+    }
+
+    @Test
+    public void shouldAddToBuffer() {
+        // When
+        assertTrue("Should add to buffer", subject.addToBuffer("foo"));
+
+        // Then
+        assertEquals("Buffer should have 1 metric", 1, subject.size());
+    }
+
+    @Test
+    public void shouldRejectMetricsOverMemoryBudgetAndReleaseOnRead() {
+        // Given
+        MemoryBudget budget = new MemoryBudget(MemoryBudget.sizeOf("foo"));
+        RingBuffer subject = new RingBuffer(5, 2, budget);
+        subject.addToBuffer("foo");
+
+        // When
+        boolean overBudget = subject.addToBuffer("bar");
+        subject.readBuffer();
+        boolean afterRead = subject.addToBuffer("bar");
+
+        // Then
+        assertFalse("Should reject the metric over the budget", overBudget);
+        assertTrue("Should add the metric once the budget was released", afterRead);
+        assertEquals("Should hold the bytes of the buffered metric", MemoryBudget.sizeOf("bar"), budget.getUsedBytes());
+    }
+
+    @Test
+    public void shouldReadBuffer() {
+        // Given
+        subject.addToBuffer("foo");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("foo\n", bufferString);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldReadUpToFlushSize() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+        subject.addToBuffer("baz");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("foo\nbar\n", bufferString);
+        assertEquals("Should keep remaining metrics", asList("baz"), subject.snapshot());
+    }
+
+    @Test
+    public void shouldReturnEmptyStringWhenBufferIsEmpty() {
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertTrue("Buffer string should be empty", bufferString.isEmpty());
+    }
+
+    @Test
+    public void shouldReuseSlotsAfterWrappingAround() {
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertTrue("Should add to buffer", subject.addToBuffer("foo" + i));
+            assertEquals("foo" + i + "\n", subject.readBuffer());
+        }
+
+        // Then
+        assertTrue("Buffer should be empty", subject.snapshot().isEmpty());
+    }
+
+    @Test
+    public void shouldReturnTrueIfIsTimeToFlush() {
+        // Given
+        subject.addToBuffer("foo");
+        subject.addToBuffer("foo");
+        subject.addToBuffer("foo");
+
+        // When
+        boolean isTimeToFlush = subject.isTimeToFlush();
+
+        // Then
+        assertTrue("Should set as time to flush", isTimeToFlush);
+    }
+
+    @Test
+    public void shouldReturnFalseIfIsNotTimeToFlush() {
+        // Given
+        subject.addToBuffer("foo");
+
+        // When
+        boolean isTimeToFlush = subject.isTimeToFlush();
+
+        // Then
+        assertFalse("Should not set as time to flush", isTimeToFlush);
+    }
+
+    @Test
+    public void shouldNotLoseMetricsWithConcurrentProducers() throws Exception {
+        // Given
+        final int producers = 8;
+        final int metricsPerProducer = 1000;
+        final RingBuffer subject = new RingBuffer(producers * metricsPerProducer, 100);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(producers);
+
+        // When
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < metricsPerProducer; i++) {
+                        subject.addToBuffer(producer + "-" + i);
+                    }
+                }
+            });
+        }
+
+        Set<String> metrics = new HashSet<String>();
+        start.countDown();
+        executorService.shutdown();
+
+        while (!executorService.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            addMetrics(metrics, subject.readBuffer());
+        }
+        addMetrics(metrics, subject.readBuffer());
+        while (subject.size() > 0) {
+            addMetrics(metrics, subject.readBuffer());
+        }
+
+        // Then
+        assertEquals("Should read every metric exactly once", producers * metricsPerProducer, metrics.size());
+    }
+
+    private static void addMetrics(final Set<String> metrics, final String buffer) {
+        if (!buffer.isEmpty()) {
+            for (String metric : buffer.split("\n")) {
+                assertTrue("Should not read a metric twice", metrics.add(metric));
+            }
+        }
+    }
+}
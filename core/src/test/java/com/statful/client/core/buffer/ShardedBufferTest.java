@@ -0,0 +1,168 @@
+package com.statful.client.core.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class ShardedBufferTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateBufferWithoutCapacity() {
+        new ShardedBuffer(0, 2, 4);
+    }
+
+    @Test
+    public void shouldRoundShardsUpToPowerOfTwo() {
+        assertEquals("Should round up the shards", 4, new ShardedBuffer(100, 10, 3).getShards());
+        assertEquals("Should not have more shards than metrics", 2, new ShardedBuffer(2, 10, 8).getShards());
+        assertTrue("Should default to a shard per processor", new ShardedBuffer(5000, 10, 0).getShards() >= 1);
+    }
+
+    @Test
+    public void shouldReadBufferInOrderWithinThread() {
+        // Given
+        ShardedBuffer subject = new ShardedBuffer(100, 10, 4);
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+
+        // When
+        String bufferString = subject.readBuffer();
+
+        // Then
+        assertEquals("Should read the metrics of the thread in order", "foo\nbar\n", bufferString);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldAddToOtherShardsIfShardIsFull() {
+        // Given
+        ShardedBuffer subject = new ShardedBuffer(8, 10, 4);
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            assertTrue("Should add to buffer until it holds its max size", subject.addToBuffer("metric" + i));
+        }
+
+        // Then
+        assertEquals("Should fill every shard from a single thread", 8, subject.size());
+    }
+
+    @Test
+    public void shouldDiscardIfAllShardsAreFull() {
+        // Given
+        ShardedBuffer subject = new ShardedBuffer(8, 10, 4);
+        for (int i = 0; i < 8; i++) {
+            subject.addToBuffer("metric" + i);
+        }
+
+        // When
+        boolean inserted = subject.addToBuffer("baz");
+
+        // Then
+        assertFalse("Should not add to a full buffer", inserted);
+        assertEquals("Should evict the oldest metric", true, subject.evictOldest());
+        assertEquals("Should make room for a metric", 7, subject.size());
+    }
+
+    @Test
+    public void shouldBeTimeToFlushOnceShardHoldsItsShare() {
+        // Given
+        ShardedBuffer subject = new ShardedBuffer(100, 8, 4);
+        subject.addToBuffer("foo");
+        assertFalse("Should not flush before the shard holds its share", subject.isTimeToFlush(8));
+        subject.addToBuffer("bar");
+        assertFalse("Should not flush before the buffer holds a batch", subject.isTimeToFlush(8));
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            subject.addToBuffer("metric" + i);
+        }
+
+        // Then
+        assertTrue("Should flush once the buffer holds a batch", subject.isTimeToFlush(8));
+    }
+
+    @Test
+    public void shouldDrainAllShardsIntoOneBatch() throws Exception {
+        // Given
+        final ShardedBuffer subject = new ShardedBuffer(400, 8, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 4; i++) {
+                        subject.addToBuffer("thread" + thread + "_" + i);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // When
+        String first = subject.readBuffer();
+        String second = subject.readBuffer();
+
+        // Then
+        assertEquals("Should read a batch of flush size", 8, first.split("\n").length);
+        assertEquals("Should read the rest of the metrics", 8, second.split("\n").length);
+        assertEquals("Buffer should be empty", 0, subject.size());
+    }
+
+    @Test
+    public void shouldNotLoseMetricsWithConcurrentProducers() throws Exception {
+        // Given
+        final ShardedBuffer subject = new ShardedBuffer(5000, 100, 8);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < 250; i++) {
+                        subject.addToBuffer("thread" + thread + "_" + i);
+                    }
+                }
+            });
+        }
+
+        // When
+        start.countDown();
+        executor.shutdown();
+        assertTrue("Should finish producing", executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Set<String> metrics = new HashSet<String>();
+        String batch = subject.readBuffer();
+        while (!batch.isEmpty()) {
+            metrics.addAll(asList(batch.split("\n")));
+            batch = subject.readBuffer();
+        }
+
+        // Then
+        assertEquals("Should read every metric once", 2000, metrics.size());
+    }
+}
@@ -42,6 +42,39 @@ public class StandardBufferTest {
         assertEquals("Buffer should have 2 metric", 2, subject.getBuffer().size());
     }
 
+    @Test
+    public void shouldRejectMetricsOverMemoryBudget() {
+        // Given
+        MemoryBudget budget = new MemoryBudget(MemoryBudget.sizeOf("foo") + MemoryBudget.sizeOf("bar"));
+        StandardBuffer subject = new StandardBuffer(5, 2, budget);
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+
+        // When
+        boolean added = subject.addToBuffer("baz");
+
+        // Then
+        assertFalse("Should reject the metric over the budget", added);
+        assertEquals("Buffer should have 2 metrics", 2, subject.size());
+    }
+
+    @Test
+    public void shouldReleaseMemoryBudgetOnRead() {
+        // Given
+        MemoryBudget budget = new MemoryBudget(1000);
+        StandardBuffer subject = new StandardBuffer(5, 2, budget);
+        subject.addToBuffer("foo");
+        subject.addToBuffer("bar");
+        subject.addToBuffer("baz");
+
+        // When
+        subject.readBuffer();
+        subject.evictOldest();
+
+        // Then
+        assertEquals("Should release the bytes of read and evicted metrics", 0, budget.getUsedBytes());
+    }
+
     @Test
     public void shouldReadBuffer() {
         // Given
@@ -0,0 +1,290 @@
+package com.statful.client.core.message;
+
+import com.statful.client.domain.api.Aggregation;
+import com.statful.client.domain.api.AggregationFrequency;
+import com.statful.client.domain.api.Aggregations;
+import com.statful.client.domain.api.Tags;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Uses the {@link MessageBuilderTest} cases as a golden corpus: every line encoded by {@link MessageEncoder} must be
+ * the same as the one built by {@link MessageBuilder}. As in {@link MessageBuilderTest}, the order of the tags is not
+ * part of the contract, since the builder copies them into a new hash map.
+ */
+public class MessageEncoderTest {
+
+    private final static String NAMESPACE = "TEST_NS";
+    private final static String NAME = "response_time";
+    private final static Tags TAGS = new Tags();
+    private final static Aggregations AGGREGATIONS = new Aggregations();
+    private final static long TIMESTAMP = 121232323;
+    private static final int SAMPLE_RATE = 100;
+
+    private static final String SPECIAL_CHARACTERS = " \t\n\u000B\f\r,=.\u00A0\u2003";
+
+    static {
+        TAGS.putTag("unit", "s");
+        TAGS.putTag("app", "statful");
+
+        AGGREGATIONS.put(Aggregation.AVG);
+        AGGREGATIONS.put(Aggregation.COUNT);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithAllAttributes() {
+        assertSameAsBuilder(NAME, "3", TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodePrimitiveValuesAsTheirStringForm() {
+        long[] longs = {0, -1, 42, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : longs) {
+            assertEquals("Should encode " + value, MessageEncoder.encode(NAME, String.valueOf(value), TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE),
+                    MessageEncoder.encode(NAME, value, TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE));
+        }
+
+        double[] doubles = {0, -1.5, 2.2, 1e-7, 1e21};
+        for (double value : doubles) {
+            assertEquals("Should encode " + value, MessageEncoder.encode(NAME, String.valueOf(value), TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE),
+                    MessageEncoder.encode(NAME, value, TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE));
+        }
+    }
+
+    @Test
+    public void shouldEncodeFromPrefixAndSuffix() {
+        String prefix = MessageEncoder.encodePrefix(NAME, TAGS, NAMESPACE);
+        String suffix = MessageEncoder.encodeSuffix(AGGREGATIONS, AggregationFrequency.FREQ_60, SAMPLE_RATE);
+
+        assertEquals("Should encode long values", MessageEncoder.encode(NAME, 3L, TAGS, AGGREGATIONS, AggregationFrequency.FREQ_60, NAMESPACE, TIMESTAMP, SAMPLE_RATE),
+                MessageEncoder.encode(prefix, 3L, TIMESTAMP, suffix));
+        assertEquals("Should encode double values", MessageEncoder.encode(NAME, 0.3, TAGS, AGGREGATIONS, AggregationFrequency.FREQ_60, NAMESPACE, TIMESTAMP, SAMPLE_RATE),
+                MessageEncoder.encode(prefix, 0.3, TIMESTAMP, suffix));
+        assertEquals("Should encode without aggregations nor sample rate", "name 3 " + TIMESTAMP,
+                MessageEncoder.encode(MessageEncoder.encodePrefix("name", null, null), 3L, TIMESTAMP, MessageEncoder.encodeSuffix(null, null, null)));
+    }
+
+    @Test
+    public void shouldReplaceSampleRateOfSuffix() {
+        String suffix = MessageEncoder.encodeSuffix(AGGREGATIONS, AggregationFrequency.FREQ_60, 100);
+
+        assertEquals("Should replace the sample rate", MessageEncoder.encodeSuffix(AGGREGATIONS, AggregationFrequency.FREQ_60, 25),
+                MessageEncoder.replaceSampleRate(suffix, 25));
+        assertEquals("Should replace a suffix without aggregations", " 5", MessageEncoder.replaceSampleRate(" 10", 5));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotEncodeMessageWithoutName() {
+        MessageEncoder.encode(null, "3", TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotEncodeMessageWithoutValue() {
+        MessageEncoder.encode(NAME, null, TAGS, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithoutTags() {
+        assertSameAsBuilder(NAME, "3", null, AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithEmptyTags() {
+        assertSameAsBuilder(NAME, "3", new Tags(), AGGREGATIONS, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithoutAggregations() {
+        assertSameAsBuilder(NAME, "3", TAGS, null, AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithoutAggregationFreq() {
+        assertSameAsBuilder(NAME, "3", null, AGGREGATIONS, null, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithEmptyAggregations() {
+        assertSameAsBuilder(NAME, "3", TAGS, new Aggregations(), AggregationFrequency.FREQ_10, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithoutNamespace() {
+        assertSameAsBuilder(NAME, "3", null, AGGREGATIONS, AggregationFrequency.FREQ_10, null, TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithSampleRate() {
+        assertSameAsBuilder(NAME, "3", null, AGGREGATIONS, AggregationFrequency.FREQ_10, null, TIMESTAMP, 25);
+    }
+
+    @Test
+    public void shouldEncodeMessageWithoutSampleRate() {
+        assertSameAsBuilder(NAME, "3", null, AGGREGATIONS, AggregationFrequency.FREQ_10, null, TIMESTAMP, null);
+    }
+
+    @Test
+    public void shouldEscapeMessage() {
+        // Given
+        Tags tags = Tags.from(new String[]{"tag, key=", "tag, value="});
+
+        // When
+        String message = MessageEncoder.encode("a name, with =equal", "a value, with comma and =equal", tags, null, null,
+                "a namespace, with comma", TIMESTAMP, SAMPLE_RATE);
+
+        // Then
+        assertEquals("Should escape the message as the builder does",
+                "a\\ namespace\\,\\ with\\ comma.a\\ name\\,\\ with\\ =equal,tag\\,\\ key\\==tag\\,\\ value\\= a value, with comma and =equal 121232323 100",
+                message);
+        assertSameAsBuilder("a name, with =equal", "a value, with comma and =equal", tags, null, null, "a namespace, with comma",
+                TIMESTAMP, SAMPLE_RATE);
+    }
+
+    @Test
+    public void shouldEncodeTagsSortedByType() {
+        // Given
+        Tags tags = Tags.from(new String[]{"unit", "s", "app", "statful", "host", ""});
+
+        // When
+        String message = MessageEncoder.encode(NAME, "3", tags, null, null, null, TIMESTAMP, null);
+
+        // Then
+        assertEquals("Should encode the non-empty tags sorted by type", "response_time,app=statful,unit=s 3 121232323", message);
+    }
+
+    @Test
+    public void shouldEscapeAllWhitespaceCharactersAsTheBuilder() {
+        for (char c : SPECIAL_CHARACTERS.toCharArray()) {
+            String string = "a" + c + "b" + c;
+            assertSameAsBuilder(string, "1", Tags.from(string, string), AGGREGATIONS, AggregationFrequency.FREQ_60, string,
+                    TIMESTAMP, SAMPLE_RATE);
+        }
+    }
+
+    @Test
+    public void shouldEncodeAllAggregationsAndFrequencies() {
+        Aggregations aggregations = new Aggregations();
+        for (Aggregation aggregation : Aggregation.values()) {
+            aggregations.put(aggregation);
+        }
+
+        for (AggregationFrequency frequency : AggregationFrequency.values()) {
+            assertSameAsBuilder(NAME, "3", TAGS, aggregations, frequency, NAMESPACE, TIMESTAMP, SAMPLE_RATE);
+        }
+    }
+
+    @Test
+    public void shouldEncodeRandomMessagesAsTheBuilder() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            Tags tags = new Tags();
+            int tagCount = random.nextInt(20);
+            for (int j = 0; j < tagCount; j++) {
+                tags.putTag(randomString(random), randomString(random));
+            }
+
+            assertSameAsBuilder(randomString(random), randomString(random), tags, AGGREGATIONS, AggregationFrequency.FREQ_120,
+                    random.nextBoolean() ? randomString(random) : null, random.nextLong(), random.nextInt(100) + 1);
+        }
+    }
+
+    @Test
+    public void shouldAppendToGivenBuilder() {
+        // Given
+        StringBuilder sb = new StringBuilder("prefix ");
+
+        // When
+        MessageEncoder.encodeTo(sb, NAME, "3", null, null, null, null, TIMESTAMP, null);
+
+        // Then
+        assertEquals("Should append the line to the builder", "prefix response_time 3 121232323", sb.toString());
+    }
+
+    @Test
+    public void shouldReuseThreadLocalBuilderAcrossCalls() {
+        // Given
+        String longName = new String(new char[20000]).replace('\0', 'a');
+
+        // When
+        String first = MessageEncoder.encode(longName, "1", null, null, null, null, TIMESTAMP, null);
+        String second = MessageEncoder.encode(NAME, "3", null, null, null, null, TIMESTAMP, null);
+
+        // Then
+        assertEquals("Should encode the long line", longName + " 1 121232323", first);
+        assertEquals("Should not leak the previous line", "response_time 3 121232323", second);
+    }
+
+    private static void assertSameAsBuilder(final String name, final String value, final Tags tags,
+                                            final Aggregations aggregations, final AggregationFrequency frequency,
+                                            final String namespace, final long timestamp, final Integer sampleRate) {
+        MessageBuilder builder = MessageBuilder.newBuilder()
+                .withNamespace(namespace)
+                .withName(name)
+                .withValue(value)
+                .withTags(tags)
+                .withAggregations(aggregations)
+                .withAggregationFreq(frequency)
+                .withTimestamp(timestamp);
+
+        if (sampleRate != null) {
+            builder.withSampleRate(sampleRate);
+        }
+
+        String expected = builder.build();
+        String actual = MessageEncoder.encode(name, value, tags, aggregations, frequency, namespace, timestamp, sampleRate);
+
+        assertEquals("Should encode the same line as the builder", withSortedTags(expected), withSortedTags(actual));
+    }
+
+    /**
+     * Sorts the tags of a metric line, splitting the measurement and tags on the unescaped commas before the first
+     * unescaped space.
+     */
+    private static String withSortedTags(final String line) {
+        List<String> parts = new ArrayList<String>();
+        StringBuilder part = new StringBuilder();
+
+        int i = 0;
+        while (i < line.length() && line.charAt(i) != ' ') {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                part.append(c).append(line.charAt(++i));
+            } else if (c == ',') {
+                parts.add(part.toString());
+                part.setLength(0);
+            } else {
+                part.append(c);
+            }
+            i++;
+        }
+        parts.add(part.toString());
+
+        Collections.sort(parts.subList(1, parts.size()));
+
+        StringBuilder sb = new StringBuilder();
+        for (String sortedPart : parts) {
+            sb.append(sb.length() > 0 ? "," : "").append(sortedPart);
+        }
+        return sb.append(line.substring(i)).toString();
+    }
+
+    private static String randomString(final Random random) {
+        int length = random.nextInt(12) + 1;
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(4) == 0) {
+                sb.append(SPECIAL_CHARACTERS.charAt(random.nextInt(SPECIAL_CHARACTERS.length())));
+            } else {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
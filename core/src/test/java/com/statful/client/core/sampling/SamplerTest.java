@@ -0,0 +1,82 @@
+package com.statful.client.core.sampling;
+
+import com.statful.client.domain.api.Tags;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplerTest {
+
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void shouldKeepEveryMetricAtFullSampleRate() {
+        // Given
+        Sampler random = new RandomSampler();
+        Sampler consistent = new ConsistentSampler();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            // Then
+            assertTrue("Random sampler should keep every metric", random.isSampled(100, "application", "metric" + i, null));
+            assertTrue("Consistent sampler should keep every metric", consistent.isSampled(100, "application", "metric" + i, null));
+        }
+    }
+
+    @Test
+    public void shouldKeepShareOfMetricsGivenBySampleRate() {
+        // Given
+        Sampler subject = new RandomSampler();
+        int kept = 0;
+
+        // When
+        for (int i = 0; i < SAMPLES; i++) {
+            if (subject.isSampled(25, "application", "metric", null)) {
+                kept++;
+            }
+        }
+
+        // Then
+        assertEquals("Should keep about a quarter of the metrics", 0.25, (double) kept / SAMPLES, 0.01);
+    }
+
+    @Test
+    public void shouldKeepShareOfSeriesGivenBySampleRate() {
+        // Given
+        Sampler subject = new ConsistentSampler();
+        int kept = 0;
+
+        // When
+        for (int i = 0; i < SAMPLES; i++) {
+            if (subject.isSampled(25, "application", "metric" + i, null)) {
+                kept++;
+            }
+        }
+
+        // Then
+        assertEquals("Should keep about a quarter of the series", 0.25, (double) kept / SAMPLES, 0.01);
+    }
+
+    @Test
+    public void shouldKeepOrDropSeriesConsistently() {
+        // Given
+        Sampler subject = new ConsistentSampler();
+
+        for (int i = 0; i < 1000; i++) {
+            Tags tags = Tags.from("host", "host" + i);
+
+            // When
+            boolean sampled = subject.isSampled(50, "application", "metric", tags);
+
+            // Then
+            for (int j = 0; j < 10; j++) {
+                assertEquals("Should keep or drop every point of a series alike", sampled,
+                        subject.isSampled(50, "application", "metric", Tags.from("host", "host" + i)));
+            }
+            if (sampled) {
+                assertTrue("Should keep a kept series at a higher sample rate",
+                        subject.isSampled(75, "application", "metric", tags));
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.statful.client.core.sender;
+
+import com.statful.client.core.transport.TransportSender;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveBatchControllerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int BYTES_PER_METRIC = 50;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        now = 1000;
+    }
+
+    private AdaptiveBatchController newController(final int maxInFlight, final long maxBatchBytes) {
+        return new AdaptiveBatchController(10, 1000, 1000, 10000, 5000, maxInFlight, maxBatchBytes,
+                new AdaptiveBatchController.Clock() {
+                    @Override
+                    public long nanoTime() {
+                        return now;
+                    }
+                });
+    }
+
+    private static void recordSends(final AdaptiveBatchController subject, final int sends, final long latencyMillis) {
+        for (int i = 0; i < sends; i++) {
+            subject.recordLatency(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+    }
+
+    @Test
+    public void shouldStartAtTheMinimums() {
+        // When
+        AdaptiveBatchController subject = newController(2, 1048576);
+
+        // Then
+        assertEquals("Should start at the min flush size", 10, subject.getFlushSize());
+        assertEquals("Should start at the min flush interval", 1000, subject.getFlushIntervalMillis());
+    }
+
+    @Test
+    public void shouldGrowFlushSizeToDrainTwiceTheFillRate() {
+        // Given
+        AdaptiveBatchController subject = newController(2, 1048576);
+        subject.recordBatch(2000, 2000 * BYTES_PER_METRIC);
+        recordSends(subject, 10, 100);
+
+        // When
+        now += SECOND;
+        subject.adjust(0);
+
+        // Then
+        assertEquals("Should send 2000 metrics/s twice as fast with 2 batches of 100 ms in flight", 200, subject.getFlushSize());
+        assertEquals("Should keep the min flush interval while metrics are many", 1000, subject.getFlushIntervalMillis());
+    }
+
+    @Test
+    public void shouldShrinkFlushSizeByHalfTheDifference() {
+        // Given
+        AdaptiveBatchController subject = newController(2, 1048576);
+        subject.recordBatch(2000, 2000 * BYTES_PER_METRIC);
+        recordSends(subject, 10, 100);
+        now += SECOND;
+        subject.adjust(0);
+
+        // When
+        subject.recordBatch(200, 200 * BYTES_PER_METRIC);
+        recordSends(subject, 1, 100);
+        now += SECOND;
+        subject.adjust(0);
+
+        // Then
+        assertEquals("Should move halfway from 200 to 20", 110, subject.getFlushSize());
+    }
+
+    @Test
+    public void shouldAtLeastDoubleFlushSizeWhenBuffersAreMoreThanHalfFull() {
+        // Given
+        AdaptiveBatchController subject = newController(2, 1048576);
+
+        // When
+        now += SECOND;
+        subject.adjust(3000);
+
+        // Then
+        assertEquals("Should double the flush size without a known latency", 20, subject.getFlushSize());
+    }
+
+    @Test
+    public void shouldCapFlushSizeByBatchBytes() {
+        // Given
+        AdaptiveBatchController subject = newController(1, 100 * BYTES_PER_METRIC);
+        subject.recordBatch(4000, 4000 * BYTES_PER_METRIC);
+        recordSends(subject, 10, 100);
+
+        // When
+        now += SECOND;
+        subject.adjust(0);
+
+        // Then
+        assertEquals("Should fit a batch in the max batch bytes", 100, subject.getFlushSize());
+    }
+
+    @Test
+    public void shouldLengthenFlushIntervalWhenMetricsAreFew() {
+        // Given
+        AdaptiveBatchController subject = newController(2, 1048576);
+
+        // When
+        now += SECOND;
+        subject.adjust(5);
+        long slowInterval = subject.getFlushIntervalMillis();
+        now += SECOND;
+        subject.adjust(5);
+        long idleInterval = subject.getFlushIntervalMillis();
+
+        // Then
+        assertEquals("Should wait for the min flush size at 5 metrics/s", 2000, slowInterval);
+        assertEquals("Should wait the max flush interval when idle", 10000, idleInterval);
+        assertEquals("Should keep the min flush size", 10, subject.getFlushSize());
+    }
+
+    @Test
+    public void shouldKeepUpWithBurstWithoutOverflowing() {
+        // Given
+        final long latency = TimeUnit.MILLISECONDS.toNanos(50);
+        final long tick = TimeUnit.MILLISECONDS.toNanos(100);
+        final int arrivalsPerTick = 400;
+        final int capacity = 5000;
+        AdaptiveBatchController subject = newController(1, 1048576);
+        TransportSender transportSender = new TransportSender() {
+            @Override
+            public void send(final String message) {
+                now += latency;
+            }
+
+            @Override
+            public void send(final String message, final String uri) {
+                now += latency;
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        int buffered = 0;
+        int overflowed = 0;
+        int largestBatch = 0;
+
+        // When
+        for (int i = 1; i <= 50; i++) {
+            overflowed += Math.max(0, buffered + arrivalsPerTick - capacity);
+            buffered = Math.min(capacity, buffered + arrivalsPerTick);
+
+            long tickEnd = now + tick;
+            while (now < tickEnd && buffered > 0) {
+                int batch = Math.min(buffered, subject.getFlushSize());
+                buffered -= batch;
+                largestBatch = Math.max(largestBatch, batch);
+                subject.recordBatch(batch, batch * BYTES_PER_METRIC);
+
+                long start = now;
+                transportSender.send("metrics");
+                subject.recordLatency(now - start);
+            }
+            now = Math.max(now, tickEnd);
+
+            if (i % 10 == 0) {
+                subject.adjust(buffered);
+            }
+        }
+
+        // Then
+        assertEquals("Should not overflow the buffer", 0, overflowed);
+        assertEquals("Should drain the buffer", 0, buffered);
+        assertEquals("Should settle on a batch per tick", arrivalsPerTick, subject.getFlushSize());
+        assertEquals("Should not send batches larger than the flush size", arrivalsPerTick, largestBatch);
+    }
+}
@@ -1,11 +1,17 @@
 package com.statful.client.core.sender;
 
+import com.statful.client.core.buffer.MemoryBudget;
+import com.statful.client.core.transport.DeliveryStatus;
+import com.statful.client.core.transport.ReportingTransportSender;
 import com.statful.client.core.transport.TransportSender;
 import com.statful.client.domain.api.*;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -37,12 +43,14 @@ public class BufferedMetricsSenderAPITest {
 
     private BufferedMetricsSender subject;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         initMocks(this);
 
         when(configuration.getMaxWorkerTasksQueueSize()).thenReturn(100);
-        when(configuration.getWorkerTaskKillerInterval()).thenReturn(30000L);
         when(configuration.getFlushSize()).thenReturn(3);
         when(configuration.getFlushIntervalMillis()).thenReturn(0L);
         when(configuration.getSampleRate()).thenReturn(100);
@@ -94,6 +102,177 @@ public class BufferedMetricsSenderAPITest {
         assertEquals("MetricsBuffer should have 5000 metrics", 5000, buffer.get(Aggregation.AVG).get(AggregationFrequency.FREQ_10).size());
     }
 
+    @Test
+    public void shouldCountDroppedMetricsIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        subject.put("test_metric_overflow", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.aggregatedPut("test_metric", "500", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        assertEquals("Should count the dropped metric", 1, subject.getDroppedMetrics());
+    }
+
+    @Test
+    public void shouldDropOldestMetricsIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.DROP_OLDEST);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.put("test_metric" + i, "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        subject.put("test_metric_overflow", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have 5000 metrics", 5000, buffer.size());
+        assertEquals("Should drop the oldest metric", "application.test_metric1 500 123456789 100", buffer.get(0));
+        assertEquals("Should keep the newest metric", "application.test_metric_overflow 500 123456789 100", buffer.get(4999));
+        assertEquals("Should count the dropped metric", 1, subject.getDroppedMetrics());
+    }
+
+    @Test
+    public void shouldDropOldestAggregatedMetricsIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.DROP_OLDEST);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.aggregatedPut("test_metric" + i, "500", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        subject.aggregatedPut("test_metric_overflow", "500", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        List<String> buffer = subject.getAggregatedBuffer().get(Aggregation.AVG).get(AggregationFrequency.FREQ_10);
+        assertEquals("MetricsBuffer should have 5000 metrics", 5000, buffer.size());
+        assertEquals("Should drop the oldest metric", "application.test_metric1 500 123456789 100", buffer.get(0));
+        assertEquals("Should keep the newest metric", "application.test_metric_overflow 500 123456789 100", buffer.get(4999));
+    }
+
+    @Test
+    public void shouldBlockUntilTimeoutIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getMaxWorkerTasksQueueSize()).thenReturn(0);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.BLOCK);
+        when(configuration.getOverflowBlockTimeoutMillis()).thenReturn(20L);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        long start = System.nanoTime();
+        subject.put("test_metric_overflow", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertTrue("Should wait for the timeout", elapsedMillis >= 20);
+        assertEquals("Should drop the metric after the timeout", 1, subject.getDroppedMetrics());
+    }
+
+    @Test
+    public void shouldFlushWhileBlockedIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.BLOCK);
+        when(configuration.getOverflowBlockTimeoutMillis()).thenReturn(1000L);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        subject.put("test_metric_overflow", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        verify(transportSender, timeout(1000)).send(anyString());
+        assertEquals("Should add the metric once there is room", asList("application.test_metric_overflow 500 123456789 100"),
+                subject.getStandardBuffer());
+        assertEquals("Should not drop metrics", 0, subject.getDroppedMetrics());
+    }
+
+    @Test
+    public void shouldSampleDownIfBufferIsFull() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.SAMPLE_DOWN);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            subject.put("test_metric_overflow", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+        subject.forceSyncFlush();
+
+        for (int i = 0; i < 1000; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("Should sample down once per flush interval", 1, subject.getSampleDownLevel());
+        assertTrue("Should count the dropped metrics", subject.getDroppedMetrics() >= 1 && subject.getDroppedMetrics() <= 10);
+        assertTrue("Should keep about half of the metrics", buffer.size() > 350 && buffer.size() < 650);
+        for (String metric : buffer) {
+            assertTrue("Should send the halved sample rate", metric.endsWith(" 50"));
+        }
+    }
+
+    @Test
+    public void shouldSendEncodedMetricsWithSampledDownRate() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getOverflowPolicy()).thenReturn(OverflowPolicy.SAMPLE_DOWN);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        for (int i = 0; i < 5001; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+        subject.forceSyncFlush();
+
+        // When
+        EncodedSeries series = subject.encodeSeries("counter.transactions", null, "application");
+        for (int i = 0; i < 1000; i++) {
+            subject.putEncoded(series, 1L, " sum,count,10 100", 100, 123456789);
+        }
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("Should have sampled down", 1, subject.getSampleDownLevel());
+        assertFalse("Should keep some of the metrics", buffer.isEmpty());
+        for (String metric : buffer) {
+            assertEquals("Should send the halved sample rate", "application.counter.transactions 1 123456789 sum,count,10 50", metric);
+        }
+    }
+
     @Test
     public void shouldSendRawMetricWithTags() {
         // When
@@ -148,6 +327,46 @@ public class BufferedMetricsSenderAPITest {
         assertEquals("Should buffer timer metric", "application.test_metric 500 123456789 100", buffer.get(0));
     }
 
+    @Test
+    public void shouldSendPrimitiveRawMetrics() {
+        // When
+        subject.put("test_metric", 500L, null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric", 0.5, null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have both metrics", 2, buffer.size());
+        assertEquals("Should buffer long metric", "application.test_metric 500 123456789 100", buffer.get(0));
+        assertEquals("Should buffer double metric", "application.test_metric 0.5 123456789 100", buffer.get(1));
+    }
+
+    @Test
+    public void shouldSendPrimitiveRawAggregatedMetrics() {
+        // When
+        subject.aggregatedPut("test_metric", 500L, null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.aggregatedPut("test_metric", 0.5, null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        List<String> buffer = subject.getAggregatedBuffer().get(Aggregation.AVG).get(AggregationFrequency.FREQ_10);
+        assertEquals("MetricsBuffer should have both metrics", 2, buffer.size());
+        assertEquals("Should buffer long metric", "application.test_metric 500 123456789 100", buffer.get(0));
+        assertEquals("Should buffer double metric", "application.test_metric 0.5 123456789 100", buffer.get(1));
+    }
+
+    @Test
+    public void shouldSendEncodedMetrics() {
+        // When
+        subject.putEncoded(subject.encodeSeries("test_metric", Tags.from("host", "localhost"), "application"), 500L,
+                " avg,10 100", 100, 123456789);
+        subject.putEncoded(subject.encodeSeries("test_metric", null, "application"), 0.5, " 100", 100, 123456789);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have both metrics", 2, buffer.size());
+        assertEquals("Should buffer long metric", "application.test_metric,host=localhost 500 123456789 avg,10 100", buffer.get(0));
+        assertEquals("Should buffer double metric", "application.test_metric 0.5 123456789 100", buffer.get(1));
+    }
+
     @Test
     public void shouldSendRawMetricWithTagsAndAggregations() {
         // When
@@ -203,9 +422,102 @@ public class BufferedMetricsSenderAPITest {
         subject.put("test_metric2", "102", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456791);
         subject.put("test_metric3", "103", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456792);
 
+        awaitDrained(subject);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have 1 metric", 1, buffer.size());
+    }
+
+    @Test
+    public void shouldPreAggregateAggregatedMetrics() {
+        // Given
+        when(configuration.isPreAggregationEnabled()).thenReturn(true);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        long timestamp = System.currentTimeMillis() / 1000;
+        long windowStart = timestamp - timestamp % 300;
+
+        // When
+        subject.aggregatedPut("test_metric", "100", null, Aggregation.SUM, AggregationFrequency.FREQ_300, 100, "application", timestamp);
+        subject.aggregatedPut("test_metric", "101", null, Aggregation.SUM, AggregationFrequency.FREQ_300, 100, "application", timestamp);
+        subject.aggregatedPut("test_metric", "102", null, Aggregation.P90, AggregationFrequency.FREQ_300, 100, "application", timestamp);
+
+        // Then
+        Map<Aggregation, Map<AggregationFrequency, List<String>>> buffer = subject.getAggregatedBuffer();
+        assertNull("Should not buffer pre-aggregated samples", buffer.get(Aggregation.SUM));
+        assertEquals("Should buffer percentiles samples", 1, buffer.get(Aggregation.P90).get(AggregationFrequency.FREQ_300).size());
+
+        // And then
+        subject.forceSyncFlush();
+
+        verify(transportSender).send(eq("application.test_metric 201 " + windowStart + " 100\n"), anyString());
+        verify(transportSender).send(eq("application.test_metric 102 " + timestamp + " 100\n"), anyString());
+    }
+
+    @Test
+    public void shouldFlushMetricsBySizeWithRingBuffer() {
+        // Given
+        when(configuration.getBufferType()).thenReturn(BufferType.RING_BUFFER);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric1", "101", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456790);
+        subject.put("test_metric2", "102", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456791);
+        subject.put("test_metric3", "103", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456792);
+
+        awaitDrained(subject);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have 1 metric", 1, buffer.size());
+        assertEquals("Should buffer the last metric", "application.test_metric3 103 123456792 100", buffer.get(0));
+    }
+
+    @Test
+    public void shouldFlushMetricsBySizeWithShardedBuffer() {
+        // Given
+        when(configuration.getBufferType()).thenReturn(BufferType.SHARDED);
+        when(configuration.getBufferShards()).thenReturn(4);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric1", "101", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456790);
+        subject.put("test_metric2", "102", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456791);
+        subject.put("test_metric3", "103", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456792);
+
+        awaitDrained(subject);
+
+        // Then
+        List<String> buffer = subject.getStandardBuffer();
+        assertEquals("MetricsBuffer should have 1 metric", 1, buffer.size());
+        assertEquals("Should buffer the last metric", "application.test_metric3 103 123456792 100", buffer.get(0));
+    }
+
+    @Test
+    public void shouldFlushMetricsBySizeWithOffHeapBuffer() {
+        // Given
+        when(configuration.getBufferType()).thenReturn(BufferType.OFF_HEAP);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric1", "101", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456790);
+        subject.put("test_metric2", "102", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456791);
+        subject.put("test_metric3", "103", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456792);
+
+        awaitDrained(subject);
+
         // Then
         List<String> buffer = subject.getStandardBuffer();
         assertEquals("MetricsBuffer should have 1 metric", 1, buffer.size());
+        assertEquals("Should buffer the last metric", "application.test_metric3 103 123456792 100", buffer.get(0));
     }
 
     @Test
@@ -242,6 +554,8 @@ public class BufferedMetricsSenderAPITest {
         subject.aggregatedPut("test_metric2", "102", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456791);
         subject.aggregatedPut("test_metric3", "103", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456792);
 
+        awaitDrained(subject);
+
         // Then
         List<String> buffer = subject.getStandardBuffer();
         assertTrue("MetricsBuffer should be empty", buffer.isEmpty());
@@ -261,6 +575,8 @@ public class BufferedMetricsSenderAPITest {
         subject.aggregatedPut("test_metric2", "102", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456791);
         subject.aggregatedPut("test_metric3", "103", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456792);
 
+        awaitDrained(subject);
+
         // Then
         List<String> buffer = subject.getAggregatedBuffer().get(Aggregation.AVG).get(AggregationFrequency.FREQ_10);
         assertEquals("MetricsBuffer should have 1 metric", 1, buffer.size());
@@ -278,6 +594,8 @@ public class BufferedMetricsSenderAPITest {
         subject.aggregatedPut("test_metric2", "102", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456791);
         subject.aggregatedPut("test_metric3", "103", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456792);
 
+        awaitDrained(subject);
+
         // Then
         List<String> buffer = subject.getAggregatedBuffer().get(Aggregation.COUNT).get(AggregationFrequency.FREQ_10);
         assertTrue("MetricsBuffer should be empty", buffer.isEmpty());
@@ -307,6 +625,7 @@ public class BufferedMetricsSenderAPITest {
 
         executorService.shutdown();
         executorService.awaitTermination(500, TimeUnit.MILLISECONDS);
+        awaitDrained(subject);
 
         // Then
         List<String> buffer = subject.getStandardBuffer();
@@ -330,6 +649,83 @@ public class BufferedMetricsSenderAPITest {
         assertTrue("MetricsBuffer should have at least 1 metric and at most 2 metrics", size > 0 && size <= 2);
     }
 
+    @Test
+    public void shouldSampleSeriesConsistently() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getSamplingStrategy()).thenReturn(SamplingStrategy.CONSISTENT);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            subject.put("test_metric0", "100", Tags.from("host", "a"), null, AggregationFrequency.FREQ_10, 50, "application", 123456789);
+        }
+
+        // Then
+        int size = subject.getStandardBuffer().size();
+        assertTrue("Should keep either every point of the series or none", size == 0 || size == 20);
+    }
+
+    @Test
+    public void shouldSendExcessSeriesAsOverflowSeries() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getMaxSeries()).thenReturn(2);
+        when(configuration.getApplicationTags()).thenReturn(Tags.from("app", "test"));
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            subject.put("requests", "1", Tags.from("user", "user" + i), null, null, 100, "application", 123456789);
+        }
+        subject.put("requests", "1", Tags.from("user", "user0"), null, null, 100, "application", 123456789);
+
+        // Then
+        assertEquals("Should send the series that fit as they are", asList(
+                "application.requests,user=user0 1 123456789 100",
+                "application.requests,user=user1 1 123456789 100",
+                "application.requests,app=test,overflow=true 1 123456789 100",
+                "application.requests,app=test,overflow=true 1 123456789 100",
+                "application.requests,user=user0 1 123456789 100"), subject.getStandardBuffer());
+        assertEquals("Should register the series that fit", 2, subject.getSeriesRegistry().getSeriesCount());
+        assertEquals("Should count the overflowed metrics", 2L, subject.getStats().get("series.overflowed").longValue());
+    }
+
+    @Test
+    public void shouldSendEncodedMetricsOfExcessSeriesAsOverflowSeries() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getMaxSeries()).thenReturn(1);
+        when(configuration.getApplicationTags()).thenReturn(Tags.from("app", "test"));
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+        EncodedSeries first = subject.encodeSeries("requests", Tags.from("user", "user0"), "application");
+        EncodedSeries second = subject.encodeSeries("requests", Tags.from("user", "user1"), "application");
+
+        // When
+        subject.putEncoded(first, 1L, " 100", 100, 123456789);
+        subject.putEncoded(second, 1L, " 100", 100, 123456789);
+
+        // Then
+        assertEquals("Should send the encoded series that fit as they are", asList(
+                "application.requests,user=user0 1 123456789 100",
+                "application.requests,app=test,overflow=true 1 123456789 100"), subject.getStandardBuffer());
+        assertEquals("Should register the series when it's encoded", 1, subject.getSeriesRegistry().getSeriesCount());
+    }
+
+    @Test
+    public void shouldNotRegisterSeriesWithoutMaxSeries() {
+        // When
+        subject.put("requests", "1", Tags.from("user", "user0"), null, null, 100, "application", 123456789);
+
+        // Then
+        assertNull("Should not keep a series registry", subject.getSeriesRegistry());
+        assertEquals("Should send the metric with its tags", asList("application.requests,user=user0 1 123456789 100"),
+                subject.getStandardBuffer());
+    }
+
     @Test
     public void shouldSendAggregatedWithSampleRate() {
         // When
@@ -574,23 +970,152 @@ public class BufferedMetricsSenderAPITest {
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void shouldDropMetricsWhenWorkerTasksQueueIsFull() {
+    public void shouldDropMetricsWhenFlushPipelineIsFull() {
         // Given
         when(configuration.getFlushIntervalMillis()).thenReturn(5000L);
         when(configuration.getFlushSize()).thenReturn(1);
         when(configuration.getMaxWorkerTasksQueueSize()).thenReturn(1);
 
+        ScheduledThreadPoolExecutor mockExecutor = mock(ScheduledThreadPoolExecutor.class);
 
-        final ScheduledFuture mockFuture = mock(ScheduledFuture.class);
+        final BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, mockExecutor);
 
-        BlockingQueue<Runnable> mockQueue = mock(BlockingQueue.class);
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric1", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        awaitDrained(subject);
+
+        // Then
+        verify(mockExecutor, times(1)).execute(any(Runnable.class));
+        verify(mockExecutor, never()).purge();
+        assertEquals("Should count the metrics of the rejected batch as dropped", 1, subject.getDroppedMetrics());
+        assertEquals("Should count the queued batch", Long.valueOf(1), subject.getStats().get("batches.queued"));
+        assertEquals("Should count the rejected batch", Long.valueOf(1), subject.getStats().get("batches.rejected"));
+    }
+
+    @Test
+    public void shouldAssembleBatchesOnDrainerThread() {
+        // Given
+        final List<String> submittingThreads = new CopyOnWriteArrayList<String>();
         ScheduledThreadPoolExecutor mockExecutor = mock(ScheduledThreadPoolExecutor.class);
-        when(mockExecutor.schedule(any(Runnable.class), anyInt(), any(TimeUnit.class))).thenReturn(mockFuture);
-        when(mockExecutor.getQueue()).thenReturn(mockQueue);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                submittingThreads.add(Thread.currentThread().getName());
+                return null;
+            }
+        }).when(mockExecutor).execute(any(Runnable.class));
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, mockExecutor);
+
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric1", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric2", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        awaitDrained(subject);
+
+        // Then
+        assertEquals("Should submit the batch from the drainer thread", asList("statful-flush-drainer"), submittingThreads);
+        assertTrue("Should empty the buffer", subject.getStandardBuffer().isEmpty());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldCountDoneAndFailedBatches() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(1);
+        doNothing().doThrow(new RuntimeException("Unreachable")).when(transportSender).send(anyString());
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        verify(transportSender, timeout(1000)).send(anyString());
+        subject.put("test_metric1", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        verify(transportSender, timeout(1000).times(2)).send(anyString());
+
+        // Then
+        long deadline = System.currentTimeMillis() + 1000;
+        while (subject.getStats().get("batches.failed") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertEquals("Should count the delivered batch", Long.valueOf(1), subject.getStats().get("batches.done"));
+        assertEquals("Should count the failed batch", Long.valueOf(1), subject.getStats().get("batches.failed"));
+    }
+
+    @Test
+    public void shouldCountFailedBatchesOfReportingTransportWithoutSpool() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(1);
+        ReportingTransportSender reportingSender = mock(ReportingTransportSender.class);
+        when(reportingSender.trySend(anyString())).thenReturn(DeliveryStatus.DELIVERED, DeliveryStatus.FAILED);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(reportingSender, configuration, executorService);
 
-        when(mockQueue.size()).thenReturn(0, 1);
+        // When
+        subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        verify(reportingSender, timeout(1000)).trySend(anyString());
+        subject.put("test_metric1", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        verify(reportingSender, timeout(1000).times(2)).trySend(anyString());
+
+        // Then
+        long deadline = System.currentTimeMillis() + 1000;
+        while (subject.getStats().get("batches.failed") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertNull("Should not have a spool", subject.getSpool());
+        assertEquals("Should count the delivered batch", Long.valueOf(1), subject.getStats().get("batches.done"));
+        assertEquals("Should count the failed batch", Long.valueOf(1), subject.getStats().get("batches.failed"));
+        verify(reportingSender, never()).send(anyString());
+    }
+
+    @Test
+    public void shouldSpoolUndeliveredMetricsAndReplayThemInOrder() {
+        // Given
+        when(configuration.getSpoolDirectory()).thenReturn(folder.getRoot().getPath());
+        when(configuration.getSpoolMaxBytes()).thenReturn(1024L * 1024);
+        when(configuration.getSpoolMaxAgeMillis()).thenReturn(3600000L);
+        when(configuration.getFlushSize()).thenReturn(1000);
+
+        ReportingTransportSender reportingSender = mock(ReportingTransportSender.class);
+        when(reportingSender.trySend(anyString())).thenReturn(DeliveryStatus.FAILED, DeliveryStatus.FAILED, DeliveryStatus.DELIVERED);
+
+        BufferedMetricsSender subject = new BufferedMetricsSender(reportingSender, configuration, executorService);
+
+        // When
+        subject.put("first", "1", null, null, AggregationFrequency.FREQ_10, 100, "application", 100);
+        subject.forceSyncFlush();
+        assertEquals("Should spool the undelivered metric", 1, subject.getSpool().getPendingBatches());
+
+        subject.put("second", "2", null, null, AggregationFrequency.FREQ_10, 100, "application", 100);
+        subject.forceSyncFlush();
+
+        subject.put("third", "3", null, null, AggregationFrequency.FREQ_10, 100, "application", 100);
+        subject.forceSyncFlush();
+
+        // Then
+        InOrder inOrder = inOrder(reportingSender);
+        inOrder.verify(reportingSender).trySend("application.first 1 100 100\n");
+        inOrder.verify(reportingSender).trySend("application.second 2 100 100\n");
+        inOrder.verify(reportingSender).trySend("application.third 3 100 100\n");
+        inOrder.verify(reportingSender).trySend("application.first 1 100 100\n");
+        inOrder.verify(reportingSender).trySend("application.second 2 100 100\n");
+        assertTrue("Should replay the spooled metrics", subject.getSpool().isEmpty());
+    }
+
+    @Test
+    public void shouldSpoolMetricsWhenWorkerTasksQueueIsFull() {
+        // Given
+        when(configuration.getSpoolDirectory()).thenReturn(folder.getRoot().getPath());
+        when(configuration.getSpoolMaxBytes()).thenReturn(1024L * 1024);
+        when(configuration.getSpoolMaxAgeMillis()).thenReturn(3600000L);
+        when(configuration.getFlushIntervalMillis()).thenReturn(5000L);
+        when(configuration.getFlushSize()).thenReturn(1);
+        when(configuration.getMaxWorkerTasksQueueSize()).thenReturn(1);
+
+        ScheduledThreadPoolExecutor mockExecutor = mock(ScheduledThreadPoolExecutor.class);
 
         final BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, mockExecutor);
 
@@ -598,8 +1123,128 @@ public class BufferedMetricsSenderAPITest {
         subject.put("test_metric0", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
         subject.put("test_metric1", "100", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
 
+        awaitDrained(subject);
+
+        // Then
+        verify(mockExecutor, times(1)).execute(any(Runnable.class));
+        assertEquals("Should not drop the spooled metrics", 0, subject.getDroppedMetrics());
+        assertEquals("Should spool the overflowing metric", "application.test_metric1 100 123456789 100\n",
+                subject.getSpool().peek().getMessage());
+    }
+
+    @Test
+    public void shouldCollectStats() {
+        // Given
+        when(configuration.getFlushSize()).thenReturn(10000);
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.aggregatedPut("test_metric", "500", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 101, "application", 123456789);
+
+        // Then
+        Map<String, Long> stats = subject.getStats().snapshot();
+        assertEquals("Should report the standard buffer depth", Long.valueOf(2), stats.get("buffer.standard.depth"));
+        assertEquals("Should report the accepted metrics", Long.valueOf(2), stats.get("buffer.standard.accepted"));
+        assertEquals("Should report the aggregated buffer depth", Long.valueOf(1), stats.get("buffer.aggregated.depth"));
+        assertEquals("Should report the invalid metrics", Long.valueOf(1), stats.get("metrics.invalid"));
+        assertEquals("Should report no dropped metrics", Long.valueOf(0), stats.get("metrics.dropped"));
+
+        // When
+        subject.forceSyncFlush();
+
+        // Then
+        stats = subject.getStats().snapshot();
+        assertEquals("Should report the flushes", Long.valueOf(2), stats.get("flush.count"));
+        assertEquals("Should report the emptied buffer", Long.valueOf(0), stats.get("buffer.standard.depth"));
+    }
+
+    @Test
+    public void shouldSendSelfMetrics() {
+        // Given
+        when(configuration.getFlushIntervalMillis()).thenReturn(100L);
+        when(configuration.isSelfMetricsEnabled()).thenReturn(true);
+
+        // When
+        new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // Then
+        verify(transportSender, timeout(2000).atLeastOnce()).send(contains("statful.client.buffer.standard.depth"));
+    }
+
+    @Test
+    public void shouldDropMetricsOverMemoryBudget() {
+        // Given
+        when(configuration.getBufferCapacity()).thenReturn(10);
+        when(configuration.getMemoryBudgetBytes()).thenReturn(MemoryBudget.SLOT_BYTES * 10 + 10);
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        subject.aggregatedPut("test_metric", "500", null, Aggregation.AVG, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        assertTrue("Should not buffer the metrics", subject.getStandardBuffer().isEmpty() && subject.getAggregatedBuffer().isEmpty());
+        assertEquals("Should count the dropped metrics", 2, subject.getDroppedMetrics());
+        assertEquals("Should count the rejections", Long.valueOf(2), subject.getStats().get("memory.rejected"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateSenderWithMemoryBudgetTakenBySlots() {
+        // Given
+        when(configuration.getBufferCapacity()).thenReturn(10);
+        when(configuration.getMemoryBudgetBytes()).thenReturn(MemoryBudget.SLOT_BYTES * 10);
+
+        // When
+        new BufferedMetricsSender(transportSender, configuration, executorService);
+    }
+
+    @Test
+    public void shouldFlushWhenMemoryBudgetIsUnderPressure() {
+        // Given
+        String metric = "application.test_metric 500 123456789 100";
+        when(configuration.getFlushSize()).thenReturn(10000);
+        when(configuration.getMemoryBudgetBytes()).thenReturn(MemoryBudget.SLOT_BYTES * 5000 + 4 * MemoryBudget.sizeOf(metric));
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+        }
+
         // Then
-        verify(mockExecutor, times(1)).schedule(any(Runnable.class), anyInt(), any(TimeUnit.class));
+        verify(transportSender, timeout(2000)).send(metric + "\n" + metric + "\n" + metric + "\n");
+        awaitDrained(subject);
+        assertEquals("Should release the bytes of the flushed metrics", subject.getMemoryBudget().getReservedBytes(),
+                subject.getMemoryBudget().getUsedBytes());
+    }
+
+    @Test
+    public void shouldFlushPeriodicallyWithAdaptiveBatching() {
+        // Given
+        when(configuration.getFlushIntervalMillis()).thenReturn(100L);
+        when(configuration.isAdaptiveBatchingEnabled()).thenReturn(true);
+        BufferedMetricsSender subject = new BufferedMetricsSender(transportSender, configuration, executorService);
+
+        // When
+        subject.put("test_metric", "500", null, null, AggregationFrequency.FREQ_10, 100, "application", 123456789);
+
+        // Then
+        verify(transportSender, timeout(2000)).send("application.test_metric 500 123456789 100\n");
+        Map<String, Long> stats = subject.getStats().snapshot();
+        assertEquals("Should start at the configured flush size", Long.valueOf(3), stats.get("batching.flush_size"));
+        assertTrue("Should keep the flush interval within its bounds", stats.get("batching.flush_interval_millis") >= 100
+                && stats.get("batching.flush_interval_millis") <= 1000);
+    }
+
+    private static void awaitDrained(final BufferedMetricsSender subject) {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!subject.isDrainerIdle() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertTrue("Should flush on the drainer thread", subject.isDrainerIdle());
     }
 
     private Answer<String> mockedTransportResponse = new Answer<String>() {
@@ -0,0 +1,113 @@
+package com.statful.client.core.sender;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class FlushDrainerTest {
+
+    private static final Logger LOGGER = Logger.getLogger(FlushDrainerTest.class.getName());
+
+    private FlushDrainer subject;
+
+    @After
+    public void tearDown() {
+        if (subject != null) {
+            subject.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFlushOnDrainerThreadWhenSignalled() throws Exception {
+        // Given
+        final String[] flushThread = new String[1];
+        final CountDownLatch flushed = new CountDownLatch(1);
+        subject = new FlushDrainer(LOGGER, "test-drainer", new Runnable() {
+            @Override
+            public void run() {
+                flushThread[0] = Thread.currentThread().getName();
+                flushed.countDown();
+            }
+        });
+        subject.start();
+
+        // When
+        subject.signal();
+
+        // Then
+        assertTrue("Should flush once signalled", flushed.await(1, TimeUnit.SECONDS));
+        assertEquals("Should flush on the drainer thread", "test-drainer", flushThread[0]);
+    }
+
+    @Test
+    public void shouldCoalesceSignalsWhileFlushing() throws Exception {
+        // Given
+        final CountDownLatch flushing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger flushes = new AtomicInteger();
+        subject = new FlushDrainer(LOGGER, "test-drainer", new Runnable() {
+            @Override
+            public void run() {
+                flushes.incrementAndGet();
+                flushing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        subject.start();
+        subject.signal();
+        assertTrue("Should start flushing", flushing.await(1, TimeUnit.SECONDS));
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            subject.signal();
+        }
+        release.countDown();
+        awaitIdle();
+
+        // Then
+        assertEquals("Should flush once more for all the signals raised while flushing", 2, flushes.get());
+        assertEquals("Should count the drains", 2, subject.getDrains());
+    }
+
+    @Test
+    public void shouldKeepDrainingAfterFailedFlush() throws Exception {
+        // Given
+        final AtomicInteger flushes = new AtomicInteger();
+        subject = new FlushDrainer(LOGGER, "test-drainer", new Runnable() {
+            @Override
+            public void run() {
+                if (flushes.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Unable to flush");
+                }
+            }
+        });
+        subject.start();
+
+        // When
+        subject.signal();
+        awaitIdle();
+        subject.signal();
+        awaitIdle();
+
+        // Then
+        assertEquals("Should flush again after a failure", 2, flushes.get());
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!subject.isIdle() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue("Should finish flushing", subject.isIdle());
+    }
+}
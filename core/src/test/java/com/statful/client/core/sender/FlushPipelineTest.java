@@ -0,0 +1,133 @@
+package com.statful.client.core.sender;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class FlushPipelineTest {
+
+    private static final Logger LOGGER = Logger.getLogger(FlushPipelineTest.class.getName());
+
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    @Test
+    public void shouldRejectBatchesPastMaxInFlight() {
+        // Given
+        FlushPipeline subject = new FlushPipeline(LOGGER, executor, 2);
+
+        // When
+        boolean first = subject.submit(batch(true));
+        boolean second = subject.submit(batch(true));
+        boolean third = subject.submit(batch(true));
+
+        // Then
+        assertTrue("Should take the first batches", first && second);
+        assertFalse("Should reject the batch past the maximum", third);
+        assertFalse("Should have no room", subject.hasRoom());
+        assertEquals("Should queue the taken batches", 2, subject.getQueued());
+        assertEquals("Should count the rejected batch", 1, subject.getRejected());
+    }
+
+    @Test
+    public void shouldMakeRoomOnceBatchesAreSent() {
+        // Given
+        FlushPipeline subject = new FlushPipeline(LOGGER, executor, 1);
+        subject.submit(batch(true));
+
+        // When
+        tasks.remove(0).run();
+
+        // Then
+        assertTrue("Should have room again", subject.hasRoom());
+        assertTrue("Should take a new batch", subject.submit(batch(false)));
+
+        // When
+        tasks.remove(0).run();
+
+        // Then
+        assertEquals("Should count the delivered batch", 1, subject.getDone());
+        assertEquals("Should count the failed batch", 1, subject.getFailed());
+        assertEquals("Should have no batches queued", 0, subject.getQueued());
+        assertEquals("Should have no batches being sent", 0, subject.getSending());
+    }
+
+    @Test
+    public void shouldCountBatchSendingInProgress() {
+        // Given
+        final FlushPipeline subject = new FlushPipeline(LOGGER, executor, 1);
+        final int[] sending = new int[1];
+        subject.submit(new FlushPipeline.Batch() {
+            @Override
+            public boolean send() {
+                sending[0] = subject.getSending();
+                return true;
+            }
+        });
+
+        // When
+        tasks.remove(0).run();
+
+        // Then
+        assertEquals("Should count the batch as sending while it's sent", 1, sending[0]);
+    }
+
+    @Test
+    public void shouldCountExceptionsAsFailedBatches() {
+        // Given
+        FlushPipeline subject = new FlushPipeline(LOGGER, executor, 1);
+        subject.submit(new FlushPipeline.Batch() {
+            @Override
+            public boolean send() {
+                throw new IllegalStateException("Unreachable");
+            }
+        });
+
+        // When
+        tasks.remove(0).run();
+
+        // Then
+        assertEquals("Should count the batch as failed", 1, subject.getFailed());
+        assertTrue("Should make room for new batches", subject.hasRoom());
+    }
+
+    @Test
+    public void shouldReleaseRoomWhenExecutorRejectsBatch() {
+        // Given
+        FlushPipeline subject = new FlushPipeline(LOGGER, new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException("Shut down");
+            }
+        }, 1);
+
+        // When
+        boolean submitted = subject.submit(batch(true));
+
+        // Then
+        assertFalse("Should not take the batch", submitted);
+        assertTrue("Should keep the room", subject.hasRoom());
+        assertEquals("Should count the rejected batch", 1, subject.getRejected());
+    }
+
+    private static FlushPipeline.Batch batch(final boolean delivered) {
+        return new FlushPipeline.Batch() {
+            @Override
+            public boolean send() {
+                return delivered;
+            }
+        };
+    }
+}
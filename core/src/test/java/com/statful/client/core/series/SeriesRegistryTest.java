@@ -0,0 +1,106 @@
+package com.statful.client.core.series;
+
+import com.statful.client.domain.api.CardinalityPolicy;
+import com.statful.client.domain.api.TagSet;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SeriesRegistryTest {
+
+    @Test
+    public void shouldInternSeriesIntoIds() {
+        // Given
+        SeriesRegistry subject = new SeriesRegistry(10, CardinalityPolicy.OVERFLOW);
+
+        // When
+        int first = subject.register("application", "requests", TagSet.of("host", "a"));
+        int second = subject.register("application", "requests", TagSet.of("host", "b"));
+        int other = subject.register(null, "requests", TagSet.of("host", "a"));
+
+        // Then
+        assertEquals("Should return the same id for the same series", first,
+                subject.register("application", "requests", TagSet.of("host", "a")));
+        assertEquals("Should give every series its own id", 3, new HashSet<Integer>(asSet(first, second, other)).size());
+        assertEquals("Should count the series", 3, subject.getSeriesCount());
+        assertEquals("Should keep the series of the id", TagSet.of("host", "b"), subject.getSeries(second).getTags());
+        assertNull("Should not keep a series for the overflow id", subject.getSeries(SeriesRegistry.OVERFLOW_ID));
+    }
+
+    @Test
+    public void shouldOverflowPastMaxSeries() {
+        // Given
+        SeriesRegistry subject = new SeriesRegistry(2, CardinalityPolicy.OVERFLOW);
+        int first = subject.register("application", "requests", TagSet.of("user", "0"));
+        subject.register("application", "requests", TagSet.of("user", "1"));
+
+        // When
+        int overflowed = subject.register("application", "requests", TagSet.of("user", "2"));
+        subject.sweep();
+
+        // Then
+        assertEquals("Should overflow new series", SeriesRegistry.OVERFLOW_ID, overflowed);
+        assertEquals("Should keep the registered series", first, subject.register("application", "requests", TagSet.of("user", "0")));
+        assertEquals("Should not evict series with the overflow policy", 2, subject.getSeriesCount());
+        assertEquals("Should count the overflowed metrics", 1, subject.getOverflowedMetrics());
+    }
+
+    @Test
+    public void shouldEvictIdleSeries() {
+        // Given
+        SeriesRegistry subject = new SeriesRegistry(2, CardinalityPolicy.EVICT_IDLE);
+        int active = subject.register("application", "requests", TagSet.of("user", "0"));
+        int idle = subject.register("application", "requests", TagSet.of("user", "1"));
+        subject.sweep();
+
+        // When
+        subject.register("application", "requests", TagSet.of("user", "0"));
+        subject.sweep();
+        int added = subject.register("application", "requests", TagSet.of("user", "2"));
+
+        // Then
+        assertEquals("Should keep the active series", active, subject.register("application", "requests", TagSet.of("user", "0")));
+        assertEquals("Should reuse the id of the evicted series", idle, added);
+        assertEquals("Should count the evicted series", 1, subject.getEvictedSeries());
+        assertEquals("Should count the series", 2, subject.getSeriesCount());
+    }
+
+    @Test
+    public void shouldKeepFindingSeriesAfterManyEvictions() {
+        // Given
+        SeriesRegistry subject = new SeriesRegistry(100, CardinalityPolicy.EVICT_IDLE);
+        int kept = subject.register("application", "requests", TagSet.EMPTY);
+
+        // When
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 99; i++) {
+                assertNotEquals("Should have room for the series", SeriesRegistry.OVERFLOW_ID,
+                        subject.register("application", "requests", TagSet.of("user", round + "-" + i)));
+            }
+            assertEquals("Should find the kept series", kept, subject.register("application", "requests", TagSet.EMPTY));
+            subject.sweep();
+            subject.register("application", "requests", TagSet.EMPTY);
+            subject.sweep();
+        }
+
+        // Then
+        assertEquals("Should only keep the series registered since the previous sweep", 1, subject.getSeriesCount());
+        assertEquals("Should evict the idle series", 50 * 99, subject.getEvictedSeries());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotCreateWithoutMaxSeries() {
+        new SeriesRegistry(0, CardinalityPolicy.OVERFLOW);
+    }
+
+    private static Set<Integer> asSet(final int... ids) {
+        Set<Integer> set = new HashSet<Integer>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
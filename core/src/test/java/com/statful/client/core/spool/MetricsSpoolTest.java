@@ -0,0 +1,169 @@
+package com.statful.client.core.spool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MetricsSpoolTest {
+
+    private static final long ONE_HOUR = 3600000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayBatchesInOrder() throws Exception {
+        // Given
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 64 * 1024);
+        subject.append("application.counter.first 1 100\n", null);
+        subject.append("application.counter.second 2 100\n", "http://127.0.0.1/tel/v2.0/metrics/aggregation/sum/frequency/10");
+
+        // When
+        SpooledBatch first = subject.peek();
+        subject.remove(first);
+        SpooledBatch second = subject.peek();
+        subject.remove(second);
+
+        // Then
+        assertEquals("Should replay the first batch", "application.counter.first 1 100\n", first.getMessage());
+        assertNull("Should keep the default URI", first.getUri());
+        assertEquals("Should replay the second batch", "application.counter.second 2 100\n", second.getMessage());
+        assertEquals("Should keep the aggregated URI", "http://127.0.0.1/tel/v2.0/metrics/aggregation/sum/frequency/10", second.getUri());
+        assertNull("Should be empty", subject.peek());
+        assertTrue("Should be empty", subject.isEmpty());
+    }
+
+    @Test
+    public void shouldKeepBatchUntilRemoved() throws Exception {
+        // Given
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 64 * 1024);
+        subject.append("application.counter.first 1 100\n", null);
+
+        // When
+        SpooledBatch batch = subject.peek();
+
+        // Then
+        assertEquals("Should peek the same batch again", batch.getMessage(), subject.peek().getMessage());
+        assertEquals("Should have a pending batch", 1, subject.getPendingBatches());
+    }
+
+    @Test
+    public void shouldRecoverBatchesThatWereNotReplayed() throws Exception {
+        // Given
+        MetricsSpool previous = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 64 * 1024);
+        previous.append("application.counter.first 1 100\n", null);
+        previous.append("application.counter.second 2 100\n", null);
+        previous.remove(previous.peek());
+        previous.flush();
+
+        // When
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 64 * 1024);
+        subject.append("application.counter.third 3 100\n", null);
+
+        // Then
+        assertEquals("Should recover the pending batches", 2, subject.getPendingBatches());
+        SpooledBatch second = subject.peek();
+        assertEquals("Should not replay consumed batches", "application.counter.second 2 100\n", second.getMessage());
+        subject.remove(second);
+        assertEquals("Should append after the recovered batches", "application.counter.third 3 100\n", subject.peek().getMessage());
+    }
+
+    @Test
+    public void shouldRollSegmentsAndDeleteReplayedOnes() throws Exception {
+        // Given
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 128);
+        for (int i = 0; i < 10; i++) {
+            subject.append("application.counter.requests " + i + " 100\n", null);
+        }
+        int segments = folder.getRoot().list().length;
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            SpooledBatch batch = subject.peek();
+            assertEquals("Should replay in order", "application.counter.requests " + i + " 100\n", batch.getMessage());
+            subject.remove(batch);
+        }
+
+        // Then
+        assertTrue("Should write several segments", segments > 1);
+        assertEquals("Should only keep the current segment", 1, folder.getRoot().list().length);
+        assertEquals("Should only count the current segment", 128, subject.getSpooledBytes());
+    }
+
+    @Test
+    public void shouldDropOldestBatchesWhenQuotaIsExceeded() throws Exception {
+        // Given
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 256, ONE_HOUR, 128);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            subject.append("application.counter.requests " + i + " 100\n", null);
+        }
+
+        // Then
+        assertTrue("Should respect the quota", subject.getSpooledBytes() <= 256);
+        assertTrue("Should count dropped batches", subject.getDroppedBatches() > 0);
+        assertEquals("Should keep the newest batches", 10, subject.getDroppedBatches() + subject.getPendingBatches());
+        assertFalse("Should drop the oldest batch", "application.counter.requests 0 100\n".equals(subject.peek().getMessage()));
+    }
+
+    @Test
+    public void shouldDropBatchesBiggerThanQuota() throws Exception {
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 64, ONE_HOUR, 32);
+
+        assertFalse("Should not spool the batch", subject.append("application.counter.requests,host=localhost,cluster=production 1 100\n", null));
+        assertEquals("Should count the dropped batch", 1, subject.getDroppedBatches());
+    }
+
+    @Test
+    public void shouldDropExpiredBatches() throws Exception {
+        // Given
+        final AtomicLong now = new AtomicLong(1000);
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, 10, 64 * 1024, new MetricsSpool.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now.get();
+            }
+        });
+        subject.append("application.counter.first 1 100\n", null);
+        now.addAndGet(11);
+        subject.append("application.counter.second 2 100\n", null);
+
+        // When
+        SpooledBatch batch = subject.peek();
+
+        // Then
+        assertEquals("Should skip the expired batch", "application.counter.second 2 100\n", batch.getMessage());
+        assertEquals("Should count the expired batch", 1, subject.getExpiredBatches());
+    }
+
+    @Test
+    public void shouldIgnoreRemovedBatches() throws Exception {
+        // Given
+        MetricsSpool subject = new MetricsSpool(folder.getRoot(), 1024 * 1024, ONE_HOUR, 64 * 1024);
+        subject.append("application.counter.first 1 100\n", null);
+        subject.append("application.counter.second 2 100\n", null);
+        SpooledBatch first = subject.peek();
+        subject.remove(first);
+
+        // When
+        subject.remove(first);
+
+        // Then
+        assertEquals("Should not remove the next batch", 1, subject.getPendingBatches());
+    }
+
+    @Test
+    public void shouldCreateSpoolDirectory() throws Exception {
+        File directory = new File(folder.getRoot(), "spool");
+
+        new MetricsSpool(directory, 1024 * 1024, ONE_HOUR);
+
+        assertTrue("Should create the directory", directory.isDirectory());
+    }
+}
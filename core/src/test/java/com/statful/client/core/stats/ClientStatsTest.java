@@ -0,0 +1,128 @@
+package com.statful.client.core.stats;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClientStatsTest {
+
+    private final ClientStats subject = new ClientStats();
+
+    @After
+    public void tearDown() {
+        subject.unregisterMBean();
+    }
+
+    @Test
+    public void shouldCountConcurrently() throws Exception {
+        // Given
+        final StripedCounter counter = new StripedCounter();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue("Should finish counting", executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals("Should count every increment", 80000, counter.sum());
+    }
+
+    @Test
+    public void shouldSnapshotStatsSortedByName() {
+        // Given
+        StripedCounter counter = new StripedCounter();
+        counter.add(5);
+        subject.register("metrics.sampled_out", counter);
+        subject.register("buffer.standard.depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return 3;
+            }
+        });
+
+        // When
+        Map<String, Long> snapshot = subject.snapshot();
+
+        // Then
+        assertEquals("Should sort the stats by name", "[buffer.standard.depth, metrics.sampled_out]", snapshot.keySet().toString());
+        assertEquals("Should read the gauge", Long.valueOf(3), snapshot.get("buffer.standard.depth"));
+        assertEquals("Should read the counter", Long.valueOf(5), subject.get("metrics.sampled_out"));
+        assertNull("Should not read unknown stats", subject.get("unknown"));
+    }
+
+    @Test
+    public void shouldRegisterStatsOfInstrumentedComponents() {
+        // Given
+        Instrumented component = new Instrumented() {
+            @Override
+            public void registerStats(final ClientStats stats) {
+                stats.register("component.stat", new StripedCounter());
+            }
+        };
+
+        // When
+        subject.registerAll(component);
+        subject.registerAll(new Object());
+
+        // Then
+        assertEquals("Should register the stats of the component", Long.valueOf(0), subject.get("component.stat"));
+    }
+
+    @Test
+    public void shouldPublishStatsThroughJmx() throws Exception {
+        // Given
+        StripedCounter counter = new StripedCounter();
+        subject.register("flush.count", counter);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        // When
+        assertTrue("Should register the MBean", subject.registerMBean("client-stats-test"));
+        counter.add(7);
+
+        // Then
+        assertEquals("Should read the stat through JMX", 7L, server.getAttribute(subject.getObjectName(), "flush.count"));
+        assertEquals("Should describe the stats", 1, server.getMBeanInfo(subject.getObjectName()).getAttributes().length);
+    }
+
+    @Test
+    public void shouldUnregisterMBean() {
+        // Given
+        subject.registerMBean("client-stats-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = subject.getObjectName();
+
+        // When
+        subject.unregisterMBean();
+
+        // Then
+        assertFalse("Should unregister the MBean", server.isRegistered(objectName));
+        assertTrue("Should register the MBean again", subject.registerMBean("client-stats-test"));
+    }
+}
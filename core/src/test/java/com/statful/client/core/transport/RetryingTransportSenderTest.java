@@ -0,0 +1,265 @@
+package com.statful.client.core.transport;
+
+import com.statful.client.core.stats.ClientStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RetryingTransportSenderTest {
+
+    private static final String METRIC = "application.counter.metric 1 100\n";
+
+    private ReportingTransportSender transportSender;
+    private List<Long> sleeps;
+    private long now;
+    private boolean interrupted;
+
+    @Before
+    public void setUp() {
+        transportSender = mock(ReportingTransportSender.class);
+        sleeps = new ArrayList<Long>();
+        now = 1000;
+    }
+
+    private RetryingTransportSender newSender(final int maxRetries, final int failureThreshold) {
+        return new RetryingTransportSender(transportSender, maxRetries, 100, failureThreshold, 30000,
+                new RetryingTransportSender.Clock() {
+                    @Override
+                    public long currentTimeMillis() {
+                        return now;
+                    }
+
+                    @Override
+                    public boolean sleep(final long millis) {
+                        sleeps.add(millis);
+                        return !interrupted;
+                    }
+                });
+    }
+
+    @Test
+    public void shouldRetryFailedMessages() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED, DeliveryStatus.FAILED, DeliveryStatus.DELIVERED);
+        RetryingTransportSender subject = newSender(3, 5);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should deliver the message", DeliveryStatus.DELIVERED, status);
+        verify(transportSender, times(3)).trySend(METRIC);
+        assertEquals("Should count the retries", 2, subject.getRetries());
+        assertEquals("Should wait before each retry", 2, sleeps.size());
+    }
+
+    @Test
+    public void shouldStopRetryingAfterMaxRetries() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(2, 5);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should fail the message", DeliveryStatus.FAILED, status);
+        verify(transportSender, times(3)).trySend(METRIC);
+    }
+
+    @Test
+    public void shouldNotRetryRejectedMessages() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.REJECTED);
+        RetryingTransportSender subject = newSender(2, 5);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should reject the message", DeliveryStatus.REJECTED, status);
+        verify(transportSender, times(1)).trySend(METRIC);
+        assertTrue("Should not wait", sleeps.isEmpty());
+    }
+
+    @Test
+    public void shouldRetryWithUri() {
+        // Given
+        String uri = "http://127.0.0.1/tel/v2.0/metrics/aggregation/sum/frequency/10";
+        when(transportSender.trySend(METRIC, uri)).thenReturn(DeliveryStatus.FAILED, DeliveryStatus.DELIVERED);
+        RetryingTransportSender subject = newSender(2, 5);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC, uri);
+
+        // Then
+        assertEquals("Should deliver the message", DeliveryStatus.DELIVERED, status);
+        verify(transportSender, times(2)).trySend(METRIC, uri);
+        verify(transportSender, never()).trySend(anyString());
+    }
+
+    @Test
+    public void shouldFailOnTransportException() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenThrow(new IllegalStateException("Unexpected"));
+        RetryingTransportSender subject = newSender(0, 5);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should fail the message", DeliveryStatus.FAILED, status);
+    }
+
+    @Test
+    public void shouldBoundBackoffByExponentialCeiling() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(4, 0);
+
+        // When
+        subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should wait before each retry", 4, sleeps.size());
+        for (int retry = 0; retry < sleeps.size(); retry++) {
+            long wait = sleeps.get(retry);
+            assertTrue("Should wait between zero and the backoff", wait >= 0 && wait <= 100L << retry);
+        }
+    }
+
+    @Test
+    public void shouldOpenCircuitAfterConsecutiveFailures() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(0, 3);
+
+        // When
+        subject.trySend(METRIC);
+        subject.trySend(METRIC);
+        assertEquals("Should stay closed under the threshold", RetryingTransportSender.CircuitState.CLOSED, subject.getCircuitState());
+        subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should open the circuit", RetryingTransportSender.CircuitState.OPEN, subject.getCircuitState());
+        assertEquals("Should count the opening", 1, subject.getCircuitOpenings());
+    }
+
+    @Test
+    public void shouldResetFailuresOnDelivery() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED, DeliveryStatus.FAILED,
+                DeliveryStatus.DELIVERED, DeliveryStatus.FAILED, DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(0, 3);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            subject.trySend(METRIC);
+        }
+
+        // Then
+        assertEquals("Should stay closed", RetryingTransportSender.CircuitState.CLOSED, subject.getCircuitState());
+    }
+
+    @Test
+    public void shouldShortCircuitWhileOpen() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(0, 1);
+        subject.trySend(METRIC);
+
+        // When
+        now += 29999;
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should fail the message", DeliveryStatus.FAILED, status);
+        verify(transportSender, times(1)).trySend(METRIC);
+        assertEquals("Should count the short-circuited message", 1, subject.getShortCircuitedMessages());
+    }
+
+    @Test
+    public void shouldCloseCircuitWhenHalfOpenMessageIsDelivered() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(2, 1);
+        subject.trySend(METRIC);
+        reset(transportSender);
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.DELIVERED);
+
+        // When
+        now += 30000;
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should deliver the message", DeliveryStatus.DELIVERED, status);
+        assertEquals("Should close the circuit", RetryingTransportSender.CircuitState.CLOSED, subject.getCircuitState());
+        assertEquals("Should count the half-opening", 1, subject.getCircuitHalfOpenings());
+        assertEquals("Should count the closing", 1, subject.getCircuitClosings());
+    }
+
+    @Test
+    public void shouldNotCountRetryInterruptedWhileWaiting() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(3, 5);
+        interrupted = true;
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should fail the message", DeliveryStatus.FAILED, status);
+        verify(transportSender, times(1)).trySend(METRIC);
+        assertEquals("Should not count the retry that wasn't attempted", 0, subject.getRetries());
+    }
+
+    @Test
+    public void shouldRegisterCircuitStateChanges() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(0, 1);
+        ClientStats stats = new ClientStats();
+        subject.registerStats(stats);
+        subject.trySend(METRIC);
+        reset(transportSender);
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.DELIVERED);
+
+        // When
+        now += 30000;
+        subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should publish the openings", Long.valueOf(1), stats.get("transport.circuit.openings"));
+        assertEquals("Should publish the half-openings", Long.valueOf(1), stats.get("transport.circuit.half_openings"));
+        assertEquals("Should publish the closings", Long.valueOf(1), stats.get("transport.circuit.closings"));
+    }
+
+    @Test
+    public void shouldReopenCircuitWhenHalfOpenMessageFails() {
+        // Given
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+        RetryingTransportSender subject = newSender(2, 1);
+        subject.trySend(METRIC);
+        reset(transportSender);
+        when(transportSender.trySend(METRIC)).thenReturn(DeliveryStatus.FAILED);
+
+        // When
+        now += 30000;
+        subject.trySend(METRIC);
+        now += 29999;
+        subject.trySend(METRIC);
+
+        // Then
+        verify(transportSender, times(1)).trySend(METRIC);
+        assertEquals("Should reopen the circuit", RetryingTransportSender.CircuitState.OPEN, subject.getCircuitState());
+        assertEquals("Should count both openings", 2, subject.getCircuitOpenings());
+        assertEquals("Should short-circuit until the open time passes again", 1, subject.getShortCircuitedMessages());
+    }
+}
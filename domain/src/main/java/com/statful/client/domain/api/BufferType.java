@@ -0,0 +1,32 @@
+package com.statful.client.domain.api;
+
+/**
+ * Supported buffer types to store metrics before flushing them.
+ */
+public enum BufferType {
+
+    /**
+     * A bounded queue guarded by a single lock. This is the default.
+     */
+    BLOCKING_QUEUE,
+
+    /**
+     * A bounded lock-free ring buffer, which allows many threads to put metrics without contending on a lock.
+     */
+    RING_BUFFER,
+
+    /**
+     * Lock-free ring buffers, one per shard, picked by the thread putting the metric. Threads on different shards don't
+     * share any memory, so throughput grows with the number of threads putting metrics. The buffer capacity is split
+     * evenly between the shards, and a thread whose shard is full puts into the next shard with room, so that the whole
+     * capacity is used even by fewer threads than shards.
+     */
+    SHARDED,
+
+    /**
+     * A bounded queue of UTF-8 lines in direct byte buffers, guarded by a single lock. Metrics waiting to be flushed are
+     * kept off the heap, so they neither grow it nor add to the work of the garbage collector. Flushed batches are still
+     * decoded into strings on the heap.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,19 @@
+package com.statful.client.domain.api;
+
+/**
+ * Supported policies to keep the number of series sent by the client under the configured maximum.
+ */
+public enum CardinalityPolicy {
+
+    /**
+     * Series are never forgotten, and metrics of new series past the maximum are sent as the overflow series of their
+     * metric. This is the default.
+     */
+    OVERFLOW,
+
+    /**
+     * Series without metrics for a whole flush interval are forgotten to make room for new ones, and metrics of new
+     * series that still don't fit are sent as the overflow series of their metric.
+     */
+    EVICT_IDLE
+}
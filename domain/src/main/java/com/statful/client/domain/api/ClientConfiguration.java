@@ -211,7 +211,7 @@ public interface ClientConfiguration {
     int getSocketTimeoutMillis();
 
     /**
-     * Returns the maximum size of the queue with the worker tasks.
+     * Returns the maximum number of batches in flight, either queued for or being sent by the workers.
      *
      * @return Size as int
      */
@@ -221,6 +221,230 @@ public interface ClientConfiguration {
      * Returns the interval for killing hanging worker tasks.
      *
      * @return Interval in milliseconds
+     * @deprecated Batches handed to the workers are no longer cancelled, so this interval isn't used.
      */
+    @Deprecated
     long getWorkerTaskKillerInterval();
+
+    /**
+     * Returns the type of buffer used to store metrics before flushing them. Default is
+     * {@link BufferType#BLOCKING_QUEUE}.
+     *
+     * @return {@link BufferType} to use to buffer the metrics
+     */
+    BufferType getBufferType();
+
+    /**
+     * Returns if aggregated metrics are pre-aggregated in the client, sending a single line per series and window
+     * instead of a line per sample. Default is false.
+     *
+     * @return True if aggregated metrics are pre-aggregated
+     */
+    boolean isPreAggregationEnabled();
+
+    /**
+     * Returns if the UDP transport sends metrics through a non-blocking channel, dropping them when the socket send
+     * buffer is full instead of waiting. Default is false.
+     *
+     * @return True if the UDP transport is non-blocking
+     */
+    boolean isNonBlockingUdp();
+
+    /**
+     * Returns the maximum payload size in bytes of the datagrams sent by the UDP transport. Flushes are split on metric
+     * boundaries into datagrams up to this size, to avoid IP fragmentation. Default is 1432.
+     *
+     * @return Maximum UDP payload size as integer
+     */
+    int getUdpMaxPayloadSize();
+
+    /**
+     * Returns if the HTTP transport sends metrics through an asynchronous client, releasing workers without waiting for
+     * the responses. Default is false.
+     *
+     * @return True if the HTTP transport is asynchronous
+     */
+    boolean isAsyncHttp();
+
+    /**
+     * Returns the maximum number of requests in flight of the asynchronous HTTP transport. Default is 20.
+     *
+     * @return Maximum number of requests in flight as integer
+     */
+    int getMaxInFlightRequests();
+
+    /**
+     * Returns if the HTTP transport compresses request bodies with gzip. Default is false.
+     *
+     * @return True if request bodies are compressed
+     */
+    boolean isCompressionEnabled();
+
+    /**
+     * Returns the gzip compression level of request bodies, from 0 to 9. Default is 6.
+     *
+     * @return Compression level as integer
+     */
+    int getCompressionLevel();
+
+    /**
+     * Returns the minimum size in bytes of the request bodies to compress. Default is 1024.
+     *
+     * @return Minimum size of compressed bodies as integer
+     */
+    int getCompressionMinSize();
+
+    /**
+     * Returns the directory of the spool, where batches that couldn't be sent are kept on disk until they can be sent
+     * again. Default is null, which disables the spool.
+     *
+     * @return The spool directory path
+     */
+    String getSpoolDirectory();
+
+    /**
+     * Returns the disk quota of the spool. Default is 64 MB.
+     *
+     * @return Spool quota in bytes
+     */
+    long getSpoolMaxBytes();
+
+    /**
+     * Returns the max age of the spooled batches, past which they are dropped. Default is one hour.
+     *
+     * @return Spool max age in milliseconds
+     */
+    long getSpoolMaxAgeMillis();
+
+    /**
+     * Returns the maximum number of retries of a batch that failed to be delivered. Default is 2.
+     *
+     * @return Maximum retries as integer
+     */
+    int getMaxRetries();
+
+    /**
+     * Returns the backoff before the first retry, which doubles for every retry and is jittered. Default is 100.
+     *
+     * @return Retry backoff in milliseconds
+     */
+    long getRetryBackoffMillis();
+
+    /**
+     * Returns the number of consecutive failed batches that opens the circuit breaker, or zero to never open it.
+     * Default is 5.
+     *
+     * @return Circuit breaker threshold as integer
+     */
+    int getCircuitBreakerThreshold();
+
+    /**
+     * Returns the time the circuit breaker stays open before letting a batch through. Default is 30000.
+     *
+     * @return Circuit breaker open time in milliseconds
+     */
+    long getCircuitBreakerOpenMillis();
+
+    /**
+     * Returns the policy to handle metrics that don't fit in a full buffer. Default is DROP_NEWEST.
+     *
+     * @return The {@link OverflowPolicy} of the buffers
+     */
+    OverflowPolicy getOverflowPolicy();
+
+    /**
+     * Returns how long a thread waits for room in a full buffer with the BLOCK overflow policy. Default is 10.
+     *
+     * @return Overflow block timeout in milliseconds
+     */
+    long getOverflowBlockTimeoutMillis();
+
+    /**
+     * Returns if the client sends its own stats as <code>statful.client.*</code> metrics. Default is false.
+     *
+     * @return True if the client stats are sent as metrics
+     */
+    boolean isSelfMetricsEnabled();
+
+    /**
+     * Returns if the client stats are published as an MBean. Default is false.
+     *
+     * @return True if the client stats are published through JMX
+     */
+    boolean isJmxEnabled();
+
+    /**
+     * Returns the number of shards of the SHARDED buffer type, or zero to use one per processor. Default is 0.
+     *
+     * @return Buffer shards as integer
+     */
+    int getBufferShards();
+
+    /**
+     * Returns the strategy to decide which metrics are kept when sampling. Default is RANDOM.
+     *
+     * @return Sampling strategy as {@link SamplingStrategy}
+     */
+    SamplingStrategy getSamplingStrategy();
+
+    /**
+     * Returns if metric builders are reused by each thread once sent, instead of being allocated for every metric.
+     * Default is false.
+     *
+     * @return True if builders are recycled
+     */
+    boolean isBuilderRecyclingEnabled();
+
+    /**
+     * Returns the maximum number of series, by namespace, name and tags, sent by the client, or zero for no maximum.
+     * Default is 0.
+     *
+     * @return Max series as integer
+     */
+    int getMaxSeries();
+
+    /**
+     * Returns the policy to keep the number of series under the maximum. Default is OVERFLOW.
+     *
+     * @return Cardinality policy as {@link CardinalityPolicy}
+     */
+    CardinalityPolicy getCardinalityPolicy();
+
+    /**
+     * Returns if the flush size and the flush interval adapt to the rate of metrics and the latency of the transport,
+     * between their configured values and their maximums. Default is false.
+     *
+     * @return True if batching is adaptive
+     */
+    boolean isAdaptiveBatchingEnabled();
+
+    /**
+     * Returns the largest flush size reached by adaptive batching, or zero for ten times the flush size. Default is 0.
+     *
+     * @return Max flush size as integer
+     */
+    int getMaxFlushSize();
+
+    /**
+     * Returns the longest flush interval (milliseconds) reached by adaptive batching, or zero for ten times the flush
+     * interval. Default is 0.
+     *
+     * @return Max flush interval as long
+     */
+    long getMaxFlushIntervalMillis();
+
+    /**
+     * Returns the number of metrics that fit in the standard buffer, and in each queue of the aggregated buffer.
+     * Default is 5000.
+     *
+     * @return Buffer capacity as integer
+     */
+    int getBufferCapacity();
+
+    /**
+     * Returns the maximum number of heap bytes held by all the buffers, or zero for no maximum. Default is 0.
+     *
+     * @return Memory budget in bytes as long
+     */
+    long getMemoryBudgetBytes();
 }
@@ -0,0 +1,19 @@
+package com.statful.client.domain.api;
+
+/**
+ * A {@link MetricHandle} for counters.
+ * <p>
+ * Example:<br>
+ * <p>
+ * <code>
+ *     CounterHandle requests = statful.counterHandle("requests", Tags.from("status", "SUCCESS"));
+ *     requests.inc();
+ * </code>
+ */
+public interface CounterHandle extends MetricHandle {
+
+    /**
+     * Increments the counter by one, with the current timestamp.
+     */
+    void inc();
+}
@@ -0,0 +1,31 @@
+package com.statful.client.domain.api;
+
+/**
+ * This interface represents a metric whose name, namespace, tags, aggregations and aggregation frequency were
+ * resolved once, so that recording a value only has to add the value and the timestamp.
+ * <p>
+ * Example:<br>
+ * <p>
+ * <code>
+ *     MetricHandle responseTime = statful.timerHandle("response_time", Tags.from("host", "localhost"));
+ *     responseTime.record(200);
+ * </code>
+ * <p>
+ * Handles are meant to be created once and reused, and can be shared between threads.
+ */
+public interface MetricHandle {
+
+    /**
+     * Records an integral value of the metric, with the current timestamp.
+     *
+     * @param value The metric value
+     */
+    void record(final long value);
+
+    /**
+     * Records a decimal value of the metric, with the current timestamp.
+     *
+     * @param value The metric value
+     */
+    void record(final double value);
+}
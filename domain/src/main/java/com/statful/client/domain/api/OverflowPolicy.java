@@ -0,0 +1,28 @@
+package com.statful.client.domain.api;
+
+/**
+ * Supported policies to handle metrics that don't fit in a full buffer.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The new metric is dropped. This is the default.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest metric in the buffer is dropped to make room for the new one, favouring fresh metrics.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The thread putting the metric waits for room in the buffer, up to a timeout, after which the metric is dropped.
+     */
+    BLOCK,
+
+    /**
+     * The new metric is dropped and the sample rate of the following metrics is halved, for as long as the buffer keeps
+     * overflowing. The sample rate is restored gradually once the pressure goes away.
+     */
+    SAMPLE_DOWN
+}
@@ -0,0 +1,74 @@
+package com.statful.client.domain.api;
+
+/**
+ * Metrics sender that also accepts numeric values, so that they're encoded without being converted to a string first.
+ * <p>
+ * These methods are kept out of {@link MetricsSender}, so that existing implementations of it keep compiling. Senders
+ * that don't implement this interface receive numeric values already converted to a string.
+ */
+public interface PrimitiveMetricsSender extends MetricsSender {
+
+    /**
+     * Puts a metric with an integral value to be ready to sent to Statful, without converting the value to a string
+     * beforehand. This can be done immediately, or by an asynchronous flush mechanism.
+     *
+     * @param name The name of the metric
+     * @param value The value of the metric
+     * @param tags A {@link Tags} the tags to be associated with the metric
+     * @param aggregations {@link Aggregations} with aggregations of the metric
+     * @param aggregationFrequency {@link AggregationFrequency} of the metric
+     * @param sampleRate The metrics sample rate
+     * @param namespace The namespace of the metric
+     * @param timestamp The timestamp associated with the metric
+     */
+    void put(String name, long value, Tags tags, Aggregations aggregations, AggregationFrequency aggregationFrequency,
+             Integer sampleRate, String namespace, long timestamp);
+
+    /**
+     * Puts a metric with a decimal value to be ready to sent to Statful, without converting the value to a string
+     * beforehand. This can be done immediately, or by an asynchronous flush mechanism.
+     *
+     * @param name The name of the metric
+     * @param value The value of the metric
+     * @param tags A {@link Tags} the tags to be associated with the metric
+     * @param aggregations {@link Aggregations} with aggregations of the metric
+     * @param aggregationFrequency {@link AggregationFrequency} of the metric
+     * @param sampleRate The metrics sample rate
+     * @param namespace The namespace of the metric
+     * @param timestamp The timestamp associated with the metric
+     */
+    void put(String name, double value, Tags tags, Aggregations aggregations, AggregationFrequency aggregationFrequency,
+             Integer sampleRate, String namespace, long timestamp);
+
+    /**
+     * Puts a metric with an integral value to be ready to sent to Statful, without converting the value to a string
+     * beforehand. This can be done immediately, or by an asynchronous flush mechanism.
+     *
+     * @param name The name of the metric
+     * @param value The value of the metric
+     * @param tags A {@link Tags} the tags to be associated with the metric
+     * @param aggregation A {@link Aggregation} aggregation of the metric
+     * @param aggregationFrequency A {@link AggregationFrequency} aggregation frequency of the metric
+     * @param sampleRate The metrics sample rate
+     * @param namespace The namespace of the metric
+     * @param timestamp The timestamp associated with the metric
+     */
+    void aggregatedPut(String name, long value, Tags tags, Aggregation aggregation, AggregationFrequency aggregationFrequency,
+                       Integer sampleRate, String namespace, long timestamp);
+
+    /**
+     * Puts a metric with a decimal value to be ready to sent to Statful, without converting the value to a string
+     * beforehand. This can be done immediately, or by an asynchronous flush mechanism.
+     *
+     * @param name The name of the metric
+     * @param value The value of the metric
+     * @param tags A {@link Tags} the tags to be associated with the metric
+     * @param aggregation A {@link Aggregation} aggregation of the metric
+     * @param aggregationFrequency A {@link AggregationFrequency} aggregation frequency of the metric
+     * @param sampleRate The metrics sample rate
+     * @param namespace The namespace of the metric
+     * @param timestamp The timestamp associated with the metric
+     */
+    void aggregatedPut(String name, double value, Tags tags, Aggregation aggregation, AggregationFrequency aggregationFrequency,
+                       Integer sampleRate, String namespace, long timestamp);
+}
@@ -0,0 +1,18 @@
+package com.statful.client.domain.api;
+
+/**
+ * Supported strategies to decide which metrics are kept when sampling.
+ */
+public enum SamplingStrategy {
+
+    /**
+     * Each metric is kept at random, with a probability given by its sample rate. This is the default.
+     */
+    RANDOM,
+
+    /**
+     * Each series, identified by its namespace, name and tags, is either always kept or always dropped, so that a kept
+     * series is never missing points. The share of series kept is given by the sample rate.
+     */
+    CONSISTENT
+}
@@ -1,5 +1,7 @@
 package com.statful.client.domain.api;
 
+import java.util.Map;
+
 /**
  * This interface allows to send metrics to Statful.
  *
@@ -228,6 +230,41 @@ public interface StatfulClient extends MetricsSender {
     SenderFacade aggregatedPut(final String metricName, final Integer value, final Aggregation aggregation,
                                final AggregationFrequency aggregationFrequency);
 
+    /**
+     * Creates a new timer handle, with the timer configuration of the client resolved once.
+     *
+     * @param metricName The timer name to create
+     * @param tags The timer tags, which are merged with the default timer tags, and can be null
+     * @return A {@link MetricHandle} to record timer values
+     */
+    MetricHandle timerHandle(final String metricName, final Tags tags);
+
+    /**
+     * Creates a new counter handle, with the counter configuration of the client resolved once.
+     *
+     * @param metricName The counter name to create
+     * @param tags The counter tags, which are merged with the default counter tags, and can be null
+     * @return A {@link CounterHandle} to increment the counter
+     */
+    CounterHandle counterHandle(final String metricName, final Tags tags);
+
+    /**
+     * Creates a new gauge handle, with the gauge configuration of the client resolved once.
+     *
+     * @param metricName The gauge name to create
+     * @param tags The gauge tags, which are merged with the default gauge tags, and can be null
+     * @return A {@link MetricHandle} to record gauge values
+     */
+    MetricHandle gaugeHandle(final String metricName, final Tags tags);
+
+    /**
+     * Returns the stats of the client internals, like the depth of the buffers, the metrics dropped or the requests
+     * sent by the transport.
+     *
+     * @return A {@link Map} of the values of the stats, sorted by name
+     */
+    Map<String, Long> getStats();
+
     /**
      * Enables Statful client.
      */
@@ -0,0 +1,562 @@
+package com.statful.client.domain.api;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, sorted set of tags, with its hash and its escaped <code>,type=value</code> line form computed once.
+ * <p>
+ * Tag sets are interned, so a tag set that repeats across calls is built and escaped once, and then shared. The pool
+ * is looked up by the sorted tag types and values before any tag is escaped, so only a tag set seen for the first time
+ * pays for escaping its tags and joining its line form. Deriving a tag set with {@link #with(String, String)} or
+ * {@link #merge(TagSet)} reuses the escaped form of both sides instead of escaping the tags again, and each tag set
+ * remembers a few of the tag sets derived from it, in slots picked by the added tags, so that repeating a derivation,
+ * even alternating between tag values, costs an array read. The number of interned tag sets is bounded, past which new
+ * tag sets are still built but not shared. The pool only holds weak references, so a tag set that is no longer used
+ * anywhere, such as the tags of a series evicted by the client, leaves the pool and frees its room.
+ * <p>
+ * Tag types and values are escaped by adding an escape character (<code>\</code>) before whitespace, <code>,</code>
+ * and <code>=</code>.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class TagSet {
+
+    /**
+     * The tag set without tags.
+     */
+    public static final TagSet EMPTY = new TagSet(new String[0], new String[0], new String[0]);
+
+    private static final int MAX_INTERNED = 10000;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int SEGMENT_CAPACITY = 16;
+    private static final int DERIVATION_SLOTS = 8;
+
+    private static final ConcurrentHashMap<Key, InternedReference> INTERNED = new ConcurrentHashMap<Key, InternedReference>();
+    private static final ReferenceQueue<TagSet> COLLECTED = new ReferenceQueue<TagSet>();
+
+    private final String[] types;
+    private final String[] values;
+    private final String[] segments;
+    private final String encoded;
+    private final int hash;
+
+    /**
+     * Tag sets derived from this one. Slots are written without synchronization, which is safe as derivations are
+     * immutable: a thread that doesn't see another thread's derivation derives the tag set again from the pool.
+     */
+    private final Derivation[] derivations = new Derivation[DERIVATION_SLOTS];
+
+    private TagSet(final String[] types, final String[] values, final String[] segments) {
+        this(types, values, segments, concat(segments), computeHash(types, values));
+    }
+
+    private TagSet(final String[] types, final String[] values, final String[] segments, final String encoded, final int hash) {
+        this.types = types;
+        this.values = values;
+        this.segments = segments;
+        this.encoded = encoded;
+        this.hash = hash;
+    }
+
+    /**
+     * Returns the tag set of pairs of tag types and values. Pairs with an empty type or value are ignored, and the
+     * last value of a repeated type wins.
+     *
+     * @param typesAndValues The tag types and values, one after the other
+     * @return The interned {@link TagSet}
+     */
+    public static TagSet of(final String... typesAndValues) {
+        TagSet result = EMPTY;
+        for (int i = 0; i + 1 < typesAndValues.length; i += 2) {
+            result = result.with(typesAndValues[i], typesAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the tag set of a map of tag types to values. Entries with an empty type or value are ignored.
+     *
+     * @param tags The tags as a {@link Map}
+     * @return The interned {@link TagSet}
+     */
+    public static TagSet of(final Map<String, String> tags) {
+        int size = 0;
+        String[] types = new String[tags.size()];
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            if (!Tags.isEmptyOrNull(entry.getKey(), entry.getValue())) {
+                types[size++] = entry.getKey();
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        Arrays.sort(types, 0, size);
+        types = Arrays.copyOf(types, size);
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = tags.get(types[i]);
+        }
+
+        Key key = new Key(types, values);
+        TagSet interned = lookup(key);
+        if (interned != null) {
+            return interned;
+        }
+
+        String[] segments = new String[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = segment(types[i], values[i]);
+        }
+        return new TagSet(types, values, segments, concat(segments), key.hash).intern(key);
+    }
+
+    /**
+     * Returns a tag set with a tag added, or replaced if this tag set has a tag of the same type.
+     *
+     * @param type The tag type
+     * @param value The tag value
+     * @return The interned {@link TagSet}, which is this tag set if it already has the tag
+     */
+    public TagSet with(final String type, final String value) {
+        if (Tags.isEmptyOrNull(type, value)) {
+            return this;
+        }
+
+        int slot = (HASH_MULTIPLIER * type.hashCode() + value.hashCode()) & (DERIVATION_SLOTS - 1);
+        Derivation derivation = derivations[slot];
+        if (derivation != null && derivation.isWith(type, value)) {
+            return derivation.result;
+        }
+
+        TagSet result = deriveWith(type, value);
+        derivations[slot] = new Derivation(type, value, null, result);
+        return result;
+    }
+
+    /**
+     * Returns a tag set with the tags of another tag set added, replacing the tags of the same types.
+     *
+     * @param other The {@link TagSet} to merge, which can be null
+     * @return The interned {@link TagSet}, which is one of both tag sets if it already has all the tags
+     */
+    public TagSet merge(final TagSet other) {
+        if (other == null || other.isEmpty() || other == this) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+
+        int slot = other.hash & (DERIVATION_SLOTS - 1);
+        Derivation derivation = derivations[slot];
+        if (derivation != null && derivation.other == other) {
+            return derivation.result;
+        }
+
+        TagSet result = deriveMerge(other);
+        derivations[slot] = new Derivation(null, null, other, result);
+        return result;
+    }
+
+    /**
+     * Returns the shared instance of this tag set, unless the number of interned tag sets reached its maximum.
+     *
+     * @return The interned {@link TagSet}, or this tag set
+     */
+    public TagSet intern() {
+        if (isEmpty()) {
+            return EMPTY;
+        }
+
+        return intern(new Key(types, values, hash));
+    }
+
+    /**
+     * Returns the number of tag sets in the pool, including the ones collected but not yet removed from it.
+     *
+     * @return The number of interned tag sets
+     */
+    static int internedCount() {
+        purgeCollected();
+        return INTERNED.size();
+    }
+
+    /**
+     * Returns the number of tags.
+     *
+     * @return The number of tags
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Checks if there are no tags.
+     *
+     * @return True if the tag set is empty
+     */
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    /**
+     * Returns the type of a tag, in the sorted order of the tag set.
+     *
+     * @param index The index of the tag
+     * @return The tag type
+     */
+    public String getType(final int index) {
+        return types[index];
+    }
+
+    /**
+     * Returns the value of a tag, in the sorted order of the tag set.
+     *
+     * @param index The index of the tag
+     * @return The tag value
+     */
+    public String getValue(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the value of a tag type.
+     *
+     * @param type The tag type
+     * @return The tag value, or null if the tag set has no tag of that type
+     */
+    public String get(final String type) {
+        int index = Arrays.binarySearch(types, type);
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * Returns the tags in their line form, each one as <code>,type=value</code> with its type and value escaped.
+     *
+     * @return The escaped tags, or an empty string if there are no tags
+     */
+    public String getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Returns the tags as a new mutable map.
+     *
+     * @return A {@link Map} of tag types to values
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < types.length; i++) {
+            map.put(types[i], values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TagSet)) {
+            return false;
+        }
+
+        TagSet other = (TagSet) o;
+        return hash == other.hash && Arrays.equals(types, other.types) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public String toString() {
+        return encoded;
+    }
+
+    private TagSet deriveWith(final String type, final String value) {
+        int index = Arrays.binarySearch(types, type);
+        if (index >= 0) {
+            if (values[index].equals(value)) {
+                return this;
+            }
+
+            String[] newValues = values.clone();
+            newValues[index] = value;
+            Key key = new Key(types, newValues);
+            TagSet interned = lookup(key);
+            if (interned != null) {
+                return interned;
+            }
+
+            String[] newSegments = segments.clone();
+            newSegments[index] = segment(type, value);
+            return new TagSet(types, newValues, newSegments, concat(newSegments), key.hash).intern(key);
+        }
+
+        int insertion = -index - 1;
+        String[] newTypes = insert(types, insertion, type);
+        String[] newValues = insert(values, insertion, value);
+        Key key = new Key(newTypes, newValues);
+        TagSet interned = lookup(key);
+        if (interned != null) {
+            return interned;
+        }
+
+        String segment = segment(type, value);
+        String[] newSegments = insert(segments, insertion, segment);
+        String newEncoded = insertion == types.length ? encoded + segment : concat(newSegments);
+        return new TagSet(newTypes, newValues, newSegments, newEncoded, key.hash).intern(key);
+    }
+
+    /**
+     * Merges the sorted tags of both tag sets, keeping the values of the other tag set for repeated types. When all the
+     * tags of the other tag set sort after the tags of this one, the escaped form of this tag set is reused as the
+     * prefix of the merged one.
+     */
+    private TagSet deriveMerge(final TagSet other) {
+        if (types[types.length - 1].compareTo(other.types[0]) < 0) {
+            Key key = new Key(concat(types, other.types), concat(values, other.values));
+            TagSet interned = lookup(key);
+            if (interned != null) {
+                return interned;
+            }
+            return new TagSet(key.types, key.values, concat(segments, other.segments), encoded + other.encoded, key.hash)
+                    .intern(key);
+        }
+
+        String[] newTypes = new String[types.length + other.types.length];
+        String[] newValues = new String[newTypes.length];
+        String[] newSegments = new String[newTypes.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        boolean changed = false;
+
+        while (i < types.length || j < other.types.length) {
+            int comparison = i == types.length ? 1 : j == other.types.length ? -1 : types[i].compareTo(other.types[j]);
+
+            if (comparison < 0) {
+                newTypes[size] = types[i];
+                newValues[size] = values[i];
+                newSegments[size++] = segments[i++];
+            } else {
+                changed |= comparison > 0 || !values[i].equals(other.values[j]);
+                newTypes[size] = other.types[j];
+                newValues[size] = other.values[j];
+                newSegments[size++] = other.segments[j++];
+                if (comparison == 0) {
+                    i++;
+                }
+            }
+        }
+
+        if (!changed) {
+            return this;
+        }
+        Key key = new Key(Arrays.copyOf(newTypes, size), Arrays.copyOf(newValues, size));
+        TagSet interned = lookup(key);
+        if (interned != null) {
+            return interned;
+        }
+        newSegments = Arrays.copyOf(newSegments, size);
+        return new TagSet(key.types, key.values, newSegments, concat(newSegments), key.hash).intern(key);
+    }
+
+    private static String segment(final String type, final String value) {
+        StringBuilder sb = new StringBuilder(type.length() + value.length() + SEGMENT_CAPACITY);
+        sb.append(',');
+        appendEscaped(sb, type);
+        sb.append('=');
+        appendEscaped(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendEscaped(final StringBuilder sb, final String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (shouldEscape(c)) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+    }
+
+    /**
+     * Matches the same characters as the <code>[\s,=]</code> regular expression.
+     */
+    private static boolean shouldEscape(final char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case ',':
+            case '=':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String concat(final String[] strings) {
+        if (strings.length == 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String string : strings) {
+            sb.append(string);
+        }
+        return sb.toString();
+    }
+
+    private static String[] concat(final String[] first, final String[] second) {
+        String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static String[] insert(final String[] array, final int index, final String element) {
+        String[] result = new String[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = element;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static int computeHash(final String[] types, final String[] values) {
+        int result = 1;
+        for (int i = 0; i < types.length; i++) {
+            result = HASH_MULTIPLIER * result + types[i].hashCode();
+            result = HASH_MULTIPLIER * result + values[i].hashCode();
+        }
+        return result;
+    }
+
+    /**
+     * Interns this tag set under its key, built once by the caller for both the lookup and the pool entry.
+     *
+     * @param key The {@link Key} of this tag set
+     * @return The interned {@link TagSet}, or this tag set
+     */
+    private TagSet intern(final Key key) {
+        purgeCollected();
+        while (true) {
+            InternedReference reference = INTERNED.get(key);
+            TagSet interned = reference != null ? reference.get() : null;
+            if (interned != null) {
+                return interned;
+            }
+
+            if (reference == null) {
+                if (INTERNED.size() >= MAX_INTERNED || INTERNED.putIfAbsent(key, new InternedReference(this, key)) == null) {
+                    return this;
+                }
+            } else if (INTERNED.replace(key, reference, new InternedReference(this, key))) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Returns the shared instance of the tag set of a key, if it's in the pool.
+     *
+     * @param key The {@link Key} of the tag set
+     * @return The interned {@link TagSet}, or null
+     */
+    private static TagSet lookup(final Key key) {
+        InternedReference reference = INTERNED.get(key);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Removes the tag sets collected by the garbage collector from the pool.
+     */
+    private static void purgeCollected() {
+        InternedReference reference = (InternedReference) COLLECTED.poll();
+        while (reference != null) {
+            INTERNED.remove(reference.key, reference);
+            reference = (InternedReference) COLLECTED.poll();
+        }
+    }
+
+    /**
+     * The tags of an interned tag set, which identify it in the pool without keeping it from being collected.
+     */
+    private static final class Key {
+        private final String[] types;
+        private final String[] values;
+        private final int hash;
+
+        Key(final String[] types, final String[] values) {
+            this(types, values, computeHash(types, values));
+        }
+
+        Key(final String[] types, final String[] values, final int hash) {
+            this.types = types;
+            this.values = values;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(types, other.types) && Arrays.equals(values, other.values);
+        }
+    }
+
+    /**
+     * A weak reference to an interned tag set, which is queued once the tag set is collected.
+     */
+    private static final class InternedReference extends WeakReference<TagSet> {
+        private final Key key;
+
+        InternedReference(final TagSet tagSet, final Key key) {
+            super(tagSet, COLLECTED);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A tag set derived from a tag set, either by adding a tag or by merging another tag set.
+     */
+    private static final class Derivation {
+        private final String type;
+        private final String value;
+        private final TagSet other;
+        private final TagSet result;
+
+        Derivation(final String type, final String value, final TagSet other, final TagSet result) {
+            this.type = type;
+            this.value = value;
+            this.other = other;
+            this.result = result;
+        }
+
+        boolean isWith(final String withType, final String withValue) {
+            return type != null && type.equals(withType) && value.equals(withValue);
+        }
+    }
+}
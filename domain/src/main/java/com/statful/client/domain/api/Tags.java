@@ -5,10 +5,26 @@ import java.util.Map;
 
 /**
  * An holder for a collection of tags.
+ * <p>
+ * The tags are kept in a map, which is only changed through this class, and their immutable {@link TagSet} is cached
+ * until they change, so tags that are sent many times are only sorted and escaped once. Tags created from a
+ * {@link TagSet} don't build their map until it's needed.
  */
 public class Tags {
 
-    private final Map<String, String> tags = new HashMap<String, String>();
+    private volatile Map<String, String> tags;
+    private volatile TagSet tagSet;
+
+    /**
+     * Creates an empty {@link Tags}.
+     */
+    public Tags() {
+        this.tags = new HashMap<String, String>();
+    }
+
+    private Tags(final TagSet tagSet) {
+        this.tagSet = tagSet;
+    }
 
     /**
      * Creates a new {@link Tags} from a <code>type</code> and a <code>value</code>.
@@ -23,6 +39,16 @@ public class Tags {
         return result;
     }
 
+    /**
+     * Creates a new {@link Tags} from a {@link TagSet}, sharing it until the tags are changed.
+     *
+     * @param tagSet The {@link TagSet} of the tags
+     * @return A new instance of {@link Tags}
+     */
+    public static Tags from(final TagSet tagSet) {
+        return new Tags(tagSet);
+    }
+
     /**
      * Copies a {@link Tags} object.
      *
@@ -70,16 +96,39 @@ public class Tags {
      * @param value The value of the tag to put
      */
     public final void putTag(final String type, final String value) {
-        tags.put(type, value);
+        mutableTags().put(type, value);
+    }
+
+    /**
+     * Removes all the tags of this object.
+     */
+    public final void clear() {
+        mutableTags().clear();
     }
 
     /**
-     * Returns a {@link java.util.Map} representing a par of type and value of this object.
+     * Returns a {@link java.util.Map} representing a par of type and value of this object. The map is a copy, so
+     * changing it doesn't change these tags, use {@link #putTag(String, String)} and {@link #merge(Tags)} instead.
      *
      * @return A {@link java.util.Map} containing tags
      */
     public final Map<String, String> getTags() {
-        return tags;
+        return new HashMap<String, String>(map());
+    }
+
+    /**
+     * Returns the immutable {@link TagSet} of these tags, which is cached until the tags change. Tags with an empty
+     * type or value are left out.
+     *
+     * @return The interned {@link TagSet}
+     */
+    public final TagSet toTagSet() {
+        TagSet result = tagSet;
+        if (result == null) {
+            result = TagSet.of(tags);
+            tagSet = result;
+        }
+        return result;
     }
 
     /**
@@ -89,7 +138,7 @@ public class Tags {
      * @return A tag value
      */
     public final String getTagValue(final String type) {
-        return tags.get(type);
+        return map().get(type);
     }
 
     /**
@@ -100,11 +149,26 @@ public class Tags {
      */
     public final Tags merge(final Tags tags) {
         if (tags != null) {
-            this.tags.putAll(tags.getTags());
+            mutableTags().putAll(tags.map());
         }
         return this;
     }
 
+    private Map<String, String> mutableTags() {
+        Map<String, String> result = map();
+        tagSet = null;
+        return result;
+    }
+
+    private Map<String, String> map() {
+        Map<String, String> result = tags;
+        if (result == null) {
+            result = tagSet.toMap();
+            tags = result;
+        }
+        return result;
+    }
+
     /**
      * Utility method to check if the tag type and values are valid.
      *
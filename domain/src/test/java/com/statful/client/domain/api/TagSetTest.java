@@ -0,0 +1,165 @@
+package com.statful.client.domain.api;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TagSetTest {
+
+    @Test
+    public void shouldSortTagsByType() {
+        // When
+        TagSet tagSet = TagSet.of("unit", "ms", "app", "statful", "host", "localhost");
+
+        // Then
+        assertEquals("Should have all the tags", 3, tagSet.size());
+        assertEquals("Should sort the tags by type", "app", tagSet.getType(0));
+        assertEquals("Should sort the tags by type", "unit", tagSet.getType(2));
+        assertEquals("Should encode the sorted tags", ",app=statful,host=localhost,unit=ms", tagSet.getEncoded());
+    }
+
+    @Test
+    public void shouldIgnoreEmptyTags() {
+        // Given
+        Map<String, String> tags = new HashMap<String, String>();
+        tags.put("unit", "");
+        tags.put("", "ms");
+
+        // Then
+        assertSame("Should ignore empty tags of a map", TagSet.EMPTY, TagSet.of(tags));
+        assertSame("Should ignore empty tags of pairs", TagSet.EMPTY, TagSet.of("unit", null, null, "ms"));
+        assertEquals("Should encode no tags as an empty string", "", TagSet.EMPTY.getEncoded());
+    }
+
+    @Test
+    public void shouldEscapeTypesAndValues() {
+        // When
+        TagSet tagSet = TagSet.of("tag, key=", "tag\tvalue\n");
+
+        // Then
+        assertEquals("Should escape whitespace, commas and equals", ",tag\\,\\ key\\==tag\\\tvalue\\\n", tagSet.getEncoded());
+        assertEquals("Should keep the raw value", "tag\tvalue\n", tagSet.get("tag, key="));
+    }
+
+    @Test
+    public void shouldInternEqualTagSets() {
+        // Given
+        Map<String, String> tags = new HashMap<String, String>();
+        tags.put("unit", "ms");
+        tags.put("app", "statful");
+
+        // Then
+        assertSame("Should share equal tag sets", TagSet.of("app", "statful", "unit", "ms"), TagSet.of(tags));
+        assertSame("Should share equal tag sets built in another order", TagSet.of(tags), TagSet.of("unit", "ms", "app", "statful"));
+    }
+
+    @Test
+    public void shouldRemoveUnusedTagSetsFromPool() throws Exception {
+        // Given
+        Map<String, String> tags = new HashMap<String, String>();
+        tags.put("collected", "tag");
+        int before = TagSet.internedCount();
+        assertNotNull("Should build the tag set", TagSet.of(tags));
+        assertTrue("Should intern the tag set", TagSet.internedCount() > before);
+
+        // When
+        for (int i = 0; i < 50 && TagSet.internedCount() > before; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // Then
+        assertTrue("Should remove the collected tag set from the pool", TagSet.internedCount() <= before);
+    }
+
+    @Test
+    public void shouldReplaceTagOfSameType() {
+        // Given
+        TagSet tagSet = TagSet.of("app", "statful", "unit", "ms");
+
+        // When
+        TagSet replaced = tagSet.with("unit", "s");
+
+        // Then
+        assertEquals("Should replace the value", "s", replaced.get("unit"));
+        assertEquals("Should not change the original tag set", "ms", tagSet.get("unit"));
+        assertSame("Should return the same tag set when the tag is already there", tagSet, tagSet.with("unit", "ms"));
+    }
+
+    @Test
+    public void shouldRememberLastDerivation() {
+        // Given
+        TagSet defaults = TagSet.of("app", "statful");
+        TagSet other = TagSet.of("host", "localhost");
+
+        // Then
+        assertSame("Should return the same derived tag set", defaults.with("unit", "ms"), defaults.with("unit", "ms"));
+        assertSame("Should return the same merged tag set", defaults.merge(other), defaults.merge(other));
+    }
+
+    @Test
+    public void shouldRememberAlternatingDerivations() {
+        // Given
+        TagSet defaults = TagSet.of("app", "statful");
+        TagSet success = defaults.with("status", "200");
+        TagSet failure = defaults.with("status", "500");
+
+        // When
+        TagSet successAgain = defaults.with("status", "200");
+        TagSet failureAgain = defaults.with("status", "500");
+
+        // Then
+        assertSame("Should return the same tag set for the first value", success, successAgain);
+        assertSame("Should return the same tag set for the second value", failure, failureAgain);
+        assertEquals("Should derive the tag set of the second value", ",app=statful,status=500", failureAgain.getEncoded());
+    }
+
+    @Test
+    public void shouldMergeTagSets() {
+        // Given
+        TagSet first = TagSet.of("app", "statful", "unit", "ms", "zone", "a");
+        TagSet second = TagSet.of("host", "localhost", "unit", "s");
+
+        // When
+        TagSet merged = first.merge(second);
+
+        // Then
+        assertEquals("Should keep the tags of both sets", 4, merged.size());
+        assertEquals("Should prefer the values of the merged set", "s", merged.get("unit"));
+        assertEquals("Should encode the sorted tags", ",app=statful,host=localhost,unit=s,zone=a", merged.getEncoded());
+        assertSame("Should be the same as building the tags at once",
+                TagSet.of("zone", "a", "unit", "s", "host", "localhost", "app", "statful"), merged);
+    }
+
+    @Test
+    public void shouldMergeTagSetsSortedAfterThisOne() {
+        // Given
+        TagSet first = TagSet.of("app", "statful");
+        TagSet second = TagSet.of("unit", "ms");
+
+        // When
+        TagSet merged = first.merge(second);
+
+        // Then
+        assertEquals("Should append the tags of the merged set", ",app=statful,unit=ms", merged.getEncoded());
+        assertSame("Should return this tag set when merging a subset", merged, merged.merge(second));
+        assertSame("Should return this tag set when merging nothing", first, first.merge(TagSet.EMPTY));
+    }
+
+    @Test
+    public void shouldCompareByTags() {
+        // Given
+        TagSet tagSet = TagSet.of("app", "statful", "unit", "ms");
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("app", "statful");
+        expected.put("unit", "ms");
+
+        // Then
+        assertEquals("Should be equal to a tag set with the same tags", TagSet.of("unit", "ms").with("app", "statful"), tagSet);
+        assertNotEquals("Should not be equal to a tag set with other values", TagSet.of("app", "statful", "unit", "s"), tagSet);
+        assertEquals("Should convert to a map", expected, tagSet.toMap());
+    }
+}
@@ -113,4 +113,48 @@ public class TagsTest {
     public void shouldCheckIfTagIsNotEmpty() throws Exception {
         assertFalse(Tags.isEmptyOrNull("unit", "ms"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldConvertToTagSet() throws Exception {
+        // Given
+        Tags tags = Tags.from("unit", "ms");
+        TagSet before = tags.toTagSet();
+
+        // When
+        tags.putTag("app", "statful");
+
+        // Then
+        assertSame("Should cache the tag set", tags.toTagSet(), tags.toTagSet());
+        assertEquals("Should not keep the tag set of the previous tags", ",unit=ms", before.getEncoded());
+        assertEquals("Should rebuild the tag set after a change", ",app=statful,unit=ms", tags.toTagSet().getEncoded());
+    }
+
+    @Test
+    public void shouldGetFromTagSet() throws Exception {
+        // Given
+        TagSet tagSet = TagSet.of("unit", "ms", "app", "statful");
+
+        // When
+        Tags tags = Tags.from(tagSet);
+        tags.putTag("unit", "s");
+
+        // Then
+        assertEquals("Should change the tags", "s", tags.getTagValue("unit"));
+        assertEquals("Should not change the tag set", "ms", tagSet.get("unit"));
+        assertEquals("Should keep the other tags", "statful", tags.getTagValue("app"));
+    }
+
+    @Test
+    public void shouldNotModifyTagsThroughTheirMap() throws Exception {
+        // Given
+        Tags tags = Tags.from("unit", "ms");
+        TagSet tagSet = tags.toTagSet();
+
+        // When
+        tags.getTags().put("app", "statful");
+
+        // Then
+        assertNull("Should not add the tag put in the copy", tags.getTagValue("app"));
+        assertSame("Should keep the tag set", tagSet, tags.toTagSet());
+    }
+}
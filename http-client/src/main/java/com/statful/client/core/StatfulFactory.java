@@ -1,18 +1,28 @@
 package com.statful.client.core;
 
 import com.statful.client.core.api.StatfulClientBuilder;
+import com.statful.client.core.transport.RetryingTransportSender;
 import com.statful.client.core.transport.TransportSender;
 import com.statful.client.domain.api.ClientConfiguration;
+import com.statful.client.transport.AsyncHTTPSender;
+import com.statful.client.transport.GzipCompressor;
 import com.statful.client.transport.HTTPSender;
 import com.statful.client.transport.SSLClientFactory;
 
+import java.util.logging.Logger;
+
 import static com.statful.client.domain.api.Transport.HTTP;
 
 /**
  * A factory for instantiating Statful HTTP clients.
+ * <p>
+ * The asynchronous HTTP sender doesn't wait for responses, so it doesn't report whether batches were delivered. Retries,
+ * the circuit breaker and spooling of undelivered batches don't apply to it, which is logged when they're configured.
  */
 public final class StatfulFactory {
 
+    private static final Logger LOGGER = Logger.getLogger(StatfulFactory.class.getName());
+
     private static HTTPClientFactory httpClientFactory = new HTTPClientFactory();
 
     private StatfulFactory() { }
@@ -38,8 +48,29 @@ public final class StatfulFactory {
         @Override
         protected TransportSender buildTransportSender(final ClientConfiguration configuration) {
             SSLClientFactory clientFactory = buildHTTPClientFactory(configuration);
-            return new HTTPSender(configuration.isSecure(), configuration.getHost(), configuration.getPort(),
+            if (configuration.isAsyncHttp()) {
+                warnIgnoredDeliveryOptions(configuration);
+                return new AsyncHTTPSender(configuration.isSecure(), configuration.getHost(), configuration.getPort(),
+                        configuration.getPath(), clientFactory, configuration.getMaxInFlightRequests());
+            }
+            HTTPSender sender = new HTTPSender(configuration.isSecure(), configuration.getHost(), configuration.getPort(),
                     configuration.getPath(), clientFactory);
+            if (configuration.getMaxRetries() <= 0 && configuration.getCircuitBreakerThreshold() <= 0) {
+                return sender;
+            }
+            return new RetryingTransportSender(sender, configuration.getMaxRetries(), configuration.getRetryBackoffMillis(),
+                    configuration.getCircuitBreakerThreshold(), configuration.getCircuitBreakerOpenMillis());
+        }
+
+        private static void warnIgnoredDeliveryOptions(final ClientConfiguration configuration) {
+            if (configuration.getMaxRetries() > 0 || configuration.getCircuitBreakerThreshold() > 0) {
+                LOGGER.info("Retries and the circuit breaker don't apply to the asynchronous HTTP sender, "
+                        + "which doesn't wait for responses.");
+            }
+            if (configuration.getSpoolDirectory() != null) {
+                LOGGER.warning("Batches that fail to be delivered by the asynchronous HTTP sender aren't spooled, "
+                        + "only batches that don't fit in the flush pipeline are.");
+            }
         }
 
         private static SSLClientFactory buildHTTPClientFactory(final ClientConfiguration configuration) {
@@ -47,8 +78,16 @@ public final class StatfulFactory {
                     configuration.getConnectionPoolSize(),
                     configuration.getConnectTimeoutMillis(),
                     configuration.getSocketTimeoutMillis(),
-                    configuration.getToken()
+                    configuration.getToken(),
+                    buildCompressor(configuration)
             );
         }
+
+        private static GzipCompressor buildCompressor(final ClientConfiguration configuration) {
+            if (!configuration.isCompressionEnabled()) {
+                return null;
+            }
+            return new GzipCompressor(configuration.getCompressionLevel(), configuration.getCompressionMinSize());
+        }
     }
 }
@@ -0,0 +1,19 @@
+package com.statful.client.transport;
+
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Interface for factories to implement asynchronous HTTP clients and components.
+ */
+public interface AsyncHTTPClientFactory extends HTTPClientFactory {
+
+    /**
+     * Creates a new asynchronous HTTP client to communicate with Statful. The client isn't started.
+     *
+     * @return A closeable asynchronous HTTP client
+     * @throws GeneralSecurityException Thrown when SSL specific configurations fail
+     */
+    CloseableHttpAsyncClient createHttpAsyncClient() throws GeneralSecurityException;
+}
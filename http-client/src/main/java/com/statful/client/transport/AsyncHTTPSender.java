@@ -0,0 +1,202 @@
+package com.statful.client.transport;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.transport.ApiUriFactory;
+import com.statful.client.core.transport.TransportSender;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * This class is an implementation of {@link com.statful.client.core.transport.TransportSender} to send metrics
+ * using HTTP or HTTPS, without waiting for the responses.
+ * <p>
+ * Requests are executed by an asynchronous HTTP client, which keeps many requests in flight on a few I/O threads, so
+ * the sending thread is released as soon as the request is submitted. The number of requests in flight is bounded by a
+ * number of permits: when all are taken, sending waits for a response to release one. Responses are handled by a
+ * callback that counts successful and failed requests.
+ */
+public class AsyncHTTPSender implements TransportSender, Instrumented {
+
+    /**
+     * Default maximum number of requests in flight.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 20;
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncHTTPSender.class.getName());
+    private static final int HTTP_CREATED = 201;
+
+    private final String uri;
+    private final AsyncHTTPClientFactory clientFactory;
+    private final Semaphore permits;
+    private final int maxInFlightRequests;
+
+    private final AtomicLong successfulRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+
+    private CloseableHttpAsyncClient httpClient;
+
+    /**
+     * Default constructor.
+     *
+     * @param secure Flag to send the message securely, weather using HTTP or HTTPS.
+     * @param host The Statful API host
+     * @param port The Staful API port
+     * @param path The Staful API path
+     * @param clientFactory The asynchronous HTTP client factory to use in this sender
+     * @param maxInFlightRequests The maximum number of requests in flight, which defaults to
+     *                            {@link #DEFAULT_MAX_IN_FLIGHT_REQUESTS} when not positive
+     */
+    public AsyncHTTPSender(final boolean secure, final String host, final Integer port, final String path,
+                           final AsyncHTTPClientFactory clientFactory, final int maxInFlightRequests) {
+        this.uri = ApiUriFactory.buildUri(secure, host, port, path);
+        this.clientFactory = clientFactory;
+        this.maxInFlightRequests = maxInFlightRequests > 0 ? maxInFlightRequests : DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+        this.permits = new Semaphore(this.maxInFlightRequests);
+
+        try {
+            this.httpClient = clientFactory.createHttpAsyncClient();
+            if (httpClient != null) {
+                httpClient.start();
+            }
+        } catch (Exception e) {
+            LOGGER.severe("Unable to instantiate HTTP client: " + e.toString());
+        }
+    }
+
+    @Override
+    public final void send(final String message) {
+        doHttpRequest(uri, message);
+    }
+
+    @Override
+    public final void send(final String message, final String uri) {
+        doHttpRequest(uri, message);
+    }
+
+    private void doHttpRequest(final String uri, final String message) {
+        if (httpClient == null) {
+            LOGGER.warning("Unable to send metric. No http client was instantiated.");
+            return;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedRequests.incrementAndGet();
+            LOGGER.warning("Interrupted while waiting for a request permit, metric dropped.");
+            return;
+        }
+
+        try {
+            httpClient.execute(clientFactory.createHttpPut(uri, message), new ResponseCallback());
+        } catch (Exception e) {
+            permits.release();
+            failedRequests.incrementAndGet();
+            LOGGER.severe("Unable to send metric: " + e.toString());
+        }
+    }
+
+    @Override
+    public final void shutdown() {
+        try {
+            if (httpClient != null) {
+                httpClient.close();
+            }
+        } catch (Exception e) {
+            LOGGER.warning("Unable to close HTTP client: " + e.toString());
+        }
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("http.requests.successful", new Gauge() {
+            @Override
+            public long getValue() {
+                return getSuccessfulRequests();
+            }
+        });
+        stats.register("http.requests.failed", new Gauge() {
+            @Override
+            public long getValue() {
+                return getFailedRequests();
+            }
+        });
+        stats.register("http.requests.in_flight", new Gauge() {
+            @Override
+            public long getValue() {
+                return getInFlightRequests();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of requests answered with a created status.
+     *
+     * @return The number of successful requests
+     */
+    public final long getSuccessfulRequests() {
+        return successfulRequests.get();
+    }
+
+    /**
+     * Returns the number of requests that failed, were cancelled or weren't answered with a created status.
+     *
+     * @return The number of failed requests
+     */
+    public final long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    /**
+     * Returns the number of requests waiting for a response.
+     *
+     * @return The number of requests in flight
+     */
+    public final int getInFlightRequests() {
+        return maxInFlightRequests - permits.availablePermits();
+    }
+
+    /**
+     * Callback that releases the permit of a request when it completes, and counts its outcome.
+     */
+    private final class ResponseCallback implements FutureCallback<HttpResponse> {
+
+        @Override
+        public void completed(final HttpResponse response) {
+            permits.release();
+            StatusLine statusLine = response.getStatusLine();
+
+            if (statusLine.getStatusCode() == HTTP_CREATED) {
+                successfulRequests.incrementAndGet();
+            } else {
+                failedRequests.incrementAndGet();
+                LOGGER.warning("Unable to send metric. Reason: "
+                        + statusLine.getReasonPhrase() + ", status: "
+                        + statusLine.getStatusCode());
+            }
+        }
+
+        @Override
+        public void failed(final Exception e) {
+            permits.release();
+            failedRequests.incrementAndGet();
+            LOGGER.severe("Unable to send metric: " + e.toString());
+        }
+
+        @Override
+        public void cancelled() {
+            permits.release();
+            failedRequests.incrementAndGet();
+            LOGGER.warning("Request cancelled, metric dropped.");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.statful.client.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses request bodies in the gzip format.
+ * <p>
+ * Unlike {@link java.util.zip.GZIPOutputStream}, which creates a new {@link Deflater} and its native state for every
+ * stream, each thread reuses its own {@link Deflater} and output chunk, resetting them between bodies. The gzip header
+ * and trailer are written by hand around the raw deflate output. Bodies smaller than the minimum size are not worth the
+ * work, since the headers of a small request dominate its size.
+ */
+public final class GzipCompressor {
+
+    /**
+     * Default compression level, which favours speed over the last few percent of compression.
+     */
+    public static final int DEFAULT_LEVEL = 6;
+
+    /**
+     * Default minimum size in bytes of the bodies to compress.
+     */
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    private static final byte[] HEADER = new byte[] {
+        (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+    private static final int TRAILER_SIZE = 8;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int ESTIMATED_RATIO = 4;
+    private static final int BYTE_MASK = 0xff;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int INT_SIZE = 4;
+
+    private final int level;
+    private final int minSize;
+
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(level, true);
+        }
+    };
+
+    private final ThreadLocal<byte[]> chunks = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    /**
+     * Default constructor.
+     *
+     * @param level The compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}
+     * @param minSize The minimum size in bytes of the bodies to compress
+     */
+    public GzipCompressor(final int level, final int minSize) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Checks if a body is big enough to be compressed.
+     *
+     * @param size The size of the body in bytes
+     * @return True if the body should be compressed
+     */
+    public boolean shouldCompress(final int size) {
+        return size >= minSize;
+    }
+
+    /**
+     * Compresses a body in the gzip format.
+     *
+     * @param body The body to compress
+     * @return The compressed body
+     */
+    public byte[] compress(final byte[] body) {
+        Deflater deflater = deflaters.get();
+        byte[] chunk = chunks.get();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER.length + body.length / ESTIMATED_RATIO + TRAILER_SIZE);
+        out.write(HEADER, 0, HEADER.length);
+
+        deflater.reset();
+        deflater.setInput(body);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.write(chunk, 0, length);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, body.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the compression level.
+     *
+     * @return The compression level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the minimum size in bytes of the bodies to compress.
+     *
+     * @return The minimum size in bytes
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        for (int i = 0; i < INT_SIZE; i++) {
+            out.write((value >>> (i * BITS_PER_BYTE)) & BYTE_MASK);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.statful.client.transport;
 
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
 import com.statful.client.core.transport.ApiUriFactory;
-import com.statful.client.core.transport.TransportSender;
+import com.statful.client.core.transport.DeliveryStatus;
+import com.statful.client.core.transport.ReportingTransportSender;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -11,16 +15,29 @@ import java.util.logging.Logger;
 
 /**
  * This class is an implementation of {@link com.statful.client.core.transport.TransportSender} to send metrics
- * using HTTP or HTTPS.
+ * using HTTP or HTTPS. Metrics are delivered when Statful answers with a created status, and can be sent again after
+ * an I/O error, a server error or a too many requests status.
+ * <p>
+ * The requests, the size of their uncompressed bodies, the status classes of the responses and the I/O errors are
+ * published as <code>http.*</code> stats.
  */
-public class HTTPSender implements TransportSender {
+public class HTTPSender implements ReportingTransportSender, Instrumented {
 
     private static final Logger LOGGER = Logger.getLogger(HTTPSender.class.getName());
     private static final Integer HTTP_CREATED = 201;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final int STATUS_CLASS_DIVIDER = 100;
+    private static final int STATUS_CLASSES = 6;
 
     private final String uri;
     private final HTTPClientFactory clientFactory;
 
+    private final StripedCounter requests = new StripedCounter();
+    private final StripedCounter sentBytes = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter[] statusClasses = new StripedCounter[STATUS_CLASSES];
+
     private CloseableHttpClient httpClient;
 
     /**
@@ -36,6 +53,10 @@ public class HTTPSender implements TransportSender {
         this.uri = ApiUriFactory.buildUri(secure, host, port, path);
         this.clientFactory = clientFactory;
 
+        for (int i = 0; i < statusClasses.length; i++) {
+            statusClasses[i] = new StripedCounter();
+        }
+
         try {
             this.httpClient = clientFactory.createHttpClient();
         } catch (Exception e) {
@@ -53,23 +74,41 @@ public class HTTPSender implements TransportSender {
         doHttpRequest(uri, message);
     }
 
-    private void doHttpRequest(final String uri, final String message) {
+    @Override
+    public final DeliveryStatus trySend(final String message) {
+        return doHttpRequest(uri, message);
+    }
+
+    @Override
+    public final DeliveryStatus trySend(final String message, final String uri) {
+        return doHttpRequest(uri, message);
+    }
+
+    private DeliveryStatus doHttpRequest(final String uri, final String message) {
         CloseableHttpResponse response = null;
+        DeliveryStatus status = DeliveryStatus.FAILED;
 
         try {
             if (httpClient != null) {
+                requests.increment();
+                sentBytes.add(message.length());
                 response = httpClient.execute(clientFactory.createHttpPut(uri, message));
                 StatusLine statusLine = response.getStatusLine();
+                countStatus(statusLine.getStatusCode());
 
                 if (metricNotCreated(statusLine)) {
                     LOGGER.warning("Unable to send metric. Reason: "
                             + statusLine.getReasonPhrase() + ", status: "
                             + statusLine.getStatusCode());
+                    status = isRetryable(statusLine) ? DeliveryStatus.FAILED : DeliveryStatus.REJECTED;
+                } else {
+                    status = DeliveryStatus.DELIVERED;
                 }
             } else {
                 LOGGER.warning("Unable to send metric. No http client was instantiated.");
             }
         } catch (IOException e) {
+            errors.increment();
             LOGGER.severe("Unable to send metric: " + e.toString());
         } finally {
             try {
@@ -80,6 +119,8 @@ public class HTTPSender implements TransportSender {
                 LOGGER.warning("Unable to close response resource: " + e.toString());
             }
         }
+
+        return status;
     }
 
     @Override
@@ -93,7 +134,28 @@ public class HTTPSender implements TransportSender {
         }
     }
 
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("http.requests", requests);
+        stats.register("http.bytes.sent", sentBytes);
+        stats.register("http.errors", errors);
+        for (int i = 1; i < statusClasses.length; i++) {
+            stats.register("http.status." + i + "xx", statusClasses[i]);
+        }
+    }
+
+    private void countStatus(final int statusCode) {
+        int statusClass = statusCode / STATUS_CLASS_DIVIDER;
+        if (statusClass > 0 && statusClass < statusClasses.length) {
+            statusClasses[statusClass].increment();
+        }
+    }
+
     private boolean metricNotCreated(final StatusLine statusLine) {
         return HTTP_CREATED != statusLine.getStatusCode();
     }
+
+    private boolean isRetryable(final StatusLine statusLine) {
+        return statusLine.getStatusCode() == HTTP_TOO_MANY_REQUESTS || statusLine.getStatusCode() >= HTTP_SERVER_ERROR;
+    }
 }
@@ -1,13 +1,19 @@
 package com.statful.client.transport;
 
 import com.statful.client.domain.api.ClientConfiguration;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.ssl.SSLContexts;
 
 import java.io.UnsupportedEncodingException;
@@ -16,12 +22,19 @@ import java.security.GeneralSecurityException;
 /**
  * A factory for HTTP clients to communicate with Statful using SSL (it also supports non-secure communications).
  */
-public class SSLClientFactory implements HTTPClientFactory {
+public class SSLClientFactory implements AsyncHTTPClientFactory {
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    private static final String[] SUPPORTED_PROTOCOLS = new String[] {
+            "TLSv1", "TLSv2"
+    };
 
     private final String token;
     private final int connectionPoolSize;
     private final int connectTimeoutMs;
     private final int socketTimeoutMs;
+    private final GzipCompressor compressor;
 
     /**
      * Default constructor.
@@ -32,10 +45,25 @@ public class SSLClientFactory implements HTTPClientFactory {
      * @param token The Statful authentication token
      */
     public SSLClientFactory(final int connectionPoolSize, final int connectTimeoutMs, final int socketTimeoutMs, final String token) {
+        this(connectionPoolSize, connectTimeoutMs, socketTimeoutMs, token, null);
+    }
+
+    /**
+     * Constructor with request body compression.
+     *
+     * @param connectionPoolSize The connection pool size
+     * @param connectTimeoutMs The connect timeout in milliseconds
+     * @param socketTimeoutMs The socket timeout in milliseconds
+     * @param token The Statful authentication token
+     * @param compressor The {@link GzipCompressor} of the request bodies, or null to send them uncompressed
+     */
+    public SSLClientFactory(final int connectionPoolSize, final int connectTimeoutMs, final int socketTimeoutMs, final String token,
+                            final GzipCompressor compressor) {
         this.connectionPoolSize = connectionPoolSize;
         this.connectTimeoutMs = connectTimeoutMs;
         this.socketTimeoutMs = socketTimeoutMs;
         this.token = token;
+        this.compressor = compressor;
     }
 
     @Override
@@ -46,6 +74,15 @@ public class SSLClientFactory implements HTTPClientFactory {
                 .build();
     }
 
+    @Override
+    public final CloseableHttpAsyncClient createHttpAsyncClient() throws GeneralSecurityException {
+        return HttpAsyncClients.custom()
+                .setMaxConnTotal(connectionPoolSize)
+                .setMaxConnPerRoute(connectionPoolSize)
+                .setSSLStrategy(createSslStrategy())
+                .build();
+    }
+
     private static PoolingHttpClientConnectionManager createConnectionManager(final int connectionPoolSize) {
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
         connectionManager.setMaxTotal(connectionPoolSize);
@@ -58,18 +95,24 @@ public class SSLClientFactory implements HTTPClientFactory {
     private static SSLConnectionSocketFactory createSslSocketFactory() throws GeneralSecurityException {
         return new SSLConnectionSocketFactory(
                 SSLContexts.createSystemDefault(),
-                new String[] {
-                        "TLSv1", "TLSv2"
-                },
+                SUPPORTED_PROTOCOLS,
                 null,
                 SSLConnectionSocketFactory.getDefaultHostnameVerifier());
     }
 
+    private static SSLIOSessionStrategy createSslStrategy() throws GeneralSecurityException {
+        return new SSLIOSessionStrategy(
+                SSLContexts.createSystemDefault(),
+                SUPPORTED_PROTOCOLS,
+                null,
+                SSLIOSessionStrategy.getDefaultHostnameVerifier());
+    }
+
     @Override
     public final HttpPut createHttpPut(final String uri, final String body) throws UnsupportedEncodingException {
         HttpPut httpPut = new HttpPut(uri);
         httpPut.addHeader(ClientConfiguration.TOKEN_HEADER, token);
-        httpPut.setEntity(new StringEntity(body));
+        setEntity(httpPut, body);
         httpPut.setConfig(RequestConfig.copy(RequestConfig.DEFAULT)
                 .setConnectTimeout(connectTimeoutMs)
                 .setConnectionRequestTimeout(connectTimeoutMs)
@@ -78,4 +121,19 @@ public class SSLClientFactory implements HTTPClientFactory {
 
         return httpPut;
     }
+
+    private void setEntity(final HttpPut httpPut, final String body) throws UnsupportedEncodingException {
+        if (compressor != null) {
+            byte[] bytes = body.getBytes(ContentType.DEFAULT_TEXT.getCharset());
+
+            if (compressor.shouldCompress(bytes.length)) {
+                httpPut.addHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+                httpPut.setEntity(new ByteArrayEntity(compressor.compress(bytes), ContentType.DEFAULT_TEXT));
+            } else {
+                httpPut.setEntity(new ByteArrayEntity(bytes, ContentType.DEFAULT_TEXT));
+            }
+        } else {
+            httpPut.setEntity(new StringEntity(body));
+        }
+    }
 }
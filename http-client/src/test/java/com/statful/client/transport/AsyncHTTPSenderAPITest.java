@@ -0,0 +1,187 @@
+package com.statful.client.transport;
+
+import com.statful.client.test.HttpTest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockserver.matchers.Times.exactly;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.verify.VerificationTimes.once;
+
+public class AsyncHTTPSenderAPITest extends HttpTest {
+
+    private static final String METRIC = "application.counter.requests,host=localhost 1 1465394947 sum,count,10";
+
+    private AsyncHTTPSender subject;
+
+    @After
+    public void shutdownSubject() {
+        if (subject != null) {
+            subject.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldSendThroughHttp() throws Exception {
+        // Given
+        mockMetricsPutWithStatusCode(201);
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"), 10);
+
+        // When
+        subject.send(METRIC);
+        awaitCompletion(subject);
+
+        // Then
+        mockClientAndServer.verify(request().withBody(METRIC), once());
+        assertEquals("Should count the successful request", 1, subject.getSuccessfulRequests());
+        assertEquals("Should not count failed requests", 0, subject.getFailedRequests());
+    }
+
+    @Test
+    public void shouldCountRequestsWhenMetricIsNotCreated() throws Exception {
+        // Given
+        mockMetricsPutWithStatusCode(402);
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"), 10);
+
+        // When
+        subject.send(METRIC);
+        awaitCompletion(subject);
+
+        // Then
+        assertEquals("Should count the failed request", 1, subject.getFailedRequests());
+        assertEquals("Should release the permit", 0, subject.getInFlightRequests());
+    }
+
+    @Test
+    public void shouldBoundRequestsInFlight() throws Exception {
+        // Given
+        CloseableHttpAsyncClient httpClient = mock(CloseableHttpAsyncClient.class);
+        AsyncHTTPClientFactory httpClientFactory = mockFactory(httpClient);
+
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", httpClientFactory, 1);
+        subject.send(METRIC);
+
+        // When
+        Thread blockedSender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                subject.send(METRIC);
+            }
+        });
+        blockedSender.start();
+        blockedSender.join(200);
+
+        // Then
+        assertEquals("Should keep a single request in flight", 1, subject.getInFlightRequests());
+        verify(httpClient, times(1)).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+
+        // When
+        completeRequest(httpClient);
+        blockedSender.join(5000);
+
+        // Then
+        verify(httpClient, times(2)).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+        assertEquals("Should count the completed request", 1, subject.getSuccessfulRequests());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCountRequestsThatCannotBeSubmitted() throws Exception {
+        // Given
+        CloseableHttpAsyncClient httpClient = mock(CloseableHttpAsyncClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class), any(FutureCallback.class))).thenThrow(new IllegalStateException());
+
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", mockFactory(httpClient), 10);
+
+        // When
+        subject.send(METRIC);
+
+        // Then
+        assertEquals("Should count the failed request", 1, subject.getFailedRequests());
+        assertEquals("Should release the permit", 0, subject.getInFlightRequests());
+    }
+
+    @Test
+    public void shouldNotThrowWhenHttpClientIsNull() throws Exception {
+        // Given
+        AsyncHTTPClientFactory httpClientFactory = mock(AsyncHTTPClientFactory.class);
+        when(httpClientFactory.createHttpAsyncClient()).thenThrow(new GeneralSecurityException());
+
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", httpClientFactory, 10);
+
+        // When
+        subject.send(METRIC);
+    }
+
+    @Test
+    public void shouldStartAndShutDownClient() throws Exception {
+        // Given
+        CloseableHttpAsyncClient httpClient = mock(CloseableHttpAsyncClient.class);
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", mockFactory(httpClient), 10);
+
+        // When
+        subject.shutdown();
+
+        // Then
+        verify(httpClient).start();
+        verify(httpClient).close();
+    }
+
+    @Test
+    public void shouldNotThrowWhenHttpClientThrowsWhenClosing() throws Exception {
+        // Given
+        CloseableHttpAsyncClient httpClient = mock(CloseableHttpAsyncClient.class);
+        doThrow(new IOException()).when(httpClient).close();
+
+        subject = new AsyncHTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", mockFactory(httpClient), 10);
+
+        // When
+        subject.shutdown();
+    }
+
+    private static AsyncHTTPClientFactory mockFactory(final CloseableHttpAsyncClient httpClient) throws Exception {
+        AsyncHTTPClientFactory httpClientFactory = mock(AsyncHTTPClientFactory.class);
+        when(httpClientFactory.createHttpAsyncClient()).thenReturn(httpClient);
+        when(httpClientFactory.createHttpPut(anyString(), anyString())).thenReturn(new HttpPut("http://127.0.0.1/"));
+        return httpClientFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void completeRequest(final CloseableHttpAsyncClient httpClient) {
+        ArgumentCaptor<FutureCallback> callback = ArgumentCaptor.forClass(FutureCallback.class);
+        verify(httpClient).execute(any(HttpUriRequest.class), callback.capture());
+
+        HttpResponse httpResponse = mock(HttpResponse.class, RETURNS_DEEP_STUBS);
+        when(httpResponse.getStatusLine().getStatusCode()).thenReturn(201);
+        callback.getValue().completed(httpResponse);
+    }
+
+    private static void awaitCompletion(final AsyncHTTPSender sender) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.getSuccessfulRequests() + sender.getFailedRequests() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void mockMetricsPutWithStatusCode(int statusCode) {
+        mockClientAndServer.when(
+                request()
+                        .withMethod("PUT")
+                        .withPath("/tel/v2.0/metrics"),
+                exactly(1))
+                .respond(response().withStatusCode(statusCode));
+    }
+}
@@ -0,0 +1,87 @@
+package com.statful.client.transport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class GzipCompressorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldCompressInGzipFormat() throws Exception {
+        // Given
+        GzipCompressor subject = new GzipCompressor(6, 0);
+        byte[] body = batch(100).getBytes(UTF_8);
+
+        // When
+        byte[] compressed = subject.compress(body);
+
+        // Then
+        assertArrayEquals("Should decompress to the original body", body, gunzip(compressed));
+        assertTrue("Should compress repetitive metrics", compressed.length * 5 < body.length);
+    }
+
+    @Test
+    public void shouldReuseDeflaterBetweenBodies() throws Exception {
+        // Given
+        GzipCompressor subject = new GzipCompressor(1, 0);
+        byte[] first = batch(1000).getBytes(UTF_8);
+        byte[] second = "application.counter.requests 1 100".getBytes(UTF_8);
+
+        // When
+        byte[] firstCompressed = subject.compress(first);
+        byte[] secondCompressed = subject.compress(second);
+
+        // Then
+        assertArrayEquals("Should decompress the first body", first, gunzip(firstCompressed));
+        assertArrayEquals("Should decompress the second body", second, gunzip(secondCompressed));
+    }
+
+    @Test
+    public void shouldCompressEmptyBody() throws Exception {
+        GzipCompressor subject = new GzipCompressor(6, 0);
+
+        assertArrayEquals("Should decompress to an empty body", new byte[0], gunzip(subject.compress(new byte[0])));
+    }
+
+    @Test
+    public void shouldOnlyCompressBodiesFromMinSize() {
+        GzipCompressor subject = new GzipCompressor(6, 1024);
+
+        assertFalse("Should not compress small bodies", subject.shouldCompress(1023));
+        assertTrue("Should compress bodies from the min size", subject.shouldCompress(1024));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptInvalidLevel() {
+        new GzipCompressor(10, 0);
+    }
+
+    static String batch(final int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("application.timer.execution,unit=ms,app=uwt,host=localhost ").append(i).append(" 1465394947 avg,p90,count,10 100\n");
+        }
+        return sb.toString();
+    }
+
+    static byte[] gunzip(final byte[] compressed) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read = in.read(buffer);
+        while (read != -1) {
+            out.write(buffer, 0, read);
+            read = in.read(buffer);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
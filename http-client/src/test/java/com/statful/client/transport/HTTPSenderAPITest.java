@@ -1,6 +1,8 @@
 package com.statful.client.transport;
 
+import com.statful.client.core.stats.ClientStats;
 import com.statful.client.core.transport.ApiUriFactory;
+import com.statful.client.core.transport.DeliveryStatus;
 import com.statful.client.domain.api.Aggregation;
 import com.statful.client.domain.api.AggregationFrequency;
 import com.statful.client.test.HttpTest;
@@ -13,6 +15,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockserver.matchers.Times.exactly;
@@ -75,6 +78,81 @@ public class HTTPSenderAPITest extends HttpTest {
         mockClientAndServer.verify(request().withBody(METRIC), once());
     }
 
+    @Test
+    public void shouldReportDeliveredMetrics() {
+        // Given
+        mockMetricsPutWithStatusCode(201);
+        subject = new HTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"));
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should report the metric as delivered", DeliveryStatus.DELIVERED, status);
+    }
+
+    @Test
+    public void shouldReportUndeliveredMetrics() {
+        // Given
+        mockMetricsPutWithStatusCode(503);
+        subject = new HTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"));
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC, "http://127.0.0.1:" + mockServerPort + "/tel/v2.0/metrics");
+
+        // Then
+        assertEquals("Should report the metric as failed", DeliveryStatus.FAILED, status);
+    }
+
+    @Test
+    public void shouldReportRejectedMetrics() {
+        // Given
+        mockMetricsPutWithStatusCode(400);
+        subject = new HTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"));
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should report the metric as rejected", DeliveryStatus.REJECTED, status);
+    }
+
+    @Test
+    public void shouldCollectRequestStats() {
+        // Given
+        mockMetricsPutWithStatusCode(400);
+        subject = new HTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", new SSLClientFactory(10, 1000, 5000, "any-token"));
+        ClientStats stats = new ClientStats();
+        stats.registerAll(subject);
+
+        // When
+        subject.send(METRIC);
+
+        // Then
+        assertEquals("Should count the request", Long.valueOf(1), stats.get("http.requests"));
+        assertEquals("Should count the body size", Long.valueOf(METRIC.length()), stats.get("http.bytes.sent"));
+        assertEquals("Should count the status class", Long.valueOf(1), stats.get("http.status.4xx"));
+        assertEquals("Should not count other status classes", Long.valueOf(0), stats.get("http.status.2xx"));
+    }
+
+    @Test
+    public void shouldReportFailedMetricsOnIOException() throws Exception {
+        // Given
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        when(httpClient.execute(any(HttpPut.class))).thenThrow(new IOException());
+
+        HTTPClientFactory httpClientFactory = mock(HTTPClientFactory.class);
+        when(httpClientFactory.createHttpClient()).thenReturn(httpClient);
+
+        subject = new HTTPSender(false, "127.0.0.1", mockServerPort, "/tel/v2.0/metrics", httpClientFactory);
+
+        // When
+        DeliveryStatus status = subject.trySend(METRIC);
+
+        // Then
+        assertEquals("Should report the metric as failed", DeliveryStatus.FAILED, status);
+    }
+
     @Test
     public void shouldNotThrowWhenHttpClientIsNull() throws Exception {
         // Given
@@ -0,0 +1,58 @@
+package com.statful.client.transport;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class SSLClientFactoryTest {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    @Test
+    public void shouldNotCompressByDefault() throws Exception {
+        // Given
+        SSLClientFactory subject = new SSLClientFactory(10, 1000, 5000, "any-token");
+        String body = GzipCompressorTest.batch(100);
+
+        // When
+        HttpPut httpPut = subject.createHttpPut("http://127.0.0.1/tel/v2.0/metrics", body);
+
+        // Then
+        assertNull("Should not set the content encoding", httpPut.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Should send the body", body, EntityUtils.toString(httpPut.getEntity()));
+    }
+
+    @Test
+    public void shouldCompressBodiesFromMinSize() throws Exception {
+        // Given
+        SSLClientFactory subject = new SSLClientFactory(10, 1000, 5000, "any-token", new GzipCompressor(6, 1024));
+        String body = GzipCompressorTest.batch(100);
+
+        // When
+        HttpPut httpPut = subject.createHttpPut("http://127.0.0.1/tel/v2.0/metrics", body);
+
+        // Then
+        assertEquals("Should set the gzip content encoding", "gzip", httpPut.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue());
+        assertEquals("Should send the compressed body", body,
+                new String(GzipCompressorTest.gunzip(EntityUtils.toByteArray(httpPut.getEntity())), ISO_8859_1));
+    }
+
+    @Test
+    public void shouldNotCompressBodiesSmallerThanMinSize() throws Exception {
+        // Given
+        SSLClientFactory subject = new SSLClientFactory(10, 1000, 5000, "any-token", new GzipCompressor(6, 1024));
+        String body = "application.counter.requests 1 1465394947";
+
+        // When
+        HttpPut httpPut = subject.createHttpPut("http://127.0.0.1/tel/v2.0/metrics", body);
+
+        // Then
+        assertNull("Should not set the content encoding", httpPut.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Should send the body", body, EntityUtils.toString(httpPut.getEntity()));
+    }
+}
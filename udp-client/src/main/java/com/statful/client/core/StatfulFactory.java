@@ -4,6 +4,7 @@ import com.statful.client.core.api.StatfulClientBuilder;
 import com.statful.client.core.transport.TransportSender;
 import com.statful.client.domain.api.ClientConfiguration;
 import com.statful.client.domain.api.Transport;
+import com.statful.client.transport.NonBlockingUDPSender;
 import com.statful.client.transport.UDPSender;
 
 /**
@@ -34,7 +35,10 @@ public final class StatfulFactory {
 
         @Override
         protected TransportSender buildTransportSender(final ClientConfiguration configuration) {
-            return new UDPSender(configuration.getHost(), configuration.getPort());
+            if (configuration.isNonBlockingUdp()) {
+                return new NonBlockingUDPSender(configuration.getHost(), configuration.getPort(), configuration.getUdpMaxPayloadSize());
+            }
+            return new UDPSender(configuration.getHost(), configuration.getPort(), configuration.getUdpMaxPayloadSize());
         }
     }
 }
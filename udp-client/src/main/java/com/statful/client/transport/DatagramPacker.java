@@ -0,0 +1,265 @@
+package com.statful.client.transport;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Packs the lines of a flush into datagrams that fit a maximum payload size.
+ * <p>
+ * A flush is split on line boundaries only, and consecutive lines are coalesced into the same datagram while they fit,
+ * so that no datagram is fragmented by the network and no line is split across datagrams. A single line bigger than
+ * the maximum payload can't be sent without fragmentation, so it is dropped and counted.
+ * <p>
+ * The returned datagrams are views over the encoded flush, so packing doesn't copy the payload. A flush can also be
+ * encoded line by line straight into a buffer of the sender, one datagram at a time, so that it's never encoded to a
+ * byte array first. Instances of this class are thread-safe.
+ */
+public final class DatagramPacker {
+
+    /**
+     * Sends the datagrams encoded by {@link DatagramPacker#pack(String, CharsetEncoder, ByteBuffer, DatagramWriter)}.
+     */
+    public interface DatagramWriter {
+        /**
+         * Sends a datagram.
+         *
+         * @param datagram The {@link ByteBuffer} with the datagram between its position and its limit
+         * @throws IOException If the datagram couldn't be sent
+         */
+        void write(ByteBuffer datagram) throws IOException;
+    }
+
+    /**
+     * Default maximum payload size, which fits a 1500 bytes Ethernet MTU after the IPv6 and UDP headers, with room for
+     * tunnel overhead.
+     */
+    public static final int DEFAULT_MAX_PAYLOAD_SIZE = 1432;
+
+    /**
+     * Maximum payload size of an UDP datagram over IPv4.
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private static final Logger LOGGER = Logger.getLogger(DatagramPacker.class.getName());
+
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final char LINE_SEPARATOR_CHAR = '\n';
+
+    private final int maxPayloadSize;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong packets = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+
+    /**
+     * Default constructor.
+     *
+     * @param maxPayloadSize The maximum payload size of a datagram in bytes, which defaults to
+     *                       {@link #DEFAULT_MAX_PAYLOAD_SIZE} when not positive and is capped at
+     *                       {@link #MAX_DATAGRAM_SIZE}
+     */
+    public DatagramPacker(final int maxPayloadSize) {
+        if (maxPayloadSize <= 0) {
+            this.maxPayloadSize = DEFAULT_MAX_PAYLOAD_SIZE;
+        } else {
+            this.maxPayloadSize = Math.min(maxPayloadSize, MAX_DATAGRAM_SIZE);
+        }
+    }
+
+    /**
+     * Packs an encoded flush into datagrams. Lines bigger than the maximum payload size are dropped and counted, and
+     * aren't counted in the bytes of the flush.
+     *
+     * @param payload The UTF-8 encoded flush, with lines separated by a line feed
+     * @return A {@link List} of {@link ByteBuffer} views over the payload, one per datagram to send
+     */
+    public List<ByteBuffer> pack(final byte[] payload) {
+        if (payload.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<ByteBuffer> datagrams = new ArrayList<ByteBuffer>();
+        int packetStart = 0;
+        int packetEnd = 0;
+        int lineStart = 0;
+
+        while (lineStart < payload.length) {
+            int lineEnd = endOfLine(payload, lineStart);
+
+            if (lineEnd - lineStart > maxPayloadSize) {
+                droppedLines.incrementAndGet();
+                LOGGER.warning("Metric is bigger than the maximum datagram payload, metric dropped.");
+                addDatagram(datagrams, payload, packetStart, packetEnd);
+                packetStart = lineEnd;
+                packetEnd = lineEnd;
+            } else if (lineEnd - packetStart > maxPayloadSize) {
+                addDatagram(datagrams, payload, packetStart, packetEnd);
+                packetStart = lineStart;
+                packetEnd = lineEnd;
+            } else {
+                packetEnd = lineEnd;
+            }
+
+            lineStart = lineEnd;
+        }
+
+        addDatagram(datagrams, payload, packetStart, packetEnd);
+
+        long packedBytes = 0;
+        for (ByteBuffer datagram : datagrams) {
+            packedBytes += datagram.remaining();
+        }
+
+        flushes.incrementAndGet();
+        packets.addAndGet(datagrams.size());
+        bytes.addAndGet(packedBytes);
+        LOGGER.fine("Packed a flush of " + packedBytes + " bytes in " + datagrams.size() + " datagrams.");
+
+        return datagrams;
+    }
+
+    /**
+     * Encodes a flush line by line into a buffer, and writes the buffer as a datagram whenever the next line doesn't fit
+     * in the maximum payload size. Lines bigger than the maximum payload size are dropped and counted, and aren't
+     * counted in the bytes of the flush.
+     *
+     * @param message The flush, with lines separated by a line feed
+     * @param encoder The {@link CharsetEncoder} to encode the lines with, which must not be used concurrently
+     * @param buffer The {@link ByteBuffer} to encode the datagrams into, which must not be used concurrently
+     * @param writer The {@link DatagramWriter} to send the datagrams with
+     * @throws IOException If a datagram couldn't be sent, in which case the rest of the flush isn't sent
+     */
+    public void pack(final String message, final CharsetEncoder encoder, final ByteBuffer buffer,
+                     final DatagramWriter writer) throws IOException {
+        if (message.isEmpty()) {
+            return;
+        }
+
+        int payloadSize = Math.min(maxPayloadSize, buffer.capacity());
+        CharBuffer chars = CharBuffer.wrap(message);
+        int datagrams = 0;
+        long encodedBytes = 0;
+        int lineStart = 0;
+
+        clear(buffer, payloadSize);
+        while (lineStart < message.length()) {
+            int lineEnd = message.indexOf(LINE_SEPARATOR_CHAR, lineStart);
+            lineEnd = lineEnd < 0 ? message.length() : lineEnd + 1;
+            int packetEnd = buffer.position();
+
+            ((Buffer) chars).limit(lineEnd);
+            ((Buffer) chars).position(lineStart);
+            encoder.reset();
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(buffer);
+            }
+
+            if (!result.isOverflow()) {
+                lineStart = lineEnd;
+            } else if (packetEnd == 0) {
+                droppedLines.incrementAndGet();
+                LOGGER.warning("Metric is bigger than the maximum datagram payload, metric dropped.");
+                clear(buffer, payloadSize);
+                lineStart = lineEnd;
+            } else {
+                ((Buffer) buffer).position(packetEnd);
+                encodedBytes += write(buffer, writer);
+                datagrams++;
+                clear(buffer, payloadSize);
+            }
+        }
+
+        if (buffer.position() > 0) {
+            encodedBytes += write(buffer, writer);
+            datagrams++;
+        }
+
+        flushes.incrementAndGet();
+        packets.addAndGet(datagrams);
+        bytes.addAndGet(encodedBytes);
+        LOGGER.fine("Packed a flush of " + encodedBytes + " bytes in " + datagrams + " datagrams.");
+    }
+
+    /**
+     * Returns the maximum payload size of the datagrams.
+     *
+     * @return The maximum payload size in bytes
+     */
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+    /**
+     * Returns the number of flushes packed.
+     *
+     * @return The number of flushes
+     */
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    /**
+     * Returns the number of datagrams packed, which divided by the number of flushes gives the datagrams per flush.
+     *
+     * @return The number of datagrams
+     */
+    public long getPackets() {
+        return packets.get();
+    }
+
+    /**
+     * Returns the number of bytes packed into datagrams, which leaves out the lines dropped for being too big.
+     *
+     * @return The number of bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of lines dropped because they were bigger than the maximum payload size.
+     *
+     * @return The number of dropped lines
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    private static int endOfLine(final byte[] payload, final int lineStart) {
+        for (int i = lineStart; i < payload.length; i++) {
+            if (payload[i] == LINE_SEPARATOR) {
+                return i + 1;
+            }
+        }
+        return payload.length;
+    }
+
+    private static int write(final ByteBuffer buffer, final DatagramWriter writer) throws IOException {
+        ((Buffer) buffer).flip();
+        int size = buffer.remaining();
+        writer.write(buffer);
+        return size;
+    }
+
+    private static void clear(final ByteBuffer buffer, final int payloadSize) {
+        ((Buffer) buffer).clear();
+        ((Buffer) buffer).limit(payloadSize);
+    }
+
+    private static void addDatagram(final List<ByteBuffer> datagrams, final byte[] payload, final int start, final int end) {
+        if (end > start) {
+            datagrams.add(ByteBuffer.wrap(payload, start, end - start));
+        }
+    }
+}
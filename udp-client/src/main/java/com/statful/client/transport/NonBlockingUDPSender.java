@@ -0,0 +1,184 @@
+package com.statful.client.transport;
+
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
+import com.statful.client.core.transport.TransportSender;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * This class is an implementation of {@link com.statful.client.core.transport.TransportSender} to send metrics
+ * using UDP, through a non-blocking {@link DatagramChannel}.
+ * <p>
+ * The channel is connected once, and each message is encoded line by line with a cached {@link CharsetEncoder} straight
+ * into a reusable direct {@link ByteBuffer}, which a {@link DatagramPacker} fills up to the maximum payload size on
+ * line boundaries and writes to the channel without further copies. When the socket send buffer is full, the datagram
+ * is dropped and counted instead of blocking the sending thread.
+ * <p>
+ * Instances of this class are thread-safe, sends are serialized since they share the same buffer.
+ */
+public class NonBlockingUDPSender implements TransportSender, Instrumented {
+
+    private static final Logger LOGGER = Logger.getLogger(NonBlockingUDPSender.class.getName());
+
+    private final String host;
+    private final int port;
+
+    private final DatagramPacker packer;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private final DatagramPacker.DatagramWriter channelWriter = new DatagramPacker.DatagramWriter() {
+        @Override
+        public void write(final ByteBuffer datagram) throws IOException {
+            int written = channel.write(datagram);
+            if (written == 0) {
+                droppedDatagrams.incrementAndGet();
+                LOGGER.fine("The UDP send buffer is full, datagram dropped.");
+            } else {
+                sentDatagrams.increment();
+                sentBytes.add(written);
+            }
+        }
+    };
+    private final AtomicLong droppedDatagrams = new AtomicLong();
+    private final StripedCounter sentDatagrams = new StripedCounter();
+    private final StripedCounter sentBytes = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+
+    private DatagramChannel channel;
+
+    /**
+     * Default constructor.
+     *
+     * @param host The hostname of the UDP server
+     * @param port The port of the UDP server
+     */
+    public NonBlockingUDPSender(final String host, final int port) {
+        this(host, port, DatagramPacker.DEFAULT_MAX_PAYLOAD_SIZE);
+    }
+
+    /**
+     * Constructor with the maximum payload size of the datagrams.
+     *
+     * @param host The hostname of the UDP server
+     * @param port The port of the UDP server
+     * @param maxPayloadSize The maximum payload size of a datagram in bytes
+     */
+    public NonBlockingUDPSender(final String host, final int port, final int maxPayloadSize) {
+        this.host = host;
+        this.port = port;
+        this.packer = new DatagramPacker(maxPayloadSize);
+        this.encoder = Charset.forName("UTF-8").newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocateDirect(packer.getMaxPayloadSize());
+
+        try {
+            openChannel();
+        } catch (Exception e) {
+            LOGGER.warning("Unable to open UDP channel: " + e.toString());
+        }
+    }
+
+    @Override
+    public final synchronized void send(final String message) {
+        try {
+            openChannelIfClosed();
+            packer.pack(message, encoder, buffer, channelWriter);
+        } catch (IOException e) {
+            errors.increment();
+            LOGGER.warning("I/O exception while sending message: " + e.toString());
+            closeChannel();
+        } catch (IllegalArgumentException e) {
+            errors.increment();
+            LOGGER.warning("Unable to open UDP channel: " + e.toString());
+        }
+    }
+
+    @Override
+    public final void send(final String message, final String uri) { }
+
+    @Override
+    public final synchronized void shutdown() {
+        closeChannel();
+    }
+
+    /**
+     * Returns the number of datagrams dropped because they didn't fit in the socket send buffer, plus the number of
+     * metrics dropped because they didn't fit in a datagram.
+     *
+     * @return The number of dropped messages
+     */
+    public final long getDroppedMessages() {
+        return droppedDatagrams.get() + packer.getDroppedLines();
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("udp.datagrams.sent", sentDatagrams);
+        stats.register("udp.bytes.sent", sentBytes);
+        stats.register("udp.errors", errors);
+        stats.register("udp.datagrams.dropped", new Gauge() {
+            @Override
+            public long getValue() {
+                return droppedDatagrams.get();
+            }
+        });
+        stats.register("udp.lines.dropped", new Gauge() {
+            @Override
+            public long getValue() {
+                return packer.getDroppedLines();
+            }
+        });
+    }
+
+    /**
+     * Returns the packer of the datagrams, with the number of packets and bytes sent per flush.
+     *
+     * @return The {@link DatagramPacker} of this sender
+     */
+    public final DatagramPacker getPacker() {
+        return packer;
+    }
+
+    private void openChannelIfClosed() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            openChannel();
+        }
+    }
+
+    private void openChannel() throws IOException {
+        DatagramChannel newChannel = DatagramChannel.open();
+        try {
+            newChannel.configureBlocking(false);
+            newChannel.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            newChannel.close();
+            throw e;
+        } catch (IllegalArgumentException e) {
+            newChannel.close();
+            throw e;
+        }
+        channel = newChannel;
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Unable to close UDP channel: " + e.toString());
+        }
+    }
+}
@@ -1,22 +1,36 @@
 package com.statful.client.transport;
 
+import com.statful.client.core.stats.ClientStats;
+import com.statful.client.core.stats.Gauge;
+import com.statful.client.core.stats.Instrumented;
+import com.statful.client.core.stats.StripedCounter;
 import com.statful.client.core.transport.TransportSender;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
 /**
  * This class is an implementation of {@link com.statful.client.core.transport.TransportSender} to send metrics
  * using UDP.
+ * <p>
+ * Each message is packed by a {@link DatagramPacker} into datagrams that fit the maximum payload size.
  */
-public class UDPSender implements TransportSender {
+public class UDPSender implements TransportSender, Instrumented {
 
     private static final Logger LOGGER = Logger.getLogger(UDPSender.class.getName());
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private final int port;
     private final String host;
+    private final DatagramPacker packer;
+
+    private final StripedCounter sentDatagrams = new StripedCounter();
+    private final StripedCounter sentBytes = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
 
     private InetAddress address;
     private DatagramSocket socket;
@@ -28,8 +42,20 @@ public class UDPSender implements TransportSender {
      * @param port The port of the UDP server
      */
     public UDPSender(final String host, final int port) {
+        this(host, port, DatagramPacker.DEFAULT_MAX_PAYLOAD_SIZE);
+    }
+
+    /**
+     * Constructor with the maximum payload size of the datagrams.
+     *
+     * @param host The hostname of the UDP server
+     * @param port The port of the UDP server
+     * @param maxPayloadSize The maximum payload size of a datagram in bytes
+     */
+    public UDPSender(final String host, final int port, final int maxPayloadSize) {
         this.port = port;
         this.host = host;
+        this.packer = new DatagramPacker(maxPayloadSize);
 
         try {
             createSocket();
@@ -43,6 +69,7 @@ public class UDPSender implements TransportSender {
         try {
             sendMessage(message);
         } catch (IOException e) {
+            errors.increment();
             LOGGER.warning("I/O exception while sending message.");
         }
     }
@@ -53,10 +80,17 @@ public class UDPSender implements TransportSender {
     private void sendMessage(final String message) throws IOException {
         try {
             createSocketIfClosed();
-            socket.send(createPacket(message));
+            for (ByteBuffer datagram : packer.pack(message.getBytes(UTF_8))) {
+                int size = datagram.remaining();
+                socket.send(createPacket(datagram));
+                sentDatagrams.increment();
+                sentBytes.add(size);
+            }
         } catch (SocketException e) {
+            errors.increment();
             LOGGER.warning("Unable to open UDP socket: " + e.toString());
         } catch (UnknownHostException e) {
+            errors.increment();
             LOGGER.warning("Unable to open UDP socket: " + e.toString());
         }
     }
@@ -78,9 +112,30 @@ public class UDPSender implements TransportSender {
         socket = new DatagramSocket();
     }
 
-    private DatagramPacket createPacket(final String message) {
-        byte[] byteMessage = message.getBytes(Charset.forName("UTF-8"));
-        return new DatagramPacket(byteMessage, byteMessage.length, address, port);
+    private DatagramPacket createPacket(final ByteBuffer datagram) {
+        return new DatagramPacket(datagram.array(), datagram.arrayOffset() + datagram.position(), datagram.remaining(), address, port);
+    }
+
+    @Override
+    public final void registerStats(final ClientStats stats) {
+        stats.register("udp.datagrams.sent", sentDatagrams);
+        stats.register("udp.bytes.sent", sentBytes);
+        stats.register("udp.errors", errors);
+        stats.register("udp.lines.dropped", new Gauge() {
+            @Override
+            public long getValue() {
+                return packer.getDroppedLines();
+            }
+        });
+    }
+
+    /**
+     * Returns the packer of the datagrams, with the number of packets and bytes sent per flush.
+     *
+     * @return The {@link DatagramPacker} of this sender
+     */
+    public final DatagramPacker getPacker() {
+        return packer;
     }
 
     /**
@@ -0,0 +1,180 @@
+package com.statful.client.transport;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DatagramPackerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldPackSmallFlushInOneDatagram() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(1432);
+
+        // When
+        List<String> datagrams = asStrings(subject.pack("metric.a 1 100\nmetric.b 2 100\n".getBytes(UTF_8)));
+
+        // Then
+        assertEquals("Should send a single datagram", 1, datagrams.size());
+        assertEquals("Should coalesce lines", "metric.a 1 100\nmetric.b 2 100\n", datagrams.get(0));
+    }
+
+    @Test
+    public void shouldSplitFlushOnLineBoundaries() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(30);
+
+        // When
+        List<String> datagrams = asStrings(subject.pack("metric.a 1 100\nmetric.b 2 100\nmetric.c 3 100".getBytes(UTF_8)));
+
+        // Then
+        assertEquals("Should send two datagrams", 2, datagrams.size());
+        assertEquals("Should fill the first datagram", "metric.a 1 100\nmetric.b 2 100\n", datagrams.get(0));
+        assertEquals("Should send the remaining line", "metric.c 3 100", datagrams.get(1));
+    }
+
+    @Test
+    public void shouldNeverExceedMaxPayloadSize() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(100);
+        StringBuilder flush = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            flush.append("application.counter.requests,host=localhost ").append(i).append(" 100\n");
+        }
+
+        // When
+        List<ByteBuffer> datagrams = subject.pack(flush.toString().getBytes(UTF_8));
+
+        // Then
+        StringBuilder received = new StringBuilder();
+        for (ByteBuffer datagram : datagrams) {
+            assertTrue("Should fit the max payload size", datagram.remaining() <= 100);
+            received.append(new String(datagram.array(), datagram.position(), datagram.remaining(), UTF_8));
+        }
+        assertEquals("Should send every line", flush.toString(), received.toString());
+    }
+
+    @Test
+    public void shouldMeasureMultiByteCharactersInBytes() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(10);
+
+        // When
+        List<String> datagrams = asStrings(subject.pack("ação 1\nação 2\n".getBytes(UTF_8)));
+
+        // Then
+        assertEquals("Should split on byte size", 2, datagrams.size());
+        assertEquals("Should keep characters whole", "ação 1\n", datagrams.get(0));
+    }
+
+    @Test
+    public void shouldDropLinesBiggerThanMaxPayloadSize() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(20);
+
+        // When
+        List<String> datagrams = asStrings(subject.pack("a 1\nthis.line.is.too.big 1 100\nb 2\n".getBytes(UTF_8)));
+
+        // Then
+        assertEquals("Should send the lines around the dropped one", 2, datagrams.size());
+        assertEquals("Should send the line before", "a 1\n", datagrams.get(0));
+        assertEquals("Should send the line after", "b 2\n", datagrams.get(1));
+        assertEquals("Should count the dropped line", 1, subject.getDroppedLines());
+        assertEquals("Should not count the bytes of the dropped line", 8, subject.getBytes());
+    }
+
+    @Test
+    public void shouldReportPacketsAndBytesPerFlush() {
+        // Given
+        DatagramPacker subject = new DatagramPacker(10);
+
+        // When
+        subject.pack("a 1\nb 2\nc 3\n".getBytes(UTF_8));
+        subject.pack("d 4\n".getBytes(UTF_8));
+
+        // Then
+        assertEquals("Should count flushes", 2, subject.getFlushes());
+        assertEquals("Should count datagrams", 3, subject.getPackets());
+        assertEquals("Should count bytes", 16, subject.getBytes());
+    }
+
+    @Test
+    public void shouldNotPackEmptyFlush() {
+        DatagramPacker subject = new DatagramPacker(10);
+
+        assertTrue("Should not send datagrams", subject.pack(new byte[0]).isEmpty());
+    }
+
+    @Test
+    public void shouldBoundMaxPayloadSize() {
+        assertEquals("Should default when not positive", DatagramPacker.DEFAULT_MAX_PAYLOAD_SIZE, new DatagramPacker(0).getMaxPayloadSize());
+        assertEquals("Should cap at the max datagram size", DatagramPacker.MAX_DATAGRAM_SIZE, new DatagramPacker(100000).getMaxPayloadSize());
+    }
+
+    @Test
+    public void shouldEncodeFlushIntoBufferOnLineBoundaries() throws Exception {
+        // Given
+        DatagramPacker subject = new DatagramPacker(30);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(subject.getMaxPayloadSize());
+        final List<String> datagrams = new ArrayList<String>();
+
+        // When
+        subject.pack("metric.a 1 100\nação.b 2 100\nmetric.c 3 100", UTF_8.newEncoder(), buffer, new DatagramPacker.DatagramWriter() {
+            @Override
+            public void write(final ByteBuffer datagram) {
+                assertTrue("Should fit the max payload size", datagram.remaining() <= 30);
+                byte[] bytes = new byte[datagram.remaining()];
+                datagram.get(bytes);
+                datagrams.add(new String(bytes, UTF_8));
+            }
+        });
+
+        // Then
+        assertEquals("Should send two datagrams", 2, datagrams.size());
+        assertEquals("Should fill the first datagram", "metric.a 1 100\nação.b 2 100\n", datagrams.get(0));
+        assertEquals("Should send the remaining line", "metric.c 3 100", datagrams.get(1));
+        assertEquals("Should count datagrams", 2, subject.getPackets());
+        assertEquals("Should count encoded bytes", 44, subject.getBytes());
+    }
+
+    @Test
+    public void shouldDropLinesBiggerThanMaxPayloadSizeWhenEncoding() throws Exception {
+        // Given
+        DatagramPacker subject = new DatagramPacker(20);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(subject.getMaxPayloadSize());
+        final List<String> datagrams = new ArrayList<String>();
+
+        // When
+        subject.pack("a 1\nthis.line.is.too.big 1 100\nb 2\n", UTF_8.newEncoder(), buffer, new DatagramPacker.DatagramWriter() {
+            @Override
+            public void write(final ByteBuffer datagram) {
+                byte[] bytes = new byte[datagram.remaining()];
+                datagram.get(bytes);
+                datagrams.add(new String(bytes, UTF_8));
+            }
+        });
+
+        // Then
+        assertEquals("Should send the lines around the dropped one", 2, datagrams.size());
+        assertEquals("Should send the line before", "a 1\n", datagrams.get(0));
+        assertEquals("Should send the line after", "b 2\n", datagrams.get(1));
+        assertEquals("Should count the dropped line", 1, subject.getDroppedLines());
+        assertEquals("Should not count the bytes of the dropped line", 8, subject.getBytes());
+    }
+
+    private static List<String> asStrings(final List<ByteBuffer> datagrams) {
+        List<String> strings = new ArrayList<String>();
+        for (ByteBuffer datagram : datagrams) {
+            strings.add(new String(datagram.array(), datagram.position(), datagram.remaining(), UTF_8));
+        }
+        return strings;
+    }
+}
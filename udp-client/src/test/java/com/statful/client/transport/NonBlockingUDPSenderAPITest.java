@@ -0,0 +1,114 @@
+package com.statful.client.transport;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class NonBlockingUDPSenderAPITest {
+
+    private static ExecutorService executorService;
+
+    @BeforeClass
+    public static void setUp() {
+        executorService = Executors.newFixedThreadPool(1);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldInstantiateIfChannelCreationFails() {
+        NonBlockingUDPSender subject = new NonBlockingUDPSender(null, 1000);
+
+        assertNotNull("UDP sender should always instantiate", subject);
+    }
+
+    @Test
+    public void shouldSendUDPMessage() throws Exception {
+        Future<String> response = executorService.submit(new UdpEcho(2016));
+
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016);
+        subject.send("Hello world");
+
+        assertEquals("Should send UDP message", "Hello world", response.get());
+        assertEquals("Should not drop messages", 0, subject.getDroppedMessages());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldSplitMessageInDatagrams() throws Exception {
+        Future<String> response = executorService.submit(new UdpEcho(2016));
+
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016, 12);
+        subject.send("line1\nline2\nline3");
+
+        assertEquals("Should send the first datagram", "line1\nline2", response.get());
+        assertEquals("Should pack two datagrams", 2, subject.getPacker().getPackets());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldReuseTheBufferBetweenMessages() throws Exception {
+        Future<String> first = executorService.submit(new UdpEcho(2016));
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016);
+        subject.send("A longer first message");
+        assertEquals("Should send first message", "A longer first message", first.get());
+
+        Future<String> second = executorService.submit(new UdpEcho(2016));
+        subject.send("Short");
+        assertEquals("Should send only the second message", "Short", second.get());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldRecoverFromClosedChannel() throws Exception {
+        Future<String> response = executorService.submit(new UdpEcho(2016));
+
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016);
+        subject.shutdown();
+
+        subject.send("Hello world");
+        assertEquals("Should send UDP message", "Hello world", response.get());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldDropMessagesBiggerThanADatagram() {
+        // Given
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            sb.append('a');
+        }
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016);
+
+        // When
+        subject.send(sb.toString());
+
+        // Then
+        assertEquals("Should count the dropped message", 1, subject.getDroppedMessages());
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldNotThrowExceptionWhileSendingToUnknownHost() {
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("batatas", 2013);
+        subject.send("Hello world");
+        subject.shutdown();
+    }
+
+    @Test
+    public void shouldNotThrowExceptionWhenShuttingDownTwice() {
+        NonBlockingUDPSender subject = new NonBlockingUDPSender("127.0.0.1", 2016);
+        subject.shutdown();
+        subject.shutdown();
+    }
+}
@@ -1,5 +1,6 @@
 package com.statful.client.transport;
 
+import com.statful.client.core.stats.ClientStats;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -47,6 +48,31 @@ public class UDPSenderAPITest {
         assertEquals("Should send UDP message", "Hello world", response.get());
     }
 
+    @Test
+    public void shouldSplitMessageInDatagrams() throws Exception {
+        Future<String> response = executorService.submit(new UdpEcho(2015));
+
+        UDPSender subject = new UDPSender("127.0.0.1", 2015, 12);
+        subject.send("line1\nline2\nline3");
+
+        assertEquals("Should send the first datagram", "line1\nline2", response.get());
+        assertEquals("Should pack two datagrams", 2, subject.getPacker().getPackets());
+    }
+
+    @Test
+    public void shouldCollectDatagramStats() throws Exception {
+        Future<String> response = executorService.submit(new UdpEcho(2015));
+
+        UDPSender subject = new UDPSender("127.0.0.1", 2015);
+        ClientStats stats = new ClientStats();
+        stats.registerAll(subject);
+        subject.send("Hello world");
+        response.get();
+
+        assertEquals("Should count the datagram", Long.valueOf(1), stats.get("udp.datagrams.sent"));
+        assertEquals("Should count the bytes", Long.valueOf(11), stats.get("udp.bytes.sent"));
+    }
+
     @Test
     public void shouldRecoverFromClosedSocket() throws Exception {
         Future<String> response = executorService.submit(new UdpEcho(2015));